@@ -0,0 +1,200 @@
+package net.booru.slidingrobots;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import net.booru.slidingrobots.algorithm.NoSolutionException;
+import net.booru.slidingrobots.algorithm.SearchAbortedException;
+import net.booru.slidingrobots.algorithm.SlidingRobotsSearchAlgorithm;
+import net.booru.slidingrobots.algorithm.model.Solution;
+import net.booru.slidingrobots.algorithm.model.SolutionLengthCount;
+import net.booru.slidingrobots.common.Timer;
+import net.booru.slidingrobots.state.Board;
+import net.booru.slidingrobots.state.Game;
+import net.booru.slidingrobots.state.RobotsStateUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Solves a stream of maps, one per input line, on a pool of worker threads, and writes one json result line per input
+ * line as soon as it is solved. The results are written in completion order, the {@code index} of a result is the
+ * index of its input line (ignoring blank lines) so that the input order can be restored.
+ * <p>
+ * An input line is a map string, a seed string or a json object with a {@code seedString} or {@code mapString} field,
+ * e.g. a line of a generated maps file. At most a few inputs per worker are read ahead, so memory use does not depend
+ * on the input size.
+ */
+class BatchSolver {
+    private static final Logger cLogger = LoggerFactory.getLogger(BatchSolver.class);
+
+    static final String STDIO = "-";
+    private static final int INPUTS_PER_WORKER = 4;
+
+    private final Function<Board, SlidingRobotsSearchAlgorithm> iAlgorithmFactory;
+    private final int iWorkerCount;
+    private final ObjectMapper iMapper = new ObjectMapper();
+    private final ObjectWriter iWriter = iMapper.writer();
+
+    /**
+     * One output line.
+     *
+     * @param status one of solved, no_solution, aborted, invalid, failed
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    record BatchResult(int index,
+                       String input,
+                       String status,
+                       Integer solutionLength,
+                       List<SolutionLengthCount> solutionLengths,
+                       List<RobotsStateUtil.Move> moveList,
+                       Double timeMs,
+                       String error) {
+
+        static BatchResult failed(final int index, final String input, final String status, final String error) {
+            return new BatchResult(index, input, status, null, null, null, null, error);
+        }
+    }
+
+    /**
+     * @param algorithmFactory creates the solver, it is called from several worker threads
+     * @param workerCount      the number of worker threads
+     */
+    BatchSolver(final Function<Board, SlidingRobotsSearchAlgorithm> algorithmFactory, final int workerCount) {
+        if (workerCount < 1) {
+            throw new IllegalArgumentException("workerCount must be > 0, got " + workerCount);
+        }
+        iAlgorithmFactory = algorithmFactory;
+        iWorkerCount = workerCount;
+    }
+
+    /**
+     * @param inputFile  the input file, or "-" for stdin
+     * @param outputFile the output file, or "-" for stdout
+     */
+    void solveBatch(final String inputFile, final String outputFile) throws IOException {
+        try (BufferedReader reader = STDIO.equals(inputFile)
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Path.of(inputFile));
+             Writer writer = STDIO.equals(outputFile)
+                     ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)) //NOSONAR
+                     : Files.newBufferedWriter(Path.of(outputFile))) {
+
+            final Timer timer = new Timer();
+            final int inputCount = solveBatch(reader, writer);
+            timer.stop();
+
+            cLogger.info("Solved {} maps in {} ms with {} workers", inputCount, timer.getDurationMillis(), iWorkerCount);
+        }
+    }
+
+    /**
+     * @return the number of inputs
+     * @throws IOException if the input could not be read or a result could not be written, no more inputs are read after
+     *                     a failed write
+     */
+    int solveBatch(final BufferedReader reader, final Writer writer) throws IOException {
+        final Semaphore pending = new Semaphore(iWorkerCount * INPUTS_PER_WORKER);
+        final AtomicInteger index = new AtomicInteger();
+        final AtomicReference<IOException> writeFailure = new AtomicReference<>();
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(iWorkerCount)) {
+            String line;
+            while (writeFailure.get() == null && (line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+
+                pending.acquireUninterruptibly();
+                final String input = line.trim();
+                final int inputIndex = index.getAndIncrement();
+                executor.execute(() -> {
+                    try {
+                        final String json = iWriter.writeValueAsString(solve(inputIndex, input));
+                        synchronized (writer) {
+                            writer.write(json);
+                            writer.write('\n');
+                            writer.flush();
+                        }
+                    } catch (IOException e) {
+                        if (!writeFailure.compareAndSet(null, e)) {
+                            writeFailure.get().addSuppressed(e);
+                        }
+                    } finally {
+                        pending.release();
+                    }
+                });
+            }
+        }
+        if (writeFailure.get() != null) {
+            throw writeFailure.get();
+        }
+        return index.get();
+    }
+
+    private BatchResult solve(final int index, final String input) {
+        final Game game;
+        try {
+            game = Game.valueOf(toMapOrSeed(input));
+        } catch (JsonProcessingException | RuntimeException e) {
+            return BatchResult.failed(index, input, "invalid", String.valueOf(e.getMessage()));
+        }
+
+        try {
+            final Timer timer = new Timer();
+            final Solution solution = iAlgorithmFactory.apply(game.getBoard())
+                    .run(game.getInitialRobotsState(), game.getEndCriteria());
+            timer.stop();
+
+            return new BatchResult(index, input, "solved",
+                    solution.getStatistics().getSolutionLength(),
+                    solution.getStatistics().getSolutionLengths(),
+                    RobotsStateUtil.getMoveList(solution.getSolutionPath()),
+                    timer.getDurationMillis(),
+                    null);
+        } catch (NoSolutionException e) {
+            return BatchResult.failed(index, input, "no_solution", null);
+        } catch (SearchAbortedException e) {
+            return BatchResult.failed(index, input, "aborted", e.getMessage());
+        } catch (RuntimeException e) {
+            cLogger.warn("Failed to solve input {}: {}", index, input, e);
+            return BatchResult.failed(index, input, "failed", String.valueOf(e));
+        }
+    }
+
+    /**
+     * @return the seed string or map string of a json input line, or the line itself
+     */
+    private String toMapOrSeed(final String input) throws JsonProcessingException {
+        if (!input.startsWith("{")) {
+            return input;
+        }
+
+        final JsonNode json = iMapper.readTree(input);
+        if (json.hasNonNull("seedString")) {
+            return json.get("seedString").asText();
+        }
+        if (json.hasNonNull("mapString")) {
+            return json.get("mapString").asText();
+        }
+        throw new IllegalArgumentException("json input requires a seedString or mapString field");
+    }
+}
@@ -1,23 +1,38 @@
 package net.booru.slidingrobots;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import net.booru.slidingrobots.common.Direction;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.time.Duration;
-import java.time.OffsetDateTime;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -25,10 +40,18 @@ import java.util.stream.Stream;
  * This is a converter that can convert game reports to a plain data format to use for experimenting with ANN.
  * Currently, this is just for fun. There is an algorithmic difficulty that is pointless for real life.
  * In reality, we most want to extract the difficulty function from the data and also do some unsupervised learning on level clustering.
+ * <p>
+ * The game reports can be far larger than the memory. They are read twice with a streaming parser, in chunks that are
+ * parsed in parallel: first aggregated per puzzle for the difficulty, then converted to data rows.
  */
 public class GameReportConverter {
     private static final Logger cLogger = LoggerFactory.getLogger(GameReportConverter.class);
 
+    /**
+     * The number of game reports parsed by one worker task.
+     */
+    private static final int REPORT_CHUNK_SIZE = 4096;
+
     private final ObjectMapper iMapper;
 
     public GameReportConverter() {
@@ -52,96 +75,204 @@ public class GameReportConverter {
             throw new IllegalArgumentException("Need to provide an input maps file.");
         }
 
-        final List<Puzzle> puzzles = Files.readAllLines(inputPath).stream()
-                .flatMap(line -> Stream.ofNullable(parseJson(line, Puzzle.class)))
-                .toList();
+        convertToDataFormat(outputPathData, readPuzzles(inputPath));
+    }
 
-        convertToDataFormat(outputPathData, puzzles);
+    /**
+     * Folds the reports of one report file, e.g. of a day, into the aggregates of the store file. The store file is
+     * created if it does not exist. A report file that is already folded in, by file name, is skipped.
+     *
+     * @param mapsFile   the generated maps file of the puzzles
+     * @param reportFile a json array of game reports
+     * @param storeFile  the aggregates of the reports folded in so far, see {@link PuzzleAggregateStore}
+     * @param hashesFile the puzzle ids of the seed strings, json lines of {@code seed_string} and {@code puzzle_id}
+     */
+    public void foldReports(final String mapsFile, final String reportFile, final String storeFile,
+                            final String hashesFile) throws IOException {
+        final Path reportPath = Path.of(reportFile);
+        final Path storePath = Path.of(storeFile);
+        final PuzzleAggregateStore store = PuzzleAggregateStore.load(storePath, iMapper);
+        final String reportFileName = reportPath.getFileName().toString();
+        if (store.isFolded(reportFileName)) {
+            cLogger.info("Reports {} are already folded into {}", reportFileName, storeFile);
+            return;
+        }
+
+        final Map<String, Puzzle> puzzlesById =
+                getPuzzlesById(readPuzzles(Path.of(mapsFile)), readSeedStringHashes(hashesFile));
+        final Set<String> updated = store.fold(reportFileName, readPuzzleAggregates(reportPath, puzzlesById));
+        store.save(storePath, iMapper);
+        cLogger.info("Folded reports {} into {}, updated {} of {} puzzles", reportFileName, storeFile, updated.size(),
+                store.getPuzzles().size());
+    }
+
+    /**
+     * Replays the moves of the game reports on the boards of the puzzles, see {@link GameReportVerifier}. The reports
+     * are verified in parallel chunks while streaming, the flagged reports are written in the order of the report file.
+     *
+     * @param reportFile        a json array of game reports
+     * @param flaggedOutputFile the results of the reports that are not ok, as json lines
+     * @param hashesFile        the puzzle ids of the seed strings, json lines of {@code seed_string} and {@code puzzle_id}
+     * @return the number of reports of each verdict
+     */
+    public Map<GameReportVerifier.Verdict, Long> verifyReports(final String reportFile, final String flaggedOutputFile,
+                                                               final String hashesFile) throws IOException {
+        final Map<String, String> seedsByPuzzleId = new HashMap<>();
+        readSeedStringHashes(hashesFile).forEach((seed, puzzleId) -> seedsByPuzzleId.put(puzzleId, seed));
+        final Map<GameReportVerifier.Verdict, Long> counts =
+                verifyReports(Path.of(reportFile), seedsByPuzzleId, Path.of(flaggedOutputFile));
+        cLogger.info("Verified the game reports {}: {}, flagged reports written to {}", reportFile, counts,
+                flaggedOutputFile);
+        return counts;
+    }
+
+    /**
+     * @param seedsByPuzzleId the seed strings of the puzzles, reports of other puzzles are flagged as unknown
+     */
+    Map<GameReportVerifier.Verdict, Long> verifyReports(final Path gameReportFile, final Map<String, String> seedsByPuzzleId,
+                                                         final Path flaggedOutputFile) throws IOException {
+        final GameReportVerifier verifier = new GameReportVerifier(seedsByPuzzleId);
+        final Map<GameReportVerifier.Verdict, Long> counts = new EnumMap<>(GameReportVerifier.Verdict.class);
+        try (final BufferedWriter writer = Files.newBufferedWriter(flaggedOutputFile)) {
+            forEachReportChunk(gameReportFile, reports -> reports.stream().map(verifier::verify).toList(), results -> {
+                for (GameReportVerifier.Result result : results) {
+                    counts.merge(result.verdict(), 1L, Long::sum);
+                    if (result.verdict() != GameReportVerifier.Verdict.ok) {
+                        writer.write(iMapper.writeValueAsString(result));
+                        writer.newLine();
+                    }
+                }
+            });
+        }
+        return counts;
     }
 
     private void convertToDataFormat(final Path outputPath, final List<Puzzle> allPuzzles) throws IOException {
         // we need the mapping from seed to puzzle_id
         final Map<String, String> hashes = readSeedStringHashes("junk/hashes.json");
-        final Map<String, List<GameReport>> gameReportMap = readGameReports("junk/game_reports.json");
+        final Path gameReportFile = Path.of("junk/game_reports.json");
+        final Map<String, Puzzle> puzzlesById = getPuzzlesById(allPuzzles, hashes);
+
+        final Map<String, PuzzleAggregate> aggregates = readPuzzleAggregates(gameReportFile, puzzlesById);
+        final Map<String, Float> puzzleDifficultyMap = new HashMap<>();
+        aggregates.forEach((puzzleId, aggregate) -> puzzleDifficultyMap.put(puzzleId, aggregate.updateDifficulty()));
+        cLogger.info("Aggregated the game reports of {} puzzles", aggregates.size());
+
+        // one data row per report of a known puzzle, in the order of the reports
+        try (final JsonGenerator generator = iMapper.getFactory().createGenerator(Files.newBufferedWriter(outputPath))) {
+            generator.useDefaultPrettyPrinter();
+            generator.writeStartArray();
+            forEachReportChunk(gameReportFile, reports -> {
+                final List<Data> data = new ArrayList<>();
+                for (GameReport report : reports) {
+                    final Puzzle puzzle = puzzlesById.get(report.puzzle_id());
+                    if (puzzle != null) {
+                        data.add(new Data(
+                                puzzle.seedString,
+                                report.puzzle_id(),
+                                puzzle.solutionLength,
+                                getSolutionsCount(0, puzzle),
+                                getSolutionsCount(1, puzzle),
+                                getSolutionsCount(2, puzzle),
+                                puzzle.rankValues.get(1).rankValue,
+                                report.getDurationS(),
+                                report.moveCount(),
+                                puzzleDifficultyMap.get(report.puzzle_id())
+                        ));
+                    }
+                }
+                return data;
+            }, data -> {
+                for (Data row : data) {
+                    iMapper.writeValue(generator, row);
+                }
+            });
+            generator.writeEndArray();
+        }
 
-        final List<Puzzle> availablePuzzles = allPuzzles.stream().flatMap(
-                puzzle -> {
-                    final String puzzleId = hashes.get(puzzle.seedString);
-                    final List<GameReport> gameReports = gameReportMap.get(puzzleId);
+        cLogger.info("Data written to file: {}", outputPath);
+    }
 
-                    if (puzzleId == null || gameReports == null) {
-                        return Stream.empty(); // this puzzle is not in the data
+    /**
+     * @param puzzlesById the puzzles to aggregate, reports of other puzzles are skipped
+     * @return the aggregated reports by puzzle id, for the puzzles that have reports
+     */
+    Map<String, PuzzleAggregate> readPuzzleAggregates(final Path gameReportFile, final Map<String, Puzzle> puzzlesById)
+            throws IOException {
+        final Map<String, PuzzleAggregate> aggregates = new HashMap<>();
+        forEachReportChunk(gameReportFile, reports -> {
+            final Map<String, PuzzleAggregate> chunkAggregates = new HashMap<>();
+            for (GameReport report : reports) {
+                final Puzzle puzzle = puzzlesById.get(report.puzzle_id());
+                if (puzzle != null) {
+                    chunkAggregates.computeIfAbsent(report.puzzle_id(), id -> new PuzzleAggregate(puzzle.solutionLength))
+                            .add(report);
+                }
+            }
+            return chunkAggregates;
+        }, chunkAggregates -> chunkAggregates.forEach((puzzleId, aggregate) ->
+                aggregates.merge(puzzleId, aggregate, PuzzleAggregate::merge)));
+        return aggregates;
+    }
+
+    /**
+     * Reads the json array of game reports with a streaming parser, in chunks of {@link #REPORT_CHUNK_SIZE} reports.
+     * The tokens of a chunk are bound to reports and processed by a worker thread, the results are consumed in the
+     * order of the chunks. At most two chunks per worker are in memory.
+     */
+    <R> void forEachReportChunk(final Path gameReportFile, final Function<List<GameReport>, R> process,
+                                final ChunkConsumer<R> consumer) throws IOException {
+        final int workers = Runtime.getRuntime().availableProcessors();
+        final Deque<Future<R>> pending = new ArrayDeque<>();
+        try (final ExecutorService executor = Executors.newFixedThreadPool(workers);
+             final JsonParser parser = iMapper.getFactory().createParser(Files.newBufferedReader(gameReportFile))) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Expected an array of game reports in " + gameReportFile);
+            }
+
+            List<TokenBuffer> chunk = new ArrayList<>(REPORT_CHUNK_SIZE);
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                final TokenBuffer buffer = new TokenBuffer(parser);
+                buffer.copyCurrentStructure(parser);
+                chunk.add(buffer);
+                if (chunk.size() == REPORT_CHUNK_SIZE) {
+                    pending.add(submitChunk(executor, chunk, process));
+                    chunk = new ArrayList<>(REPORT_CHUNK_SIZE);
+                    if (pending.size() == 2 * workers) {
+                        consumer.accept(await(pending.poll()));
                     }
-                    return Stream.of(puzzle);
-                }).toList();
-
-        final Map<String, Float> puzzleDifficultyMap = computeDifficulty(availablePuzzles, hashes, gameReportMap);
-
-        final List<Data> data = availablePuzzles.stream().flatMap(
-                puzzle -> {
-                    final String puzzleId = hashes.get(puzzle.seedString);
-                    final List<GameReport> gameReports = gameReportMap.get(puzzleId);
-                    final float difficulty = puzzleDifficultyMap.get(puzzle.seedString);
-                    return gameReports.stream().map(
-                            report -> new Data(
-                                    puzzle.seedString,
-                                    puzzleId,
-                                    puzzle.solutionLength,
-                                    getSolutionsCount(0, puzzle),
-                                    getSolutionsCount(1, puzzle),
-                                    getSolutionsCount(2, puzzle),
-                                    puzzle.rankValues.get(1).rankValue,
-                                    report.getDurationS(),
-                                    report.getMoveCount(),
-                                    difficulty
-                            ));
                 }
-        ).toList();
+            }
+            if (!chunk.isEmpty()) {
+                pending.add(submitChunk(executor, chunk, process));
+            }
+            while (!pending.isEmpty()) {
+                consumer.accept(await(pending.poll()));
+            }
+        } finally {
+            pending.forEach(future -> future.cancel(true));
+        }
+    }
 
-        writeJsonFile(outputPath, data);
+    interface ChunkConsumer<R> {
+        void accept(R result) throws IOException;
     }
 
-    // make up some difficulty
-    private Map<String, Float> computeDifficulty(final List<Puzzle> availablePuzzles, final Map<String, String> hashes,
-                                                 final Map<String, List<GameReport>> gameReportMap) {
-        record PuzzleDifficulty(Puzzle puzzle, float difficulty) {}
-        final double maxMoves = 20;
-
-        return availablePuzzles.stream()
-                .map(puzzle -> {
-                            final String puzzleId = hashes.get(puzzle.seedString);
-                            final List<GameReport> gameReports = gameReportMap.get(puzzleId);
-                            final var timeStats = new DescriptiveStatistics();
-                            final var movesStats = new DescriptiveStatistics();
-
-                            int optimalAttempts = 0;
-                            for (GameReport gameReport : gameReports) {
-                                final int moveCount = gameReport.getMoveCount();
-                                switch (gameReport.exit_status) {
-                                    case win -> {
-                                        if (moveCount == puzzle.solutionLength) {
-                                            optimalAttempts++;
-                                        }
-                                        timeStats.addValue(gameReport.getDurationS());
-                                        movesStats.addValue(moveCount);
-                                    }
-
-                                    case reset, loss -> {
-                                        movesStats.addValue(puzzle.solutionLength * 2);
-                                        timeStats.addValue(10.0 * puzzle.solutionLength);
-                                    }
-                                }
-                            }
-
-                            final double attempts = optimalAttempts == 0 ? 0.01 : optimalAttempts;
-                            final double attemptsScore = 1.0 + Math.log(gameReports.size() / attempts);
-                            final double moveScore = movesStats.getMean() / puzzle.solutionLength;
-                            final double timeScore = Math.sqrt(timeStats.getMean() / puzzle.solutionLength);
-
-                            final float difficulty = (float) (moveScore * timeScore * attemptsScore);
-                            return new PuzzleDifficulty(puzzle, difficulty);
-                        }
-                ).collect(Collectors.toMap(p -> p.puzzle.seedString, PuzzleDifficulty::difficulty));
+    private List<Puzzle> readPuzzles(final Path mapsFile) throws IOException {
+        try (final Stream<String> lines = Files.lines(mapsFile)) {
+            return lines.flatMap(line -> Stream.ofNullable(parseJson(line, Puzzle.class))).toList();
+        }
+    }
+
+    private static Map<String, Puzzle> getPuzzlesById(final List<Puzzle> puzzles, final Map<String, String> hashes) {
+        final Map<String, Puzzle> puzzlesById = new HashMap<>();
+        for (Puzzle puzzle : puzzles) {
+            final String puzzleId = hashes.get(puzzle.seedString);
+            if (puzzleId != null) {
+                puzzlesById.put(puzzleId, puzzle);
+            }
+        }
+        return puzzlesById;
     }
 
     @SuppressWarnings("ConstantConditions")
@@ -154,24 +285,10 @@ public class GameReportConverter {
                 String puzzle_id
         ) {}
 
-        final Map<String, String> seedHashMap = Files.readAllLines(Path.of(hashesJson)).stream()
-                .map(line -> parseJson(line, SeedHash.class))
-                .collect(Collectors.toMap(SeedHash::seed_string, SeedHash::puzzle_id));
-
-        return seedHashMap;
-    }
-
-    private Map<String, List<GameReport>> readGameReports(final String gameReportFile) throws IOException {
-        final List<GameReport> gameReports = iMapper.readValue(Files.readString(Path.of(gameReportFile)), new TypeReference<>() {
-        });
-
-        final Map<String, List<GameReport>> map = new HashMap<>();
-        for (GameReport gameReport : gameReports) {
-            final String key = gameReport.puzzle_id();
-            map.computeIfAbsent(key, k -> new ArrayList<>()).add(gameReport);
+        try (final Stream<String> lines = Files.lines(Path.of(hashesJson))) {
+            return lines.map(line -> parseJson(line, SeedHash.class))
+                    .collect(Collectors.toMap(SeedHash::seed_string, SeedHash::puzzle_id));
         }
-
-        return map;
     }
 
     int getSolutionsCount(int index, Puzzle puzzle) {
@@ -183,15 +300,28 @@ public class GameReportConverter {
 
     //---------------------------------------------
 
-    private void writeJsonFile(final Path outputPath, final Object data) throws IOException {
-        final String json = iMapper.writerWithDefaultPrettyPrinter().writeValueAsString(data);
-        try (final var bufferedWriter = Files.newBufferedWriter(outputPath)) {
-            bufferedWriter.write(json);
-            bufferedWriter.newLine();
-            bufferedWriter.flush();
-        }
+    private <R> Future<R> submitChunk(final ExecutorService executor, final List<TokenBuffer> chunk,
+                                      final Function<List<GameReport>, R> process) {
+        return executor.submit(() -> {
+            final List<GameReport> reports = new ArrayList<>(chunk.size());
+            for (TokenBuffer buffer : chunk) {
+                try (final JsonParser reportParser = buffer.asParser(iMapper)) {
+                    reports.add(iMapper.readValue(reportParser, GameReport.class));
+                }
+            }
+            return process.apply(reports);
+        });
+    }
 
-        cLogger.info("Data written to file: {}", outputPath);
+    private static <R> R await(final Future<R> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading game reports", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to read game reports", e.getCause());
+        }
     }
 
     private <T> T parseJson(final String line, final Class<T> myMapClass) {
@@ -240,24 +370,87 @@ public class GameReportConverter {
             float difficulty
     ) {}
 
-    // INPUT partial game report
+    // INPUT partial game report, the times are parsed once and the moves are packed, see packMove
     @JsonIgnoreProperties(ignoreUnknown = true)
     record GameReport(
             String puzzle_id,
             String user_id,
-            String start_time,
-            String end_time,
+            long startMillis,
+            long endMillis,
             ExitStatus exit_status,
-            List<Move> moves
+            int[] moves
     ) {
-        public int getDurationS() {
-            final var startTime = OffsetDateTime.parse(start_time + "Z").toInstant();
-            final var endTime = OffsetDateTime.parse(end_time + "Z").toInstant();
-            return (int) Math.round(Duration.between(startTime, endTime).toMillis() / 1000.);
+        /**
+         * The packed direction of a move that is not along an axis.
+         */
+        static final int INVALID_DIRECTION = 0xFF;
+        /**
+         * The packed coordinate of a position outside [0, 0xFF).
+         */
+        static final int INVALID_COORDINATE = 0xFF;
+
+        @JsonCreator
+        static GameReport of(@JsonProperty("puzzle_id") final String puzzleId,
+                             @JsonProperty("user_id") final String userId,
+                             @JsonProperty("start_time") final String startTime,
+                             @JsonProperty("end_time") final String endTime,
+                             @JsonProperty("exit_status") final ExitStatus exitStatus,
+                             @JsonProperty("moves") final List<Move> moves) {
+            final int[] packedMoves = moves == null
+                    ? new int[0]
+                    : moves.stream().mapToInt(GameReport::packMove).toArray();
+            return new GameReport(puzzleId, userId, parseUtcMillis(startTime), parseUtcMillis(endTime), exitStatus,
+                    packedMoves);
+        }
+
+        /**
+         * @return {@code x << 16 | y << 8 | direction}, the position of the moved robot before the move and the ordinal
+         * of the direction, or the invalid values
+         */
+        static int packMove(final Move move) {
+            final int dx = move.dir() == null ? 0 : move.dir().dx();
+            final int dy = move.dir() == null ? 0 : move.dir().dy();
+            final int direction = (dx == 0) != (dy == 0)
+                    ? Direction.valueOf(Integer.signum(dx), Integer.signum(dy)).ordinal()
+                    : INVALID_DIRECTION;
+            final int x = move.pos() == null ? INVALID_COORDINATE : packCoordinate(move.pos().x());
+            final int y = move.pos() == null ? INVALID_COORDINATE : packCoordinate(move.pos().y());
+            return x << 16 | y << 8 | direction;
+        }
+
+        static int unpackX(final int packedMove) {
+            return packedMove >>> 16;
+        }
+
+        static int unpackY(final int packedMove) {
+            return (packedMove >>> 8) & 0xFF;
+        }
+
+        /**
+         * @return the direction of the move, or null if it is not along an axis
+         */
+        static Direction unpackDirection(final int packedMove) {
+            final int direction = packedMove & 0xFF;
+            return direction == INVALID_DIRECTION ? null : Direction.values()[direction];
+        }
+
+        private static int packCoordinate(final int coordinate) {
+            return coordinate >= 0 && coordinate < INVALID_COORDINATE ? coordinate : INVALID_COORDINATE;
+        }
+
+        public int moveCount() {
+            return moves.length;
+        }
+
+        /**
+         * @param time a date-time without offset in UTC, e.g. "2024-03-01T12:30:15.123"
+         */
+        static long parseUtcMillis(final String time) {
+            return LocalDateTime.parse(time).toInstant(ZoneOffset.UTC).toEpochMilli();
         }
 
-        public int getMoveCount() {
-            return moves.size();
+        public int getDurationS() {
+            return (int) Math.round((endMillis - startMillis) / 1000.);
         }
     }
 
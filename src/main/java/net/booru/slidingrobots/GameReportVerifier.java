@@ -0,0 +1,93 @@
+package net.booru.slidingrobots;
+
+import net.booru.slidingrobots.algorithm.model.Waypoint;
+import net.booru.slidingrobots.common.Direction;
+import net.booru.slidingrobots.state.Game;
+import net.booru.slidingrobots.state.RobotsState;
+import net.booru.slidingrobots.state.RobotsStateUtil;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Replays the moves of game reports on the board of the puzzle, to find reports with moves the game does not allow and
+ * reports that claim a win the moves do not reach.
+ * <p>
+ * The game of a seed is built once and shared by all reports of the puzzle, the verifier is thread safe.
+ */
+final class GameReportVerifier {
+    private final Map<String, String> iSeedsByPuzzleId;
+    private final Map<String, Game> iGamesBySeed = new ConcurrentHashMap<>();
+
+    enum Verdict {
+        ok,
+        unknown_puzzle,
+        illegal_move,            // no robot at the position, not a direction, or the robot cannot move
+        claimed_win_not_reached, // the exit status is win, but the last waypoint is not reached
+        moves_after_win          // moves after the last waypoint is reached
+    }
+
+    /**
+     * @param illegalMoveIndex the index of the illegal move or the first move after the win, -1 if there is none
+     * @param waypointsReached the number of waypoints reached by the moves up to the illegal move
+     */
+    record Result(
+            String puzzle_id,
+            String user_id,
+            GameReportConverter.ExitStatus exit_status,
+            Verdict verdict,
+            int moveCount,
+            int illegalMoveIndex,
+            boolean isWin,
+            int waypointsReached
+    ) {}
+
+    /**
+     * @param seedsByPuzzleId the seed strings of the puzzles to verify
+     */
+    GameReportVerifier(final Map<String, String> seedsByPuzzleId) {
+        iSeedsByPuzzleId = seedsByPuzzleId;
+    }
+
+    Result verify(final GameReportConverter.GameReport report) {
+        final String seed = iSeedsByPuzzleId.get(report.puzzle_id());
+        if (seed == null) {
+            return result(report, Verdict.unknown_puzzle, -1, false, 0);
+        }
+        final Game game = iGamesBySeed.computeIfAbsent(seed, Game::valueOfSeed);
+        final List<Waypoint> waypoints = game.getEndCriteria();
+
+        RobotsState state = game.getInitialRobotsState();
+        final int[] moves = report.moves();
+        for (int i = 0; i < moves.length; i++) {
+            if (state.getWaypointsReached() == waypoints.size()) {
+                return result(report, Verdict.moves_after_win, i, true, state.getWaypointsReached());
+            }
+            final Direction direction = GameReportConverter.GameReport.unpackDirection(moves[i]);
+            final int robotIndex = state.getRobotAtPosition(GameReportConverter.GameReport.unpackX(moves[i]),
+                    GameReportConverter.GameReport.unpackY(moves[i]));
+            final RobotsState nextState = direction == null || robotIndex < 0
+                    ? state
+                    : game.getBoard().makeMove(robotIndex, direction, state);
+            if (nextState == state) {
+                return result(report, Verdict.illegal_move, i, false, state.getWaypointsReached());
+            }
+            state = RobotsStateUtil.updateWaypointsReached(nextState, waypoints);
+        }
+
+        final boolean isWin = state.getWaypointsReached() == waypoints.size();
+        final Verdict verdict = report.exit_status() == GameReportConverter.ExitStatus.win && !isWin
+                ? Verdict.claimed_win_not_reached
+                : Verdict.ok;
+        return result(report, verdict, -1, isWin, state.getWaypointsReached());
+    }
+
+    //-------------------------------------------------------------------------------------------------------------------------------------
+
+    private static Result result(final GameReportConverter.GameReport report, final Verdict verdict,
+                                 final int illegalMoveIndex, final boolean isWin, final int waypointsReached) {
+        return new Result(report.puzzle_id(), report.user_id(), report.exit_status(), verdict, report.moveCount(),
+                illegalMoveIndex, isWin, waypointsReached);
+    }
+}
@@ -0,0 +1,250 @@
+package net.booru.slidingrobots;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays a corpus of maps against a running solve server, see {@link net.booru.slidingrobots.server.SolveServer}.
+ * <p>
+ * Requests are sent open loop: at a fixed rate regardless of how fast the server answers, each on its own virtual
+ * thread. Latency is measured from the time the request was scheduled to be sent, so a slow server is not hidden by
+ * requests that are sent late. Throughput, error rate and latency percentiles are logged for each reporting window
+ * and for the whole run.
+ */
+class LoadTester {
+    private static final Logger cLogger = LoggerFactory.getLogger(LoadTester.class);
+
+    private static final Duration REPORT_INTERVAL = Duration.ofSeconds(5);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(60);
+
+    private final URI iSolveUri;
+    private final List<String> iCorpus;
+    private final Duration iReportInterval;
+    private final HttpClient iClient;
+
+    /**
+     * The results of the requests that completed within a reporting window, or within the whole run.
+     *
+     * @param errors      the number of requests that failed or got another status than 200, 422 and 503
+     * @param rejected    the number of 503 responses, budget or admission rejections
+     * @param noSolutions the number of 422 responses
+     */
+    record Summary(long count, double seconds, long errors, long rejected, long noSolutions,
+                   double p50, double p90, double p99, double max) {}
+
+    /**
+     * @param windows the reporting windows in order, the last one ends when all requests have completed
+     */
+    record Report(List<Summary> windows, Summary total) {}
+
+    /**
+     * @param serverUrl the base url of the server, e.g. http://localhost:8080
+     * @param corpus    the map strings or seed strings to send, in order and repeated as needed
+     */
+    LoadTester(final String serverUrl, final List<String> corpus) {
+        this(serverUrl, corpus, REPORT_INTERVAL);
+    }
+
+    /**
+     * @param reportInterval the length of the reporting windows
+     */
+    LoadTester(final String serverUrl, final List<String> corpus, final Duration reportInterval) {
+        if (corpus.isEmpty()) {
+            throw new IllegalArgumentException("The load test corpus is empty");
+        }
+        iSolveUri = URI.create(serverUrl.replaceAll("/+$", "") + "/solve");
+        iCorpus = corpus;
+        iReportInterval = reportInterval;
+        iClient = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    /**
+     * Read a corpus file: a json array of objects with a {@code map}, {@code mapString} or {@code seedString} field
+     * (e.g. tests100.json), json lines of such objects (e.g. a generated maps file), or lines that start with a map
+     * string or seed string (e.g. maps.txt or a profile maps file).
+     */
+    static List<String> readCorpus(final Path corpusFile) throws IOException {
+        final ObjectMapper mapper = new ObjectMapper();
+        final String content = Files.readString(corpusFile).strip();
+        final List<String> corpus = new ArrayList<>();
+
+        if (content.startsWith("[")) {
+            for (JsonNode node : mapper.readTree(content)) {
+                corpus.add(toMapOrSeed(node));
+            }
+            return corpus;
+        }
+
+        for (String line : content.split("\n")) {
+            if (line.startsWith("{")) {
+                corpus.add(toMapOrSeed(mapper.readTree(line)));
+            } else if (!line.isBlank()) {
+                corpus.add(line.strip().split(" ")[0]);
+            }
+        }
+        return corpus;
+    }
+
+    /**
+     * @param requestsPerSecond the arrival rate
+     * @param duration          the duration of the test
+     * @return the logged results
+     */
+    Report run(final double requestsPerSecond, final Duration duration) throws InterruptedException {
+        if (requestsPerSecond <= 0) {
+            throw new IllegalArgumentException("requestsPerSecond must be > 0, got " + requestsPerSecond);
+        }
+        cLogger.info("Load test of {} at {} requests/s for {}, corpus of {} maps",
+                iSolveUri, requestsPerSecond, duration, iCorpus.size());
+
+        final Window total = new Window();
+        final Window window = new Window();
+        final List<Summary> windows = Collections.synchronizedList(new ArrayList<>());
+        final long intervalNanos = Math.round(1_000_000_000.0 / requestsPerSecond);
+        final long startNanos = System.nanoTime();
+        final long endNanos = startNanos + duration.toNanos();
+
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor();
+             var reporter = Executors.newSingleThreadScheduledExecutor()) {
+            reporter.scheduleAtFixedRate(() -> windows.add(log("window", window.summarizeAndReset())),
+                    iReportInterval.toMillis(), iReportInterval.toMillis(), TimeUnit.MILLISECONDS);
+
+            long sent = 0;
+            for (long scheduled = startNanos; scheduled < endNanos; scheduled += intervalNanos) {
+                final long waitNanos = scheduled - System.nanoTime();
+                if (waitNanos > 0) {
+                    LockSupport.parkNanos(waitNanos);
+                }
+
+                final long scheduledNanos = scheduled;
+                final String mapOrSeed = iCorpus.get((int) (sent++ % iCorpus.size()));
+                clients.execute(() -> {
+                    final int status = send(mapOrSeed);
+                    final double latencyMs = (System.nanoTime() - scheduledNanos) / 1_000_000.0;
+                    window.add(status, latencyMs);
+                    total.add(status, latencyMs);
+                });
+            }
+
+            clients.shutdown();
+            clients.awaitTermination(REQUEST_TIMEOUT.toSeconds(), TimeUnit.SECONDS);
+            reporter.shutdownNow();
+        }
+
+        windows.add(log("window", window.summarizeAndReset()));
+        return new Report(List.copyOf(windows), log("total", total.summarizeAndReset()));
+    }
+
+    //-------------------------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @return the http status, or -1 if the request failed
+     */
+    private int send(final String mapOrSeed) {
+        final HttpRequest request = HttpRequest.newBuilder(
+                        URI.create(iSolveUri + "?q=" + URLEncoder.encode(mapOrSeed, StandardCharsets.UTF_8)))
+                .timeout(REQUEST_TIMEOUT)
+                .GET()
+                .build();
+        try {
+            return iClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (IOException e) {
+            return -1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        }
+    }
+
+    private static Summary log(final String name, final Summary summary) {
+        if (summary.count() == 0) {
+            cLogger.info("{}: no completed requests in {} s", name, String.format("%.1f", summary.seconds()));
+            return summary;
+        }
+        cLogger.info("{}: {} requests in {} s, {} req/s, errors {}%, rejected {}%, no solution {}, "
+                        + "latency ms p50 {} p90 {} p99 {} max {}",
+                name, summary.count(), String.format("%.1f", summary.seconds()),
+                String.format("%.1f", summary.count() / summary.seconds()),
+                String.format("%.2f", 100.0 * summary.errors() / summary.count()),
+                String.format("%.2f", 100.0 * summary.rejected() / summary.count()),
+                summary.noSolutions(),
+                String.format("%.2f", summary.p50()), String.format("%.2f", summary.p90()),
+                String.format("%.2f", summary.p99()), String.format("%.2f", summary.max()));
+        return summary;
+    }
+
+    private static String toMapOrSeed(final JsonNode node) {
+        for (String field : List.of("map", "mapString", "seedString")) {
+            if (node.hasNonNull(field)) {
+                return node.get(field).asText();
+            }
+        }
+        throw new IllegalArgumentException("Expected a map, mapString or seedString field: " + node);
+    }
+
+    /**
+     * The results of the requests that completed since the window was last reset. A result is added and the window is
+     * summarized and reset under the same lock, so each result is in exactly one summary.
+     */
+    private static final class Window {
+        private long iStartNanos = System.nanoTime();
+        private DescriptiveStatistics iLatencies = new DescriptiveStatistics();
+        private long iErrors;
+        private long iNoSolutions;
+        private long iRejected;
+
+        /**
+         * 200 and 422 (no solution) are answers, 503 is a budget or admission rejection, everything else is an error.
+         */
+        synchronized void add(final int status, final double latencyMs) {
+            iLatencies.addValue(latencyMs);
+            switch (status) {
+                case 200 -> {
+                    // ok
+                }
+                case 422 -> iNoSolutions++;
+                case 503 -> iRejected++;
+                default -> iErrors++;
+            }
+        }
+
+        synchronized Summary summarizeAndReset() {
+            final long nowNanos = System.nanoTime();
+            final Summary summary = new Summary(iLatencies.getN(), (nowNanos - iStartNanos) / 1_000_000_000.0,
+                    iErrors, iRejected, iNoSolutions,
+                    iLatencies.getPercentile(50), iLatencies.getPercentile(90), iLatencies.getPercentile(99),
+                    iLatencies.getMax());
+
+            iStartNanos = nowNanos;
+            iLatencies = new DescriptiveStatistics();
+            iErrors = 0;
+            iNoSolutions = 0;
+            iRejected = 0;
+            return summary;
+        }
+    }
+}
@@ -1,34 +1,101 @@
 package net.booru.slidingrobots;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import net.booru.slidingrobots.algorithm.AlgorithmSelector;
 import net.booru.slidingrobots.algorithm.BreadthFirstSearchIterative;
 import net.booru.slidingrobots.algorithm.NoSolutionException;
+import net.booru.slidingrobots.algorithm.SearchAlgorithmType;
+import net.booru.slidingrobots.algorithm.SearchControl;
+import net.booru.slidingrobots.algorithm.ShortestPathDag;
 import net.booru.slidingrobots.algorithm.SlidingRobotsSearchAlgorithm;
 import net.booru.slidingrobots.algorithm.model.Solution;
+import net.booru.slidingrobots.cache.CachedSearchAlgorithm;
+import net.booru.slidingrobots.cache.SolutionStore;
+import net.booru.slidingrobots.cache.StoredSearchAlgorithm;
+import net.booru.slidingrobots.cache.WeighedLruCache;
 import net.booru.slidingrobots.common.ArgumentParser;
+import net.booru.slidingrobots.rank.DumpedGame;
+import net.booru.slidingrobots.rank.ExternalGameRanker;
+import net.booru.slidingrobots.rank.GameDump;
+import net.booru.slidingrobots.rank.GameDumpReader;
+import net.booru.slidingrobots.rank.GameRanker;
+import net.booru.slidingrobots.server.HintService;
+import net.booru.slidingrobots.server.SessionService;
+import net.booru.slidingrobots.server.SolveServer;
+import net.booru.slidingrobots.server.SolveScheduler;
+import net.booru.slidingrobots.server.SolveService;
+import net.booru.slidingrobots.server.UnixSocketSolveServer;
 import net.booru.slidingrobots.state.Board;
 import net.booru.slidingrobots.state.Game;
 import net.booru.slidingrobots.state.RobotsState;
+import net.booru.slidingrobots.state.RobotsStateUtil;
+import net.booru.slidingrobots.state.seed.SeedSource;
+import net.booru.slidingrobots.sweep.SeedIndex;
+import net.booru.slidingrobots.sweep.SeedSweeper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.Appender;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.apache.logging.log4j.core.appender.ConsoleAppender;
+import org.apache.logging.log4j.core.config.Configuration;
+import org.apache.logging.log4j.core.config.LoggerConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
 
 public class Main {
     private static final Logger cLogger = LoggerFactory.getLogger(Main.class);
 
     public static final String SEPARATOR_LINE = "------------------------------------------------";
+    private static final int OPTIMAL_SOLUTIONS_TO_LIST = 10;
 
     public static final String ARG_ADDITIONAL_DEPTH = "--solution-depth";
     public static final String ARG_SOLVE = "--solve";
+    public static final String ARG_OPTIMAL_SOLUTIONS = "--optimal-solutions";
     public static final String ARG_GENERATE = "--generate";
     public static final String ARG_CONVERT = "--convert";
+    public static final String ARG_RERANK = "--rerank";
+    public static final String ARG_FOLD_REPORTS = "--fold-reports";
+    public static final String ARG_VERIFY_REPORTS = "--verify-reports";
+    public static final String ARG_HASHES_FILE = "--hashes-file";
     public static final String ARG_SEED = "--seed";
     public static final String ARG_VERBOSE = "--verbose";
     public static final String ARG_PROFILE = "--profile";
     public static final String ARG_MAPS_FILE = "--maps-file";
     public static final String ARG_DIM_X = "--dimx";
     public static final String ARG_DIM_Y = "--dimy";
+    public static final String ARG_RANDOM_SEED = "--random-seed";
+    public static final String ARG_SWEEP = "--sweep";
+    public static final String ARG_QUERY_INDEX = "--query-index";
+    public static final String ARG_INDEX_FILE = "--index-file";
+    public static final String ARG_RANK_INDEX = "--rank-index";
+    public static final String ARG_SOLUTION_STORE = "--solution-store";
+    public static final String ARG_SOLUTION_CACHE = "--solution-cache";
+    public static final String ARG_SERVE = "--serve";
+    public static final String ARG_SERVE_SOCKET = "--serve-socket";
+    public static final String ARG_MAX_STATES = "--max-states";
+    public static final String ARG_TIMEOUT_MS = "--timeout-ms";
+    public static final String ARG_SCHEDULER = "--scheduler";
+    public static final String ARG_HINT_CACHE = "--hint-cache";
+    public static final String ARG_SESSIONS = "--sessions";
+    public static final String ARG_ALGORITHM = "--algorithm";
+    public static final String ARG_TRAIN_SELECTOR = "--train-selector";
+    public static final String ARG_LOAD_TEST = "--load-test";
+    public static final String ARG_LOAD_RATE = "--load-rate";
+    public static final String ARG_SOLVE_BATCH = "--solve-batch";
+    public static final String ARG_BATCH_OUTPUT = "--batch-output";
+    public static final String ARG_THREADS = "--threads";
 
     @SuppressWarnings("OptionalGetWithoutIsPresent")
     public static void main(String[] args) throws IOException {
@@ -51,6 +118,11 @@ public class Main {
                                                example: %s
                                                example: %s"""
                                 .formatted(exampleMap, exampleMapCompact, exampleSeed))
+                .withGeneralArgument(ARG_OPTIMAL_SOLUTIONS, null, List.of("<map-string | seed-string>"),
+                        """
+                                Count all optimal solutions of the provided map, e.g. to see if the solution is unique,
+                                               and list the first %d of them."""
+                                .formatted(OPTIMAL_SOLUTIONS_TO_LIST))
                 .withGeneralArgument(ARG_GENERATE, null, List.of("<mapsPerMove>|<mapsPerMove,minMoves,maxMoves>"),
                         """                                
                                 Generate random maps, <mapsPerMove> maps per solution-moves required, with a range of [2..20] moves,
@@ -64,6 +136,28 @@ public class Main {
                                                The new converted file name is the argument value of this argument.                      
                                                The input maps file is defined by the %s argument."""
                                 .formatted(ARG_MAPS_FILE))
+                .withGeneralArgument(ARG_RERANK, null, List.of("<output_filename.json>"),
+                        """
+                                Rank the maps of a generated maps file again, e.g. after changing the ranking, without solving them.
+                                               The ranked maps are written in the same format to the argument value of this argument.
+                                               The input maps file is defined by the %s argument."""
+                                .formatted(ARG_MAPS_FILE))
+                .withGeneralArgument(ARG_FOLD_REPORTS, null, List.of("<reports.json>,<aggregates.json>"),
+                        """
+                                Fold the game reports of a report file, e.g. of a day, into the puzzle aggregates file, which is
+                                               created if missing. A report file that is already folded in, by file name, is skipped.
+                                               The puzzles are those of the generated maps file %s, with the puzzle ids of %s."""
+                                .formatted(ARG_MAPS_FILE, ARG_HASHES_FILE))
+                .withGeneralArgument(ARG_VERIFY_REPORTS, null, List.of("<reports.json>,<flagged.json>"),
+                        """
+                                Replay the moves of the game reports of a report file on the puzzles of %s and write the
+                                               reports that are not ok, e.g. a claimed win that does not reach the goal, as json lines."""
+                                .formatted(ARG_HASHES_FILE))
+                .withGeneralArgument(ARG_HASHES_FILE, "junk/hashes.json", List.of("<path/file>"),
+                        """
+                                The puzzle ids of the seed strings, json lines with seed_string and puzzle_id, used by %s and %s.
+                                               Default junk/hashes.json."""
+                                .formatted(ARG_FOLD_REPORTS, ARG_VERIFY_REPORTS))
                 .withGeneralArgument(ARG_PROFILE, null, List.of("<runs count>"),
                         """                                
                                 Generate random maps and calculate average time.
@@ -75,42 +169,211 @@ public class Main {
                                                Use this map file when %s is used and calculate statistics.
                                                If <runs count> is greater than 0, then the number of rows from the map file what will be run is limited by that number."""
                                 .formatted(ARG_PROFILE))
+                .withGeneralArgument(ARG_ALGORITHM, "bfs", List.of("<name>[,<name>...]"),
+                        """
+                                The search algorithm: %s. Several comma separated algorithms are raced on separate threads
+                                               and the first answer is used. Only bfs counts the solutions of the additional depths,
+                                               %s always uses bfs. Default bfs."""
+                                .formatted(String.join(", ", Arrays.stream(SearchAlgorithmType.values()).map(Enum::name).toList()),
+                                        ARG_GENERATE))
+                .withGeneralArgument(ARG_TRAIN_SELECTOR, null, List.of("<path/file.properties>"),
+                        """
+                                With %s, run every search engine on the maps of %s instead and write the selector table of
+                                               the selector algorithm to this file. The selector uses the resource %s."""
+                                .formatted(ARG_PROFILE, ARG_MAPS_FILE, AlgorithmSelector.RESOURCE))
                 .withGeneralArgument(ARG_DIM_X, "8", List.of("<n>"), "The board x dimension size. Default 8.")
                 .withGeneralArgument(ARG_DIM_Y, "8", List.of("<n>"), "The board y dimension size. Default 8.")
+                .withGeneralArgument(ARG_RANDOM_SEED, null, List.of("<long>"),
+                        """
+                                The master seed for random map generation in %s and %s.
+                                               The master seed is logged by each run, use it here to reproduce that run."""
+                                .formatted(ARG_GENERATE, ARG_PROFILE))
+                .withGeneralArgument(ARG_SWEEP, null, List.of("<shard>/<shardCount>|<shard>/<shardCount>,<maxSeeds>"),
+                        """
+                                Solve all seeds of shard <shard> in [0..<shardCount>) of the seed space, using %s and %s.
+                                               The results are appended to the index file of the shard, based on %s.
+                                               A stopped sweep continues from its last checkpoint when restarted.
+                                               <maxSeeds> limits the number of seeds solved in this run."""
+                                .formatted(ARG_DIM_X, ARG_DIM_Y, ARG_INDEX_FILE))
+                .withGeneralArgument(ARG_QUERY_INDEX, null, List.of("<moves>,<count>"),
+                        """
+                                Output <count> seeds with optimal solution length <moves> from the shard index files of %s.
+                                               Seeds in %s (if provided) are considered used and are excluded."""
+                                .formatted(ARG_INDEX_FILE, ARG_MAPS_FILE))
+                .withGeneralArgument(ARG_RANK_INDEX, null, List.of("<path/file>[,<maxGamesInMemory>]"),
+                        """
+                                Rank all solved seeds of the shard index files of %s by difficulty, easiest first, and write
+                                               them to <path/file> in the index file format. Runs of <maxGamesInMemory> seeds are
+                                               sorted in memory and merged from temporary files next to <path/file>. Default 1000000."""
+                                .formatted(ARG_INDEX_FILE))
+                .withGeneralArgument(ARG_INDEX_FILE, "", List.of("<path/base-name>"),
+                        "The base name of the seed index files, e.g. sweeps/8x8 for sweeps/8x8-shard-0-of-16.idx")
+                .withGeneralArgument(ARG_SOLUTION_STORE, "", List.of("<path/file>"),
+                        """
+                                A persistent solution store file, created if missing. %s, %s and %s look up
+                                               solutions in the store before solving, and add new solutions to it."""
+                                .formatted(ARG_SOLVE, ARG_PROFILE, ARG_GENERATE))
+                .withGeneralArgument(ARG_SOLUTION_CACHE, "0", List.of("<n>"),
+                        """
+                                Keep solutions in memory, up to a total of <n> solution path states, least recently used
+                                               solutions are evicted first. Used by %s, %s, %s and %s. Default 0, no cache."""
+                                .formatted(ARG_PROFILE, ARG_GENERATE, ARG_SERVE, ARG_SOLVE_BATCH))
+                .withGeneralArgument(ARG_SERVE, null, List.of("<port>"),
+                        """
+                                Run a solve server on <port> until stopped, e.g. GET /solve?q=<map-string | seed-string>
+                                               Requests may set maxStates=<n> and timeoutMs=<ms>, limited by %s and %s.
+                                               GET /hint?q=<map-string | seed-string>&robots=<x,y,...>[&waypoints=<n>] gives
+                                               the optimal next moves from the robot positions, see %s."""
+                                .formatted(ARG_MAX_STATES, ARG_TIMEOUT_MS, ARG_HINT_CACHE))
+                .withGeneralArgument(ARG_SERVE_SOCKET, null, List.of("<path/socket-file>"),
+                        """
+                                Run a solve server on a unix domain socket until stopped, with length prefixed binary frames,
+                                               see BinarySolveProtocol. Can be combined with %s."""
+                                .formatted(ARG_SERVE))
+                .withGeneralArgument(ARG_MAX_STATES, "20000000", List.of("<n>"),
+                        "The maximum number of states a server search may visit. Default 20000000.")
+                .withGeneralArgument(ARG_TIMEOUT_MS, "10000", List.of("<ms>"),
+                        "The maximum time of a server search in milliseconds. Default 10000.")
+                .withGeneralArgument(ARG_SCHEDULER, null, List.of("<fast>,<heavy>,<maxQueued>[,<heavyCost>]"),
+                        """
+                                The server solve lanes: at most <fast> concurrent cheap solves and <heavy> concurrent expensive
+                                               solves, each lane with at most <maxQueued> waiting requests. Solves with an estimated
+                                               cost of <heavyCost> or more are expensive, default %d.
+                                               Default: the number of processors, a quarter of it, 1024."""
+                                .formatted(SolveScheduler.Config.DEFAULT_HEAVY_COST))
+                .withGeneralArgument(ARG_HINT_CACHE, "256", List.of("<MB>"),
+                        """
+                                The maximum total size of the distance tables the server keeps for GET /hint, one table per
+                                               board, least recently used tables are evicted first. Default 256.""")
+                .withGeneralArgument(ARG_SESSIONS, "10000,600", List.of("<maxSessions>,<idleSeconds>"),
+                        """
+                                The server replanning sessions, GET /session/open, /session/continue and /session/close.
+                                               At most <maxSessions> open sessions, a session unused for <idleSeconds> is evicted.
+                                               Default 10000,600.""")
+                .withGeneralArgument(ARG_LOAD_TEST, null, List.of("<server-url>"),
+                        """
+                                Send the maps of %s to a running solve server, e.g. http://localhost:8080, and report
+                                               throughput, error rate and latency percentiles. The maps file may be maps.txt,
+                                               tests100.json, a generated maps file or a profile maps file."""
+                                .formatted(ARG_MAPS_FILE))
+                .withGeneralArgument(ARG_LOAD_RATE, "100,30", List.of("<requests/s>,<seconds>"),
+                        "The open loop request rate and duration of %s. Default 100,30.".formatted(ARG_LOAD_TEST))
+                .withGeneralArgument(ARG_SOLVE_BATCH, null, List.of("<path/file | ->"),
+                        """
+                                Solve the maps of a file, or stdin for "-", using %s worker threads.
+                                               One map string, seed string or json object with a seedString or mapString per line.
+                                               One json result line per map is written to %s as soon as the map is solved,
+                                               with the input line index to restore the input order."""
+                                .formatted(ARG_THREADS, ARG_BATCH_OUTPUT))
+                .withGeneralArgument(ARG_BATCH_OUTPUT, "-", List.of("<path/file | ->"),
+                        "The output file of %s, or stdout for \"-\", then the log is written to stderr. Default stdout."
+                                .formatted(ARG_SOLVE_BATCH))
+                .withGeneralArgument(ARG_THREADS, Integer.toString(Runtime.getRuntime().availableProcessors()), List.of("<n>"),
+                        "The number of worker threads of %s. Default the number of processors.".formatted(ARG_SOLVE_BATCH))
 
                 .addConflicts(ARG_SOLVE, List.of(ARG_PROFILE, ARG_GENERATE, ARG_SEED, ARG_CONVERT))
+                .addConflicts(ARG_OPTIMAL_SOLUTIONS, List.of(ARG_SOLVE, ARG_PROFILE, ARG_GENERATE, ARG_SEED, ARG_CONVERT))
                 .addConflicts(ARG_PROFILE, List.of(ARG_SOLVE, ARG_GENERATE, ARG_SEED, ARG_CONVERT))
                 .addConflicts(ARG_GENERATE, List.of(ARG_SOLVE, ARG_PROFILE, ARG_SEED, ARG_CONVERT))
                 .addConflicts(ARG_SEED, List.of(ARG_SOLVE, ARG_PROFILE, ARG_GENERATE, ARG_CONVERT))
-                .addConflicts(ARG_CONVERT, List.of(ARG_SOLVE, ARG_PROFILE, ARG_SEED, ARG_GENERATE));
+                .addConflicts(ARG_CONVERT, List.of(ARG_SOLVE, ARG_PROFILE, ARG_SEED, ARG_GENERATE))
+                .addConflicts(ARG_RERANK, List.of(ARG_SOLVE, ARG_PROFILE, ARG_SEED, ARG_GENERATE, ARG_CONVERT))
+                .addConflicts(ARG_SWEEP, List.of(ARG_SOLVE, ARG_PROFILE, ARG_SEED, ARG_GENERATE, ARG_CONVERT, ARG_QUERY_INDEX))
+                .addConflicts(ARG_QUERY_INDEX, List.of(ARG_SOLVE, ARG_PROFILE, ARG_SEED, ARG_GENERATE, ARG_CONVERT, ARG_SWEEP))
+                .addConflicts(ARG_RANK_INDEX, List.of(ARG_SOLVE, ARG_PROFILE, ARG_SEED, ARG_GENERATE, ARG_CONVERT, ARG_SWEEP,
+                        ARG_QUERY_INDEX))
+                .addConflicts(ARG_SERVE, List.of(ARG_SOLVE, ARG_PROFILE, ARG_SEED, ARG_GENERATE, ARG_CONVERT, ARG_SWEEP, ARG_QUERY_INDEX))
+                .addConflicts(ARG_SERVE_SOCKET, List.of(ARG_SOLVE, ARG_PROFILE, ARG_SEED, ARG_GENERATE, ARG_CONVERT, ARG_SWEEP,
+                        ARG_QUERY_INDEX))
+                .addConflicts(ARG_SOLVE_BATCH, List.of(ARG_SOLVE, ARG_PROFILE, ARG_SEED, ARG_GENERATE, ARG_CONVERT, ARG_SWEEP,
+                        ARG_QUERY_INDEX, ARG_SERVE, ARG_SERVE_SOCKET))
+                .addConflicts(ARG_LOAD_TEST, List.of(ARG_SOLVE, ARG_PROFILE, ARG_SEED, ARG_GENERATE, ARG_CONVERT, ARG_SWEEP,
+                        ARG_QUERY_INDEX, ARG_SERVE, ARG_SERVE_SOCKET, ARG_SOLVE_BATCH))
+                .addConflicts(ARG_FOLD_REPORTS, List.of(ARG_SOLVE, ARG_PROFILE, ARG_SEED, ARG_GENERATE, ARG_CONVERT, ARG_RERANK,
+                        ARG_SWEEP, ARG_QUERY_INDEX, ARG_SERVE, ARG_SERVE_SOCKET, ARG_SOLVE_BATCH, ARG_LOAD_TEST))
+                .addConflicts(ARG_VERIFY_REPORTS, List.of(ARG_SOLVE, ARG_PROFILE, ARG_SEED, ARG_GENERATE, ARG_CONVERT, ARG_RERANK,
+                        ARG_SWEEP, ARG_QUERY_INDEX, ARG_SERVE, ARG_SERVE_SOCKET, ARG_SOLVE_BATCH, ARG_LOAD_TEST, ARG_FOLD_REPORTS));
         argumentParser.parseArguments(args);
 
         // no defaults
         final var solve = argumentParser.get(ARG_SOLVE);
+        final var optimalSolutions = argumentParser.get(ARG_OPTIMAL_SOLUTIONS);
         final var generate = argumentParser.get(ARG_GENERATE);
         final var convert = argumentParser.get(ARG_CONVERT);
+        final var rerank = argumentParser.get(ARG_RERANK);
+        final var foldReports = argumentParser.get(ARG_FOLD_REPORTS);
+        final var verifyReports = argumentParser.get(ARG_VERIFY_REPORTS);
         final var profile = argumentParser.get(ARG_PROFILE);
         final var mapFromSeed = argumentParser.get(ARG_SEED);
+        final var randomSeed = argumentParser.get(ARG_RANDOM_SEED);
+        final var sweep = argumentParser.get(ARG_SWEEP);
+        final var queryIndex = argumentParser.get(ARG_QUERY_INDEX);
+        final var rankIndex = argumentParser.get(ARG_RANK_INDEX);
+        final var serve = argumentParser.get(ARG_SERVE);
+        final var serveSocket = argumentParser.get(ARG_SERVE_SOCKET);
+        final var solveBatch = argumentParser.get(ARG_SOLVE_BATCH);
+        final var scheduler = argumentParser.get(ARG_SCHEDULER);
+        final var loadTest = argumentParser.get(ARG_LOAD_TEST);
+        final var trainSelector = argumentParser.get(ARG_TRAIN_SELECTOR);
 
         // with defaults
         final var solutionDepth = argumentParser.get(ARG_ADDITIONAL_DEPTH).get().getValueAsInt(); // NOSONAR safe
         final var mapsFile = argumentParser.get(ARG_MAPS_FILE).get().getValue();              // NOSONAR safe
+        final var hashesFile = argumentParser.get(ARG_HASHES_FILE).get().getValue();          // NOSONAR safe
+        final var indexFile = argumentParser.get(ARG_INDEX_FILE).get().getValue();            // NOSONAR safe
+        final var solutionStoreFile = argumentParser.get(ARG_SOLUTION_STORE).get().getValue(); // NOSONAR safe
+        final var solutionCacheSize = argumentParser.get(ARG_SOLUTION_CACHE).get().getValueAsInt(); // NOSONAR safe
+        final var maxStates = Long.parseLong(argumentParser.get(ARG_MAX_STATES).get().getValue()); // NOSONAR safe
+        final var timeoutMs = Long.parseLong(argumentParser.get(ARG_TIMEOUT_MS).get().getValue()); // NOSONAR safe
+        final var algorithms = SearchAlgorithmType.parseList(argumentParser.get(ARG_ALGORITHM).get().getValue()); // NOSONAR safe
+        final var hintCacheMb = Long.parseLong(argumentParser.get(ARG_HINT_CACHE).get().getValue()); // NOSONAR safe
+        final var sessions = argumentParser.get(ARG_SESSIONS).get().getValue().split(",");  // NOSONAR safe
+        final var batchOutput = argumentParser.get(ARG_BATCH_OUTPUT).get().getValue();         // NOSONAR safe
+        final var threads = argumentParser.get(ARG_THREADS).get().getValueAsInt();             // NOSONAR safe
+        final var loadRate = argumentParser.get(ARG_LOAD_RATE).get().getValue();               // NOSONAR safe
         final var verboseLevel = argumentParser.get(ARG_VERBOSE).get().getValueAsInt();       // NOSONAR safe
         final var dimX = argumentParser.get(ARG_DIM_X).get().getValueAsInt();                 // NOSONAR safe
         final var dimY = argumentParser.get(ARG_DIM_Y).get().getValueAsInt();                 // NOSONAR safe
 
+        if (solveBatch.isPresent() && BatchSolver.STDIO.equals(batchOutput)) {
+            redirectConsoleLogToStderr(); // stdout carries only the result lines
+        }
+
+        final SeedSource seedSource = randomSeed
+                .map(argument -> new SeedSource(Long.parseLong(argument.getValue())))
+                .orElseGet(SeedSource::withRandomMasterSeed);
+
+        final SolutionStore solutionStore = solutionStoreFile.isEmpty() ? null : SolutionStore.open(Path.of(solutionStoreFile));
+        final WeighedLruCache<String, Solution> solutionCache =
+                solutionCacheSize <= 0 ? null : CachedSearchAlgorithm.createCache(solutionCacheSize);
 
         // (*) SOLVE
         if (solve.isPresent()) {
             final String mapStringOrSeed = solve.get().getValue();
-            singleRun(solutionDepth, mapStringOrSeed, verboseLevel); //NOSONAR
+            singleRun(algorithms, solutionDepth, mapStringOrSeed, verboseLevel, solutionStore, solutionCache); //NOSONAR
+            System.exit(1);
+        }
+
+        // (*) OPTIMAL SOLUTIONS
+        if (optimalSolutions.isPresent()) {
+            listOptimalSolutions(optimalSolutions.get().getValue());
             System.exit(1);
         }
 
         // (*) PROFILE
         if (profile.isPresent()) {
             final int profileRuns = profile.get().getValueAsInt();
-            ProfileRunner.profileRun(profileRuns, mapsFile, board -> getSearchAlgorithm(solutionDepth, board), dimX, dimY);
+            if (trainSelector.isPresent()) {
+                if (mapsFile.isEmpty()) {
+                    throw new IllegalArgumentException(ARG_MAPS_FILE + " is required for " + ARG_TRAIN_SELECTOR);
+                }
+                ProfileRunner.trainSelector(profileRuns, mapsFile, trainSelector.get().getValue());
+                System.exit(1);
+            }
+            ProfileRunner.profileRun(profileRuns, mapsFile,
+                    board -> getSearchAlgorithm(algorithms, solutionDepth, board, solutionStore, solutionCache),
+                    dimX, dimY, seedSource);
+            logCacheStats(solutionCache);
             System.exit(1);
         }
 
@@ -136,7 +399,9 @@ public class Main {
             }
 
             final boolean isOneWay = false; // possibly allow to select this
-            MapStringGenerator.generateToFile(mapsFile, dimX, dimY, mapsPerMove, mapsMinMoves, mapsMaxMoves, isOneWay);
+            MapStringGenerator.generateToFile(mapsFile, dimX, dimY, mapsPerMove, mapsMinMoves, mapsMaxMoves, isOneWay,
+                    seedSource, board -> getSearchAlgorithm(List.of(SearchAlgorithmType.bfs), 2, board, solutionStore, solutionCache));
+            logCacheStats(solutionCache);
 
             System.exit(1);
         }
@@ -165,16 +430,203 @@ public class Main {
             System.exit(1);
         }
 
+        // (*) RERANK
+        if (rerank.isPresent()) {
+            final ObjectWriter writer = new ObjectMapper().writer();
+            final List<GameDump> ranked;
+            try (Stream<DumpedGame> games = GameDumpReader.stream(Path.of(mapsFile))) {
+                ranked = new GameRanker().rerank(games);
+            }
+            try (BufferedWriter output = Files.newBufferedWriter(Path.of(rerank.get().getValue()), Charset.defaultCharset())) {
+                for (GameDump dump : ranked) {
+                    output.write(writer.writeValueAsString(dump));
+                    output.newLine();
+                }
+            }
+            cLogger.info("Ranked {} maps of {} to {}", ranked.size(), mapsFile, rerank.get().getValue());
+            System.exit(1);
+        }
+
+        // (*) FOLD REPORTS
+        if (foldReports.isPresent()) {
+            final String[] files = foldReports.get().getValue().split(",");
+            if (files.length != 2 || mapsFile.isEmpty()) {
+                throw new IllegalArgumentException(
+                        ARG_FOLD_REPORTS + " needs <reports.json>,<aggregates.json> and " + ARG_MAPS_FILE);
+            }
+            new GameReportConverter().foldReports(mapsFile, files[0], files[1], hashesFile);
+            System.exit(1);
+        }
+
+        // (*) VERIFY REPORTS
+        if (verifyReports.isPresent()) {
+            final String[] files = verifyReports.get().getValue().split(",");
+            if (files.length != 2) {
+                throw new IllegalArgumentException(ARG_VERIFY_REPORTS + " needs <reports.json>,<flagged.json>");
+            }
+            new GameReportConverter().verifyReports(files[0], files[1], hashesFile);
+            System.exit(1);
+        }
+
+        // (*) SWEEP
+        if (sweep.isPresent()) {
+            if (indexFile.isEmpty()) {
+                throw new IllegalArgumentException(ARG_INDEX_FILE + " is required for " + ARG_SWEEP);
+            }
+
+            final String[] settings = sweep.get().getValue().split("[/,]");
+            if (settings.length != 2 && settings.length != 3) {
+                throw new IllegalArgumentException("expected: shard/shardCount or shard/shardCount,maxSeeds");
+            }
+            final int shardIndex = Integer.parseInt(settings[0]);
+            final int shardCount = Integer.parseInt(settings[1]);
+            final long maxSeeds = settings.length == 3 ? Long.parseLong(settings[2]) : 0;
+
+            final boolean isOneWay = false; // possibly allow to select this
+            new SeedSweeper(new SeedIndex.Header(dimX, dimY, isOneWay), board -> new BreadthFirstSearchIterative(board, 2))
+                    .sweep(indexFile, shardIndex, shardCount, maxSeeds);
+            System.exit(1);
+        }
+
+        // (*) QUERY SEED INDEX
+        if (queryIndex.isPresent()) {
+            final String[] settings = queryIndex.get().getValue().split(",");
+            if (settings.length != 2) {
+                throw new IllegalArgumentException("expected: moves,count");
+            }
+            final int moves = Integer.parseInt(settings[0]);
+            final int count = Integer.parseInt(settings[1]);
+
+            final List<Path> indexFiles = SeedSweeper.findShardIndexFiles(indexFile);
+            final List<String> seedStrings = SeedIndex.query(indexFiles, moves, count, readUsedSeeds(mapsFile));
+            for (String seedString : seedStrings) {
+                // same format as the profile maps file: "<seedString><space><mapString><space><moveCount>"
+                System.out.println(seedString + " " + MapStringGenerator.generateFromSeed(seedString) + " " + moves); //NOSONAR
+            }
+            cLogger.info("Found {} of {} requested seeds in {} index files", seedStrings.size(), count, indexFiles.size());
+            System.exit(1);
+        }
+
+        // (*) RANK SEED INDEX
+        if (rankIndex.isPresent()) {
+            final String[] settings = rankIndex.get().getValue().split(",");
+            if (settings.length != 1 && settings.length != 2) {
+                throw new IllegalArgumentException("expected: file or file,maxGamesInMemory");
+            }
+            final Path outputFile = Path.of(settings[0]).toAbsolutePath();
+            final int maxGamesInMemory = settings.length == 2 ? Integer.parseInt(settings[1]) : 1_000_000;
+
+            new ExternalGameRanker(maxGamesInMemory, outputFile.getParent())
+                    .rank(SeedSweeper.findShardIndexFiles(indexFile), outputFile);
+            System.exit(1);
+        }
+
+        // (*) SERVE
+        if (serve.isPresent() || serveSocket.isPresent()) {
+            final int processors = Runtime.getRuntime().availableProcessors();
+            final String[] lanes = scheduler.map(argument -> argument.getValue().split(","))
+                    .orElse(new String[]{Integer.toString(processors), Integer.toString(Math.max(1, processors / 4)), "1024"});
+            if (lanes.length != 3 && lanes.length != 4) {
+                throw new IllegalArgumentException("expected: fast,heavy,maxQueued or fast,heavy,maxQueued,heavyCost");
+            }
+            final SolveScheduler.Config schedulerConfig = new SolveScheduler.Config(
+                    Integer.parseInt(lanes[0]),
+                    Integer.parseInt(lanes[1]),
+                    Integer.parseInt(lanes[2]),
+                    lanes.length == 4 ? Long.parseLong(lanes[3]) : SolveScheduler.Config.DEFAULT_HEAVY_COST,
+                    Runtime.getRuntime().maxMemory() / 10);
+            final SolveService solveService = new SolveService(
+                    (board, control) -> getSearchAlgorithm(algorithms, solutionDepth, board, solutionStore, solutionCache, control),
+                    maxStates, Duration.ofMillis(timeoutMs), new SolveScheduler(schedulerConfig));
+            if (sessions.length != 2) {
+                throw new IllegalArgumentException("expected: maxSessions,idleSeconds");
+            }
+            final SolveServer server = serve.isPresent()
+                    ? new SolveServer(serve.get().getValueAsInt(), solveService,
+                    new HintService(hintCacheMb * 1024 * 1024, solveService.getScheduler()),
+                    new SessionService(Integer.parseInt(sessions[0]), Duration.ofSeconds(Long.parseLong(sessions[1]))))
+                    : null;
+            final UnixSocketSolveServer socketServer = serveSocket.isPresent()
+                    ? new UnixSocketSolveServer(Path.of(serveSocket.get().getValue()), solveService)
+                    : null;
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                if (server != null) {
+                    server.stop(Duration.ofSeconds(5));
+                }
+                if (socketServer != null) {
+                    socketServer.stop(Duration.ofSeconds(5));
+                }
+                logCacheStats(solutionCache);
+            }));
+            if (server != null) {
+                server.start();
+            }
+            if (socketServer != null) {
+                socketServer.start();
+            }
+            return; // the server threads keep running until the process is stopped
+        }
+
+        // (*) SOLVE BATCH
+        if (solveBatch.isPresent()) {
+            new BatchSolver(board -> getSearchAlgorithm(algorithms, solutionDepth, board, solutionStore, solutionCache), threads)
+                    .solveBatch(solveBatch.get().getValue(), batchOutput);
+            System.exit(1);
+        }
+
+        // (*) LOAD TEST
+        if (loadTest.isPresent()) {
+            if (mapsFile.isEmpty()) {
+                throw new IllegalArgumentException(ARG_MAPS_FILE + " is required for " + ARG_LOAD_TEST);
+            }
+            final String[] settings = loadRate.split(",");
+            if (settings.length != 2) {
+                throw new IllegalArgumentException("expected: requestsPerSecond,seconds");
+            }
+
+            try {
+                new LoadTester(loadTest.get().getValue(), LoadTester.readCorpus(Path.of(mapsFile)))
+                        .run(Double.parseDouble(settings[0]), Duration.ofSeconds(Long.parseLong(settings[1])));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            System.exit(1);
+        }
+
         // (*) FALLBACK  -  no args, run example and print help
         argumentParser.outputHelp();
         cLogger.info("--------------------------------");
         cLogger.info("Now we will run an example problem:");
-        singleRun(solutionDepth, exampleMap, Math.max(0, verboseLevel));
+        singleRun(algorithms, solutionDepth, exampleMap, Math.max(0, verboseLevel), solutionStore, solutionCache);
 
         System.exit(1);
     }
 
-    private static void singleRun(final int solutionDepth, final String mapStringOrSeed, final int verboseLevel) {
+    private static void listOptimalSolutions(final String mapStringOrSeed) {
+        final Game game = Game.valueOf(mapStringOrSeed);
+        try {
+            final ShortestPathDag dag = ShortestPathDag.search(game.getBoard(), game.getInitialRobotsState(),
+                    game.getEndCriteria(), SearchControl.unlimited());
+            cLogger.info("{} optimal solutions of {} moves, {} states searched", dag.getSolutionCount(),
+                    dag.getSolutionLength(), dag.getStateCount());
+
+            int listed = 0;
+            for (List<RobotsState> path : dag) {
+                if (listed++ == OPTIMAL_SOLUTIONS_TO_LIST) {
+                    break;
+                }
+                cLogger.info(SEPARATOR_LINE);
+                RobotsStateUtil.toStringHumanReadable(path).forEach(cLogger::info);
+            }
+        } catch (NoSolutionException e) {
+            cLogger.info("No solution");
+        }
+    }
+
+    private static void singleRun(final List<SearchAlgorithmType> algorithms, final int solutionDepth,
+                                  final String mapStringOrSeed, final int verboseLevel,
+                                  final SolutionStore solutionStore,
+                                  final WeighedLruCache<String, Solution> solutionCache) {
         final boolean isVerbose = verboseLevel >= 0;
         final Game game = Game.valueOf(mapStringOrSeed);
         final Board board = game.getBoard();
@@ -190,7 +642,8 @@ public class Main {
         }
 
         try {
-            final SlidingRobotsSearchAlgorithm searchAlgorithm = getSearchAlgorithm(solutionDepth, board);
+            final SlidingRobotsSearchAlgorithm searchAlgorithm =
+                    getSearchAlgorithm(algorithms, solutionDepth, board, solutionStore, solutionCache);
             final Solution solution = searchAlgorithm.run(robotsState, game.getEndCriteria());
 
             if (isVerbose) {
@@ -212,7 +665,85 @@ public class Main {
         }
     }
 
-    private static SlidingRobotsSearchAlgorithm getSearchAlgorithm(final int solutionDepth, final Board board) {
-        return new BreadthFirstSearchIterative(board, solutionDepth);
+    /**
+     * @param mapsFile a maps file, either a generated json lines file or a profile maps file, or empty
+     * @return the seed strings in the file, empty if no file is provided.
+     */
+    private static Set<String> readUsedSeeds(final String mapsFile) throws IOException {
+        final Set<String> usedSeeds = new HashSet<>();
+        if (mapsFile.isEmpty()) {
+            return usedSeeds;
+        }
+
+        final ObjectMapper mapper = new ObjectMapper();
+        for (String line : Files.readAllLines(Path.of(mapsFile))) {
+            if (line.startsWith("{")) {
+                usedSeeds.add(mapper.readTree(line).path("seedString").asText());
+            } else if (!line.isBlank()) {
+                usedSeeds.add(line.split(" ")[0]);
+            }
+        }
+        return usedSeeds;
+    }
+
+    /**
+     * Replace the console appender of the log configuration with one that writes to stderr, with the same layout.
+     */
+    private static void redirectConsoleLogToStderr() {
+        final LoggerContext context = (LoggerContext) LogManager.getContext(false);
+        final Configuration configuration = context.getConfiguration();
+        final LoggerConfig rootLogger = configuration.getRootLogger();
+        for (Appender appender : List.copyOf(rootLogger.getAppenders().values())) {
+            if (appender instanceof ConsoleAppender console) {
+                final ConsoleAppender stderr = ConsoleAppender.newBuilder()
+                        .setName(console.getName())
+                        .setTarget(ConsoleAppender.Target.SYSTEM_ERR)
+                        .setLayout(console.getLayout())
+                        .setConfiguration(configuration)
+                        .build();
+                stderr.start();
+                rootLogger.removeAppender(console.getName());
+                rootLogger.addAppender(stderr, null, null);
+            }
+        }
+        context.updateLoggers();
+    }
+
+    private static void logCacheStats(final WeighedLruCache<String, Solution> solutionCache) {
+        if (solutionCache != null) {
+            cLogger.info("Solution cache: {}", solutionCache.getStats());
+        }
+    }
+
+    private static SlidingRobotsSearchAlgorithm getSearchAlgorithm(final List<SearchAlgorithmType> algorithms,
+                                                                   final int solutionDepth, final Board board,
+                                                                   final SolutionStore solutionStore,
+                                                                   final WeighedLruCache<String, Solution> solutionCache) {
+        return getSearchAlgorithm(algorithms, solutionDepth, board, solutionStore, solutionCache, SearchControl.unlimited());
+    }
+
+    /**
+     * @param algorithms    one algorithm, or several to race, see {@link SearchAlgorithmType#create(List, Board, int, SearchControl)}
+     * @param solutionStore a store to look up solutions in before solving, or {@code null}
+     * @param solutionCache an in-memory cache to look up solutions in before the store, or {@code null}
+     * @param control       the budget of the search
+     */
+    private static SlidingRobotsSearchAlgorithm getSearchAlgorithm(final List<SearchAlgorithmType> algorithms,
+                                                                   final int solutionDepth, final Board board,
+                                                                   final SolutionStore solutionStore,
+                                                                   final WeighedLruCache<String, Solution> solutionCache,
+                                                                   final SearchControl control) {
+        SlidingRobotsSearchAlgorithm searchAlgorithm = SearchAlgorithmType.create(algorithms, board, solutionDepth, control);
+        // a race with an algorithm that does not find the bumps range may be won without one
+        final boolean isBumpsRangeKept = algorithms.stream().allMatch(SearchAlgorithmType::isFindingBumpsRange);
+        if (solutionStore != null) {
+            searchAlgorithm = new StoredSearchAlgorithm(solutionStore, board, solutionDepth, isBumpsRangeKept,
+                    searchAlgorithm);
+        }
+        if (solutionCache != null) {
+            searchAlgorithm = new CachedSearchAlgorithm(solutionCache, board, solutionDepth, isBumpsRangeKept,
+                    searchAlgorithm, control);
+        }
+        return searchAlgorithm;
     }
 }
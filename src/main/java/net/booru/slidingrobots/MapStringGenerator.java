@@ -3,19 +3,19 @@ package net.booru.slidingrobots;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectWriter;
-import net.booru.slidingrobots.algorithm.BreadthFirstSearchIterative;
 import net.booru.slidingrobots.algorithm.NoSolutionException;
+import net.booru.slidingrobots.algorithm.SlidingRobotsSearchAlgorithm;
 import net.booru.slidingrobots.algorithm.model.Solution;
-import net.booru.slidingrobots.algorithm.model.SolutionLengthCount;
 import net.booru.slidingrobots.common.Point;
 import net.booru.slidingrobots.common.Timer;
+import net.booru.slidingrobots.rank.GameDump;
 import net.booru.slidingrobots.rank.GameRanker;
 import net.booru.slidingrobots.rank.GameWithSolution;
-import net.booru.slidingrobots.rank.multidim.RankResult;
+import net.booru.slidingrobots.state.Board;
 import net.booru.slidingrobots.state.Game;
 import net.booru.slidingrobots.state.Piece;
-import net.booru.slidingrobots.state.RobotsStateUtil;
 import net.booru.slidingrobots.state.seed.Seed;
+import net.booru.slidingrobots.state.seed.SeedSource;
 import net.booru.slidingrobots.state.seed.SeedUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -33,6 +33,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.IntStream;
 
 /**
@@ -41,17 +42,23 @@ import java.util.stream.IntStream;
 public class MapStringGenerator {
     private static final Logger cLogger = LoggerFactory.getLogger(MapStringGenerator.class);
 
+    /**
+     * @param algorithmFactory creates the solver, it should keep solutions of at least best + 2 moves for ranking
+     */
     public static void generateToFile(final String mapsFile,
                                       final int mapDimX,
                                       final int mapDimY,
                                       final int mapsPerMove,
                                       final int mapsMinMoves,
                                       final int mapsMaxMoves,
-                                      final boolean isOneWay)
+                                      final boolean isOneWay,
+                                      final SeedSource seedSource,
+                                      final Function<Board, SlidingRobotsSearchAlgorithm> algorithmFactory)
             throws IOException {
 
         cLogger.info("Generating maps from {} to {} moves (inclusive), {} maps each. Total {} maps",
                 mapsMinMoves, mapsMaxMoves, mapsPerMove, (mapsMaxMoves - mapsMinMoves + 1) * mapsPerMove);
+        cLogger.info("Master seed = {}", seedSource.getMasterSeed());
 
         if (mapsFile.isEmpty()) {
             cLogger.info("Generating to stdout, no file specified.");
@@ -69,9 +76,9 @@ public class MapStringGenerator {
             mutableStats.tick();
 
             try {
-                final String seedString = SeedUtils.generateSeedString(mapDimX, mapDimY, isOneWay);
+                final String seedString = seedSource.nextSeedString(mapDimX, mapDimY, isOneWay);
                 final Game game = Game.valueOfSeed(seedString);
-                final var searchAlgorithm = new BreadthFirstSearchIterative(game.getBoard(), 2);
+                final var searchAlgorithm = algorithmFactory.apply(game.getBoard());
                 final Solution solution = searchAlgorithm.run(game.getInitialRobotsState(), game.getEndCriteria());
 
                 final int solutionMoveCount = solution.getStatistics().getSolutionLength();
@@ -117,17 +124,7 @@ public class MapStringGenerator {
         cLogger.info("Total maps generated =        {}", mutableStats.generatedMapsCount);
         cLogger.info("Total maps with no solution = {}", mutableStats.noSolutionCount);
         cLogger.info("Total maps not unique =       {}", mutableStats.noSolutionCount);
-    }
-
-    /**
-     * Record for dumping to json
-     */
-    private record DumpObject(String seedString,
-                              String mapString,
-                              int solutionLength,
-                              List<SolutionLengthCount> solutionLengths,
-                              List<RobotsStateUtil.Move> moveList,
-                              List<RankResult.Description> rankValues) {
+        cLogger.info("Master seed =                 {}", seedSource.getMasterSeed());
     }
 
     private static List<String> getRankedOutput(final Map<Integer, List<GameWithSolution>> movesMap) {
@@ -140,22 +137,7 @@ public class MapStringGenerator {
         final ObjectWriter writer = new ObjectMapper().writer();
         final List<String> jsonStrings = rankedMaps.stream().map(gameWithSolution -> {
                     try {
-                        final Solution solution = gameWithSolution.solution();
-                        final List<RankResult.Description> rankValues = gameWithSolution.rank().getValuesWithDescription();
-                        final String seedString = gameWithSolution.game().getSeedString();
-                        final String mapString = gameWithSolution.game().getMapString();
-
-                        final var jsonObject =
-                                new DumpObject(
-                                        seedString,
-                                        mapString,
-                                        solution.getStatistics().getSolutionLength(),
-                                        solution.getStatistics().getSolutionLengths(),
-                                        RobotsStateUtil.getMoveList(solution.getSolutionPath()),
-                                        rankValues
-                                );
-
-                        return writer.writeValueAsString(jsonObject);
+                        return writer.writeValueAsString(GameDump.of(gameWithSolution));
                     } catch (JsonProcessingException e) {
                         return null;
                     }
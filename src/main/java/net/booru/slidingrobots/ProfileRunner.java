@@ -1,11 +1,17 @@
 package net.booru.slidingrobots;
 
+import net.booru.slidingrobots.algorithm.AlgorithmSelector;
+import net.booru.slidingrobots.algorithm.BoardFeatures;
 import net.booru.slidingrobots.algorithm.NoSolutionException;
+import net.booru.slidingrobots.algorithm.SearchAlgorithmType;
+import net.booru.slidingrobots.algorithm.SearchControl;
 import net.booru.slidingrobots.algorithm.SlidingRobotsSearchAlgorithm;
 import net.booru.slidingrobots.algorithm.model.Solution;
 import net.booru.slidingrobots.common.Timer;
 import net.booru.slidingrobots.state.Board;
 import net.booru.slidingrobots.state.Game;
+import net.booru.slidingrobots.state.seed.Seed;
+import net.booru.slidingrobots.state.seed.SeedSource;
 import net.booru.slidingrobots.state.seed.SeedUtils;
 import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
 import org.slf4j.Logger;
@@ -17,11 +23,26 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.function.Function;
 
 class ProfileRunner {
     private static final Logger cLogger = LoggerFactory.getLogger(ProfileRunner.class);
 
+    /**
+     * Before recording times the selector training runs every engine this many times on the first
+     * {@link #TRAIN_WARMUP_MAPS} maps, to let the JIT compile the searches. The warm-up runs are extra runs, every map
+     * is still recorded.
+     */
+    private static final int TRAIN_WARMUP_RUNS = 20;
+    private static final int TRAIN_WARMUP_MAPS = 5;
+
+    /**
+     * A features bucket needs this many games to get its own entry in the selector table.
+     */
+    private static final int TRAIN_MIN_SAMPLES = 5;
+
     private ProfileRunner() {
     }
 
@@ -30,17 +51,20 @@ class ProfileRunner {
      */
     public static void profileRun(final int runCount, final String mapsFileName,
                                   final Function<Board, SlidingRobotsSearchAlgorithm> algorithmFactory,
-                                  final int dimX, final int dimY)
+                                  final int dimX, final int dimY,
+                                  final SeedSource seedSource)
             throws IOException {
         final boolean isOneWay = false;
 
         cLogger.info("Running statistics gathering (dimx={} dimy={}). runs = {}", dimX, dimY, runCount);
+        cLogger.info("Master seed = {}", seedSource.getMasterSeed());
         final DescriptiveStatistics timeStats = new DescriptiveStatistics(runCount);
 
 
         final List<String> mapStrings = new ArrayList<>(runCount);
         final List<String> mapSeedStrings = new ArrayList<>(runCount);
         final List<Integer> mapMoves = new ArrayList<>(runCount);
+        final Map<String, Integer> solvedByCounts = new TreeMap<>(); // the winners of a portfolio search
         int noSolutionCount = 0;
 
         final Path mapsFilePath = Path.of(mapsFileName);
@@ -55,8 +79,10 @@ class ProfileRunner {
                 mapStrings.add(lineSplit[1]);
             }
         } else { // generate
+            final char[] seeds = seedSource.nextSeeds(runCount);
             for (int i = 0; i < runCount; i++) {
-                final String seedString = SeedUtils.generateSeedString(dimX, dimY, isOneWay);
+                final String seed = new String(seeds, i * SeedUtils.SEED_LENGTH, SeedUtils.SEED_LENGTH);
+                final String seedString = new Seed(dimX, dimY, isOneWay, seed, 0).toString();
                 mapSeedStrings.add(seedString);
                 mapStrings.add(MapStringGenerator.generateFromSeed(seedString));
             }
@@ -81,6 +107,7 @@ class ProfileRunner {
                     cLogger.info("Run {} took {} ms", i, time);
                 }
                 mapMoves.add(solution.getStatistics().getSolutionLength());
+                solvedByCounts.merge(solution.getAlgorithmName(), 1, Integer::sum);
                 mapStringsToDump.add(mapStrings.get(i));
             } catch (NoSolutionException e) {
                 noSolutionCount++;
@@ -115,5 +142,86 @@ class ProfileRunner {
         cLogger.info("      time med =   {} ms", timeStats.getPercentile(50));
         cLogger.info("      time std =   {} ms", timeStats.getStandardDeviation());
         cLogger.info("      time var =   {} ms^2", timeStats.getVariance());
+        cLogger.info("Solved by");
+        solvedByCounts.forEach((algorithmName, count) -> cLogger.info("      {} =   {}", algorithmName, count));
+    }
+
+    /**
+     * Runs every engine of {@link SearchAlgorithmType#engines()} on the maps of a file and writes the
+     * {@link AlgorithmSelector} that picks the fastest engine per features bucket.
+     *
+     * @param runCount     the maximum number of maps to run, 0 for all
+     * @param mapsFileName the maps, one per line, a map string or a profile maps file line "<seed> <map> <moves>"
+     * @param outputFile   the selector properties file, e.g. src/main/resources/algorithm-selector.properties
+     */
+    public static void trainSelector(final int runCount, final String mapsFileName, final String outputFile)
+            throws IOException {
+        final List<String> mapStrings = new ArrayList<>();
+        for (String line : Files.readAllLines(Path.of(mapsFileName))) {
+            final String[] lineSplit = line.trim().split(" ");
+            if (!lineSplit[0].isEmpty()) {
+                mapStrings.add(lineSplit[0].startsWith("seed:") && lineSplit.length > 1 ? lineSplit[1] : lineSplit[0]);
+            }
+        }
+        final int actualRunCount = runCount == 0 ? mapStrings.size() : Math.min(runCount, mapStrings.size());
+        cLogger.info("Training the algorithm selector on {} maps of {}, engines {}", actualRunCount, mapsFileName,
+                SearchAlgorithmType.engines());
+
+        final int warmupMaps = Math.min(TRAIN_WARMUP_MAPS, actualRunCount);
+        for (int run = 0; run < TRAIN_WARMUP_RUNS && warmupMaps > 0; run++) {
+            final Game game = Game.valueOf(mapStrings.get(run % warmupMaps));
+            for (SearchAlgorithmType type : SearchAlgorithmType.engines()) {
+                try {
+                    timeRun(type, game);
+                } catch (NoSolutionException e) {
+                    // only warming up
+                }
+            }
+        }
+
+        final AlgorithmSelector.Trainer trainer = new AlgorithmSelector.Trainer();
+        final Map<SearchAlgorithmType, DescriptiveStatistics> timeStats = new TreeMap<>();
+        int noSolutionCount = 0;
+        for (int i = 0; i < actualRunCount; i++) {
+            final Game game = Game.valueOf(mapStrings.get(i));
+            final BoardFeatures features = BoardFeatures.of(game.getBoard(), game.getInitialRobotsState(),
+                    game.getEndCriteria().size() == 1);
+            try {
+                for (SearchAlgorithmType type : SearchAlgorithmType.engines()) {
+                    final double time = timeRun(type, game);
+                    trainer.add(features, type, time);
+                    timeStats.computeIfAbsent(type, key -> new DescriptiveStatistics()).addValue(time);
+                }
+            } catch (NoSolutionException e) {
+                noSolutionCount++;
+            }
+            if (i % 100 == 0) {
+                cLogger.info("Run {}", i);
+            }
+        }
+
+        if (timeStats.isEmpty()) {
+            throw new IllegalArgumentException("No map of " + mapsFileName + " was solved (" + actualRunCount
+                    + " maps, " + noSolutionCount + " without solution), the selector is not written");
+        }
+
+        final AlgorithmSelector selector = trainer.build(TRAIN_MIN_SAMPLES);
+        selector.write(Path.of(outputFile), "algorithm selector, trained on " + actualRunCount + " maps of " + mapsFileName);
+
+        cLogger.info("  no solution # =   {}", noSolutionCount);
+        timeStats.forEach((type, stats) -> cLogger.info("      {} time avg =   {} ms", type, stats.getMean()));
+        cLogger.info("Selector with {} table entries written to {}", selector.getTableSize(), outputFile);
+    }
+
+    //-------------------------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @return the time in ms of a first solution search of {@code type}
+     */
+    private static double timeRun(final SearchAlgorithmType type, final Game game) throws NoSolutionException {
+        final Timer timer = new Timer();
+        type.create(game.getBoard(), -1, SearchControl.unlimited()).run(game.getInitialRobotsState(), game.getEndCriteria());
+        timer.stop();
+        return timer.getDurationMillis();
     }
 }
@@ -0,0 +1,171 @@
+package net.booru.slidingrobots;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import net.booru.slidingrobots.common.QuantileSketch;
+
+/**
+ * The game reports of one puzzle, aggregated into counts, sums, sums of squares and quantile sketches. Aggregates of
+ * different reports are merged by adding them, so new reports are folded into the stored aggregate without reading the
+ * old reports again. See {@link PuzzleAggregateStore}.
+ * <p>
+ * Penalty values are counted for lost and reset games, the time and moves of other exits are not counted.
+ */
+@JsonAutoDetect(fieldVisibility = JsonAutoDetect.Visibility.NONE, getterVisibility = JsonAutoDetect.Visibility.NONE,
+        isGetterVisibility = JsonAutoDetect.Visibility.NONE)
+final class PuzzleAggregate {
+    private static final double SKETCH_ACCURACY = 0.01;
+
+    @JsonProperty("solutionLength")
+    private int iSolutionLength;
+    @JsonProperty("reportCount")
+    private int iReportCount;
+    @JsonProperty("optimalAttempts")
+    private int iOptimalAttempts;
+    @JsonProperty("statsCount")
+    private int iStatsCount;
+    @JsonProperty("timeSum")
+    private double iTimeSum;
+    @JsonProperty("timeSquareSum")
+    private double iTimeSquareSum;
+    @JsonProperty("movesSum")
+    private double iMovesSum;
+    @JsonProperty("movesSquareSum")
+    private double iMovesSquareSum;
+    /**
+     * The seconds of the won games.
+     */
+    @JsonProperty("winTimes")
+    private QuantileSketch iWinTimes = new QuantileSketch(SKETCH_ACCURACY);
+    /**
+     * The moves of the won games.
+     */
+    @JsonProperty("winMoves")
+    private QuantileSketch iWinMoves = new QuantileSketch(SKETCH_ACCURACY);
+    /**
+     * The difficulty of the aggregated reports, updated by {@link #updateDifficulty()}.
+     */
+    @JsonProperty("difficulty")
+    private float iDifficulty = Float.NaN;
+
+    @SuppressWarnings("unused") // json
+    private PuzzleAggregate() {
+    }
+
+    /**
+     * @param solutionLength the optimal number of moves of the puzzle
+     */
+    PuzzleAggregate(final int solutionLength) {
+        iSolutionLength = solutionLength;
+    }
+
+    void add(final GameReportConverter.GameReport report) {
+        iReportCount++;
+        switch (report.exit_status()) {
+            case win -> {
+                if (report.moveCount() == iSolutionLength) {
+                    iOptimalAttempts++;
+                }
+                addStats(report.getDurationS(), report.moveCount());
+                iWinTimes.add(report.getDurationS());
+                iWinMoves.add(report.moveCount());
+            }
+            case reset, loss -> addStats(10.0 * iSolutionLength, iSolutionLength * 2);
+            default -> {
+                // counted as a report only
+            }
+        }
+    }
+
+    /**
+     * Adds the reports of {@code other}, an aggregate of the same puzzle.
+     *
+     * @return this aggregate
+     */
+    PuzzleAggregate merge(final PuzzleAggregate other) {
+        if (other.iSolutionLength != iSolutionLength) {
+            throw new IllegalArgumentException("Aggregates of different puzzles, solution length " + iSolutionLength
+                    + " and " + other.iSolutionLength);
+        }
+        iReportCount += other.iReportCount;
+        iOptimalAttempts += other.iOptimalAttempts;
+        iStatsCount += other.iStatsCount;
+        iTimeSum += other.iTimeSum;
+        iTimeSquareSum += other.iTimeSquareSum;
+        iMovesSum += other.iMovesSum;
+        iMovesSquareSum += other.iMovesSquareSum;
+        iWinTimes.merge(other.iWinTimes);
+        iWinMoves.merge(other.iWinMoves);
+        return this;
+    }
+
+    int getSolutionLength() {
+        return iSolutionLength;
+    }
+
+    int getReportCount() {
+        return iReportCount;
+    }
+
+    double getTimeMean() {
+        return iTimeSum / iStatsCount;
+    }
+
+    double getTimeStandardDeviation() {
+        return standardDeviation(iTimeSum, iTimeSquareSum, iStatsCount);
+    }
+
+    double getMovesMean() {
+        return iMovesSum / iStatsCount;
+    }
+
+    double getMovesStandardDeviation() {
+        return standardDeviation(iMovesSum, iMovesSquareSum, iStatsCount);
+    }
+
+    QuantileSketch getWinTimes() {
+        return iWinTimes;
+    }
+
+    QuantileSketch getWinMoves() {
+        return iWinMoves;
+    }
+
+    /**
+     * @return the difficulty as of the last {@link #updateDifficulty()}, NaN before that
+     */
+    float getDifficulty() {
+        return iDifficulty;
+    }
+
+    // make up some difficulty
+    float updateDifficulty() {
+        final double attempts = iOptimalAttempts == 0 ? 0.01 : iOptimalAttempts;
+        final double attemptsScore = 1.0 + Math.log(iReportCount / attempts);
+        final double moveScore = getMovesMean() / iSolutionLength;
+        final double timeScore = Math.sqrt(getTimeMean() / iSolutionLength);
+        iDifficulty = (float) (moveScore * timeScore * attemptsScore);
+        return iDifficulty;
+    }
+
+    //-------------------------------------------------------------------------------------------------------------------------------------
+
+    private void addStats(final double time, final double moves) {
+        iStatsCount++;
+        iTimeSum += time;
+        iTimeSquareSum += time * time;
+        iMovesSum += moves;
+        iMovesSquareSum += moves * moves;
+    }
+
+    /**
+     * @return the sample standard deviation, as {@code DescriptiveStatistics} computes it
+     */
+    private static double standardDeviation(final double sum, final double squareSum, final int count) {
+        if (count < 2) {
+            return count == 1 ? 0 : Double.NaN;
+        }
+        final double variance = (squareSum - sum * sum / count) / (count - 1);
+        return Math.sqrt(Math.max(0, variance));
+    }
+}
@@ -0,0 +1,86 @@
+package net.booru.slidingrobots;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * The {@link PuzzleAggregate} of each puzzle over all folded report files, stored as a json file. A report file is
+ * folded in by merging its aggregates, so the time is proportional to the new reports, and only the difficulty of the
+ * puzzles in the file is computed again.
+ * <p>
+ * Report files are known by their file name, a file name that is already folded in is not folded in again.
+ */
+@JsonAutoDetect(fieldVisibility = JsonAutoDetect.Visibility.NONE, getterVisibility = JsonAutoDetect.Visibility.NONE,
+        isGetterVisibility = JsonAutoDetect.Visibility.NONE)
+final class PuzzleAggregateStore {
+    @JsonProperty("foldedReportFiles")
+    private final TreeSet<String> iFoldedReportFiles = new TreeSet<>();
+    @JsonProperty("puzzles")
+    private final TreeMap<String, PuzzleAggregate> iPuzzles = new TreeMap<>();
+
+    /**
+     * @return the stored aggregates, or an empty store if the file does not exist
+     */
+    static PuzzleAggregateStore load(final Path storeFile, final ObjectMapper mapper) throws IOException {
+        if (!Files.exists(storeFile)) {
+            return new PuzzleAggregateStore();
+        }
+        try (final var reader = Files.newBufferedReader(storeFile)) {
+            return mapper.readValue(reader, PuzzleAggregateStore.class);
+        }
+    }
+
+    /**
+     * Writes the store to a temporary file that then replaces {@code storeFile}, so a failed save keeps the old store.
+     */
+    void save(final Path storeFile, final ObjectMapper mapper) throws IOException {
+        final Path absoluteFile = storeFile.toAbsolutePath();
+        final Path tempFile = Files.createTempFile(absoluteFile.getParent(), absoluteFile.getFileName().toString(), ".tmp");
+        try {
+            try (final var writer = Files.newBufferedWriter(tempFile)) {
+                mapper.writeValue(writer, this);
+            }
+            Files.move(tempFile, absoluteFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    boolean isFolded(final String reportFileName) {
+        return iFoldedReportFiles.contains(reportFileName);
+    }
+
+    /**
+     * Merges the aggregates of a report file into the store and updates the difficulty of their puzzles.
+     *
+     * @param reportFileName the name of the report file, it must not be folded in already
+     * @param aggregates     the aggregates of the report file by puzzle id
+     * @return the ids of the updated puzzles
+     */
+    Set<String> fold(final String reportFileName, final Map<String, PuzzleAggregate> aggregates) {
+        if (!iFoldedReportFiles.add(reportFileName)) {
+            throw new IllegalArgumentException("Already folded: " + reportFileName);
+        }
+        aggregates.forEach((puzzleId, aggregate) ->
+                iPuzzles.merge(puzzleId, aggregate, PuzzleAggregate::merge).updateDifficulty());
+        return aggregates.keySet();
+    }
+
+    /**
+     * @return the aggregates by puzzle id
+     */
+    Map<String, PuzzleAggregate> getPuzzles() {
+        return Collections.unmodifiableMap(iPuzzles);
+    }
+}
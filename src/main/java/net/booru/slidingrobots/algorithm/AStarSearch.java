@@ -0,0 +1,115 @@
+package net.booru.slidingrobots.algorithm;
+
+import net.booru.slidingrobots.algorithm.model.Node;
+import net.booru.slidingrobots.algorithm.model.Solution;
+import net.booru.slidingrobots.algorithm.model.Statistics;
+import net.booru.slidingrobots.algorithm.model.Waypoint;
+import net.booru.slidingrobots.common.Timer;
+import net.booru.slidingrobots.state.Board;
+import net.booru.slidingrobots.state.RobotsState;
+import net.booru.slidingrobots.state.RobotsStateUtil;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * A* search with the {@link MainRobotDistance} lower bound. The bound changes by at most one per move and not at a
+ * waypoint, so it is consistent and the first end state taken from the queue is an optimal solution. Deep puzzles where
+ * the main robot has a long way to go are solved with far fewer states than breadth first.
+ * <p>
+ * Only the first solution is found. The waypoints must be those of {@link net.booru.slidingrobots.state.Game#getEndCriteria()},
+ * the goal and then the start unless the game is one way.
+ */
+public class AStarSearch implements SlidingRobotsSearchAlgorithm {
+    /**
+     * The search control is checked every {@code CONTROL_CHECK_INTERVAL} visited states, must be a power of 2.
+     */
+    private static final int CONTROL_CHECK_INTERVAL = 1024;
+
+    private final Board iBoard;
+    private final SearchControl iControl;
+    private final MainRobotDistance iLowerBound;
+
+    /**
+     * A node in the queue, ordered by the estimated solution length and deeper first among equal estimates.
+     */
+    private record Entry(Node node, int estimate) implements Comparable<Entry> {
+        @Override
+        public int compareTo(final Entry other) {
+            final int byEstimate = Integer.compare(estimate, other.estimate);
+            return byEstimate != 0 ? byEstimate : Integer.compare(other.node.depth(), node.depth());
+        }
+    }
+
+    public AStarSearch(final Board board) {
+        this(board, SearchControl.unlimited());
+    }
+
+    /**
+     * @param board   the static board that we can make moves on
+     * @param control the budget of the search, the search throws {@link SearchAbortedException} when it is used up
+     */
+    public AStarSearch(final Board board, final SearchControl control) {
+        iBoard = board;
+        iControl = control;
+        iLowerBound = new MainRobotDistance(board);
+    }
+
+    @Override
+    public Solution run(final RobotsState startState, final List<Waypoint> waypoints) throws NoSolutionException {
+        final Timer timer = new Timer();
+        final Statistics statistics = new Statistics();
+        final boolean isOneWay = waypoints.size() == 1;
+
+        final Map<RobotsState, Integer> bestDepths = new HashMap<>();
+        final PriorityQueue<Entry> queue = new PriorityQueue<>();
+        final RobotsState start = RobotsStateUtil.updateWaypointsReached(startState, waypoints);
+        queue.add(new Entry(new Node(start, null, 0), iLowerBound.lowerBound(start, isOneWay)));
+        bestDepths.put(start, 0);
+
+        long statesVisited = 0;
+        while (!queue.isEmpty()) {
+            final Node node = queue.poll().node();
+            if (node.depth() > bestDepths.get(node.state())) {
+                continue; // reached again with a shorter path
+            }
+            statistics.increaseStatesVisited(1);
+            if ((++statesVisited & (CONTROL_CHECK_INTERVAL - 1)) == 0) {
+                iControl.check(node.depth(), statesVisited);
+            }
+
+            if (node.state().getWaypointsReached() == waypoints.size()) {
+                final List<RobotsState> solutionPath = RobotsStateUtil.extractRobotStatesFromNodePath(node);
+                timer.stop();
+                statistics.setSolutionLength(solutionPath.size() - 1);
+                statistics.setTime(timer.getDurationMillis());
+                statistics.addSolutionsCounts(List.of(node), 0);
+                return new Solution(solutionPath, statistics, getClass().getSimpleName());
+            }
+
+            final List<RobotsState> neighbors = iBoard.getNeighbors(node.state());
+            statistics.increaseStatesCreated(neighbors.size());
+            for (RobotsState neighbor : neighbors) {
+                final RobotsState state = RobotsStateUtil.updateWaypointsReached(neighbor, waypoints);
+                final int depth = node.depth() + 1;
+                final Integer bestDepth = bestDepths.get(state);
+                if (bestDepth != null && bestDepth <= depth) {
+                    continue;
+                }
+
+                final int lowerBound = state.getWaypointsReached() == waypoints.size()
+                        ? 0 : iLowerBound.lowerBound(state, isOneWay);
+                if (lowerBound >= MainRobotDistance.UNREACHABLE) {
+                    continue;
+                }
+                bestDepths.put(state, depth);
+                queue.add(new Entry(new Node(state, node, depth), depth + lowerBound));
+                statistics.increaseStatesSeen();
+            }
+        }
+
+        throw new NoSolutionException();
+    }
+}
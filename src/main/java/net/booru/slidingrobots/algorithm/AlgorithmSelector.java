@@ -0,0 +1,174 @@
+package net.booru.slidingrobots.algorithm;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Picks the search algorithm for a game from its {@link BoardFeatures}, by a decision table from the bucket of the
+ * features to the algorithm that was fastest on the profiled games of that bucket. Games of unknown buckets use the
+ * default algorithm, the fastest over all profiled games.
+ * <p>
+ * The table is built by a {@link Trainer} from profile runs of every {@link SearchAlgorithmType#engines() engine} and
+ * stored as a properties file, the one used by default is the resource {@value #RESOURCE}.
+ */
+public final class AlgorithmSelector {
+    private static final Logger cLogger = LoggerFactory.getLogger(AlgorithmSelector.class);
+
+    public static final String RESOURCE = "algorithm-selector.properties";
+    private static final String KEY_DEFAULT = "default";
+
+    private final Map<String, SearchAlgorithmType> iTable;
+    private final SearchAlgorithmType iDefault;
+
+    /**
+     * @param table            the algorithm of each features bucket, see {@link BoardFeatures#bucketKey()}
+     * @param defaultAlgorithm the algorithm of the buckets not in the table
+     * @throws IllegalArgumentException if an algorithm is not one of the {@link SearchAlgorithmType#engines()}
+     */
+    public AlgorithmSelector(final Map<String, SearchAlgorithmType> table, final SearchAlgorithmType defaultAlgorithm) {
+        if (!SearchAlgorithmType.engines().contains(defaultAlgorithm)
+                || !SearchAlgorithmType.engines().containsAll(table.values())) {
+            throw new IllegalArgumentException("Only the engines " + SearchAlgorithmType.engines() + " can be selected");
+        }
+        iTable = Map.copyOf(table);
+        iDefault = defaultAlgorithm;
+    }
+
+    /**
+     * @return the selector of the resource {@value #RESOURCE}, or one that always selects bfs if it is missing
+     */
+    public static AlgorithmSelector getDefault() {
+        return DefaultHolder.cInstance;
+    }
+
+    public SearchAlgorithmType select(final BoardFeatures features) {
+        return iTable.getOrDefault(features.bucketKey(), iDefault);
+    }
+
+    public int getTableSize() {
+        return iTable.size();
+    }
+
+    public static AlgorithmSelector read(final Reader reader) throws IOException {
+        final Properties properties = new Properties();
+        properties.load(reader);
+
+        final Map<String, SearchAlgorithmType> table = new HashMap<>();
+        SearchAlgorithmType defaultAlgorithm = SearchAlgorithmType.bfs;
+        for (String key : properties.stringPropertyNames()) {
+            final SearchAlgorithmType type = SearchAlgorithmType.valueOf(properties.getProperty(key).trim());
+            if (key.equals(KEY_DEFAULT)) {
+                defaultAlgorithm = type;
+            } else {
+                table.put(key, type);
+            }
+        }
+        return new AlgorithmSelector(table, defaultAlgorithm);
+    }
+
+    public void write(final Path file, final String comment) throws IOException {
+        final Properties properties = new Properties();
+        properties.setProperty(KEY_DEFAULT, iDefault.name());
+        iTable.forEach((key, type) -> properties.setProperty(key, type.name()));
+        try (final Writer writer = Files.newBufferedWriter(file)) {
+            properties.store(writer, comment);
+        }
+    }
+
+    /**
+     * Collects the solve times of the engines per features bucket and builds the selector.
+     */
+    public static final class Trainer {
+        private final Map<String, Map<SearchAlgorithmType, Times>> iBuckets = new TreeMap<>();
+        private final Map<SearchAlgorithmType, Times> iTotals = new EnumMap<>(SearchAlgorithmType.class);
+
+        private static final class Times {
+            private int iCount;
+            private double iSumMillis;
+
+            private void add(final double millis) {
+                iCount++;
+                iSumMillis += millis;
+            }
+
+            private double mean() {
+                return iSumMillis / iCount;
+            }
+        }
+
+        public void add(final BoardFeatures features, final SearchAlgorithmType type, final double millis) {
+            iBuckets.computeIfAbsent(features.bucketKey(), key -> new EnumMap<>(SearchAlgorithmType.class))
+                    .computeIfAbsent(type, key -> new Times()).add(millis);
+            iTotals.computeIfAbsent(type, key -> new Times()).add(millis);
+        }
+
+        /**
+         * @param minSamples the games a bucket needs of each engine to get its own entry, fewer games are not a
+         *                   reliable measure and use the default
+         * @return the selector, only the buckets whose fastest engine differs from the default are in the table
+         */
+        public AlgorithmSelector build(final int minSamples) {
+            final SearchAlgorithmType defaultAlgorithm = fastest(iTotals, 1);
+            final Map<String, SearchAlgorithmType> table = new HashMap<>();
+            iBuckets.forEach((key, times) -> {
+                final SearchAlgorithmType type = fastest(times, minSamples);
+                if (type != null && type != defaultAlgorithm) {
+                    table.put(key, type);
+                }
+            });
+            return new AlgorithmSelector(table, defaultAlgorithm == null ? SearchAlgorithmType.bfs : defaultAlgorithm);
+        }
+
+        //-------------------------------------------------------------------------------------------------------------------------------------
+
+        /**
+         * @return the engine with the lowest mean time, or null if an engine has fewer than minSamples games
+         */
+        private static SearchAlgorithmType fastest(final Map<SearchAlgorithmType, Times> times, final int minSamples) {
+            SearchAlgorithmType fastest = null;
+            for (SearchAlgorithmType type : SearchAlgorithmType.engines()) {
+                final Times typeTimes = times.get(type);
+                if (typeTimes == null || typeTimes.iCount < minSamples) {
+                    return null;
+                }
+                if (fastest == null || typeTimes.mean() < times.get(fastest).mean()) {
+                    fastest = type;
+                }
+            }
+            return fastest;
+        }
+    }
+
+    //-------------------------------------------------------------------------------------------------------------------------------------
+
+    private static final class DefaultHolder {
+        private static final AlgorithmSelector cInstance = load();
+
+        private static AlgorithmSelector load() {
+            try (final InputStream in = AlgorithmSelector.class.getClassLoader().getResourceAsStream(RESOURCE)) {
+                if (in == null) {
+                    cLogger.warn("Resource {} not found, selecting bfs for all games", RESOURCE);
+                    return new AlgorithmSelector(Map.of(), SearchAlgorithmType.bfs);
+                }
+                return read(new InputStreamReader(in, StandardCharsets.ISO_8859_1));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package net.booru.slidingrobots.algorithm;
+
+import net.booru.slidingrobots.algorithm.model.Solution;
+import net.booru.slidingrobots.state.Board;
+import net.booru.slidingrobots.state.Game;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+/**
+ * Runs searches on an executor of the caller and returns their results as {@link CompletableFuture}s, so that many
+ * solves can be started and combined without a thread waiting for each of them.
+ * <p>
+ * A future completes exceptionally with a {@link NoSolutionException} if the game has no solution, or a
+ * {@link SearchAbortedException} if the search timed out. Cancelling a future stops its search at the next
+ * {@link SearchControl#check(int, long)}, a search that has not started yet is not run.
+ */
+public final class AsyncSolver {
+    private final BiFunction<Board, SearchControl, SlidingRobotsSearchAlgorithm> iAlgorithmFactory;
+    private final Executor iExecutor;
+
+    /**
+     * @param algorithmFactory creates the solver for a board and search control, it is called on the executor threads
+     * @param executor         runs the searches, e.g. a virtual thread per task executor or a bounded pool
+     */
+    public AsyncSolver(final BiFunction<Board, SearchControl, SlidingRobotsSearchAlgorithm> algorithmFactory,
+                       final Executor executor) {
+        iAlgorithmFactory = algorithmFactory;
+        iExecutor = executor;
+    }
+
+    public CompletableFuture<Solution> solve(final Game game) {
+        return solve(game, null, null);
+    }
+
+    /**
+     * @param game             the game to solve
+     * @param timeout          the maximum time, including the time waiting for the executor, or {@code null}
+     * @param progressListener told about the progress of the search on the executor thread, or {@code null}
+     * @return the solution
+     */
+    public CompletableFuture<Solution> solve(final Game game, final Duration timeout,
+                                             final SearchControl.ProgressListener progressListener) {
+        final SearchControl control = new SearchControl(0, timeout, progressListener);
+        final CompletableFuture<Solution> future = new CompletableFuture<>();
+        future.whenComplete((solution, failure) -> {
+            if (future.isCancelled()) {
+                control.cancel();
+            }
+        });
+
+        try {
+            iExecutor.execute(() -> {
+                if (future.isDone()) {
+                    return; // cancelled before it started
+                }
+                try {
+                    future.complete(iAlgorithmFactory.apply(game.getBoard(), control)
+                            .run(game.getInitialRobotsState(), game.getEndCriteria()));
+                } catch (NoSolutionException | RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * @param games   the games to solve
+     * @param timeout the maximum time of each search, or {@code null}
+     * @return the solutions in the order of the games. Completes exceptionally with the first failure, the other
+     * searches are then cancelled, as they are when the returned future is cancelled.
+     */
+    public CompletableFuture<List<Solution>> solveAll(final List<Game> games, final Duration timeout) {
+        final List<CompletableFuture<Solution>> futures = games.stream().map(game -> solve(game, timeout, null)).toList();
+        final CompletableFuture<List<Solution>> all = CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> futures.stream().map(CompletableFuture::join).toList());
+
+        for (CompletableFuture<Solution> future : futures) {
+            future.whenComplete((solution, failure) -> {
+                if (failure != null) {
+                    all.completeExceptionally(failure);
+                }
+            });
+        }
+        all.whenComplete((solutions, failure) -> {
+            if (failure != null) {
+                futures.forEach(future -> future.cancel(false));
+            }
+        });
+        return all;
+    }
+
+    /**
+     * @param games   the games to solve, at least one
+     * @param timeout the maximum time of each search, or {@code null}
+     * @return the first solution found, the other searches are then cancelled. Completes exceptionally with the last
+     * failure if no game is solved.
+     */
+    public CompletableFuture<Solution> solveAny(final List<Game> games, final Duration timeout) {
+        if (games.isEmpty()) {
+            throw new IllegalArgumentException("No games to solve");
+        }
+
+        final List<CompletableFuture<Solution>> futures = games.stream().map(game -> solve(game, timeout, null)).toList();
+        final CompletableFuture<Solution> first = new CompletableFuture<>();
+        final AtomicInteger failures = new AtomicInteger();
+        for (CompletableFuture<Solution> future : futures) {
+            future.whenComplete((solution, failure) -> {
+                if (failure == null) {
+                    first.complete(solution);
+                } else if (failures.incrementAndGet() == futures.size()) {
+                    first.completeExceptionally(failure);
+                }
+            });
+        }
+        first.whenComplete((solution, failure) -> futures.forEach(future -> future.cancel(false)));
+        return first;
+    }
+}
@@ -0,0 +1,46 @@
+package net.booru.slidingrobots.algorithm;
+
+import net.booru.slidingrobots.state.Board;
+import net.booru.slidingrobots.state.Piece;
+import net.booru.slidingrobots.state.RobotsState;
+
+/**
+ * Cheap features of a game, used to pick a search algorithm before solving, see {@link AlgorithmSelector}.
+ *
+ * @param lowerBound     the {@link MainRobotDistance} lower bound of the start state
+ * @param blockerDensity the fraction of the cells that are blockers
+ * @param cellCount      the number of cells of the board
+ * @param helperCount    the number of helper robots
+ * @param isOneWay       true if the game ends at the goal
+ */
+public record BoardFeatures(int lowerBound, double blockerDensity, int cellCount, int helperCount, boolean isOneWay) {
+
+    public static BoardFeatures of(final Board board, final RobotsState startState, final boolean isOneWay) {
+        int blockerCount = 0;
+        for (int x = 0; x < board.getWidth(); x++) {
+            for (int y = 0; y < board.getHeight(); y++) {
+                if (board.getPiece(x, y) == Piece.blocker) {
+                    blockerCount++;
+                }
+            }
+        }
+        final int cellCount = board.getWidth() * board.getHeight();
+        return new BoardFeatures(
+                Math.min(new MainRobotDistance(board).lowerBound(startState, isOneWay), MainRobotDistance.UNREACHABLE),
+                (double) blockerCount / cellCount,
+                cellCount,
+                startState.getRobotCount() - 1,
+                isOneWay);
+    }
+
+    /**
+     * @return the bucket of similar games these features belong to, e.g. "lb4:bd3:c4:h2:oneway"
+     */
+    public String bucketKey() {
+        final int lowerBoundBucket = lowerBound >= MainRobotDistance.UNREACHABLE ? 99 : Math.min(lowerBound / 3, 8);
+        final int densityBucket = (int) Math.min(blockerDensity * 20, 10);   // steps of 5%
+        final int cellBucket = Math.min(cellCount / 20, 20);                 // steps of 20 cells
+        return "lb%d:bd%d:c%d:h%d:%s".formatted(lowerBoundBucket, densityBucket, cellBucket, helperCount,
+                isOneWay ? "oneway" : "roundtrip");
+    }
+}
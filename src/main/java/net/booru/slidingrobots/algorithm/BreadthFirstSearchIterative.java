@@ -27,17 +27,21 @@ import java.util.Set;
 public class BreadthFirstSearchIterative implements SlidingRobotsSearchAlgorithm {
     private static final Logger cLogger = LoggerFactory.getLogger(BreadthFirstSearchIterative.class);
 
+    /**
+     * The search control is checked every {@code CONTROL_CHECK_INTERVAL} visited states, must be a power of 2.
+     */
+    private static final int CONTROL_CHECK_INTERVAL = 1024;
+
     private final Board iBoard;
     private final int iDepthsToKeep;
     private final boolean iIsFindFirstSolution;
+    private final SearchControl iControl;
 
     /**
      * @param board the static board that we can make moves on
      */
     public BreadthFirstSearchIterative(final Board board) {
-        iBoard = board;
-        iDepthsToKeep = 0;
-        iIsFindFirstSolution = true;
+        this(board, -1);
     }
 
     /**
@@ -46,9 +50,20 @@ public class BreadthFirstSearchIterative implements SlidingRobotsSearchAlgorithm
      *                     if {@code depthsToKeep} is < 0 then stop at first solution
      */
     public BreadthFirstSearchIterative(final Board board, final int depthsToKeep) {
+        this(board, depthsToKeep, SearchControl.unlimited());
+    }
+
+    /**
+     * @param board        the static board that we can make moves on
+     * @param depthsToKeep keep looking for solutions until reaching best solution + {@code depthsToKeep}
+     *                     if {@code depthsToKeep} is < 0 then stop at first solution
+     * @param control      the budget of the search, the search throws {@link SearchAbortedException} when it is used up
+     */
+    public BreadthFirstSearchIterative(final Board board, final int depthsToKeep, final SearchControl control) {
         iBoard = board;
         iIsFindFirstSolution = depthsToKeep < 0;
         iDepthsToKeep = Math.max(0, depthsToKeep);
+        iControl = control;
     }
 
     /**
@@ -78,6 +93,7 @@ public class BreadthFirstSearchIterative implements SlidingRobotsSearchAlgorithm
         mutableStatistics.setSolutionLength(solutionPath.size() - 1); // path includes start state
         mutableStatistics.setTime(timer.getDurationMillis());
         mutableStatistics.addSolutionsCounts(solutions, Math.max(iDepthsToKeep, 0));
+        mutableStatistics.setDepthsKept(iIsFindFirstSolution ? -1 : iDepthsToKeep);
 
         return new Solution(solutionPath, mutableStatistics, this.getClass().getSimpleName());
     }
@@ -96,10 +112,14 @@ public class BreadthFirstSearchIterative implements SlidingRobotsSearchAlgorithm
         final int finalWaypoint = waypointMap.length-1;
 
         int bestSolutionDepth = Integer.MAX_VALUE;
+        long statesVisited = 0;
 
         while (!nodesToExpand.isEmpty()) {
             final Node currentNode = nodesToExpand.poll();
             mutableStatistics.increaseStatesVisited(1);
+            if ((++statesVisited & (CONTROL_CHECK_INTERVAL - 1)) == 0) {
+                iControl.check(currentNode.depth(), statesVisited);
+            }
 
             final int nextWaypoint = currentNode.state().getWaypointsReached() + 1;
             final boolean isWaypointReached = waypointMap[nextWaypoint].isSatisfied(currentNode.state());
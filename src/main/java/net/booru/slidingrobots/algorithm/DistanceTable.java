@@ -0,0 +1,277 @@
+package net.booru.slidingrobots.algorithm;
+
+import net.booru.slidingrobots.algorithm.model.Waypoint;
+import net.booru.slidingrobots.common.Direction;
+import net.booru.slidingrobots.state.Board;
+import net.booru.slidingrobots.state.Piece;
+import net.booru.slidingrobots.state.RobotsState;
+import net.booru.slidingrobots.state.RobotsStateUtil;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * The exact number of moves left to solve a game from every robot configuration on a board, so that the optimal next
+ * moves from any state are a lookup of the neighbor distances.
+ * <p>
+ * The table is computed once by a breadth first search backwards from the end states: a robot that stopped at a cell
+ * came from any free cell on the straight line behind it, as long as it could not have moved on. Each phase (waypoints
+ * reached) is searched from the last to the first, the states that satisfy the next waypoint of a phase take the
+ * distance of the following phase. Every ordered placement of the robots is a table entry, one byte per entry and
+ * phase.
+ */
+public final class DistanceTable {
+    /**
+     * The distance of states the game cannot be solved from.
+     */
+    public static final int UNREACHABLE = -1;
+
+    /**
+     * The largest number of robot configurations per phase, e.g. four robots on an 8x8 board.
+     */
+    public static final int MAX_CONFIGURATIONS = 1 << 24;
+
+    private static final int NOT_VISITED = 0xFF;
+    private static final int MAX_DISTANCE = NOT_VISITED - 1;
+    private static final int[][] DIRECTIONS = {{0, -1}, {0, 1}, {-1, 0}, {1, 0}}; // in Direction order
+
+    private final Board iBoard;
+    private final int iRobotCount;
+    private final List<Waypoint> iWaypoints;
+    private final int iCellCount;
+    private final int iConfigurations;
+    private final int[] iRobotStride;
+    private final byte[] iDistances;
+
+    /**
+     * @param board      the board
+     * @param robotCount the number of robots, including the main robot
+     * @param waypoints  the end criteria of the game, see {@link net.booru.slidingrobots.state.Game#getEndCriteria()}
+     * @throws IllegalArgumentException if there are more than {@link #MAX_CONFIGURATIONS} robot configurations
+     */
+    public DistanceTable(final Board board, final int robotCount, final List<Waypoint> waypoints) {
+        iBoard = board;
+        iRobotCount = robotCount;
+        iWaypoints = waypoints;
+        iCellCount = board.getWidth() * board.getHeight();
+
+        final double configurations = Math.pow(iCellCount, robotCount);
+        if (robotCount < 1 || waypoints.isEmpty() || configurations > MAX_CONFIGURATIONS) {
+            throw new IllegalArgumentException("Too many robot configurations for a distance table: "
+                    + iCellCount + " cells ^ " + robotCount + " robots");
+        }
+        iConfigurations = (int) configurations;
+        iRobotStride = new int[robotCount];
+        for (int i = 0, stride = 1; i < robotCount; i++, stride *= iCellCount) {
+            iRobotStride[i] = stride;
+        }
+
+        iDistances = new byte[iConfigurations * waypoints.size()];
+        Arrays.fill(iDistances, (byte) NOT_VISITED);
+        for (int phase = waypoints.size() - 1; phase >= 0; phase--) {
+            searchPhase(phase);
+        }
+    }
+
+    public int getRobotCount() {
+        return iRobotCount;
+    }
+
+    /**
+     * @return the size of the table in bytes
+     */
+    public long getSizeBytes() {
+        return iDistances.length;
+    }
+
+    /**
+     * @param robotsState a state of the game the table was computed for
+     * @return the number of moves left to solve the game, or {@link #UNREACHABLE}
+     * @throws IllegalArgumentException if the state does not fit the board
+     */
+    public int distance(final RobotsState robotsState) {
+        if (robotsState.getWaypointsReached() >= iWaypoints.size()) {
+            return 0;
+        }
+        final int distance = Byte.toUnsignedInt(iDistances[index(robotsState)]);
+        return distance == NOT_VISITED ? UNREACHABLE : distance;
+    }
+
+    /**
+     * @param robotsState a state of the game the table was computed for
+     * @return the packed moves that each lead to a state one move closer to the end, see
+     * {@link RobotsStateUtil#packMove}, empty if the game is solved or cannot be solved from the state
+     * @throws IllegalArgumentException if the state does not fit the board
+     */
+    public byte[] optimalMoves(final RobotsState robotsState) {
+        final int distance = distance(robotsState);
+        if (distance <= 0) {
+            return new byte[0];
+        }
+
+        final ByteArrayOutputStream moves = new ByteArrayOutputStream(iRobotCount * DIRECTIONS.length);
+        for (int robotIndex = 0; robotIndex < iRobotCount; robotIndex++) {
+            for (Direction direction : Direction.values()) {
+                final RobotsState next = iBoard.makeMove(robotIndex, direction, robotsState);
+                if (next != robotsState
+                        && distance(RobotsStateUtil.updateWaypointsReached(next, iWaypoints)) == distance - 1) {
+                    moves.write(RobotsStateUtil.packMove(robotIndex, direction));
+                }
+            }
+        }
+        return moves.toByteArray();
+    }
+
+    //-------------------------------------------------------------------------------------------------------------------------------------
+
+    private int index(final RobotsState robotsState) {
+        if (robotsState.getRobotCount() != iRobotCount) {
+            throw new IllegalArgumentException("Expected " + iRobotCount + " robots, got " + robotsState.getRobotCount());
+        }
+        int index = robotsState.getWaypointsReached() * iConfigurations;
+        for (int i = 0; i < iRobotCount; i++) {
+            final int x = robotsState.getPositionX(i);
+            final int y = robotsState.getPositionY(i);
+            if (x < 0 || y < 0 || x >= iBoard.getWidth() || y >= iBoard.getHeight()) {
+                throw new IllegalArgumentException("Robot " + i + " is outside the board: " + x + ", " + y);
+            }
+            index += (y * iBoard.getWidth() + x) * iRobotStride[i];
+        }
+        return index;
+    }
+
+    /**
+     * The states that satisfy the waypoint of the phase are the sources, with the distance of the next phase. They are
+     * sorted by distance and merged with the search queue, which keeps the queue in distance order.
+     */
+    private void searchPhase(final int phase) {
+        final int offset = phase * iConfigurations;
+        final BitSet isSource = new BitSet(iConfigurations);
+        final int[] cells = new int[iRobotCount];
+
+        final int[] sourceCounts = new int[NOT_VISITED + 2];
+        for (int configuration = 0; configuration < iConfigurations; configuration++) {
+            if (decode(configuration, cells) && isWaypointSatisfied(phase, cells)) {
+                isSource.set(configuration);
+                final int distance = phase == iWaypoints.size() - 1
+                        ? 0 : Byte.toUnsignedInt(iDistances[offset + iConfigurations + configuration]);
+                iDistances[offset + configuration] = (byte) distance;
+                sourceCounts[distance + 1]++;
+            }
+        }
+
+        // counting sort of the sources by distance, unreachable sources are not searched from
+        for (int i = 1; i < sourceCounts.length; i++) {
+            sourceCounts[i] += sourceCounts[i - 1];
+        }
+        final int[] sources = new int[sourceCounts[NOT_VISITED]];
+        for (int configuration = isSource.nextSetBit(0); configuration >= 0; configuration = isSource.nextSetBit(configuration + 1)) {
+            final int distance = Byte.toUnsignedInt(iDistances[offset + configuration]);
+            if (distance != NOT_VISITED) {
+                sources[sourceCounts[distance]++] = configuration;
+            }
+        }
+
+        final int[] queue = new int[iConfigurations];
+        int head = 0;
+        int tail = 0;
+        int nextSource = 0;
+        while (head < tail || nextSource < sources.length) {
+            final int configuration;
+            if (head == tail || (nextSource < sources.length
+                    && Byte.toUnsignedInt(iDistances[offset + sources[nextSource]])
+                    <= Byte.toUnsignedInt(iDistances[offset + queue[head]]))) {
+                configuration = sources[nextSource++];
+            } else {
+                configuration = queue[head++];
+            }
+
+            final int distance = Byte.toUnsignedInt(iDistances[offset + configuration]);
+            if (distance == MAX_DISTANCE) {
+                throw new IllegalStateException("Distance table overflow, more than " + MAX_DISTANCE + " moves");
+            }
+            decode(configuration, cells);
+            for (int robot = 0; robot < iRobotCount; robot++) {
+                for (int[] direction : DIRECTIONS) {
+                    tail = enqueuePredecessors(offset, configuration, cells, robot, direction, distance + 1, isSource, queue, tail);
+                }
+            }
+        }
+    }
+
+    /**
+     * The predecessors where {@code robot} moved in {@code direction} and stopped at its cell in {@code cells}.
+     *
+     * @return the new queue tail
+     */
+    private int enqueuePredecessors(final int offset, final int configuration, final int[] cells, final int robot,
+                                    final int[] direction, final int distance, final BitSet isSource,
+                                    final int[] queue, final int queueTail) {
+        final int width = iBoard.getWidth();
+        final int x = cells[robot] % width;
+        final int y = cells[robot] / width;
+        if (isFree(x + direction[0], y + direction[1], cells, robot)) {
+            return queueTail; // the robot would not have stopped here
+        }
+
+        int tail = queueTail;
+        int px = x - direction[0];
+        int py = y - direction[1];
+        while (isFree(px, py, cells, robot)) {
+            final int predecessor = configuration + (py * width + px - cells[robot]) * iRobotStride[robot];
+            if (iDistances[offset + predecessor] == (byte) NOT_VISITED && !isSource.get(predecessor)) {
+                iDistances[offset + predecessor] = (byte) distance;
+                queue[tail++] = predecessor;
+            }
+            px -= direction[0];
+            py -= direction[1];
+        }
+        return tail;
+    }
+
+    private boolean isFree(final int x, final int y, final int[] cells, final int robot) {
+        if (x < 0 || y < 0 || x >= iBoard.getWidth() || y >= iBoard.getHeight() || iBoard.getPiece(x, y) == Piece.blocker) {
+            return false;
+        }
+        final int cell = y * iBoard.getWidth() + x;
+        for (int i = 0; i < cells.length; i++) {
+            if (i != robot && cells[i] == cell) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return false if the configuration has a robot on a blocker or two robots on the same cell
+     */
+    private boolean decode(final int configuration, final int[] cells) {
+        int rest = configuration;
+        for (int i = 0; i < iRobotCount; i++) {
+            cells[i] = rest % iCellCount;
+            rest /= iCellCount;
+            final int x = cells[i] % iBoard.getWidth();
+            final int y = cells[i] / iBoard.getWidth();
+            if (iBoard.getPiece(x, y) == Piece.blocker) {
+                return false;
+            }
+            for (int j = 0; j < i; j++) {
+                if (cells[j] == cells[i]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private boolean isWaypointSatisfied(final int phase, final int[] cells) {
+        final byte[] positions = new byte[2 * iRobotCount];
+        for (int i = 0; i < iRobotCount; i++) {
+            positions[2 * i] = (byte) (cells[i] % iBoard.getWidth());
+            positions[2 * i + 1] = (byte) (cells[i] / iBoard.getWidth());
+        }
+        return iWaypoints.get(phase).isSatisfied(new RobotsState(positions, (byte) phase));
+    }
+}
@@ -0,0 +1,94 @@
+package net.booru.slidingrobots.algorithm;
+
+import net.booru.slidingrobots.common.Point;
+import net.booru.slidingrobots.state.Board;
+import net.booru.slidingrobots.state.Piece;
+import net.booru.slidingrobots.state.RobotsState;
+
+import java.util.Arrays;
+
+/**
+ * A cheap admissible lower bound on the number of moves left, from the moves the main robot needs on its own.
+ * <p>
+ * The bound relaxes the game: helper robots are removed and the main robot may stop on any cell, as if a helper robot
+ * was always in the right place. Blockers still stop it. Each real move of the main robot is then a relaxed move and
+ * helper moves only add to the count, so the relaxed distance never overestimates. The distances to the goal and to
+ * the start are computed once per board.
+ */
+public final class MainRobotDistance {
+    /**
+     * Unreachable cells get this distance.
+     */
+    public static final int UNREACHABLE = Integer.MAX_VALUE / 4;
+
+    private static final int[][] DIRECTIONS = {{0, -1}, {0, 1}, {-1, 0}, {1, 0}};
+
+    private final Board iBoard;
+    private final int[] iDistanceToGoal;
+    private final int[] iDistanceToStart;
+    private final int iGoalToStart;
+
+    public MainRobotDistance(final Board board) {
+        iBoard = board;
+        iDistanceToGoal = distancesTo(board, board.getGoalPosition());
+        iDistanceToStart = distancesTo(board, board.getStartPosition());
+        iGoalToStart = iDistanceToStart[index(board, board.getGoalPosition().x, board.getGoalPosition().y)];
+    }
+
+    /**
+     * @param robotsState the current state, its waypoints reached select the remaining phases
+     * @param isOneWay    true if the game ends at the goal, false if the main robot must also return to the start
+     * @return a lower bound on the number of moves left to solve the game, {@link #UNREACHABLE} or more if the game
+     * cannot be solved from the state
+     */
+    public int lowerBound(final RobotsState robotsState, final boolean isOneWay) {
+        final int position = index(iBoard, robotsState.getPositionX(0), robotsState.getPositionY(0));
+        if (robotsState.getWaypointsReached() == 0) {
+            return isOneWay ? iDistanceToGoal[position] : iDistanceToGoal[position] + iGoalToStart;
+        }
+        return isOneWay ? 0 : iDistanceToStart[position];
+    }
+
+    //-------------------------------------------------------------------------------------------------------------------------------------
+
+    private static int index(final Board board, final int x, final int y) {
+        return y * board.getWidth() + x;
+    }
+
+    /**
+     * Breadth first from the target: a cell is one move from every cell on a straight line from it that is not
+     * separated by a blocker. Moves are reversible in the relaxed game, so this is also the distance to the target.
+     */
+    private static int[] distancesTo(final Board board, final Point target) {
+        final int width = board.getWidth();
+        final int height = board.getHeight();
+        final int[] distances = new int[width * height];
+        Arrays.fill(distances, UNREACHABLE);
+
+        final int[] queue = new int[width * height];
+        int head = 0;
+        int tail = 0;
+        distances[index(board, target.x, target.y)] = 0;
+        queue[tail++] = index(board, target.x, target.y);
+
+        while (head < tail) {
+            final int cell = queue[head++];
+            final int x = cell % width;
+            final int y = cell / width;
+            for (int[] direction : DIRECTIONS) {
+                int nx = x + direction[0];
+                int ny = y + direction[1];
+                while (nx >= 0 && ny >= 0 && nx < width && ny < height && board.getPiece(nx, ny) != Piece.blocker) {
+                    final int next = index(board, nx, ny);
+                    if (distances[next] == UNREACHABLE) {
+                        distances[next] = distances[cell] + 1;
+                        queue[tail++] = next;
+                    }
+                    nx += direction[0];
+                    ny += direction[1];
+                }
+            }
+        }
+        return distances;
+    }
+}
@@ -0,0 +1,189 @@
+package net.booru.slidingrobots.algorithm;
+
+import net.booru.slidingrobots.algorithm.model.Solution;
+import net.booru.slidingrobots.algorithm.model.SolutionLengthCount;
+import net.booru.slidingrobots.algorithm.model.Statistics;
+import net.booru.slidingrobots.algorithm.model.Waypoint;
+import net.booru.slidingrobots.common.Direction;
+import net.booru.slidingrobots.common.Timer;
+import net.booru.slidingrobots.state.Board;
+import net.booru.slidingrobots.state.RobotsState;
+import net.booru.slidingrobots.state.RobotsStateUtil;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Breadth first search one depth at a time, where each state keeps the least and the greatest number of bumps of the
+ * shortest paths to it, see {@link RobotsStateUtil#countBumps(RobotsState, int, Direction)}. All shortest paths to a
+ * state come from the previous depth, so the bumps of a state are final when its depth is done.
+ * <p>
+ * The solution is the optimal solution with the least bumps, the first found of those with equal bumps. The bumps range
+ * of all optimal solutions is in the {@link Statistics}, found in the same search.
+ * <p>
+ * The solution length counts are the number of distinct end states at each depth, as for
+ * {@link BreadthFirstSearchIterative}.
+ */
+public class MinBumpsSearch implements SlidingRobotsSearchAlgorithm {
+    /**
+     * The search control is checked every {@code CONTROL_CHECK_INTERVAL} visited states, must be a power of 2.
+     */
+    private static final int CONTROL_CHECK_INTERVAL = 1024;
+
+    private final Board iBoard;
+    private final int iDepthsToKeep;
+    private final SearchControl iControl;
+
+    /**
+     * A state reached at the current depth, with the shortest path of the least bumps to it.
+     */
+    private static final class Label {
+        private final RobotsState iState;
+        private Label iPrevious;
+        private int iMinBumps;
+        private int iMaxBumps;
+
+        private Label(final RobotsState state, final Label previous, final int minBumps, final int maxBumps) {
+            iState = state;
+            iPrevious = previous;
+            iMinBumps = minBumps;
+            iMaxBumps = maxBumps;
+        }
+    }
+
+    public MinBumpsSearch(final Board board) {
+        this(board, -1, SearchControl.unlimited());
+    }
+
+    /**
+     * @param board        the static board that we can make moves on
+     * @param depthsToKeep count the end states until reaching best solution + {@code depthsToKeep}, if < 0 then stop
+     *                     at the depth of the best solution
+     * @param control      the budget of the search, the search throws {@link SearchAbortedException} when it is used up
+     */
+    public MinBumpsSearch(final Board board, final int depthsToKeep, final SearchControl control) {
+        iBoard = board;
+        iDepthsToKeep = Math.max(0, depthsToKeep);
+        iControl = control;
+    }
+
+    @Override
+    public Solution run(final RobotsState startState, final List<Waypoint> waypoints) throws NoSolutionException {
+        final Timer timer = new Timer();
+        final Statistics statistics = new Statistics();
+
+        final RobotsState start = RobotsStateUtil.updateWaypointsReached(startState, waypoints);
+        final Set<RobotsState> seenStates = new HashSet<>(200_000);
+        seenStates.add(start);
+
+        List<Label> layer = List.of(new Label(start, null, 0, 0));
+        Label best = isEnd(start, waypoints) ? layer.get(0) : null;
+        int bestDepth = best == null ? -1 : 0;
+        int maxBumps = 0;
+        final List<SolutionLengthCount> solutionLengthCounts = new ArrayList<>();
+        if (best != null) {
+            solutionLengthCounts.add(new SolutionLengthCount(0, 1));
+        }
+
+        long statesVisited = 0;
+        int depth = 0;
+        while (!layer.isEmpty() && (best == null || depth < bestDepth + iDepthsToKeep)) {
+            depth++;
+            final Map<RobotsState, Label> nextLabels = new HashMap<>();
+            final List<Label> next = new ArrayList<>();
+            for (Label label : layer) {
+                statistics.increaseStatesVisited(1);
+                if ((++statesVisited & (CONTROL_CHECK_INTERVAL - 1)) == 0) {
+                    iControl.check(depth - 1, statesVisited);
+                }
+                expand(label, waypoints, seenStates, nextLabels, next, statistics);
+            }
+
+            final List<Label> nextToExpand = new ArrayList<>(next.size());
+            int endCount = 0;
+            for (Label label : next) {
+                if (!isEnd(label.iState, waypoints)) {
+                    nextToExpand.add(label);
+                    continue;
+                }
+                endCount++;
+                if (bestDepth < 0 || depth == bestDepth) {
+                    if (best == null || label.iMinBumps < best.iMinBumps) {
+                        best = label;
+                    }
+                    maxBumps = Math.max(maxBumps, label.iMaxBumps);
+                    bestDepth = depth;
+                }
+            }
+            if (endCount > 0) {
+                solutionLengthCounts.add(new SolutionLengthCount(depth, endCount));
+            }
+            layer = nextToExpand;
+        }
+
+        if (best == null) {
+            throw new NoSolutionException();
+        }
+
+        final List<RobotsState> solutionPath = new ArrayList<>(bestDepth + 1);
+        for (Label label = best; label != null; label = label.iPrevious) {
+            solutionPath.add(label.iState);
+        }
+        Collections.reverse(solutionPath);
+        timer.stop();
+
+        statistics.setSolutionLength(bestDepth);
+        statistics.setTime(timer.getDurationMillis());
+        statistics.setSolutionLengthCounts(solutionLengthCounts);
+        statistics.setDepthsKept(iDepthsToKeep);
+        statistics.setBumpsRange(best.iMinBumps, maxBumps);
+
+        return new Solution(solutionPath, statistics, this.getClass().getSimpleName());
+    }
+
+    //-------------------------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Makes all moves from the state of the label. A state of the next depth keeps the least and greatest bumps of the
+     * paths to it, a state seen at an earlier depth is skipped.
+     */
+    private void expand(final Label label, final List<Waypoint> waypoints, final Set<RobotsState> seenStates,
+                        final Map<RobotsState, Label> nextLabels, final List<Label> next, final Statistics statistics) {
+        final RobotsState state = label.iState;
+        for (int robotIndex = 0; robotIndex < state.getRobotCount(); robotIndex++) {
+            for (Direction direction : Direction.values()) {
+                final RobotsState moved = iBoard.makeMove(robotIndex, direction, state);
+                if (moved.getPositionX(robotIndex) == state.getPositionX(robotIndex)
+                        && moved.getPositionY(robotIndex) == state.getPositionY(robotIndex)) {
+                    continue;
+                }
+                statistics.increaseStatesCreated(1);
+
+                final int bumps = RobotsStateUtil.countBumps(moved, robotIndex, direction);
+                final RobotsState neighbor = RobotsStateUtil.updateWaypointsReached(moved, waypoints);
+                final Label existing = nextLabels.get(neighbor);
+                if (existing != null) {
+                    if (label.iMinBumps + bumps < existing.iMinBumps) {
+                        existing.iMinBumps = label.iMinBumps + bumps;
+                        existing.iPrevious = label;
+                    }
+                    existing.iMaxBumps = Math.max(existing.iMaxBumps, label.iMaxBumps + bumps);
+                } else if (seenStates.add(neighbor)) {
+                    final Label added = new Label(neighbor, label, label.iMinBumps + bumps, label.iMaxBumps + bumps);
+                    nextLabels.put(neighbor, added);
+                    next.add(added);
+                    statistics.increaseStatesSeen();
+                }
+            }
+        }
+    }
+
+    private static boolean isEnd(final RobotsState state, final List<Waypoint> waypoints) {
+        return state.getWaypointsReached() == waypoints.size();
+    }
+}
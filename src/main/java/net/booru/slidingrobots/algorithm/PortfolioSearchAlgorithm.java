@@ -0,0 +1,102 @@
+package net.booru.slidingrobots.algorithm;
+
+import net.booru.slidingrobots.algorithm.model.Solution;
+import net.booru.slidingrobots.algorithm.model.Waypoint;
+import net.booru.slidingrobots.state.Board;
+import net.booru.slidingrobots.state.RobotsState;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Races several search algorithms on the same game, each on its own thread, and returns the first answer. The
+ * algorithms are optimal, so the first solution is an optimal solution and the first {@link NoSolutionException} proves
+ * there is none. The other searches are then cancelled.
+ * <p>
+ * The solution is the one of the winning algorithm, its {@link Solution#getAlgorithmName()} tells which one won.
+ * <p>
+ * When depths are kept only the algorithms that count the solutions of the kept depths race, see
+ * {@link SearchAlgorithmType#isCountingKeptDepths()}, and bfs runs if none of them does.
+ */
+public class PortfolioSearchAlgorithm implements SlidingRobotsSearchAlgorithm {
+    private final Board iBoard;
+    private final List<SearchAlgorithmType> iTypes;
+    private final int iDepthsToKeep;
+    private final SearchControl iControl;
+
+    /**
+     * @param board        the static board that we can make moves on
+     * @param types        the algorithms to race
+     * @param depthsToKeep passed to each algorithm, see {@link SearchAlgorithmType#create(Board, int, SearchControl)}
+     * @param control      the budget of each search, cancelling it cancels all of them
+     */
+    public PortfolioSearchAlgorithm(final Board board, final List<SearchAlgorithmType> types, final int depthsToKeep,
+                                    final SearchControl control) {
+        if (types.isEmpty()) {
+            throw new IllegalArgumentException("No algorithms to race");
+        }
+        final List<SearchAlgorithmType> racing = depthsToKeep < 0
+                ? types
+                : types.stream().filter(SearchAlgorithmType::isCountingKeptDepths).toList();
+        iBoard = board;
+        iTypes = racing.isEmpty() ? List.of(SearchAlgorithmType.bfs) : racing;
+        iDepthsToKeep = depthsToKeep;
+        iControl = control;
+    }
+
+    @Override
+    public Solution run(final RobotsState startState, final List<Waypoint> endCriteria) throws NoSolutionException {
+        final List<SearchControl> controls = new ArrayList<>(iTypes.size());
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            try {
+                final ExecutorCompletionService<Solution> searches = new ExecutorCompletionService<>(executor);
+                for (SearchAlgorithmType type : iTypes) {
+                    final SearchControl control = iControl.newChild();
+                    controls.add(control);
+                    searches.submit(() -> type.create(iBoard, iDepthsToKeep, control).run(startState, endCriteria));
+                }
+                return takeFirstAnswer(searches);
+            } finally {
+                controls.forEach(SearchControl::cancel); // the executor waits for the searches to stop
+            }
+        }
+    }
+
+    //-------------------------------------------------------------------------------------------------------------------------------------
+
+    private Solution takeFirstAnswer(final ExecutorCompletionService<Solution> searches) throws NoSolutionException {
+        SearchAbortedException aborted = null;
+        for (int i = 0; i < iTypes.size(); i++) {
+            final Future<Solution> search;
+            try {
+                search = searches.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SearchAbortedException(SearchAbortedException.Reason.CANCELLED, "portfolio search interrupted");
+            }
+
+            try {
+                return search.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof NoSolutionException noSolution) {
+                    throw noSolution;
+                } else if (e.getCause() instanceof SearchAbortedException searchAborted) {
+                    aborted = searchAborted; // another algorithm may still finish within its budget
+                } else if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                } else {
+                    throw new IllegalStateException(e.getCause());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SearchAbortedException(SearchAbortedException.Reason.CANCELLED, "portfolio search interrupted");
+            }
+        }
+        throw aborted;
+    }
+}
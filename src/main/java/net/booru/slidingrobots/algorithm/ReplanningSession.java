@@ -0,0 +1,167 @@
+package net.booru.slidingrobots.algorithm;
+
+import net.booru.slidingrobots.algorithm.model.Node;
+import net.booru.slidingrobots.algorithm.model.Solution;
+import net.booru.slidingrobots.algorithm.model.Statistics;
+import net.booru.slidingrobots.algorithm.model.Waypoint;
+import net.booru.slidingrobots.common.Timer;
+import net.booru.slidingrobots.state.Board;
+import net.booru.slidingrobots.state.Game;
+import net.booru.slidingrobots.state.RobotsState;
+import net.booru.slidingrobots.state.RobotsStateUtil;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Solves one game again and again from the states a player reaches, reusing the work of the earlier solves.
+ * <p>
+ * Every state on a solution path found by the session gets its exact distance to the end and its next state on that
+ * path. A later search stops at these labeled states, as the rest of the way is known, and prunes states that cannot
+ * beat the best solution found so far by the {@link MainRobotDistance} lower bound. A player that deviates from the
+ * optimal line by a move or two usually rejoins a labeled path within a few moves, so the search stays shallow.
+ * <p>
+ * A session is not thread safe, it is meant for the moves of one player.
+ */
+public final class ReplanningSession {
+    /**
+     * The search control is checked every {@code CONTROL_CHECK_INTERVAL} visited states, must be a power of 2.
+     */
+    private static final int CONTROL_CHECK_INTERVAL = 1024;
+
+    private final Board iBoard;
+    private final List<Waypoint> iWaypoints;
+    private final boolean iIsOneWay;
+    private final MainRobotDistance iLowerBound;
+
+    private final Map<RobotsState, Integer> iDistances = new HashMap<>();
+    private final Map<RobotsState, RobotsState> iNextStates = new HashMap<>();
+
+    public ReplanningSession(final Game game) {
+        iBoard = game.getBoard();
+        iWaypoints = game.getEndCriteria();
+        iIsOneWay = game.isOneWay();
+        iLowerBound = new MainRobotDistance(iBoard);
+    }
+
+    /**
+     * @return the number of states with a known distance to the end
+     */
+    public int getLabeledStateCount() {
+        return iDistances.size();
+    }
+
+    /**
+     * @param robotsState the current state, with the waypoints reached so far
+     * @param control     the budget of the search
+     * @return an optimal solution from {@code robotsState}, the path includes {@code robotsState}
+     * @throws NoSolutionException    if the game cannot be solved from the state
+     * @throws SearchAbortedException if the search is over budget
+     */
+    public Solution continuation(final RobotsState robotsState, final SearchControl control) throws NoSolutionException {
+        final Timer timer = new Timer();
+        final Statistics statistics = new Statistics();
+        final RobotsState startState = RobotsStateUtil.updateWaypointsReached(robotsState, iWaypoints);
+
+        final List<RobotsState> path = isEnd(startState) || iDistances.containsKey(startState)
+                ? new ArrayList<>(List.of(startState))
+                : search(startState, control, statistics);
+
+        // the rest of the way from a labeled state is known
+        RobotsState state = path.get(path.size() - 1);
+        while (!isEnd(state)) {
+            state = iNextStates.get(state);
+            path.add(state);
+        }
+        timer.stop();
+
+        statistics.setSolutionLength(path.size() - 1);
+        statistics.setTime(timer.getDurationMillis());
+        return new Solution(path, statistics, getClass().getSimpleName());
+    }
+
+    //-------------------------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Breadth first from {@code startState} until the depth reaches the best solution length found. A labeled state
+     * is a solution of its depth plus its distance, it is not expanded. The states on the path to the best solution are
+     * labeled.
+     *
+     * @return the path from the start state to the end or to a labeled state
+     */
+    private List<RobotsState> search(final RobotsState startState, final SearchControl control,
+                                     final Statistics statistics) throws NoSolutionException {
+        final Set<RobotsState> seenStates = new HashSet<>();
+        final Deque<Node> nodesToExpand = new ArrayDeque<>();
+        nodesToExpand.add(new Node(startState, null, 0));
+        seenStates.add(startState);
+
+        Node bestNode = null;
+        int bestLength = Integer.MAX_VALUE;
+        long statesVisited = 0;
+
+        while (!nodesToExpand.isEmpty()) {
+            final Node node = nodesToExpand.poll();
+            if (node.depth() + 1 >= bestLength) {
+                break; // every remaining node is at least as deep
+            }
+            if (isPruned(node.state(), node.depth(), bestLength)) {
+                continue;
+            }
+            statistics.increaseStatesVisited(1);
+            if ((++statesVisited & (CONTROL_CHECK_INTERVAL - 1)) == 0) {
+                control.check(node.depth(), statesVisited);
+            }
+
+            final List<RobotsState> neighbors = iBoard.getNeighbors(node.state());
+            statistics.increaseStatesCreated(neighbors.size());
+            for (RobotsState neighbor : neighbors) {
+                final RobotsState state = RobotsStateUtil.updateWaypointsReached(neighbor, iWaypoints);
+                if (!seenStates.add(state)) {
+                    continue;
+                }
+                statistics.increaseStatesSeen();
+
+                final int depth = node.depth() + 1;
+                final Integer distance = isEnd(state) ? Integer.valueOf(0) : iDistances.get(state);
+                if (distance == null) {
+                    if (!isPruned(state, depth, bestLength)) {
+                        nodesToExpand.add(new Node(state, node, depth));
+                    }
+                } else if (depth + distance < bestLength) {
+                    bestLength = depth + distance;
+                    bestNode = new Node(state, node, depth);
+                }
+            }
+        }
+
+        if (bestNode == null) {
+            throw new NoSolutionException();
+        }
+
+        final List<RobotsState> path = new ArrayList<>(RobotsStateUtil.extractRobotStatesFromNodePath(bestNode));
+        for (int i = 0; i < path.size() - 1; i++) {
+            iDistances.put(path.get(i), bestLength - i);
+            iNextStates.put(path.get(i), path.get(i + 1));
+        }
+        return path;
+    }
+
+    /**
+     * @return true if no solution through {@code state} is shorter than {@code bestLength}
+     */
+    private boolean isPruned(final RobotsState state, final int depth, final int bestLength) {
+        final int lowerBound = iLowerBound.lowerBound(state, iIsOneWay);
+        return lowerBound >= MainRobotDistance.UNREACHABLE || depth + lowerBound >= bestLength;
+    }
+
+    private boolean isEnd(final RobotsState state) {
+        return state.getWaypointsReached() >= iWaypoints.size();
+    }
+}
@@ -0,0 +1,23 @@
+package net.booru.slidingrobots.algorithm;
+
+/**
+ * Thrown by a search that is stopped by its {@link SearchControl} before it finished.
+ */
+public class SearchAbortedException extends RuntimeException {
+    public enum Reason {
+        STATE_LIMIT,
+        TIMEOUT,
+        CANCELLED
+    }
+
+    private final Reason iReason;
+
+    public SearchAbortedException(final Reason reason, final String message) {
+        super(message);
+        iReason = reason;
+    }
+
+    public Reason getReason() {
+        return iReason;
+    }
+}
@@ -0,0 +1,112 @@
+package net.booru.slidingrobots.algorithm;
+
+import net.booru.slidingrobots.state.Board;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The registered search algorithms, by the names used on the command line.
+ */
+public enum SearchAlgorithmType {
+    /**
+     * {@link BreadthFirstSearchIterative}, the only algorithm that counts the solutions of the kept depths.
+     */
+    bfs {
+        @Override
+        public SlidingRobotsSearchAlgorithm create(final Board board, final int depthsToKeep, final SearchControl control) {
+            return new BreadthFirstSearchIterative(board, depthsToKeep, control);
+        }
+    },
+    /**
+     * {@link AStarSearch}, finds the first solution only.
+     */
+    astar {
+        @Override
+        public SlidingRobotsSearchAlgorithm create(final Board board, final int depthsToKeep, final SearchControl control) {
+            return new AStarSearch(board, control);
+        }
+
+        @Override
+        public boolean isCountingKeptDepths() {
+            return false;
+        }
+    },
+    /**
+     * {@link MinBumpsSearch}, the optimal solution with the least bumps and the bumps range of all optimal solutions.
+     */
+    minbumps {
+        @Override
+        public SlidingRobotsSearchAlgorithm create(final Board board, final int depthsToKeep, final SearchControl control) {
+            return new MinBumpsSearch(board, depthsToKeep, control);
+        }
+
+        @Override
+        public boolean isFindingBumpsRange() {
+            return true;
+        }
+    },
+    /**
+     * {@link SelectorSearchAlgorithm} with {@link AlgorithmSelector#getDefault()}, runs the engine expected to be fastest.
+     */
+    selector {
+        @Override
+        public SlidingRobotsSearchAlgorithm create(final Board board, final int depthsToKeep, final SearchControl control) {
+            return new SelectorSearchAlgorithm(board, AlgorithmSelector.getDefault(), depthsToKeep, control);
+        }
+    };
+
+    private static final List<SearchAlgorithmType> cEngines = List.of(bfs, astar);
+
+    /**
+     * @param board        the board
+     * @param depthsToKeep see {@link BreadthFirstSearchIterative#BreadthFirstSearchIterative(Board, int)}
+     * @param control      the budget of the search
+     */
+    public abstract SlidingRobotsSearchAlgorithm create(Board board, int depthsToKeep, SearchControl control);
+
+    /**
+     * @return true if the algorithm counts the solutions of the {@code depthsToKeep} past the optimal solution length
+     */
+    public boolean isCountingKeptDepths() {
+        return true;
+    }
+
+    /**
+     * @return true if the algorithm finds the bumps range of the optimal solutions, see
+     * {@link net.booru.slidingrobots.algorithm.model.Statistics#getMinBumps()}
+     */
+    public boolean isFindingBumpsRange() {
+        return false;
+    }
+
+    /**
+     * @return the algorithms that search by themselves, not by running other algorithms
+     */
+    public static List<SearchAlgorithmType> engines() {
+        return cEngines;
+    }
+
+    /**
+     * @param names comma separated algorithm names, e.g. "bfs,astar"
+     * @throws IllegalArgumentException if a name is not registered
+     */
+    public static List<SearchAlgorithmType> parseList(final String names) {
+        final List<SearchAlgorithmType> types = new ArrayList<>();
+        for (String name : names.split(",")) {
+            types.add(valueOf(name.trim()));
+        }
+        return types;
+    }
+
+    /**
+     * @param types one algorithm, or several to race in a {@link PortfolioSearchAlgorithm}
+     */
+    public static SlidingRobotsSearchAlgorithm create(final List<SearchAlgorithmType> types, final Board board,
+                                                      final int depthsToKeep, final SearchControl control) {
+        if (types.size() == 1) {
+            return types.get(0).create(board, depthsToKeep, control);
+        }
+        return new PortfolioSearchAlgorithm(board, types, depthsToKeep, control);
+    }
+}
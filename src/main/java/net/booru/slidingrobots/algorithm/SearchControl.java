@@ -0,0 +1,122 @@
+package net.booru.slidingrobots.algorithm;
+
+import java.time.Duration;
+
+/**
+ * The budget of a single search: a maximum number of visited states, a deadline and a cancel flag. The search calls
+ * {@link #check(int, long)} regularly and is aborted with a {@link SearchAbortedException} when the budget is used up.
+ * <p>
+ * A control is used by one search, the deadline starts when the control is created.
+ */
+public final class SearchControl {
+    private static final long NO_LIMIT = Long.MAX_VALUE;
+
+    private final long iMaxStates;
+    private final long iDeadlineNanos;
+    private final ProgressListener iProgressListener;
+    private final SearchControl iParent;
+    private volatile boolean iIsCancelled;
+
+    /**
+     * Told about the progress of the search at each {@link #check(int, long)}, on the search thread.
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        /**
+         * @param depth         the depth of the state being expanded
+         * @param statesVisited the number of states visited so far
+         */
+        void onProgress(int depth, long statesVisited);
+    }
+
+    /**
+     * @param maxStates the maximum number of states to visit, or {@code <= 0} for no limit
+     * @param timeout   the maximum search time, or {@code null} for no limit
+     */
+    public SearchControl(final long maxStates, final Duration timeout) {
+        this(maxStates, timeout, null);
+    }
+
+    /**
+     * @param maxStates        the maximum number of states to visit, or {@code <= 0} for no limit
+     * @param timeout          the maximum search time, or {@code null} for no limit
+     * @param progressListener told about the progress of the search, or {@code null}
+     */
+    public SearchControl(final long maxStates, final Duration timeout, final ProgressListener progressListener) {
+        iMaxStates = maxStates <= 0 ? NO_LIMIT : maxStates;
+        iDeadlineNanos = timeout == null ? NO_LIMIT : System.nanoTime() + timeout.toNanos();
+        iProgressListener = progressListener;
+        iParent = null;
+    }
+
+    private SearchControl(final SearchControl parent) {
+        iMaxStates = parent.iMaxStates;
+        iDeadlineNanos = parent.iDeadlineNanos;
+        iProgressListener = null;
+        iParent = parent;
+    }
+
+    /**
+     * @return a control without limits, that can still be cancelled
+     */
+    public static SearchControl unlimited() {
+        return new SearchControl(0, null);
+    }
+
+    /**
+     * Ask the search to stop, it is aborted at its next {@link #check(int, long)}.
+     */
+    public void cancel() {
+        iIsCancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return iIsCancelled || (iParent != null && iParent.isCancelled());
+    }
+
+    /**
+     * @return a control for one of several searches that run for this control, with the same state limit and deadline.
+     * It is cancelled when this control is cancelled, and can be cancelled on its own.
+     */
+    public SearchControl newChild() {
+        return new SearchControl(this);
+    }
+
+    /**
+     * @return the maximum number of states to visit, {@link Long#MAX_VALUE} if there is no limit
+     */
+    public long getMaxStates() {
+        return iMaxStates;
+    }
+
+    /**
+     * @return the time left until the deadline, zero if it has passed, or {@code null} if there is no deadline
+     */
+    public Duration getRemainingTime() {
+        if (iDeadlineNanos == NO_LIMIT) {
+            return null;
+        }
+        return Duration.ofNanos(Math.max(0, iDeadlineNanos - System.nanoTime()));
+    }
+
+    /**
+     * @param depth         the depth of the state being expanded
+     * @param statesVisited the number of states visited so far
+     * @throws SearchAbortedException if the search is cancelled or over budget
+     */
+    public void check(final int depth, final long statesVisited) {
+        if (iProgressListener != null) {
+            iProgressListener.onProgress(depth, statesVisited);
+        }
+        if (isCancelled()) {
+            throw new SearchAbortedException(SearchAbortedException.Reason.CANCELLED, "search cancelled");
+        }
+        if (statesVisited > iMaxStates) {
+            throw new SearchAbortedException(SearchAbortedException.Reason.STATE_LIMIT,
+                    "search visited more than " + iMaxStates + " states");
+        }
+        if (iDeadlineNanos != NO_LIMIT && System.nanoTime() - iDeadlineNanos > 0) {
+            throw new SearchAbortedException(SearchAbortedException.Reason.TIMEOUT, "search timed out");
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package net.booru.slidingrobots.algorithm;
+
+import net.booru.slidingrobots.algorithm.model.Solution;
+import net.booru.slidingrobots.algorithm.model.Waypoint;
+import net.booru.slidingrobots.state.Board;
+import net.booru.slidingrobots.state.RobotsState;
+
+import java.util.List;
+
+/**
+ * Runs the one algorithm an {@link AlgorithmSelector} expects to be fastest for the game. This gets close to the
+ * latency of a {@link PortfolioSearchAlgorithm} on a single thread, which matters when all threads are busy.
+ * <p>
+ * Solutions of additional depths are only counted by bfs, so bfs runs whenever depths are kept.
+ * <p>
+ * The solution is the one of the selected algorithm, its {@link Solution#getAlgorithmName()} tells which one ran.
+ */
+public class SelectorSearchAlgorithm implements SlidingRobotsSearchAlgorithm {
+    private final Board iBoard;
+    private final AlgorithmSelector iSelector;
+    private final int iDepthsToKeep;
+    private final SearchControl iControl;
+
+    /**
+     * @param board        the static board that we can make moves on
+     * @param selector     selects the algorithm of a game
+     * @param depthsToKeep passed to the selected algorithm, see {@link SearchAlgorithmType#create(Board, int, SearchControl)}
+     * @param control      the budget of the search
+     */
+    public SelectorSearchAlgorithm(final Board board, final AlgorithmSelector selector, final int depthsToKeep,
+                                   final SearchControl control) {
+        iBoard = board;
+        iSelector = selector;
+        iDepthsToKeep = depthsToKeep;
+        iControl = control;
+    }
+
+    @Override
+    public Solution run(final RobotsState startState, final List<Waypoint> endCriteria) throws NoSolutionException {
+        if (iDepthsToKeep >= 0) {
+            return SearchAlgorithmType.bfs.create(iBoard, iDepthsToKeep, iControl).run(startState, endCriteria);
+        }
+        final BoardFeatures features = BoardFeatures.of(iBoard, startState, endCriteria.size() == 1);
+        return iSelector.select(features).create(iBoard, iDepthsToKeep, iControl).run(startState, endCriteria);
+    }
+}
@@ -0,0 +1,253 @@
+package net.booru.slidingrobots.algorithm;
+
+import net.booru.slidingrobots.algorithm.model.Waypoint;
+import net.booru.slidingrobots.state.Board;
+import net.booru.slidingrobots.state.RobotsState;
+import net.booru.slidingrobots.state.RobotsStateUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * All optimal solutions of a game, as the graph of the shortest paths from the start state. Breadth first search one
+ * depth at a time keeps, for each state, the states of the previous depth that reach it with one move. The number of
+ * optimal solutions is counted while searching, the solutions are made one at a time by walking the graph back from the
+ * end states.
+ * <p>
+ * The memory is proportional to the number of states and moves searched, not to the number of solutions.
+ */
+public final class ShortestPathDag implements Iterable<List<RobotsState>> {
+    /**
+     * The search control is checked every {@code CONTROL_CHECK_INTERVAL} visited states, must be a power of 2.
+     */
+    private static final int CONTROL_CHECK_INTERVAL = 1024;
+    private static final int NO_EDGE = -1;
+
+    private final List<RobotsState> iStates;
+    private final int[] iFirstEdge;
+    private final int[] iEdgeTarget;
+    private final int[] iEdgeNext;
+    private final int[] iEndStates;
+    private final int iSolutionLength;
+    private final long iSolutionCount;
+
+    private ShortestPathDag(final Builder builder, final int[] endStates, final int solutionLength,
+                            final long solutionCount) {
+        iStates = builder.iStates;
+        iFirstEdge = Arrays.copyOf(builder.iFirstEdge, builder.iStates.size());
+        iEdgeTarget = Arrays.copyOf(builder.iEdgeTarget, builder.iEdgeCount);
+        iEdgeNext = Arrays.copyOf(builder.iEdgeNext, builder.iEdgeCount);
+        iEndStates = endStates;
+        iSolutionLength = solutionLength;
+        iSolutionCount = solutionCount;
+    }
+
+    /**
+     * Searches all optimal solutions.
+     *
+     * @param board      the static board that we can make moves on
+     * @param startState the initial state of the robots
+     * @param waypoints  the definition of the sequential targets we must reach in the game
+     * @param control    the budget of the search, the search throws {@link SearchAbortedException} when it is used up
+     */
+    public static ShortestPathDag search(final Board board, final RobotsState startState, final List<Waypoint> waypoints,
+                                         final SearchControl control) throws NoSolutionException {
+        final Builder builder = new Builder();
+        final Map<RobotsState, Integer> depthIndices = new HashMap<>(200_000);
+
+        final RobotsState start = RobotsStateUtil.updateWaypointsReached(startState, waypoints);
+        builder.addState(start);
+        depthIndices.put(start, 0);
+        if (start.getWaypointsReached() == waypoints.size()) {
+            return new ShortestPathDag(builder, new int[]{0}, 0, 1);
+        }
+
+        // the states of a depth are the index range [layerStart, layerEnd), the search stops at the first end state
+        // so no end state is expanded. The path counts of the current depth are by index - layerStart.
+        long[] pathCounts = {1};
+        int layerStart = 0;
+        int layerEnd = 1;
+        long statesVisited = 0;
+        for (int depth = 1; layerStart < layerEnd; depth++) {
+            for (int from = layerStart; from < layerEnd; from++) {
+                final RobotsState state = builder.iStates.get(from);
+                if ((++statesVisited & (CONTROL_CHECK_INTERVAL - 1)) == 0) {
+                    control.check(depth - 1, statesVisited);
+                }
+                for (RobotsState neighbor : board.getNeighbors(state)) {
+                    final RobotsState next = RobotsStateUtil.updateWaypointsReached(neighbor, waypoints);
+                    final Integer index = depthIndices.get(next);
+                    if (index == null) {
+                        depthIndices.put(next, builder.iStates.size());
+                        builder.addEdge(builder.addState(next), from);
+                    } else if (index >= layerEnd) {
+                        builder.addEdge(index, from); // another shortest path to a state of the next depth
+                    }
+                }
+            }
+
+            final int nextEnd = builder.iStates.size();
+            final long[] nextPathCounts = new long[nextEnd - layerEnd];
+            final List<Integer> endStates = new ArrayList<>();
+            long solutionCount = 0;
+            for (int index = layerEnd; index < nextEnd; index++) {
+                long count = 0;
+                for (int edge = builder.iFirstEdge[index]; edge != NO_EDGE; edge = builder.iEdgeNext[edge]) {
+                    count = saturatedAdd(count, pathCounts[builder.iEdgeTarget[edge] - layerStart]);
+                }
+                nextPathCounts[index - layerEnd] = count;
+                if (builder.iStates.get(index).getWaypointsReached() == waypoints.size()) {
+                    endStates.add(index);
+                    solutionCount = saturatedAdd(solutionCount, count);
+                }
+            }
+            if (!endStates.isEmpty()) {
+                return new ShortestPathDag(builder, endStates.stream().mapToInt(Integer::intValue).toArray(), depth,
+                        solutionCount);
+            }
+
+            pathCounts = nextPathCounts;
+            layerStart = layerEnd;
+            layerEnd = nextEnd;
+        }
+
+        throw new NoSolutionException();
+    }
+
+    /**
+     * @return the number of moves of the optimal solutions
+     */
+    public int getSolutionLength() {
+        return iSolutionLength;
+    }
+
+    /**
+     * @return the number of optimal solutions, {@link Long#MAX_VALUE} if there are at least that many
+     */
+    public long getSolutionCount() {
+        return iSolutionCount;
+    }
+
+    public boolean isUnique() {
+        return iSolutionCount == 1;
+    }
+
+    /**
+     * @return the number of states of the graph, those searched up to the depth of the optimal solutions
+     */
+    public int getStateCount() {
+        return iStates.size();
+    }
+
+    /**
+     * Makes the optimal solutions one at a time, each from (and including) the start state to an end state. See
+     * {@link RobotsStateUtil#getMoveList(List)} for the moves.
+     */
+    @Override
+    public Iterator<List<RobotsState>> iterator() {
+        return new Iterator<>() {
+            // the states of the current path by depth, and the edge taken back from each of them
+            private final int[] iPath = new int[iSolutionLength + 1];
+            private final int[] iEdges = new int[iSolutionLength + 1];
+            private int iEndStateIndex = 0;
+            private boolean iHasNext = descendFirst(0);
+
+            @Override
+            public boolean hasNext() {
+                return iHasNext;
+            }
+
+            @Override
+            public List<RobotsState> next() {
+                if (!iHasNext) {
+                    throw new NoSuchElementException();
+                }
+                final List<RobotsState> path = new ArrayList<>(iSolutionLength + 1);
+                for (int depth = 0; depth <= iSolutionLength; depth++) {
+                    path.add(iStates.get(iPath[depth]));
+                }
+                iHasNext = advance();
+                return path;
+            }
+
+            /**
+             * Starts at the end state of {@code endStateIndex} and follows the first edges back to the start state.
+             */
+            private boolean descendFirst(final int endStateIndex) {
+                if (endStateIndex >= iEndStates.length) {
+                    return false;
+                }
+                iEndStateIndex = endStateIndex;
+                iPath[iSolutionLength] = iEndStates[endStateIndex];
+                followFirstEdges(iSolutionLength);
+                return true;
+            }
+
+            private void followFirstEdges(final int fromDepth) {
+                for (int depth = fromDepth; depth > 0; depth--) {
+                    iEdges[depth] = iFirstEdge[iPath[depth]];
+                    iPath[depth - 1] = iEdgeTarget[iEdges[depth]];
+                }
+            }
+
+            /**
+             * Moves to the next path, by taking the next edge at the depth closest to the start that has one.
+             */
+            private boolean advance() {
+                for (int depth = 1; depth <= iSolutionLength; depth++) {
+                    final int nextEdge = iEdgeNext[iEdges[depth]];
+                    if (nextEdge != NO_EDGE) {
+                        iEdges[depth] = nextEdge;
+                        iPath[depth - 1] = iEdgeTarget[nextEdge];
+                        followFirstEdges(depth - 1);
+                        return true;
+                    }
+                }
+                return descendFirst(iEndStateIndex + 1);
+            }
+        };
+    }
+
+    //-------------------------------------------------------------------------------------------------------------------------------------
+
+    private static long saturatedAdd(final long a, final long b) {
+        final long sum = a + b;
+        return sum < 0 ? Long.MAX_VALUE : sum;
+    }
+
+    /**
+     * The growing states and edges, each state has a linked list of its edges to the previous depth.
+     */
+    private static final class Builder {
+        private final List<RobotsState> iStates = new ArrayList<>();
+        private int[] iFirstEdge = new int[1024];
+        private int[] iEdgeTarget = new int[1024];
+        private int[] iEdgeNext = new int[1024];
+        private int iEdgeCount;
+
+        private int addState(final RobotsState state) {
+            final int index = iStates.size();
+            iStates.add(state);
+            if (index == iFirstEdge.length) {
+                iFirstEdge = Arrays.copyOf(iFirstEdge, index * 2);
+            }
+            iFirstEdge[index] = NO_EDGE;
+            return index;
+        }
+
+        private void addEdge(final int from, final int to) {
+            if (iEdgeCount == iEdgeTarget.length) {
+                iEdgeTarget = Arrays.copyOf(iEdgeTarget, iEdgeCount * 2);
+                iEdgeNext = Arrays.copyOf(iEdgeNext, iEdgeCount * 2);
+            }
+            iEdgeTarget[iEdgeCount] = to;
+            iEdgeNext[iEdgeCount] = iFirstEdge[from];
+            iFirstEdge[from] = iEdgeCount++;
+        }
+    }
+}
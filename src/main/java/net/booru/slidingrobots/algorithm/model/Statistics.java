@@ -15,6 +15,9 @@ public class Statistics {
     private int iSolutionLength;
     private double iTime;
     private HashMap<Integer, Integer> iSolutionLengthCounts;
+    private int iMinBumps = -1;
+    private int iMaxBumps = -1;
+    private int iDepthsKept = -1;
 
     public void increaseStatesCreated(int by) {
         iStatesCreated += by;
@@ -53,10 +56,44 @@ public class Statistics {
     }
 
     public List<SolutionLengthCount> getSolutionLengths() {
+        if (iSolutionLengthCounts == null) {
+            return List.of();
+        }
         return iSolutionLengthCounts.entrySet().stream().sorted(Map.Entry.comparingByKey())
                 .map(e -> new SolutionLengthCount(e.getKey(), e.getValue())).toList();
     }
 
+    /**
+     * @return the least number of bumps of the optimal solutions, or -1 if the search did not find it
+     */
+    public int getMinBumps() {
+        return iMinBumps;
+    }
+
+    /**
+     * @return the greatest number of bumps of the optimal solutions, or -1 if the search did not find it
+     */
+    public int getMaxBumps() {
+        return iMaxBumps;
+    }
+
+    public void setBumpsRange(final int minBumps, final int maxBumps) {
+        iMinBumps = minBumps;
+        iMaxBumps = maxBumps;
+    }
+
+    /**
+     * @return the number of depths past the optimal solution length whose solutions were counted, or -1 if only the
+     * first solution was found
+     */
+    public int getDepthsKept() {
+        return iDepthsKept;
+    }
+
+    public void setDepthsKept(final int depthsKept) {
+        iDepthsKept = depthsKept;
+    }
+
     public double getTime() {
         return iTime;
     }
@@ -66,6 +103,9 @@ public class Statistics {
         var counts = iSolutionLengthCounts == null
                 ? ""
                 : getSolutionLengths();
+        var bumps = iMinBumps < 0
+                ? ""
+                : "\n      Bumps range:     [%d, %d]".formatted(iMinBumps, iMaxBumps);
 
         return String.format("""
                         Statistics:
@@ -74,14 +114,24 @@ public class Statistics {
                               States Created:  %d
                               States Visited:  %d
                               States Seen:     %d
-                              Solution Length counts: %s""",
-                iTime, iSolutionLength, iStatesCreated, iStatesVisited, iStatesSeen, counts);
+                              Solution Length counts: %s%s""",
+                iTime, iSolutionLength, iStatesCreated, iStatesVisited, iStatesSeen, counts, bumps);
     }
 
     public void setTime(final double time) {
         iTime = time;
     }
 
+    /**
+     * @param solutionLengthCounts the number of solutions per solution length, e.g. restored from a stored solution
+     */
+    public void setSolutionLengthCounts(final List<SolutionLengthCount> solutionLengthCounts) {
+        iSolutionLengthCounts = new HashMap<>();
+        for (SolutionLengthCount count : solutionLengthCounts) {
+            iSolutionLengthCounts.put(count.solutionMoves(), count.solutionCount());
+        }
+    }
+
     /**
      * @param startNodes the ordered solutions, best first
      */
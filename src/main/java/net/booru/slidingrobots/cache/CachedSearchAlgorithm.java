@@ -0,0 +1,92 @@
+package net.booru.slidingrobots.cache;
+
+import net.booru.slidingrobots.algorithm.NoSolutionException;
+import net.booru.slidingrobots.algorithm.SearchControl;
+import net.booru.slidingrobots.algorithm.SlidingRobotsSearchAlgorithm;
+import net.booru.slidingrobots.algorithm.model.Solution;
+import net.booru.slidingrobots.algorithm.model.Statistics;
+import net.booru.slidingrobots.algorithm.model.Waypoint;
+import net.booru.slidingrobots.common.Timer;
+import net.booru.slidingrobots.state.Board;
+import net.booru.slidingrobots.state.RobotsState;
+
+import java.util.List;
+
+/**
+ * Looks up the solution in an in-memory {@link WeighedLruCache} shared by many searches, before running the wrapped
+ * algorithm. Concurrent searches for the same game run the wrapped algorithm once.
+ * <p>
+ * The key is the normalized map string of the board and start state with the waypoints reached, see
+ * {@link SearchKeys}, the {@code depthsToKeep} of the wrapped algorithm and whether it finds the bumps range of the
+ * optimal solutions, so a solution cached by a breadth first search is not returned for a minimum bumps search. Games
+ * without a solution are not cached.
+ * A search that waits for a concurrent search of the same game waits within its own {@link SearchControl}, and
+ * searches again itself if the concurrent search was aborted by its budget.
+ */
+public class CachedSearchAlgorithm implements SlidingRobotsSearchAlgorithm {
+    private final WeighedLruCache<String, Solution> iCache;
+    private final Board iBoard;
+    private final int iDepthsToKeep;
+    private final boolean iIsBumpsRangeKept;
+    private final SlidingRobotsSearchAlgorithm iAlgorithm;
+    private final SearchControl iControl;
+
+    /**
+     * @param cache        the shared cache, see {@link #createCache(long)}
+     * @param board        the board of the wrapped algorithm
+     * @param depthsToKeep the {@code depthsToKeep} of the wrapped algorithm, or -1 if it only looks for the first
+     *                     solution
+     * @param algorithm    the algorithm that solves games that are not in the cache
+     */
+    public CachedSearchAlgorithm(final WeighedLruCache<String, Solution> cache, final Board board, final int depthsToKeep,
+                                 final SlidingRobotsSearchAlgorithm algorithm) {
+        this(cache, board, depthsToKeep, false, algorithm, SearchControl.unlimited());
+    }
+
+    /**
+     * @param isBumpsRangeKept true if the wrapped algorithm finds the bumps range of the optimal solutions
+     * @param control          the budget of the wrapped algorithm, also the budget to wait for a concurrent search of
+     *                         the game
+     */
+    public CachedSearchAlgorithm(final WeighedLruCache<String, Solution> cache, final Board board, final int depthsToKeep,
+                                 final boolean isBumpsRangeKept, final SlidingRobotsSearchAlgorithm algorithm,
+                                 final SearchControl control) {
+        iCache = cache;
+        iBoard = board;
+        iDepthsToKeep = Math.max(-1, depthsToKeep);
+        iIsBumpsRangeKept = isBumpsRangeKept;
+        iAlgorithm = algorithm;
+        iControl = control;
+    }
+
+    /**
+     * @param maxPathStates the maximum total number of states in the solution paths of the cached solutions
+     * @return a cache that weighs solutions by their path length
+     */
+    public static WeighedLruCache<String, Solution> createCache(final long maxPathStates) {
+        return new WeighedLruCache<>(maxPathStates, solution -> solution.getSolutionPath().size());
+    }
+
+    @Override
+    public Solution run(final RobotsState startState, final List<Waypoint> endCriteria) throws NoSolutionException {
+        final Timer timer = new Timer();
+        final String key = SearchKeys.of(iBoard, startState, endCriteria) + "#" + iDepthsToKeep
+                + (iIsBumpsRangeKept ? "#bumps" : "");
+
+        final Solution[] solved = new Solution[1];
+        final Solution cached = iCache.get(key, () -> solved[0] = iAlgorithm.run(startState, endCriteria), iControl);
+        if (cached == solved[0]) {
+            return cached;
+        }
+
+        // the cached solution was found by another search, only the time of this lookup is reported
+        timer.stop();
+        final Statistics statistics = new Statistics();
+        statistics.setSolutionLength(cached.getStatistics().getSolutionLength());
+        statistics.setSolutionLengthCounts(cached.getStatistics().getSolutionLengths());
+        statistics.setDepthsKept(cached.getStatistics().getDepthsKept());
+        statistics.setBumpsRange(cached.getStatistics().getMinBumps(), cached.getStatistics().getMaxBumps());
+        statistics.setTime(timer.getDurationMillis());
+        return new Solution(cached.getSolutionPath(), statistics, this.getClass().getSimpleName());
+    }
+}
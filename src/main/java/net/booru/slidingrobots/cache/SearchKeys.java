@@ -0,0 +1,35 @@
+package net.booru.slidingrobots.cache;
+
+import net.booru.slidingrobots.algorithm.model.Waypoint;
+import net.booru.slidingrobots.common.Point;
+import net.booru.slidingrobots.state.Board;
+import net.booru.slidingrobots.state.RobotsState;
+
+import java.util.List;
+
+/**
+ * The keys of searches in the solution store and cache.
+ */
+final class SearchKeys {
+    private SearchKeys() {
+    }
+
+    /**
+     * The end criteria are those of {@link net.booru.slidingrobots.state.Game#getEndCriteria()}, reaching the goal and,
+     * if the game is not one way, returning to the start position. The start position of the board is not in the
+     * normalized map string once the robots have moved, so it is added, and so are the waypoints already reached by a
+     * search from a state in the middle of a game.
+     *
+     * @return the normalized map string of the board and state, the waypoints reached and the start position
+     */
+    static String of(final Board board, final RobotsState startState, final List<Waypoint> endCriteria) {
+        final boolean isOneWay = endCriteria.size() == 1;
+        final StringBuilder sb = new StringBuilder(board.toNormalizedMapString(startState, isOneWay))
+                .append("#waypoints:").append(startState.getWaypointsReached()).append('/').append(endCriteria.size());
+        if (!isOneWay) {
+            final Point start = board.getStartPosition();
+            sb.append(":start:").append(start.x).append(':').append(start.y);
+        }
+        return sb.toString();
+    }
+}
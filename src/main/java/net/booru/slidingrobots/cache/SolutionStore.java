@@ -0,0 +1,306 @@
+package net.booru.slidingrobots.cache;
+
+import net.booru.slidingrobots.algorithm.model.SolutionLengthCount;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A persistent, append-only store of solutions, keyed by the 64-bit hash of a normalized map string.
+ * <p>
+ * The file is memory mapped for reading and new entries are appended to the end, so the store survives restarts and
+ * can be shared between runs without a database. A later entry for the same key replaces an earlier one. The file is
+ * mapped in segments, since one mapping is limited to 2 GB, and each segment also maps the largest entry size past
+ * its end so that an entry starting in a segment can be read from it.
+ * <pre>
+ * header (8 bytes):  magic:int, version:int
+ * entry:             size:int, key:long, depthsKept:byte, minBumps:byte, maxBumps:byte, moveCount:byte,
+ *                    countCount:byte, countCount * (solutionMoves:byte, solutionCount:int), moveCount * packedMove:byte
+ * </pre>
+ * A {@code moveCount} of -1 records that the game has no solution, a {@code minBumps} of -1 that the search did not
+ * find the bumps range.
+ */
+public final class SolutionStore implements Closeable {
+    private static final Logger cLogger = LoggerFactory.getLogger(SolutionStore.class);
+
+    private static final int HEADER_SIZE = 8;
+    private static final int MAGIC = 0x53525353; // "SRSS"
+    private static final int VERSION = 2;
+    private static final int ENTRY_FIXED_SIZE = 4 + 8 + 5;
+    private static final int COUNT_SIZE = 5;
+    private static final int NO_SOLUTION = -1;
+    private static final int MAX_ENTRY_SIZE = ENTRY_FIXED_SIZE + Byte.MAX_VALUE * (COUNT_SIZE + 1);
+    private static final long SEGMENT_SIZE = 1L << 30;
+    private static final long REMAP_SIZE = 64L << 20;
+
+    private final Path iPath;
+    private final FileChannel iChannel;
+    private final long iSegmentSize;
+    private final Map<Long, Long> iOffsets = new HashMap<>();
+    private final List<MappedByteBuffer> iSegments = new ArrayList<>();
+    private long iSize;
+    private int iMappingCount;
+
+    /**
+     * A stored search result.
+     *
+     * @param depthsKept           the {@code depthsToKeep} of the search that produced the entry, -1 if only the first
+     *                             solution was searched for.
+     * @param packedMoves          the moves of the solution, see
+     *                             {@link net.booru.slidingrobots.state.RobotsStateUtil#toPackedMoves(List)}, or
+     *                             {@code null} if there is no solution
+     * @param solutionLengthCounts the solution counts per solution length
+     * @param minBumps             the least bumps of the optimal solutions, -1 if the search did not find the bumps
+     *                             range, see {@link net.booru.slidingrobots.algorithm.model.Statistics#getMinBumps()}
+     * @param maxBumps             the most bumps of the optimal solutions, -1 if the search did not find the bumps range
+     */
+    public record Entry(
+            int depthsKept,
+            byte[] packedMoves,
+            List<SolutionLengthCount> solutionLengthCounts,
+            int minBumps,
+            int maxBumps
+    ) {
+        public Entry(final int depthsKept, final byte[] packedMoves, final List<SolutionLengthCount> solutionLengthCounts) {
+            this(depthsKept, packedMoves, solutionLengthCounts, -1, -1);
+        }
+
+        public static Entry noSolution(final int depthsKept) {
+            return new Entry(depthsKept, null, List.of());
+        }
+
+        public boolean hasSolution() {
+            return packedMoves != null;
+        }
+    }
+
+    private SolutionStore(final Path path, final FileChannel channel, final long segmentSize) {
+        iPath = path;
+        iChannel = channel;
+        iSegmentSize = segmentSize;
+    }
+
+    /**
+     * Open or create a store. A partially written entry at the end of the file, e.g. after a crash, is discarded.
+     */
+    public static SolutionStore open(final Path path) throws IOException {
+        return open(path, SEGMENT_SIZE);
+    }
+
+    /**
+     * @param segmentSize the size of the mapped segments of the file, without the overlap with the next segment
+     */
+    static SolutionStore open(final Path path, final long segmentSize) throws IOException {
+        final FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        final SolutionStore store = new SolutionStore(path, channel, segmentSize);
+        store.load();
+        cLogger.info("Solution store {} opened with {} entries", path, store.size());
+        return store;
+    }
+
+    /**
+     * @param key a string that identifies a game, e.g. a normalized map string
+     * @return a 64-bit FNV-1a hash of {@code key}, used as the store key
+     */
+    public static long hashKey(final String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    public synchronized int size() {
+        return iOffsets.size();
+    }
+
+    /**
+     * @param key the store key, see {@link #hashKey(String)}
+     * @return the entry or {@code null} if there is none
+     */
+    public synchronized Entry get(final long key) {
+        final Long offset = iOffsets.get(key);
+        if (offset == null) {
+            return null;
+        }
+        return readEntry(bufferAt(offset));
+    }
+
+    /**
+     * Append an entry, replacing any earlier entry for the same key.
+     *
+     * @param key   the store key, see {@link #hashKey(String)}
+     * @param entry the entry to store
+     */
+    public synchronized void put(final long key, final Entry entry) {
+        final int moveCount = entry.hasSolution() ? entry.packedMoves().length : 0;
+        final int countCount = entry.solutionLengthCounts().size();
+        if (moveCount > Byte.MAX_VALUE || countCount > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many moves or solution counts to store: " + moveCount + ", " + countCount);
+        }
+        final int size = ENTRY_FIXED_SIZE + countCount * COUNT_SIZE + moveCount;
+
+        final ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(size).putLong(key)
+                .put((byte) entry.depthsKept())
+                .put((byte) entry.minBumps())
+                .put((byte) entry.maxBumps())
+                .put((byte) (entry.hasSolution() ? moveCount : NO_SOLUTION))
+                .put((byte) countCount);
+        for (SolutionLengthCount count : entry.solutionLengthCounts()) {
+            buffer.put((byte) count.solutionMoves()).putInt(count.solutionCount());
+        }
+        if (entry.hasSolution()) {
+            buffer.put(entry.packedMoves());
+        }
+        buffer.flip();
+
+        try {
+            long position = iSize;
+            while (buffer.hasRemaining()) {
+                position += iChannel.write(buffer, position);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to write to solution store " + iPath, e);
+        }
+
+        iOffsets.put(key, iSize);
+        iSize += size;
+    }
+
+    /**
+     * @return the number of segment mappings made since the store was opened
+     */
+    synchronized int getMappingCount() {
+        return iMappingCount;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        iChannel.force(false);
+        iChannel.close();
+        iSegments.clear();
+    }
+
+    //-------------------------------------------------------------------------------------------------------------------------------------
+
+    private void load() throws IOException {
+        iSize = iChannel.size();
+        if (iSize < HEADER_SIZE) {
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).flip();
+            iChannel.truncate(0);
+            iChannel.write(header, 0);
+            iSize = HEADER_SIZE;
+        }
+
+        final ByteBuffer header = bufferAt(0);
+        if (header.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not a solution store file: " + iPath);
+        }
+        if (header.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Solution store " + iPath + " has version " + header.getInt(4)
+                    + ", expected " + VERSION + ". Remove the file to create a new store.");
+        }
+
+        long position = HEADER_SIZE;
+        while (position + ENTRY_FIXED_SIZE <= iSize) {
+            final ByteBuffer buffer = bufferAt(position);
+            final int entrySize = buffer.getInt(buffer.position());
+            if (entrySize < ENTRY_FIXED_SIZE || entrySize > MAX_ENTRY_SIZE || position + entrySize > iSize) {
+                break;
+            }
+            iOffsets.put(buffer.getLong(buffer.position() + 4), position);
+            position += entrySize;
+        }
+
+        if (position != iSize) {
+            cLogger.info("Discarding {} bytes of a partially written entry in {}", iSize - position, iPath);
+            iSegments.clear(); // the mappings must not reach past the end of the truncated file
+            iChannel.truncate(position);
+            iSize = position;
+        }
+    }
+
+    /**
+     * An entry appended after its segment was mapped is read with a positioned read, the segment is mapped again only
+     * once the entries appended past its mapping add up to the remap size, so that a lookup of a new entry does not
+     * map the whole segment again.
+     *
+     * @return a buffer positioned at {@code offset}, with at least an entry size or the rest of the file remaining
+     */
+    private ByteBuffer bufferAt(final long offset) {
+        final int index = Math.toIntExact(offset / iSegmentSize);
+        final long start = index * iSegmentSize;
+        final long end = Math.min(iSize, start + iSegmentSize + MAX_ENTRY_SIZE);
+        final long entryEnd = Math.min(iSize, offset + MAX_ENTRY_SIZE);
+        while (iSegments.size() <= index) {
+            iSegments.add(null);
+        }
+
+        MappedByteBuffer segment = iSegments.get(index);
+        if (segment != null && segment.capacity() < entryEnd - start) {
+            if (end - start - segment.capacity() < Math.min(REMAP_SIZE, iSegmentSize)) {
+                return readAt(offset, (int) (entryEnd - offset));
+            }
+            segment = null;
+        }
+        if (segment == null) {
+            try {
+                segment = iChannel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to map solution store " + iPath, e);
+            }
+            iSegments.set(index, segment);
+            iMappingCount++;
+        }
+        return segment.duplicate().position((int) (offset - start));
+    }
+
+    private ByteBuffer readAt(final long offset, final int size) {
+        final ByteBuffer buffer = ByteBuffer.allocate(size);
+        try {
+            while (buffer.hasRemaining() && iChannel.read(buffer, offset + buffer.position()) >= 0) {
+                // read until the buffer is full or the end of the file
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read solution store " + iPath, e);
+        }
+        return buffer.flip();
+    }
+
+    private static Entry readEntry(final ByteBuffer buffer) {
+        buffer.position(buffer.position() + 4 + 8); // size and key
+        final int depthsKept = buffer.get();
+        final int minBumps = buffer.get();
+        final int maxBumps = buffer.get();
+        final int moveCount = buffer.get();
+        final int countCount = buffer.get();
+
+        final List<SolutionLengthCount> counts = new ArrayList<>(countCount);
+        for (int i = 0; i < countCount; i++) {
+            counts.add(new SolutionLengthCount(buffer.get(), buffer.getInt()));
+        }
+
+        if (moveCount == NO_SOLUTION) {
+            return new Entry(depthsKept, null, counts, minBumps, maxBumps);
+        }
+
+        final byte[] packedMoves = new byte[moveCount];
+        buffer.get(packedMoves);
+        return new Entry(depthsKept, packedMoves, counts, minBumps, maxBumps);
+    }
+}
@@ -0,0 +1,120 @@
+package net.booru.slidingrobots.cache;
+
+import net.booru.slidingrobots.algorithm.NoSolutionException;
+import net.booru.slidingrobots.algorithm.SlidingRobotsSearchAlgorithm;
+import net.booru.slidingrobots.algorithm.model.Solution;
+import net.booru.slidingrobots.algorithm.model.Statistics;
+import net.booru.slidingrobots.algorithm.model.Waypoint;
+import net.booru.slidingrobots.common.Timer;
+import net.booru.slidingrobots.state.Board;
+import net.booru.slidingrobots.state.RobotsState;
+import net.booru.slidingrobots.state.RobotsStateUtil;
+
+import java.util.List;
+
+/**
+ * Looks up the solution in a {@link SolutionStore} before running the wrapped algorithm, and stores the result of the
+ * wrapped algorithm when there is no stored solution.
+ * <p>
+ * The key is the normalized map string of the board and start state with the waypoints reached, see
+ * {@link SearchKeys}, so a game created from a seed string and the same game created from a map string share the same
+ * entry. A stored solution that does not reach all waypoints when replayed, e.g. after a hash collision, is solved
+ * again.
+ * <p>
+ * An entry records the depths the wrapped algorithm counted, see {@link Statistics#getDepthsKept()}, which are fewer
+ * than {@code depthsToKeep} for an algorithm that only finds the first solution, and the bumps range the wrapped
+ * algorithm found, see {@link Statistics#getMinBumps()}. A store that keeps the bumps range does not use entries
+ * without one, so a solution stored by a breadth first search is not returned for a minimum bumps search.
+ */
+public class StoredSearchAlgorithm implements SlidingRobotsSearchAlgorithm {
+    private final SolutionStore iStore;
+    private final Board iBoard;
+    private final int iDepthsToKeep;
+    private final boolean iIsBumpsRangeKept;
+    private final SlidingRobotsSearchAlgorithm iAlgorithm;
+
+    /**
+     * @param store        the store to use
+     * @param board        the board of the wrapped algorithm
+     * @param depthsToKeep the {@code depthsToKeep} of the wrapped algorithm, or -1 if it only looks for the first
+     *                     solution. Stored entries with fewer kept depths are not used.
+     * @param algorithm    the algorithm that solves games that are not in the store
+     */
+    public StoredSearchAlgorithm(final SolutionStore store, final Board board, final int depthsToKeep,
+                                 final SlidingRobotsSearchAlgorithm algorithm) {
+        this(store, board, depthsToKeep, false, algorithm);
+    }
+
+    /**
+     * @param isBumpsRangeKept true if the wrapped algorithm finds the bumps range of the optimal solutions. Stored
+     *                         entries without a bumps range are not used.
+     */
+    public StoredSearchAlgorithm(final SolutionStore store, final Board board, final int depthsToKeep,
+                                 final boolean isBumpsRangeKept, final SlidingRobotsSearchAlgorithm algorithm) {
+        iStore = store;
+        iBoard = board;
+        iDepthsToKeep = Math.max(-1, depthsToKeep);
+        iIsBumpsRangeKept = isBumpsRangeKept;
+        iAlgorithm = algorithm;
+    }
+
+    @Override
+    public Solution run(final RobotsState startState, final List<Waypoint> endCriteria) throws NoSolutionException {
+        final Timer timer = new Timer();
+        final long key = SolutionStore.hashKey(SearchKeys.of(iBoard, startState, endCriteria));
+
+        final SolutionStore.Entry entry = iStore.get(key);
+        if (entry != null && entry.depthsKept() >= iDepthsToKeep
+                && (!iIsBumpsRangeKept || !entry.hasSolution() || entry.minBumps() >= 0)) {
+            if (!entry.hasSolution()) {
+                throw new NoSolutionException();
+            }
+
+            final List<RobotsState> solutionPath = replay(startState, endCriteria, entry.packedMoves());
+            if (solutionPath != null) {
+                timer.stop();
+
+                final Statistics statistics = new Statistics();
+                statistics.setSolutionLength(solutionPath.size() - 1);
+                statistics.setSolutionLengthCounts(entry.solutionLengthCounts());
+                statistics.setDepthsKept(entry.depthsKept());
+                statistics.setBumpsRange(entry.minBumps(), entry.maxBumps());
+                statistics.setTime(timer.getDurationMillis());
+                return new Solution(solutionPath, statistics, this.getClass().getSimpleName());
+            }
+        }
+
+        try {
+            final Solution solution = iAlgorithm.run(startState, endCriteria);
+            final Statistics statistics = solution.getStatistics();
+            iStore.put(key, new SolutionStore.Entry(
+                    Math.min(iDepthsToKeep, statistics.getDepthsKept()),
+                    RobotsStateUtil.toPackedMoves(solution.getSolutionPath()),
+                    statistics.getSolutionLengths(),
+                    statistics.getMinBumps(),
+                    statistics.getMaxBumps()));
+            return solution;
+        } catch (NoSolutionException e) {
+            iStore.put(key, SolutionStore.Entry.noSolution(iDepthsToKeep));
+            throw e;
+        }
+    }
+
+    //-------------------------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @return the replayed solution path, or null if the moves are not a solution from {@code startState}
+     */
+    private List<RobotsState> replay(final RobotsState startState, final List<Waypoint> endCriteria,
+                                     final byte[] packedMoves) {
+        for (byte packedMove : packedMoves) {
+            if (RobotsStateUtil.unpackRobotIndex(packedMove) >= startState.getRobotCount()) {
+                return null;
+            }
+        }
+        final List<RobotsState> solutionPath =
+                RobotsStateUtil.replayPackedMoves(iBoard, startState, endCriteria, packedMoves);
+        final boolean isSolution = solutionPath.get(solutionPath.size() - 1).getWaypointsReached() == endCriteria.size();
+        return isSolution ? solutionPath : null;
+    }
+}
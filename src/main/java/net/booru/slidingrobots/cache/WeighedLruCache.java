@@ -0,0 +1,243 @@
+package net.booru.slidingrobots.cache;
+
+import net.booru.slidingrobots.algorithm.SearchAbortedException;
+import net.booru.slidingrobots.algorithm.SearchControl;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.ToLongFunction;
+
+/**
+ * A thread safe, in-memory least recently used cache that evicts entries when the total weight of the values exceeds a
+ * maximum weight.
+ * <p>
+ * Loading is single-flight: when several threads ask for the same missing key at the same time, the loader runs once
+ * and the other threads wait for its result. A loader that throws is not cached, the exception is passed to the threads
+ * that are waiting for it, except a {@link SearchAbortedException}: the loader ran out of its own search budget, so a
+ * waiting thread loads again under its own budget. A thread waits at most until the deadline of its own
+ * {@link SearchControl}, or until it is cancelled.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public final class WeighedLruCache<K, V> {
+    private static final long WAIT_SLICE_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final long iMaxWeight;
+    private final ToLongFunction<V> iWeigher;
+
+    private final LinkedHashMap<K, WeighedValue<V>> iEntries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<K, CompletableFuture<V>> iLoading = new HashMap<>();
+    private long iWeight;
+    private long iHits;
+    private long iMisses;
+    private long iEvictions;
+
+    /**
+     * Loads a value that is missing in the cache.
+     *
+     * @param <V> the value type
+     * @param <E> the exception type of the loader
+     */
+    @FunctionalInterface
+    public interface Loader<V, E extends Exception> {
+        V load() throws E;
+    }
+
+    /**
+     * A snapshot of the cache counters.
+     *
+     * @param hits      lookups that found a value, including lookups that waited for another thread to load it
+     * @param misses    lookups that ran the loader
+     * @param evictions values removed to keep the total weight below the maximum weight
+     * @param size      the number of cached values
+     * @param weight    the total weight of the cached values
+     */
+    public record Stats(long hits, long misses, long evictions, int size, long weight) {
+        @Override
+        public String toString() {
+            return "hits=%d misses=%d evictions=%d size=%d weight=%d".formatted(hits, misses, evictions, size, weight);
+        }
+    }
+
+    private record WeighedValue<V>(V value, long weight) {
+    }
+
+    /**
+     * @param maxWeight the maximum total weight of the cached values
+     * @param weigher   the weight of a value, must be positive
+     */
+    public WeighedLruCache(final long maxWeight, final ToLongFunction<V> weigher) {
+        if (maxWeight <= 0) {
+            throw new IllegalArgumentException("maxWeight must be > 0, got " + maxWeight);
+        }
+        iMaxWeight = maxWeight;
+        iWeigher = weigher;
+    }
+
+    /**
+     * @param key    the key
+     * @param loader loads the value if it is not cached, only called by one thread at a time per key
+     * @return the cached or loaded value
+     * @throws E if the loader throws, also in threads that waited for the loader of another thread
+     */
+    public <E extends Exception> V get(final K key, final Loader<V, E> loader) throws E {
+        return get(key, loader, SearchControl.unlimited());
+    }
+
+    /**
+     * @param key     the key
+     * @param loader  loads the value if it is not cached, only called by one thread at a time per key
+     * @param control the budget of this thread, used by its loader and to wait for the loader of another thread
+     * @return the cached or loaded value
+     * @throws E                     if the loader throws, also in threads that waited for the loader of another thread
+     * @throws SearchAbortedException if the deadline of {@code control} passes or it is cancelled while waiting
+     */
+    public <E extends Exception> V get(final K key, final Loader<V, E> loader, final SearchControl control) throws E {
+        while (true) {
+            final CompletableFuture<V> loading;
+            final boolean isLoader;
+            synchronized (this) {
+                final WeighedValue<V> cached = iEntries.get(key);
+                if (cached != null) {
+                    iHits++;
+                    return cached.value();
+                }
+
+                final CompletableFuture<V> other = iLoading.get(key);
+                if (other != null) {
+                    iHits++;
+                    loading = other;
+                    isLoader = false;
+                } else {
+                    iMisses++;
+                    loading = new CompletableFuture<>();
+                    iLoading.put(key, loading);
+                    isLoader = true;
+                }
+            }
+
+            if (isLoader) {
+                return load(key, loader, loading);
+            }
+            waitFor(loading, control);
+            if (!(loading.state() == Future.State.FAILED && loading.exceptionNow() instanceof SearchAbortedException)) {
+                return await(loading);
+            }
+            // the other loader ran out of its budget, which says nothing about the budget of this thread
+        }
+    }
+
+    /**
+     * @return the cached value or {@code null}, without loading it
+     */
+    public synchronized V getIfPresent(final K key) {
+        final WeighedValue<V> cached = iEntries.get(key);
+        return cached == null ? null : cached.value();
+    }
+
+    public synchronized void put(final K key, final V value) {
+        final long weight = iWeigher.applyAsLong(value);
+        final WeighedValue<V> previous = iEntries.put(key, new WeighedValue<>(value, weight));
+        if (previous != null) {
+            iWeight -= previous.weight();
+        }
+        iWeight += weight;
+        evict();
+    }
+
+    public synchronized void clear() {
+        iEntries.clear();
+        iWeight = 0;
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(iHits, iMisses, iEvictions, iEntries.size(), iWeight);
+    }
+
+    //-------------------------------------------------------------------------------------------------------------------------------------
+
+    private <E extends Exception> V load(final K key, final Loader<V, E> loader, final CompletableFuture<V> loading)
+            throws E {
+        try {
+            final V value = loader.load();
+            synchronized (this) {
+                iLoading.remove(key);
+                put(key, value);
+            }
+            loading.complete(value);
+            return value;
+        } catch (Throwable t) {
+            synchronized (this) {
+                iLoading.remove(key);
+            }
+            loading.completeExceptionally(t);
+            throw t;
+        }
+    }
+
+    /**
+     * Wait for a load by another thread, in slices so that a cancelled control is noticed.
+     */
+    private static void waitFor(final CompletableFuture<?> loading, final SearchControl control) {
+        while (!loading.isDone()) {
+            if (control.isCancelled()) {
+                throw new SearchAbortedException(SearchAbortedException.Reason.CANCELLED,
+                        "search cancelled while waiting for a concurrent search");
+            }
+            final Duration remaining = control.getRemainingTime();
+            if (remaining != null && remaining.isZero()) {
+                throw new SearchAbortedException(SearchAbortedException.Reason.TIMEOUT,
+                        "search timed out while waiting for a concurrent search");
+            }
+            try {
+                loading.get(remaining == null ? WAIT_SLICE_NANOS : Math.min(remaining.toNanos(), WAIT_SLICE_NANOS),
+                        TimeUnit.NANOSECONDS);
+            } catch (TimeoutException | ExecutionException e) {
+                // checked again by the loop
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SearchAbortedException(SearchAbortedException.Reason.CANCELLED,
+                        "interrupted while waiting for a concurrent search");
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V, E extends Exception> V await(final CompletableFuture<V> loading) throws E {
+        try {
+            return loading.join();
+        } catch (CompletionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw (E) cause; // only the loader's exception type E is left
+        }
+    }
+
+    /**
+     * Remove the least recently used values until the weight is at most the maximum weight. A single value heavier than
+     * the maximum weight is not kept.
+     */
+    private void evict() {
+        final Iterator<WeighedValue<V>> iterator = iEntries.values().iterator();
+        while (iWeight > iMaxWeight && iterator.hasNext()) {
+            iWeight -= iterator.next().weight();
+            iterator.remove();
+            iEvictions++;
+        }
+    }
+}
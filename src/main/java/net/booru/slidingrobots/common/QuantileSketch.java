@@ -0,0 +1,113 @@
+package net.booru.slidingrobots.common;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Approximate quantiles of non-negative values in little memory. Values are counted in buckets whose bounds grow
+ * geometrically, so a quantile is off by at most the relative accuracy of the sketch. Sketches of the same accuracy can
+ * be merged, the merged sketch is the same as if all values were added to one sketch.
+ * <p>
+ * The sketch can be stored as json.
+ */
+@JsonAutoDetect(fieldVisibility = JsonAutoDetect.Visibility.NONE, getterVisibility = JsonAutoDetect.Visibility.NONE,
+        isGetterVisibility = JsonAutoDetect.Visibility.NONE)
+public final class QuantileSketch {
+    @JsonProperty("relativeAccuracy")
+    private double iRelativeAccuracy;
+    @JsonProperty("zeroCount")
+    private long iZeroCount;
+    /**
+     * Bucket {@code i} counts the values in (gamma^(i-1), gamma^i].
+     */
+    @JsonProperty("buckets")
+    private TreeMap<Integer, Long> iBuckets = new TreeMap<>();
+
+    private double iLogGamma;
+
+    @SuppressWarnings("unused") // json
+    private QuantileSketch() {
+    }
+
+    /**
+     * @param relativeAccuracy in (0, 1), e.g. 0.01 for quantiles within 1%
+     */
+    public QuantileSketch(final double relativeAccuracy) {
+        if (!(relativeAccuracy > 0 && relativeAccuracy < 1)) {
+            throw new IllegalArgumentException("Relative accuracy must be in (0, 1): " + relativeAccuracy);
+        }
+        iRelativeAccuracy = relativeAccuracy;
+    }
+
+    public void add(final double value) {
+        if (!(value >= 0)) {
+            throw new IllegalArgumentException("Only non-negative values: " + value);
+        }
+        if (value == 0) {
+            iZeroCount++;
+        } else {
+            iBuckets.merge((int) Math.ceil(Math.log(value) / getLogGamma()), 1L, Long::sum);
+        }
+    }
+
+    /**
+     * Adds the values of {@code other}, which must have the same accuracy.
+     */
+    public void merge(final QuantileSketch other) {
+        if (other.iRelativeAccuracy != iRelativeAccuracy) {
+            throw new IllegalArgumentException("Cannot merge sketches of accuracy " + iRelativeAccuracy + " and "
+                    + other.iRelativeAccuracy);
+        }
+        iZeroCount += other.iZeroCount;
+        other.iBuckets.forEach((index, count) -> iBuckets.merge(index, count, Long::sum));
+    }
+
+    public long getCount() {
+        long count = iZeroCount;
+        for (long bucketCount : iBuckets.values()) {
+            count += bucketCount;
+        }
+        return count;
+    }
+
+    /**
+     * @param quantile in [0, 1], e.g. 0.5 for the median
+     * @return the value at the quantile, within the relative accuracy, or NaN if no value is added
+     */
+    public double getQuantile(final double quantile) {
+        if (quantile < 0 || quantile > 1) {
+            throw new IllegalArgumentException("Quantile must be in [0, 1]: " + quantile);
+        }
+        final long count = getCount();
+        if (count == 0) {
+            return Double.NaN;
+        }
+
+        final long rank = (long) (quantile * (count - 1));
+        long seen = iZeroCount;
+        if (rank < seen) {
+            return 0;
+        }
+        final double gamma = Math.exp(getLogGamma());
+        for (Map.Entry<Integer, Long> bucket : iBuckets.entrySet()) {
+            seen += bucket.getValue();
+            if (rank < seen) {
+                // the value of least relative error to all values of the bucket
+                return 2 * Math.pow(gamma, bucket.getKey()) / (gamma + 1);
+            }
+        }
+        throw new IllegalStateException("Rank " + rank + " beyond count " + count);
+    }
+
+    //-------------------------------------------------------------------------------------------------------------------------------------
+
+    private double getLogGamma() {
+        if (iLogGamma == 0) {
+            iLogGamma = Math.log((1 + iRelativeAccuracy) / (1 - iRelativeAccuracy));
+        }
+        return iLogGamma;
+    }
+}
@@ -7,6 +7,7 @@ import net.booru.slidingrobots.state.RobotsStateUtil;
 
 import java.util.Deque;
 import java.util.LinkedList;
+import java.util.List;
 
 /**
  * Counts the moves and the number of bumps against other robots.
@@ -14,7 +15,14 @@ import java.util.LinkedList;
 public class BumpsCounter {
 
     public int apply(final Solution solution) {
-        final Deque<RobotsState> solutionPath = new LinkedList<>(solution.getSolutionPath());
+        return apply(solution.getSolutionPath());
+    }
+
+    /**
+     * @param path the states of a solution, from (and including) the start state
+     */
+    public int apply(final List<RobotsState> path) {
+        final Deque<RobotsState> solutionPath = new LinkedList<>(path);
         RobotsState previousState = solutionPath.poll(); // discard start state
 
         int bumps = 0;
@@ -28,31 +36,8 @@ public class BumpsCounter {
     }
 
     private int countBumps(final RobotsState state, final RobotsState previousState) {
-
         final int robotThatMoved = RobotsStateUtil.getRobotIndexOfFirstDifference(previousState, state);
         final Direction moveDirection = RobotsStateUtil.getRobotMovementDirection(previousState, state);
-        final int positionX = state.getPositionX(robotThatMoved);
-        final int positionY = state.getPositionY(robotThatMoved);
-
-        int bumpCount = 0;
-        for (int otherRobot = 0; otherRobot < state.getRobotCount(); otherRobot++) {
-            if (otherRobot == robotThatMoved) {
-                continue;
-            }
-
-            final int xDist = Math.abs(positionX - state.getPositionX(otherRobot));
-            final int yDist = Math.abs(positionY - state.getPositionY(otherRobot));
-            if (moveDirection == Direction.down || moveDirection == Direction.up) {
-                if (xDist == 0 && yDist == 1) {
-                    bumpCount++;
-                }
-            } else { // left/right
-                if (xDist == 1 && yDist == 0) {
-                    bumpCount++;
-                }
-            }
-        }
-
-        return bumpCount;
+        return RobotsStateUtil.countBumps(state, robotThatMoved, moveDirection);
     }
 }
@@ -0,0 +1,28 @@
+package net.booru.slidingrobots.rank;
+
+import net.booru.slidingrobots.algorithm.model.SolutionLengthCount;
+
+/**
+ * A game read back from the generated maps file, with the rank features that are not stored in it.
+ *
+ * @param dump  the stored game
+ * @param bumps the bumps of the stored moves, see {@link BumpsCounter}
+ */
+public record DumpedGame(GameDump dump, int bumps) implements RankFeatures {
+
+    @Override
+    public int solutionLength() {
+        return dump.solutionLength();
+    }
+
+    @Override
+    public int solutionLengthCount(final int additionalMoves) {
+        final int moves = dump.solutionLength() + additionalMoves;
+        for (SolutionLengthCount count : dump.solutionLengths()) {
+            if (count.solutionMoves() == moves) {
+                return count.solutionCount();
+            }
+        }
+        return 0;
+    }
+}
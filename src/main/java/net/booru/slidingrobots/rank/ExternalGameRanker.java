@@ -0,0 +1,301 @@
+package net.booru.slidingrobots.rank;
+
+import net.booru.slidingrobots.rank.multidim.MultiDimRanking;
+import net.booru.slidingrobots.rank.multidim.Rank;
+import net.booru.slidingrobots.sweep.SeedIndex;
+import net.booru.slidingrobots.sweep.SeedIndexRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Ranks more games than fit in memory in the order of {@link GameRanker}, from the {@link GameFeatures} of seed index
+ * files, e.g. the output of a seed sweep.
+ * <p>
+ * The games are sorted by the first rank in runs of at most {@code maxGamesInMemory} games that are spilled to disk
+ * and merged. The merged games are split into the epsilon groups of the first rank while streaming, a group that fits
+ * in memory is ranked by the other ranks in memory, a larger group is spilled and ranked the same way by the next rank.
+ * The temporary files are seed index files.
+ */
+public final class ExternalGameRanker {
+    private static final Logger cLogger = LoggerFactory.getLogger(ExternalGameRanker.class);
+
+    private final List<Rank<GameFeatures>> iRanks = GameRanker.createRanks();
+    private final int iMaxGamesInMemory;
+    private final Path iTempDirectory;
+
+    /**
+     * A source of games that can be read once.
+     */
+    private interface Source {
+        void forEach(GameConsumer consumer) throws IOException;
+    }
+
+    private interface GameConsumer {
+        void accept(GameFeatures game) throws IOException;
+    }
+
+    /**
+     * @param maxGamesInMemory the maximum number of games of a run or an in memory ranking
+     * @param tempDirectory    where the runs and spilled groups are written, they are deleted when done
+     */
+    public ExternalGameRanker(final int maxGamesInMemory, final Path tempDirectory) {
+        if (maxGamesInMemory < 2) {
+            throw new IllegalArgumentException("At least 2 games must fit in memory: " + maxGamesInMemory);
+        }
+        iMaxGamesInMemory = maxGamesInMemory;
+        iTempDirectory = tempDirectory;
+    }
+
+    /**
+     * Ranks the solved seeds of the index files, easiest first.
+     *
+     * @param indexFiles the index files, all of the same board dimensions
+     * @param outputFile the ranked seeds in the seed index format, an existing file is replaced
+     * @return the number of ranked seeds
+     */
+    public long rank(final List<Path> indexFiles, final Path outputFile) throws IOException {
+        if (indexFiles.isEmpty()) {
+            throw new IllegalArgumentException("No index files to rank");
+        }
+        final SeedIndex.Header header;
+        try (final SeedIndex.Reader reader = SeedIndex.openReader(indexFiles.get(0))) {
+            header = reader.getHeader();
+        }
+
+        Files.deleteIfExists(outputFile);
+        try (final SeedIndex output = SeedIndex.openForAppend(outputFile, header)) {
+            final Writer writer = new Writer(output);
+            rankLevel(consumer -> {
+                for (Path indexFile : indexFiles) {
+                    readIndexFile(indexFile, header, consumer);
+                }
+            }, header, 0, writer);
+            writer.flush();
+            cLogger.info("Ranked {} seeds of {} index files to {}", writer.iCount, indexFiles.size(), outputFile);
+            return writer.iCount;
+        }
+    }
+
+    //-------------------------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Ranks the games of the source by the ranks from {@code level}, the source order is kept for equal values.
+     */
+    private void rankLevel(final Source source, final SeedIndex.Header header, final int level, final Writer output)
+            throws IOException {
+        final Rank<GameFeatures> rank = iRanks.get(level);
+        final Comparator<GameFeatures> byValue = Comparator.comparingDouble(game -> rank.valueFunction().apply(game));
+
+        final List<Path> runs = new ArrayList<>();
+        final List<GameFeatures> buffer = new ArrayList<>();
+        try {
+            source.forEach(game -> {
+                buffer.add(game);
+                if (buffer.size() == iMaxGamesInMemory) {
+                    buffer.sort(byValue);
+                    runs.add(writeTempFile("rank-run-", buffer, header));
+                    buffer.clear();
+                }
+            });
+
+            if (runs.isEmpty()) {
+                rankInMemory(buffer, level, output);
+                return;
+            }
+            if (!buffer.isEmpty()) {
+                buffer.sort(byValue);
+                runs.add(writeTempFile("rank-run-", buffer, header));
+                buffer.clear();
+            }
+            mergeRuns(runs, header, level, output);
+        } finally {
+            for (Path run : runs) {
+                Files.deleteIfExists(run);
+            }
+        }
+    }
+
+    /**
+     * Merges the sorted runs and ranks each epsilon group of the rank at {@code level} by the next ranks.
+     */
+    private void mergeRuns(final List<Path> runs, final SeedIndex.Header header, final int level, final Writer output)
+            throws IOException {
+        final Rank<GameFeatures> rank = iRanks.get(level);
+        record Cursor(int run, SeedIndex.Reader reader, GameFeatures game, double value) {}
+
+        // equal values are taken from the earlier run first, so the merge is stable
+        final PriorityQueue<Cursor> cursors = new PriorityQueue<>(runs.size(),
+                Comparator.comparingDouble(Cursor::value).thenComparingInt(Cursor::run));
+        try {
+            for (int i = 0; i < runs.size(); i++) {
+                final SeedIndex.Reader reader = SeedIndex.openReader(runs.get(i));
+                final SeedIndexRecord record = reader.next();
+                if (record == null) {
+                    reader.close();
+                } else {
+                    final GameFeatures game = GameFeatures.of(record);
+                    cursors.add(new Cursor(i, reader, game, rank.valueFunction().apply(game)));
+                }
+            }
+
+            final GroupBuilder group = new GroupBuilder(header, level, output);
+            while (!cursors.isEmpty()) {
+                final Cursor cursor = cursors.poll();
+                group.add(cursor.game(), cursor.value());
+
+                final SeedIndexRecord record = cursor.reader().next();
+                if (record == null) {
+                    cursor.reader().close();
+                } else {
+                    final GameFeatures game = GameFeatures.of(record);
+                    cursors.add(new Cursor(cursor.run(), cursor.reader(), game, rank.valueFunction().apply(game)));
+                }
+            }
+            group.finish();
+        } finally {
+            for (Cursor cursor : cursors) {
+                cursor.reader().close();
+            }
+        }
+    }
+
+    /**
+     * Collects the games of one epsilon group at a time, in memory or spilled to disk when there are too many.
+     */
+    private final class GroupBuilder {
+        private final SeedIndex.Header iHeader;
+        private final int iLevel;
+        private final Writer iOutput;
+        private final List<GameFeatures> iGames = new ArrayList<>();
+        private double iFirstValue;
+        private double iEpsilon;
+        private Path iSpillFile;
+        private SeedIndex iSpill;
+
+        private GroupBuilder(final SeedIndex.Header header, final int level, final Writer output) {
+            iHeader = header;
+            iLevel = level;
+            iOutput = output;
+        }
+
+        private void add(final GameFeatures game, final double value) throws IOException {
+            if (iGames.isEmpty() && iSpill == null) {
+                iFirstValue = value;
+                iEpsilon = Math.abs(iRanks.get(iLevel).epsilonFunction().apply(value));
+            } else if (Math.abs(value - iFirstValue) > iEpsilon) {
+                finish();
+                add(game, value);
+                return;
+            }
+
+            iGames.add(game);
+            if (iGames.size() == iMaxGamesInMemory) {
+                if (iSpill == null) {
+                    iSpillFile = Files.createTempFile(iTempDirectory, "rank-group-", ".idx");
+                    iSpill = SeedIndex.openForAppend(iSpillFile, iHeader);
+                }
+                iSpill.append(iGames.stream().map(GameFeatures::toSeedIndexRecord).toList());
+                iGames.clear();
+            }
+        }
+
+        private void finish() throws IOException {
+            if (iSpill == null) {
+                rankInMemory(iGames, iLevel + 1, iOutput);
+                iGames.clear();
+                return;
+            }
+
+            try {
+                iSpill.append(iGames.stream().map(GameFeatures::toSeedIndexRecord).toList());
+                iGames.clear();
+                iSpill.close();
+                final Path spillFile = iSpillFile;
+                if (iLevel + 1 < iRanks.size()) {
+                    rankLevel(consumer -> readIndexFile(spillFile, iHeader, consumer), iHeader, iLevel + 1, iOutput);
+                } else {
+                    readIndexFile(spillFile, iHeader, iOutput::add);
+                }
+            } finally {
+                iSpill.close();
+                Files.deleteIfExists(iSpillFile);
+                iSpill = null;
+                iSpillFile = null;
+            }
+        }
+    }
+
+    /**
+     * Ranks the games by the ranks from {@code level} in memory, the order of the list is kept for equal values.
+     */
+    private void rankInMemory(final List<GameFeatures> games, final int level, final Writer output) throws IOException {
+        if (games.size() > 1 && level < iRanks.size()) {
+            for (GameFeatures game : new MultiDimRanking<>(iRanks.subList(level, iRanks.size())).applyRank(games)) {
+                output.add(game);
+            }
+        } else {
+            for (GameFeatures game : games) {
+                output.add(game);
+            }
+        }
+    }
+
+    private Path writeTempFile(final String prefix, final List<GameFeatures> games, final SeedIndex.Header header)
+            throws IOException {
+        final Path file = Files.createTempFile(iTempDirectory, prefix, ".idx");
+        try (final SeedIndex index = SeedIndex.openForAppend(file, header)) {
+            index.append(games.stream().map(GameFeatures::toSeedIndexRecord).toList());
+        }
+        return file;
+    }
+
+    private static void readIndexFile(final Path indexFile, final SeedIndex.Header header, final GameConsumer consumer)
+            throws IOException {
+        try (final SeedIndex.Reader reader = SeedIndex.openReader(indexFile)) {
+            if (!reader.getHeader().equals(header)) {
+                throw new IllegalArgumentException("Index " + indexFile + " is for " + reader.getHeader() + ", not " + header);
+            }
+            for (SeedIndexRecord record = reader.next(); record != null; record = reader.next()) {
+                if (record.hasSolution()) {
+                    consumer.accept(GameFeatures.of(record));
+                }
+            }
+        }
+    }
+
+    /**
+     * Appends the ranked games to the output index in batches.
+     */
+    private static final class Writer {
+        private static final int BATCH_SIZE = 4096;
+
+        private final SeedIndex iOutput;
+        private final List<SeedIndexRecord> iBatch = new ArrayList<>(BATCH_SIZE);
+        private long iCount;
+
+        private Writer(final SeedIndex output) {
+            iOutput = output;
+        }
+
+        private void add(final GameFeatures game) throws IOException {
+            iBatch.add(game.toSeedIndexRecord());
+            iCount++;
+            if (iBatch.size() == BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            iOutput.append(iBatch);
+            iBatch.clear();
+        }
+    }
+}
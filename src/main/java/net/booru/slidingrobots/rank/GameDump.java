@@ -0,0 +1,37 @@
+package net.booru.slidingrobots.rank;
+
+import net.booru.slidingrobots.algorithm.model.Solution;
+import net.booru.slidingrobots.algorithm.model.SolutionLengthCount;
+import net.booru.slidingrobots.rank.multidim.RankResult;
+import net.booru.slidingrobots.state.RobotsStateUtil;
+
+import java.util.List;
+
+/**
+ * A ranked game as one json line of the generated maps file, see {@link GameDumpReader}.
+ */
+public record GameDump(String seedString,
+                       String mapString,
+                       int solutionLength,
+                       List<SolutionLengthCount> solutionLengths,
+                       List<RobotsStateUtil.Move> moveList,
+                       List<RankResult.Description> rankValues) {
+
+    /**
+     * @param game a ranked game
+     */
+    public static GameDump of(final GameWithSolution game) {
+        final Solution solution = game.solution();
+        return new GameDump(
+                game.game().getSeedString(),
+                game.game().getMapString(),
+                solution.getStatistics().getSolutionLength(),
+                solution.getStatistics().getSolutionLengths(),
+                RobotsStateUtil.getMoveList(solution.getSolutionPath()),
+                game.rank().getValuesWithDescription());
+    }
+
+    public GameDump withRankValues(final List<RankResult.Description> newRankValues) {
+        return new GameDump(seedString, mapString, solutionLength, solutionLengths, moveList, newRankValues);
+    }
+}
@@ -0,0 +1,226 @@
+package net.booru.slidingrobots.rank;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import net.booru.slidingrobots.algorithm.model.SolutionLengthCount;
+import net.booru.slidingrobots.common.Direction;
+import net.booru.slidingrobots.rank.multidim.RankResult;
+import net.booru.slidingrobots.state.Game;
+import net.booru.slidingrobots.state.RobotsState;
+import net.booru.slidingrobots.state.RobotsStateUtil;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads the json lines of a generated maps file one game at a time, with a streaming parser. The bumps are counted by
+ * replaying the moves on the board, so the games can be ranked again without solving them.
+ * <p>
+ * The stored rank values are skipped, they are what a new ranking replaces.
+ */
+public final class GameDumpReader implements Closeable {
+    private static final JsonFactory cJsonFactory = new JsonFactory();
+
+    private final JsonParser iParser;
+    private final BumpsCounter iBumpsCounter = new BumpsCounter();
+
+    public GameDumpReader(final Reader reader) throws IOException {
+        iParser = cJsonFactory.createParser(reader);
+    }
+
+    public static GameDumpReader open(final Path mapsFile) throws IOException {
+        return new GameDumpReader(Files.newBufferedReader(mapsFile));
+    }
+
+    /**
+     * The games of a maps file, read one at a time while the stream is consumed. Close the stream to close the file.
+     *
+     * @see #stream()
+     */
+    public static Stream<DumpedGame> stream(final Path mapsFile) throws IOException {
+        final GameDumpReader reader = open(mapsFile);
+        return reader.stream().onClose(() -> {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * @return the remaining games, read one at a time while the stream is consumed, a read error is thrown as an
+     * {@link UncheckedIOException}
+     */
+    public Stream<DumpedGame> stream() {
+        final Spliterator<DumpedGame> games = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(final Consumer<? super DumpedGame> action) {
+                final DumpedGame game;
+                try {
+                    game = next();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                if (game == null) {
+                    return false;
+                }
+                action.accept(game);
+                return true;
+            }
+        };
+        return StreamSupport.stream(games, false);
+    }
+
+    /**
+     * @return the next game, or null at the end of the input
+     */
+    public DumpedGame next() throws IOException {
+        final JsonToken token = iParser.nextToken();
+        if (token == null) {
+            return null;
+        }
+        expect(token, JsonToken.START_OBJECT);
+
+        String seedString = null;
+        String mapString = null;
+        int solutionLength = -1;
+        List<SolutionLengthCount> solutionLengths = List.of();
+        List<RobotsStateUtil.Move> moveList = null;
+        while (iParser.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = iParser.currentName();
+            final JsonToken value = iParser.nextToken();
+            switch (field) {
+                case "seedString" -> seedString = value == JsonToken.VALUE_NULL ? null : iParser.getText();
+                case "mapString" -> mapString = value == JsonToken.VALUE_NULL ? null : iParser.getText();
+                case "solutionLength" -> solutionLength = iParser.getIntValue();
+                case "solutionLengths" -> solutionLengths = readSolutionLengths(value);
+                case "moveList" -> moveList = readMoves(value);
+                default -> iParser.skipChildren();
+            }
+        }
+
+        if (solutionLength < 0 || moveList == null || (mapString == null && seedString == null)) {
+            throw new IOException("Incomplete game at " + iParser.currentLocation());
+        }
+        final Game game = Game.valueOf(mapString != null ? mapString : seedString);
+        final List<RobotsState> path = new ArrayList<>(moveList.size() + 1);
+        final List<RobotsStateUtil.Move> indexedMoves = replayMoves(game, moveList, path);
+        final GameDump dump = new GameDump(seedString, mapString, solutionLength, solutionLengths, indexedMoves,
+                List.<RankResult.Description>of());
+        return new DumpedGame(dump, iBumpsCounter.apply(path));
+    }
+
+    @Override
+    public void close() throws IOException {
+        iParser.close();
+    }
+
+    //-------------------------------------------------------------------------------------------------------------------------------------
+
+    private List<SolutionLengthCount> readSolutionLengths(final JsonToken token) throws IOException {
+        expect(token, JsonToken.START_ARRAY);
+        final List<SolutionLengthCount> counts = new ArrayList<>();
+        while (iParser.nextToken() == JsonToken.START_OBJECT) {
+            int moves = -1;
+            int count = -1;
+            while (iParser.nextToken() == JsonToken.FIELD_NAME) {
+                final String field = iParser.currentName();
+                iParser.nextToken();
+                switch (field) {
+                    case "solutionMoves" -> moves = iParser.getIntValue();
+                    case "solutionCount" -> count = iParser.getIntValue();
+                    default -> iParser.skipChildren();
+                }
+            }
+            counts.add(new SolutionLengthCount(moves, count));
+        }
+        return counts;
+    }
+
+    /**
+     * @return the moves, without the robot index that is not stored
+     */
+    private List<RobotsStateUtil.Move> readMoves(final JsonToken token) throws IOException {
+        expect(token, JsonToken.START_ARRAY);
+        final List<RobotsStateUtil.Move> moves = new ArrayList<>();
+        while (iParser.nextToken() == JsonToken.START_OBJECT) {
+            int[] dir = null;
+            int[] pos = null;
+            while (iParser.nextToken() == JsonToken.FIELD_NAME) {
+                final String field = iParser.currentName();
+                final JsonToken value = iParser.nextToken();
+                switch (field) {
+                    case "dir" -> dir = readPair(value, "dx", "dy");
+                    case "pos" -> pos = readPair(value, "x", "y");
+                    default -> iParser.skipChildren();
+                }
+            }
+            if (dir == null || pos == null) {
+                throw new IOException("Incomplete move at " + iParser.currentLocation());
+            }
+            moves.add(new RobotsStateUtil.Move(new RobotsStateUtil.Dir(dir[0], dir[1]),
+                    new RobotsStateUtil.Pos(pos[0], pos[1]), -1));
+        }
+        return moves;
+    }
+
+    private int[] readPair(final JsonToken token, final String first, final String second) throws IOException {
+        expect(token, JsonToken.START_OBJECT);
+        final int[] pair = new int[2];
+        while (iParser.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = iParser.currentName();
+            iParser.nextToken();
+            if (field.equals(first)) {
+                pair[0] = iParser.getIntValue();
+            } else if (field.equals(second)) {
+                pair[1] = iParser.getIntValue();
+            } else {
+                iParser.skipChildren();
+            }
+        }
+        return pair;
+    }
+
+    private void expect(final JsonToken actual, final JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new IOException("Expected " + expected + " but was " + actual + " at " + iParser.currentLocation());
+        }
+    }
+
+    /**
+     * Makes the moves from the start state of the game, the robot of a move is the one at its start position.
+     *
+     * @param path receives the states from (and including) the start state
+     * @return the moves with their robot index
+     */
+    private static List<RobotsStateUtil.Move> replayMoves(final Game game, final List<RobotsStateUtil.Move> moves,
+                                                          final List<RobotsState> path) {
+        final List<RobotsStateUtil.Move> indexedMoves = new ArrayList<>(moves.size());
+        RobotsState state = game.getInitialRobotsState();
+        path.add(state);
+        for (RobotsStateUtil.Move move : moves) {
+            final int robot = state.getRobotAtPosition(move.pos.x, move.pos.y);
+            if (robot < 0) {
+                throw new IllegalArgumentException("No robot at " + move.pos + " in " + game.getMapString());
+            }
+            indexedMoves.add(new RobotsStateUtil.Move(move.dir, move.pos, robot));
+            state = game.getBoard().makeMove(robot, Direction.valueOf(move.dir.dx, move.dir.dy), state);
+            path.add(state);
+        }
+        return indexedMoves;
+    }
+}
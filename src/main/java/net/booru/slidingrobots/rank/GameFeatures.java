@@ -0,0 +1,42 @@
+package net.booru.slidingrobots.rank;
+
+import net.booru.slidingrobots.sweep.SeedIndexRecord;
+
+/**
+ * The rank features of a game without its solution, a few bytes per game instead of a {@link GameWithSolution}.
+ *
+ * @param seedIndex      identifies the game, e.g. the seed index of a {@link SeedIndexRecord}
+ * @param solutionLength the optimal number of moves
+ * @param bumps          the number of bumps of the optimal solution
+ * @param solutions0     the number of solutions of optimal length
+ * @param solutions1     the number of solutions of optimal length + 1
+ * @param solutions2     the number of solutions of optimal length + 2
+ */
+public record GameFeatures(
+        long seedIndex,
+        int solutionLength,
+        int bumps,
+        int solutions0,
+        int solutions1,
+        int solutions2
+) implements RankFeatures {
+
+    public static GameFeatures of(final SeedIndexRecord record) {
+        return new GameFeatures(record.seedIndex(), record.solutionLength(), record.bumps(),
+                record.solutions0(), record.solutions1(), record.solutions2());
+    }
+
+    public SeedIndexRecord toSeedIndexRecord() {
+        return new SeedIndexRecord(seedIndex, solutionLength, bumps, solutions0, solutions1, solutions2);
+    }
+
+    @Override
+    public int solutionLengthCount(final int additionalMoves) {
+        return switch (additionalMoves) {
+            case 0 -> solutions0;
+            case 1 -> solutions1;
+            case 2 -> solutions2;
+            default -> throw new IllegalArgumentException("Only 0-2 additional moves are stored: " + additionalMoves);
+        };
+    }
+}
@@ -3,10 +3,15 @@ package net.booru.slidingrobots.rank;
 import net.booru.slidingrobots.algorithm.model.Solution;
 import net.booru.slidingrobots.rank.multidim.MultiDimRanking;
 import net.booru.slidingrobots.rank.multidim.Rank;
+import net.booru.slidingrobots.rank.multidim.RankResult;
 import net.booru.slidingrobots.state.Game;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Counts the moves and the number of bumps against other robots.
@@ -32,37 +37,84 @@ public class GameRanker {
     }
 
     public List<GameWithSolution> apply(final List<GameWithSolution> gameWithSolutions) {
+        return withResults(createRanking().applyRankWithResults(gameWithSolutions));
+    }
+
+    /**
+     * @return the games at positions [{@code fromPosition}, {@code toPosition}) of {@link #apply(List)}, e.g. a difficulty
+     * slice, without ranking all games
+     */
+    public List<GameWithSolution> select(final List<GameWithSolution> gameWithSolutions, final int fromPosition,
+                                         final int toPosition) {
+        return withResults(createRanking().selectWithResults(gameWithSolutions, fromPosition, toPosition));
+    }
+
+    /**
+     * @return the first {@code count} ranked games of each solution length, by solution length
+     */
+    public Map<Integer, List<GameWithSolution>> selectPerSolutionLength(final List<GameWithSolution> gameWithSolutions,
+                                                                        final int count) {
+        final Map<Integer, List<GameWithSolution>> byLength = gameWithSolutions.stream()
+                .collect(Collectors.groupingBy(GameWithSolution::solutionLength, TreeMap::new,
+                        Collectors.toList()));
+
+        final MultiDimRanking<GameWithSolution> mdRanker = createRanking();
+        byLength.replaceAll((length, games) ->
+                withResults(mdRanker.selectWithResults(games, 0, Math.min(count, games.size()))));
+        return byLength;
+    }
+
+    /**
+     * Ranks games read back from a generated maps file, see {@link GameDumpReader#stream(java.nio.file.Path)}, without
+     * solving them again. The games are collected for the ranking as the stream is read.
+     *
+     * @return the games in ranked order with their new rank values, most difficult game last
+     */
+    public List<GameDump> rerank(final Stream<DumpedGame> games) {
+        return new MultiDimRanking<DumpedGame>(createRanks(), true).applyRankWithResults(games.toList()).stream()
+                .map(result -> result.getElement().dump().withRankValues(result.getValuesWithDescription()))
+                .toList();
+    }
+
+    //-------------------------------------------------------------------------------------------------------------------------------------
+
+    private static List<GameWithSolution> withResults(final List<RankResult<GameWithSolution>> results) {
+        return results.stream()
+                .map(result -> new GameWithSolution(result.getElement().game(), result.getElement().solution(), result))
+                .toList();
+    }
 
-        final var bumpsCounter = new BumpsCounter();
+    private static MultiDimRanking<GameWithSolution> createRanking() {
+        return new MultiDimRanking<>(createRanks(), true);
+    }
 
-        final MultiDimRanking<GameWithSolution> mdRanker = new MultiDimRanking<>(List.of(
+    /**
+     * @return the ranks of the difficulty ranking, for games with a solution or only their features
+     */
+    static <E extends RankFeatures> List<Rank<E>> createRanks() {
+        return List.of(
                 new Rank<>("Moves",
-                        gs -> gs.solution().getStatistics().getSolutionLength(),
+                        RankFeatures::solutionLength,
                         v -> {
                             if (v <= 4) return 0; // epsilon = 0 for few moves
                             if (v <= 8) return 1; // epsilon = 1 for medium
                             return 2; // epsilon = 2
                         }),
                 new Rank<>("Bumps",
-                        gs -> bumpsCounter.apply(gs.solution()),
+                        RankFeatures::bumps,
                         v -> 1),  // 1 epsilon
                 new Rank<>("Solutions_0", // count number of solutions 1 additional moves
-                        gs -> -gs.solution().getStatistics().getSolutionLengthCount(0),
+                        gs -> -gs.solutionLengthCount(0),
                         v -> 0),  // 0 epsilon
                 new Rank<>("Solutions_1", // count number of solutions 1 additional moves
-                        gs -> -gs.solution().getStatistics().getSolutionLengthCount(1),
+                        gs -> -gs.solutionLengthCount(1),
                         v -> v * 0.05),  // 10% epsilon
                 new Rank<>("Solutions_2", // count number of solutions 2 additional moves
-                        gs -> -gs.solution().getStatistics().getSolutionLengthCount(1),
+                        gs -> -gs.solutionLengthCount(1),
                         v -> v * 0.10), // 15% epsilon
                 new Rank<>("MovesFinal",
-                        gs -> gs.solution().getStatistics().getSolutionLength(),
+                        RankFeatures::solutionLength,
                         v -> 0)   // if same then moves
-        ));
-
-        final List<GameWithSolution> gameWithSolutionsRanked = mdRanker.applyRank(gameWithSolutions);
-        return gameWithSolutionsRanked.stream()
-                .map(g -> new GameWithSolution(g.game(), g.solution(), mdRanker.getResultForElement(g)))
-                .toList();
+        );
     }
 }
@@ -8,5 +8,26 @@ public record GameWithSolution(
         Game game,
         Solution solution,
         RankResult<GameWithSolution> rank
-) {
+) implements RankFeatures {
+
+    @Override
+    public int solutionLength() {
+        return solution.getStatistics().getSolutionLength();
+    }
+
+    /**
+     * The least bumps of the optimal solutions if the search found them, see
+     * {@link net.booru.slidingrobots.algorithm.MinBumpsSearch}, otherwise counted from the solution path each time it
+     * is called.
+     */
+    @Override
+    public int bumps() {
+        final int minBumps = solution.getStatistics().getMinBumps();
+        return minBumps >= 0 ? minBumps : new BumpsCounter().apply(solution);
+    }
+
+    @Override
+    public int solutionLengthCount(final int additionalMoves) {
+        return solution.getStatistics().getSolutionLengthCount(additionalMoves);
+    }
 }
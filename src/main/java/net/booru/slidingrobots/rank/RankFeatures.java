@@ -0,0 +1,22 @@
+package net.booru.slidingrobots.rank;
+
+/**
+ * The features of a solved game that {@link GameRanker} ranks by.
+ */
+public interface RankFeatures {
+    /**
+     * @return the optimal number of moves
+     */
+    int solutionLength();
+
+    /**
+     * @return the number of bumps against other robots of the optimal solution, see {@link BumpsCounter}
+     */
+    int bumps();
+
+    /**
+     * @param additionalMoves 0, 1 or 2
+     * @return the number of solutions of the optimal length + {@code additionalMoves}
+     */
+    int solutionLengthCount(int additionalMoves);
+}
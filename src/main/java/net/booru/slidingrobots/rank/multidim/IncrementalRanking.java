@@ -0,0 +1,302 @@
+package net.booru.slidingrobots.rank.multidim;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+
+/**
+ * A ranking that is kept up to date while elements are added and removed, in the order of {@link MultiDimRanking}.
+ * The ranked order is the one {@link MultiDimRanking#applyRank(List)} gives for the elements in the order they were
+ * added.
+ * <p>
+ * The epsilon group tree is kept live, each group knows its elements sorted by its rank and its epsilon subgroups.
+ * Adding an element to a group regroups only from the group it lands in, and stops at the first unchanged subgroup,
+ * usually the element simply joins a subgroup and the change continues one level down. The position of an element and
+ * the element at a position are found in O(log n) per rank level.
+ * <p>
+ * Each {@link Rank} is applied to each element at most once. Elements are compared by {@code equals}, an element can
+ * only be added once.
+ */
+public final class IncrementalRanking<T> implements Iterable<T> {
+    private final List<Rank<T>> iRankers;
+    private final Map<T, Item<T>> iItems = new HashMap<>();
+    private final Group iRoot;
+    private long iNextSequence;
+
+    /**
+     * An element with its memoized rank values and its sequence number, that orders elements of equal values as the
+     * stable sort of {@link MultiDimRanking} does.
+     */
+    private static final class Item<T> {
+        private final T iElement;
+        private final long iSequence;
+        private final double[] iValues;
+
+        private Item(final T element, final long sequence, final int levels) {
+            iElement = element;
+            iSequence = sequence;
+            iValues = new double[levels];
+            Arrays.fill(iValues, Double.NaN);
+        }
+    }
+
+    /**
+     * @param rankers the rankers to use, see {@link Rank}
+     */
+    public IncrementalRanking(final List<Rank<T>> rankers) {
+        if (rankers.isEmpty()) {
+            throw new IllegalArgumentException("pre: Must supply at least one Rank!");
+        }
+        iRankers = rankers;
+        iRoot = new Group(0);
+    }
+
+    /**
+     * @return true if the element was added, false if it is already ranked
+     */
+    public boolean add(final T element) {
+        if (iItems.containsKey(element)) {
+            return false;
+        }
+        final Item<T> item = new Item<>(element, iNextSequence++, iRankers.size());
+        iItems.put(element, item);
+        iRoot.add(item);
+        return true;
+    }
+
+    /**
+     * @return true if the element was removed, false if it was not ranked
+     */
+    public boolean remove(final T element) {
+        final Item<T> item = iItems.remove(element);
+        if (item == null) {
+            return false;
+        }
+        iRoot.remove(item);
+        return true;
+    }
+
+    public int size() {
+        return iItems.size();
+    }
+
+    /**
+     * @return the position of the element in the ranked order, or -1 if it is not ranked
+     */
+    public int positionOf(final T element) {
+        final Item<T> item = iItems.get(element);
+        if (item == null) {
+            return -1;
+        }
+        int position = 0;
+        Group group = iRoot;
+        while (group.iChildren != null) {
+            final Map.Entry<Item<T>, Group> child = group.iChildren.floorEntry(item);
+            position += group.iSorted.rank(child.getKey());
+            group = child.getValue();
+        }
+        return position + group.iSorted.rank(item);
+    }
+
+    /**
+     * @return the element at {@code position} in the ranked order
+     */
+    public T get(final int position) {
+        if (position < 0 || position >= size()) {
+            throw new IndexOutOfBoundsException(position);
+        }
+        int remaining = position;
+        Group group = iRoot;
+        while (group.iChildren != null) {
+            final Map.Entry<Item<T>, Group> child = group.iChildren.floorEntry(group.iSorted.get(remaining));
+            remaining -= group.iSorted.rank(child.getKey());
+            group = child.getValue();
+        }
+        return group.iSorted.get(remaining).iElement;
+    }
+
+    /**
+     * @return the elements in ranked order
+     */
+    public List<T> toList() {
+        final List<T> elements = new ArrayList<>(size());
+        forEach(elements::add);
+        return elements;
+    }
+
+    /**
+     * Iterates the elements in ranked order, the ranking must not change meanwhile.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<>() {
+            private final Deque<Iterator<Group>> iGroupPath = new ArrayDeque<>();
+            private Iterator<Item<T>> iItemIterator = descend(iRoot);
+
+            @Override
+            public boolean hasNext() {
+                while (!iItemIterator.hasNext()) {
+                    while (!iGroupPath.isEmpty() && !iGroupPath.peek().hasNext()) {
+                        iGroupPath.pop();
+                    }
+                    if (iGroupPath.isEmpty()) {
+                        return false;
+                    }
+                    iItemIterator = descend(iGroupPath.peek().next());
+                }
+                return true;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return iItemIterator.next().iElement;
+            }
+
+            private Iterator<Item<T>> descend(final Group from) {
+                Group group = from;
+                while (group.iChildren != null) {
+                    final Iterator<Group> children = group.iChildren.values().iterator();
+                    iGroupPath.push(children);
+                    group = children.next();
+                }
+                return group.iSorted.iterator();
+            }
+        };
+    }
+
+    //-------------------------------------------------------------------------------------------------------------------------------------
+
+    private double getValue(final Item<T> item, final int level) {
+        double value = item.iValues[level];
+        if (Double.isNaN(value)) {
+            value = iRankers.get(level).valueFunction().apply(item.iElement);
+            assert !Double.isInfinite(value) : "Infinite rank values is a problem!";
+            item.iValues[level] = value;
+        }
+        return value;
+    }
+
+    /**
+     * The order of the items at a rank level, by the value at the level and then as sorted at the previous level.
+     */
+    private Comparator<Item<T>> createComparator(final int level) {
+        return (a, b) -> {
+            for (int i = level; i >= 0; i--) {
+                final int comparison = Double.compare(getValue(a, i), getValue(b, i));
+                if (comparison != 0) {
+                    return comparison;
+                }
+            }
+            return Long.compare(a.iSequence, b.iSequence);
+        };
+    }
+
+    private static boolean epsilonEquals(final double a, final double b, final double epsilon) {
+        return Math.abs(a - b) <= epsilon;
+    }
+
+    /**
+     * An epsilon group of a rank level, with its items sorted by the rank of the level. A group of several items, that is
+     * not of the last level, has the epsilon groups of its items as children, keyed by their first item.
+     */
+    private final class Group {
+        private final int iLevel;
+        private final RankedTreeSet<Item<T>> iSorted;
+        private TreeMap<Item<T>, Group> iChildren;
+
+        private Group(final int level) {
+            iLevel = level;
+            iSorted = new RankedTreeSet<>(createComparator(level));
+        }
+
+        private Group(final int level, final List<Item<T>> items) {
+            this(level);
+            items.forEach(iSorted::add);
+            if (hasChildren()) {
+                iChildren = new TreeMap<>(createComparator(level));
+                regroupFrom(iSorted.first());
+            }
+        }
+
+        private boolean hasChildren() {
+            return iSorted.size() > 1 && iLevel + 1 < iRankers.size();
+        }
+
+        private void add(final Item<T> item) {
+            iSorted.add(item);
+            if (iChildren == null) {
+                if (hasChildren()) {
+                    iChildren = new TreeMap<>(createComparator(iLevel));
+                    regroupFrom(iSorted.first());
+                }
+                return;
+            }
+
+            // an item within epsilon of the first item of its group only joins it, the epsilon is that of the first item
+            final Map.Entry<Item<T>, Group> child = iChildren.floorEntry(item);
+            if (child != null && isInGroupOf(child.getKey(), item)) {
+                child.getValue().add(item);
+            } else {
+                regroupFrom(item);
+            }
+        }
+
+        private void remove(final Item<T> item) {
+            iSorted.remove(item);
+            if (iChildren == null) {
+                return;
+            }
+            if (!hasChildren()) {
+                iChildren = null;
+                return;
+            }
+
+            // removing the first item of a group changes the epsilon of the rest of the group
+            final Map.Entry<Item<T>, Group> child = iChildren.floorEntry(item);
+            if (child.getKey() != item) {
+                child.getValue().remove(item);
+            } else {
+                iChildren.remove(item);
+                regroupFrom(iSorted.higher(item));
+            }
+        }
+
+        private boolean isInGroupOf(final Item<T> first, final Item<T> item) {
+            final double firstValue = getValue(first, iLevel);
+            final double epsilon = Math.abs(iRankers.get(iLevel).epsilonFunction().apply(firstValue));
+            return epsilonEquals(getValue(item, iLevel), firstValue, epsilon);
+        }
+
+        /**
+         * Rebuilds the children from the group starting at {@code start}, until a group starts at an unchanged first
+         * item. The children before {@code start} must be unchanged.
+         */
+        private void regroupFrom(final Item<T> start) {
+            Item<T> groupStart = start;
+            while (groupStart != null && !iChildren.containsKey(groupStart)) {
+                final List<Item<T>> members = new ArrayList<>();
+                Item<T> next = groupStart;
+                while (next != null && isInGroupOf(groupStart, next)) {
+                    members.add(next);
+                    next = iSorted.higher(next);
+                }
+
+                // the old groups starting inside the new group are replaced, their later items are regrouped next
+                iChildren.subMap(groupStart, true, members.get(members.size() - 1), true).clear();
+                iChildren.put(groupStart, new Group(iLevel + 1, members));
+                groupStart = next;
+            }
+        }
+    }
+}
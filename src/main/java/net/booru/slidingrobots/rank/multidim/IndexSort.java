@@ -0,0 +1,186 @@
+package net.booru.slidingrobots.rank.multidim;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Stable sorting of element indices by a column of rank values, without boxing.
+ */
+final class IndexSort {
+    /**
+     * Slices up to this length are sorted by insertion sort.
+     */
+    private static final int INSERTION_SORT_THRESHOLD = 32;
+
+    private IndexSort() {
+    }
+
+    /**
+     * Sorts {@code indices[from, to)} by {@code keys[index]} in the order of {@link Double#compare(double, double)}.
+     * Indices with equal keys keep their order.
+     */
+    static void sort(final int[] indices, final int from, final int to, final double[] keys) {
+        if (to - from <= INSERTION_SORT_THRESHOLD) {
+            insertionSort(indices, from, to, keys);
+            return;
+        }
+        final int[] buffer = new int[to - from];
+        mergeSort(indices, from, to, keys, buffer, 0);
+    }
+
+    /**
+     * As {@link #sort(int[], int, int, double[])}, sorting the halves of slices longer than {@code parallelThreshold} as
+     * fork join tasks. The result is the same, a stable sort has only one result.
+     */
+    static void parallelSort(final int[] indices, final int from, final int to, final double[] keys,
+                             final int parallelThreshold) {
+        if (to - from <= parallelThreshold) {
+            sort(indices, from, to, keys);
+            return;
+        }
+        new ParallelMergeSort(indices, from, to, keys, new int[to - from], from, parallelThreshold).invoke();
+    }
+
+    /**
+     * Moves the indices with a key of at most {@code limit}, in the order of {@link Double#compare(double, double)}, to
+     * the front of the slice. Both parts keep their order.
+     *
+     * @return the end of the front part
+     */
+    static int stablePartition(final int[] indices, final int from, final int to, final double[] keys, final double limit) {
+        final int[] rest = new int[to - from];
+        int restCount = 0;
+        int target = from;
+        for (int i = from; i < to; i++) {
+            if (Double.compare(keys[indices[i]], limit) <= 0) {
+                indices[target++] = indices[i];
+            } else {
+                rest[restCount++] = indices[i];
+            }
+        }
+        System.arraycopy(rest, 0, indices, target, restCount);
+        return target;
+    }
+
+    /**
+     * @return the value at position {@code k} if {@code values} were sorted, the array is reordered
+     */
+    static double selectValue(final double[] values, final int k) {
+        int from = 0;
+        int to = values.length - 1;
+        while (from < to) {
+            final double pivot = values[(from + to) >>> 1];
+            int i = from;
+            int j = to;
+            while (i <= j) {
+                while (Double.compare(values[i], pivot) < 0) {
+                    i++;
+                }
+                while (Double.compare(values[j], pivot) > 0) {
+                    j--;
+                }
+                if (i <= j) {
+                    final double swap = values[i];
+                    values[i++] = values[j];
+                    values[j--] = swap;
+                }
+            }
+            if (k <= j) {
+                to = j;
+            } else if (k >= i) {
+                from = i;
+            } else {
+                return values[k];
+            }
+        }
+        return values[k];
+    }
+
+    //-------------------------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Sorts a slice, the buffer slice from {@code from - bufferOffset} is used only by this task and its subtasks.
+     */
+    private static final class ParallelMergeSort extends RecursiveAction {
+        private final int[] iIndices;
+        private final int iFrom;
+        private final int iTo;
+        private final double[] iKeys;
+        private final int[] iBuffer;
+        private final int iBufferOffset;
+        private final int iParallelThreshold;
+
+        private ParallelMergeSort(final int[] indices, final int from, final int to, final double[] keys, final int[] buffer,
+                                  final int bufferOffset, final int parallelThreshold) {
+            iIndices = indices;
+            iFrom = from;
+            iTo = to;
+            iKeys = keys;
+            iBuffer = buffer;
+            iBufferOffset = bufferOffset;
+            iParallelThreshold = parallelThreshold;
+        }
+
+        @Override
+        protected void compute() {
+            if (iTo - iFrom <= iParallelThreshold) {
+                mergeSort(iIndices, iFrom, iTo, iKeys, iBuffer, iFrom - iBufferOffset);
+                return;
+            }
+            final int middle = (iFrom + iTo) >>> 1;
+            invokeAll(new ParallelMergeSort(iIndices, iFrom, middle, iKeys, iBuffer, iBufferOffset, iParallelThreshold),
+                    new ParallelMergeSort(iIndices, middle, iTo, iKeys, iBuffer, iBufferOffset, iParallelThreshold));
+            merge(iIndices, iFrom, middle, iTo, iKeys, iBuffer, iFrom - iBufferOffset);
+        }
+    }
+
+    private static void mergeSort(final int[] indices, final int from, final int to, final double[] keys, final int[] buffer,
+                                  final int bufferStart) {
+        if (to - from <= INSERTION_SORT_THRESHOLD) {
+            insertionSort(indices, from, to, keys);
+            return;
+        }
+        final int middle = (from + to) >>> 1;
+        mergeSort(indices, from, middle, keys, buffer, bufferStart);
+        mergeSort(indices, middle, to, keys, buffer, bufferStart);
+        merge(indices, from, middle, to, keys, buffer, bufferStart);
+    }
+
+    /**
+     * Merges the sorted slices {@code [from, middle)} and {@code [middle, to)}, using the buffer from {@code bufferStart}.
+     */
+    private static void merge(final int[] indices, final int from, final int middle, final int to, final double[] keys,
+                              final int[] buffer, final int bufferStart) {
+        if (Double.compare(keys[indices[middle - 1]], keys[indices[middle]]) <= 0) {
+            return; // already in order
+        }
+
+        // merge from a copy of the left half, the right half is consumed before it can be overwritten
+        final int leftLength = middle - from;
+        System.arraycopy(indices, from, buffer, bufferStart, leftLength);
+        int left = bufferStart;
+        final int leftEnd = bufferStart + leftLength;
+        int right = middle;
+        int target = from;
+        while (left < leftEnd && right < to) {
+            if (Double.compare(keys[indices[right]], keys[buffer[left]]) < 0) {
+                indices[target++] = indices[right++];
+            } else {
+                indices[target++] = buffer[left++];
+            }
+        }
+        System.arraycopy(buffer, left, indices, target, leftEnd - left);
+    }
+
+    private static void insertionSort(final int[] indices, final int from, final int to, final double[] keys) {
+        for (int i = from + 1; i < to; i++) {
+            final int index = indices[i];
+            final double key = keys[index];
+            int j = i - 1;
+            while (j >= from && Double.compare(keys[indices[j]], key) > 0) {
+                indices[j + 1] = indices[j];
+                j--;
+            }
+            indices[j + 1] = index;
+        }
+    }
+}
@@ -2,11 +2,10 @@ package net.booru.slidingrobots.rank.multidim;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Comparator;
 import java.util.List;
-import java.util.function.Function;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 import java.util.logging.Logger;
-import java.util.stream.Stream;
 
 /**
  * Rank a list of elements according to a supplied ordered list of {@link Rank}.
@@ -22,13 +21,24 @@ import java.util.stream.Stream;
  * <li> Recursively apply the algorithm on each epsilon group larger than one element, with the remaining ranks.
  * </ol>
  * <br><br>
- * Each {@link Rank} will be applied to each element at most once.
+ * Each {@link Rank} will be applied to each element at most once. The values are kept in a {@link RankValues} column
+ * store and the elements are sorted by index, so no value is boxed.
+ * <p>
+ * A parallel ranking processes the epsilon groups, disjoint slices of the index array, as fork join tasks and
+ * calculates the values and sorts the indices of large groups in parallel. The result is the same as the sequential
+ * ranking, the sort is stable.
  */
 public final class MultiDimRanking<T> {
     private static final Logger cLog = Logger.getLogger(MultiDimRanking.class.getSimpleName());
     private static final boolean DEBUG = false;
 
+    /**
+     * A parallel ranking processes groups of at least this many elements in parallel, smaller groups sequentially.
+     */
+    private static final int PARALLEL_THRESHOLD = 4096;
+
     private final List<Rank<T>> iRankers;
+    private final boolean iIsParallel;
 
     /**
      * Create a Multi dimensional ranker that does ranking in the natural order as specified
@@ -38,11 +48,21 @@ public final class MultiDimRanking<T> {
      * @param rankers the rankers to use, see {@link Rank}
      */
     public MultiDimRanking(final List<Rank<T>> rankers) {
+        this(rankers, false);
+    }
+
+    /**
+     * @param rankers    the rankers to use, see {@link Rank}
+     * @param isParallel rank large lists on the common fork join pool, the value functions are then called concurrently
+     *                   for different elements
+     */
+    public MultiDimRanking(final List<Rank<T>> rankers, final boolean isParallel) {
         if (rankers.isEmpty()) {
             throw new IllegalArgumentException("pre: Must supply at least one Rank!");
         }
 
         iRankers = rankers;
+        iIsParallel = isParallel;
     }
 
     /**
@@ -72,19 +92,47 @@ public final class MultiDimRanking<T> {
     }
 
     /**
-     * @return the result of all rankers (Rank values) for the provided element, returned as a {@link RankResult<T>}
+     * @return the flattened result of applying this multidimensional sorter algorithm to {@code List}, with the rank
+     * values of each element. The values are the ones calculated by the ranking, no rank is applied again.
      */
-    public RankResult<T> getResultForElement(final T element) {
-        final Function<Rank<T>, Double> valueFunction = (Rank<T> rank) -> rank.valueFunction().apply(element);
+    public List<RankResult<T>> applyRankWithResults(final List<T> elements) {
+        return flatten(applyToCore(elements));
+    }
 
-        final List<Double> values = iRankers.stream().map(valueFunction).toList();
+    /**
+     * The elements at positions [{@code fromPosition}, {@code toPosition}) of {@link #applyRank(List)}, e.g. the top k
+     * for [0, k), without ranking all elements. At each rank level only the elements up to the epsilon group at
+     * {@code toPosition} are sorted, and only the groups that overlap the positions are ranked by the next levels.
+     *
+     * @return the selected elements in ranked order
+     */
+    public List<T> select(final List<T> elements, final int fromPosition, final int toPosition) {
+        return selectWithResults(elements, fromPosition, toPosition).stream().map(RankResult::getElement).toList();
+    }
 
-        final RankResult<T> elementResult = new RankResult<>(element);
-        for (int i = 0; i < values.size(); i++) {
-            elementResult.addValue(values.get(i), iRankers.get(i));
+    /**
+     * As {@link #select(List, int, int)}, with the rank values of each element. The values of the ranks that did not
+     * separate the element are calculated when they are read.
+     */
+    public List<RankResult<T>> selectWithResults(final List<T> elements, final int fromPosition, final int toPosition) {
+        if (fromPosition < 0 || toPosition > elements.size() || fromPosition > toPosition) {
+            throw new IndexOutOfBoundsException("[%d, %d) of %d".formatted(fromPosition, toPosition, elements.size()));
         }
+        final List<RankResult<T>> selected = new ArrayList<>(toPosition - fromPosition);
+        if (fromPosition < toPosition) {
+            final RankValues<T> values = new RankValues<>(elements, iRankers);
+            final int[] order = new int[elements.size()];
+            Arrays.setAll(order, i -> i);
+            select(values, order, 0, order.length, 0, fromPosition, toPosition, selected);
+        }
+        return selected;
+    }
 
-        return elementResult;
+    /**
+     * @return the result of all rankers (Rank values) for the provided element, returned as a {@link RankResult<T>}
+     */
+    public RankResult<T> getResultForElement(final T element) {
+        return new RankValues<>(List.of(element), iRankers).getResult(0);
     }
 
     /**
@@ -97,121 +145,224 @@ public final class MultiDimRanking<T> {
             return List.of();
         }
 
-        // This is needed (and terrible) to get in-place sorting.
-        //  Prepare a mutable array of mutable results, will be sorted
-        //  and filled with values as we go deeper.
-        @SuppressWarnings("unchecked") final RankResult<T>[] mutableResult = new RankResult[elements.size()];
-        for (int i = 0; i < elements.size(); ++i) {
-            mutableResult[i] = new RankResult<>(elements.get(i));
-        }
-
-        final List<SortTree<RankResult<T>>> sortResults = sort(mutableResult, 0, mutableResult.length, iRankers, 0);
+        // The values are stored in columns, one per rank level, and the elements are sorted by their indices,
+        //  each epsilon group is a slice of the index array that is sorted in place by the next level.
+        final RankValues<T> values = new RankValues<>(elements, iRankers);
+        final int[] order = new int[elements.size()];
+        Arrays.setAll(order, i -> i);
 
-        return sortResults;
+        if (iIsParallel && order.length >= PARALLEL_THRESHOLD) {
+            return ForkJoinPool.commonPool().invoke(new SortTask(values, order, 0, order.length, 0));
+        }
+        return sort(values, order, 0, order.length, 0);
     }
 
-    private List<SortTree<RankResult<T>>> sort(final RankResult<T>[] mutableResults,
+    private List<SortTree<RankResult<T>>> sort(final RankValues<T> values,
+                                               final int[] order,
                                                final int lowerBoundInclusive,
                                                final int upperBoundExclusive,
-                                               final List<Rank<T>> rankers,
                                                final int rankLevel) {
         assert lowerBoundInclusive <= upperBoundExclusive : "pre: empty sort interval!";
 
-        final Rank<T> rank = rankers.get(rankLevel);
-        calculateAllRankValues(mutableResults, rank, lowerBoundInclusive, upperBoundExclusive);
-
-        final Comparator<RankResult<T>> valueComparator = Comparator.comparingDouble(result -> result.getValue(rankLevel));
-        Arrays.sort(mutableResults, lowerBoundInclusive, upperBoundExclusive, valueComparator);
+        final Rank<T> rank = iRankers.get(rankLevel);
+        final double[] column = values.calculate(rankLevel, order, lowerBoundInclusive, upperBoundExclusive);
+        if (DEBUG) {
+            for (int i = lowerBoundInclusive; i < upperBoundExclusive; i++) {
+                cLog.info(values.getResult(order[i]).toString());
+            }
+        }
+        IndexSort.sort(order, lowerBoundInclusive, upperBoundExclusive, column);
 
         final int nextLevel = rankLevel + 1;
-        final List<SubGroup> subGroups = new ArrayList<>(upperBoundExclusive - lowerBoundInclusive);
+        final List<SubGroup> subGroups = getEpsilonGroups(rank, column, order, lowerBoundInclusive, upperBoundExclusive);
+
+        final List<SortTree<RankResult<T>>> trees = new ArrayList<>(subGroups.size());
+        for (SubGroup subGroup : subGroups) {
+            trees.add(getRankResultSortNode(values, order, upperBoundExclusive, nextLevel, subGroup));
+        }
+        return trees;
+    }
+
+    /**
+     * The parallel version of {@link #sort(RankValues, int[], int, int, int)}, for one interval of at least
+     * {@link #PARALLEL_THRESHOLD} elements.
+     */
+    private final class SortTask extends RecursiveTask<List<SortTree<RankResult<T>>>> {
+        private final RankValues<T> iValues;
+        private final int[] iOrder;
+        private final int iLowerBoundInclusive;
+        private final int iUpperBoundExclusive;
+        private final int iRankLevel;
+
+        private SortTask(final RankValues<T> values, final int[] order, final int lowerBoundInclusive,
+                         final int upperBoundExclusive, final int rankLevel) {
+            iValues = values;
+            iOrder = order;
+            iLowerBoundInclusive = lowerBoundInclusive;
+            iUpperBoundExclusive = upperBoundExclusive;
+            iRankLevel = rankLevel;
+        }
+
+        @Override
+        protected List<SortTree<RankResult<T>>> compute() {
+            final Rank<T> rank = iRankers.get(iRankLevel);
+            final double[] column = iValues.calculateParallel(iRankLevel, iOrder, iLowerBoundInclusive, iUpperBoundExclusive);
+            IndexSort.parallelSort(iOrder, iLowerBoundInclusive, iUpperBoundExclusive, column, PARALLEL_THRESHOLD);
+
+            final int nextLevel = iRankLevel + 1;
+            final List<SubGroup> subGroups = getEpsilonGroups(rank, column, iOrder, iLowerBoundInclusive, iUpperBoundExclusive);
+
+            // large groups are forked, the others are ranked by this thread meanwhile
+            final List<SortTree<RankResult<T>>> trees = new ArrayList<>(subGroups.size());
+            final List<SortTask> forkedTasks = new ArrayList<>();
+            final List<Integer> forkedPositions = new ArrayList<>();
+            for (SubGroup subGroup : subGroups) {
+                final int size = subGroup.endExclusive() - subGroup.startInclusive();
+                if (size >= PARALLEL_THRESHOLD && nextLevel < iRankers.size()) {
+                    final SortTask task = new SortTask(iValues, iOrder, subGroup.startInclusive(), subGroup.endExclusive(), nextLevel);
+                    task.fork();
+                    forkedTasks.add(task);
+                    forkedPositions.add(trees.size());
+                    trees.add(null);
+                } else {
+                    trees.add(getRankResultSortNode(iValues, iOrder, iUpperBoundExclusive, nextLevel, subGroup));
+                }
+            }
+
+            for (int i = forkedTasks.size() - 1; i >= 0; i--) {
+                final SortTask task = forkedTasks.get(i);
+                final int position = forkedPositions.get(i);
+                final SubGroup subGroup = subGroups.get(position);
+                trees.set(position, new Node<>(subGroup.epsilon(), iValues.getResult(iOrder[subGroup.startInclusive()]), task.join()));
+            }
+            return trees;
+        }
+    }
+
+    private List<SubGroup> getEpsilonGroups(final Rank<T> rank,
+                                            final double[] column,
+                                            final int[] order,
+                                            final int lowerBoundInclusive,
+                                            final int upperBoundExclusive) {
+        final List<SubGroup> subGroups = new ArrayList<>();
 
         int fromIndexInclusive = lowerBoundInclusive;
         while (fromIndexInclusive < upperBoundExclusive) {
             final SubGroup subGroup =
                     calculateEpsilonGroupAtLevel(
-                            rankLevel,
                             rank.epsilonFunction(),
-                            mutableResults,
+                            column,
+                            order,
                             fromIndexInclusive,
                             upperBoundExclusive);
 
             subGroups.add(subGroup);
             fromIndexInclusive = subGroup.endExclusive(); // Skip all elements included in the epsilon group
         }
-
-        return subGroups.stream()
-                .map(subGroup -> getRankResultSortNode(mutableResults, upperBoundExclusive, rankers, nextLevel, subGroup))
-                .toList();
+        return subGroups;
     }
 
     /**
-     * Update the {@link RankResult<T>} in the mutableResults given the current {@code rank} and sub-group range.
-     *
-     * @param mutableResults      the results to update
-     * @param rank                current rank
-     * @param lowerBoundInclusive start index inclusive in the mutableResults array
-     * @param upperBoundExclusive end index exclusive in the mutableResults array
+     * Adds the elements at positions [{@code fromPosition}, {@code toPosition}) of the ranked interval to {@code selected}.
      */
-    private void calculateAllRankValues(final RankResult<T>[] mutableResults,
-                                        final Rank<T> rank,
-                                        final int lowerBoundInclusive,
-                                        final int upperBoundExclusive) {
-        final ValueFunction<T> valueFunction = rank.valueFunction();
-
-        for (int index = lowerBoundInclusive; index < upperBoundExclusive; index++) {
-            final RankResult<T> rankResult = mutableResults[index];
-            final double value = valueFunction.apply(rankResult.getElement());
-            assert !Double.isInfinite(value) : "Infinite rank values is a problem!";
-            // We can use add since "level"s are done in order,
-            //  each added value is at the correct level.
-            //  rank is added for debugging purposes (traceability)
-            rankResult.addValue(value, rank);
-            if (DEBUG) {
-                cLog.info(rankResult.toString());
+    private void select(final RankValues<T> values,
+                        final int[] order,
+                        final int lowerBoundInclusive,
+                        final int upperBoundExclusive,
+                        final int rankLevel,
+                        final int fromPosition,
+                        final int toPosition,
+                        final List<RankResult<T>> selected) {
+        final Rank<T> rank = iRankers.get(rankLevel);
+        final double[] column = values.calculate(rankLevel, order, lowerBoundInclusive, upperBoundExclusive);
+
+        // Only the elements up to the value at the last position are needed to find the groups up to it. The partition
+        //  is stable, so sorting the front gives the same order as sorting the whole interval.
+        int sortedEnd = upperBoundExclusive;
+        if (toPosition < upperBoundExclusive) {
+            final double[] intervalValues = new double[upperBoundExclusive - lowerBoundInclusive];
+            for (int i = lowerBoundInclusive; i < upperBoundExclusive; i++) {
+                intervalValues[i - lowerBoundInclusive] = column[order[i]];
+            }
+            final double lastValue = IndexSort.selectValue(intervalValues, toPosition - 1 - lowerBoundInclusive);
+            sortedEnd = IndexSort.stablePartition(order, lowerBoundInclusive, upperBoundExclusive, column, lastValue);
+        }
+        IndexSort.sort(order, lowerBoundInclusive, sortedEnd, column);
+        List<SubGroup> subGroups = getEpsilonGroups(rank, column, order, lowerBoundInclusive, sortedEnd);
+
+        // the group at the last position may continue with larger values, a few more are harmless, they start a new group
+        if (sortedEnd < upperBoundExclusive) {
+            final SubGroup lastGroup = subGroups.get(subGroups.size() - 1);
+            final double groupEnd = column[order[lastGroup.startInclusive()]] + lastGroup.epsilon();
+            final double groupLimit = groupEnd + 4 * Math.ulp(groupEnd);
+            final int extendedEnd = IndexSort.stablePartition(order, sortedEnd, upperBoundExclusive, column, groupLimit);
+            if (extendedEnd > sortedEnd) {
+                IndexSort.sort(order, sortedEnd, extendedEnd, column);
+                subGroups = getEpsilonGroups(rank, column, order, lowerBoundInclusive, extendedEnd);
+            }
+        }
+
+        final int nextLevel = rankLevel + 1;
+        for (SubGroup subGroup : subGroups) {
+            if (subGroup.endExclusive() <= fromPosition) {
+                continue; // before the selected positions
+            }
+            if (subGroup.startInclusive() >= toPosition) {
+                break;
+            }
+            final int groupFrom = Math.max(fromPosition, subGroup.startInclusive());
+            final int groupTo = Math.min(toPosition, subGroup.endExclusive());
+            final boolean isSingletonGroup = subGroup.endExclusive() - subGroup.startInclusive() == 1;
+            if (!isSingletonGroup && nextLevel < iRankers.size()) {
+                select(values, order, subGroup.startInclusive(), subGroup.endExclusive(), nextLevel, groupFrom, groupTo, selected);
+            } else {
+                for (int i = groupFrom; i < groupTo; i++) {
+                    selected.add(values.getResult(order[i]));
+                }
             }
         }
     }
 
-    private SortTree<RankResult<T>> getRankResultSortNode(final RankResult<T>[] mutableResults,
+    private SortTree<RankResult<T>> getRankResultSortNode(final RankValues<T> values,
+                                                          final int[] order,
                                                           final int upperBoundExclusive,
-                                                          final List<Rank<T>> rankers,
                                                           final int nextLevel,
                                                           final SubGroup subGroup) {
-        final RankResult<T> firstInGroup = mutableResults[subGroup.startInclusive()];
+        final RankResult<T> firstInGroup = values.getResult(order[subGroup.startInclusive()]);
 
         final boolean isSingletonGroup = subGroup.endExclusive() - subGroup.startInclusive() == 1;
-        final boolean areRankersLeft = nextLevel < rankers.size();
+        final boolean areRankersLeft = nextLevel < iRankers.size();
         final boolean isMoreWorkToPerform = !isSingletonGroup && areRankersLeft;
 
         if (isMoreWorkToPerform) {
             // recursive call to sort for nextLevel rank, of the current subgroup
             final var epsilonGroupsForInterval =
-                    sort(mutableResults, subGroup.startInclusive(), subGroup.endExclusive(), rankers, nextLevel);
+                    sort(values, order, subGroup.startInclusive(), subGroup.endExclusive(), nextLevel);
             return new Node<>(subGroup.epsilon(), firstInGroup, epsilonGroupsForInterval);
         } else {
             assert subGroup.endExclusive() <= upperBoundExclusive : "inv: too large interval created!";
             final int actualUpperBound = subGroup.endExclusive();
 
-            final List<SortTree<RankResult<T>>> leafs = new ArrayList<>();
-            for (int i = subGroup.startInclusive(); i < actualUpperBound; i++) {
-                leafs.add(new Leaf<>(Double.NaN, mutableResults[i]));
+            final List<SortTree<RankResult<T>>> leafs = new ArrayList<>(actualUpperBound - subGroup.startInclusive());
+            leafs.add(new Leaf<>(Double.NaN, firstInGroup));
+            for (int i = subGroup.startInclusive() + 1; i < actualUpperBound; i++) {
+                leafs.add(new Leaf<>(Double.NaN, values.getResult(order[i])));
             }
 
             return new Node<>(subGroup.epsilon(), firstInGroup, leafs);
         }
     }
 
-    private SubGroup calculateEpsilonGroupAtLevel(final int rankLevel,
-                                                  final EpsilonFunction epsilonFunction,
-                                                  final RankResult<T>[] rankResults,
+    private SubGroup calculateEpsilonGroupAtLevel(final EpsilonFunction epsilonFunction,
+                                                  final double[] column,
+                                                  final int[] order,
                                                   final int fromIndexInclusive,
                                                   final int upperBoundExclusive) {
-        final double firstValueInGroup = rankResults[fromIndexInclusive].getValue(rankLevel);
+        final double firstValueInGroup = column[order[fromIndexInclusive]];
         final double epsilon = Math.abs(epsilonFunction.apply(firstValueInGroup));
 
         int j = fromIndexInclusive + 1;
-        while (j < upperBoundExclusive && epsilonEquals(rankResults[j].getValue(rankLevel), firstValueInGroup, epsilon)) {
+        while (j < upperBoundExclusive && epsilonEquals(column[order[j]], firstValueInGroup, epsilon)) {
             ++j;
         }
 
@@ -226,13 +377,19 @@ public final class MultiDimRanking<T> {
      * Recursively flatten the tree of epsilon groups
      */
     private static <T> List<RankResult<T>> flatten(final List<SortTree<RankResult<T>>> results) {
-        return results.stream().flatMap((SortTree<RankResult<T>> sortTree) -> {
+        final List<RankResult<T>> flattened = new ArrayList<>();
+        flattenInto(results, flattened);
+        return flattened;
+    }
+
+    private static <T> void flattenInto(final List<SortTree<RankResult<T>>> results, final List<RankResult<T>> flattened) {
+        for (SortTree<RankResult<T>> sortTree : results) {
             if (sortTree.isLeaf()) {
-                return Stream.of(((Leaf<RankResult<T>>) sortTree).getValue());
+                flattened.add(((Leaf<RankResult<T>>) sortTree).getValue());
             } else {
-                return flatten(sortTree.getChildren()).stream();
+                flattenInto(sortTree.getChildren(), flattened);
             }
-        }).toList();
+        }
     }
 
     /**
@@ -3,39 +3,42 @@ package net.booru.slidingrobots.rank.multidim;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * The rank values of one element, a view of a row of {@link RankValues}.
+ */
 public class RankResult<T> {
-    private final T iElement;
-    private final List<Double> iValues = new ArrayList<>();
-    private final List<Rank<T>> iValueFunctions = new ArrayList<>(); // for debugging
+    private final RankValues<T> iValues;
+    private final int iIndex;
 
-    public RankResult(final T element) {
-        iElement = element;
+    RankResult(final RankValues<T> values, final int index) {
+        iValues = values;
+        iIndex = index;
     }
 
     public T getElement() {
-        return iElement;
+        return iValues.getElement(iIndex);
     }
 
     public double getValue(final int level) {
-        return iValues.get(level);
+        return iValues.getValue(level, iIndex);
     }
 
+    /**
+     * @return the values of all ranks, values not needed by the ranking are calculated now
+     */
     public List<Description> getValuesWithDescription() {
-        final List<Description> valueDescriptions = new ArrayList<>(iValues.size());
-        for (int i = 0; i < iValues.size(); i++) {
-            valueDescriptions.add(new Description(iValueFunctions.get(i).name(), iValues.get(i)));
+        final List<Rank<T>> ranks = iValues.getRanks();
+        final List<Description> valueDescriptions = new ArrayList<>(ranks.size());
+        for (int level = 0; level < ranks.size(); level++) {
+            valueDescriptions.add(new Description(ranks.get(level).name(), getValue(level)));
         }
         return valueDescriptions;
     }
 
-    public void addValue(final double value, final Rank<T> valueFunction) {
-        iValues.add(value);
-        iValueFunctions.add(valueFunction);
-    }
-
     @Override
     public String toString() {
-        return "V=%s (R=%s)".formatted(iValues, iValueFunctions.stream().map(Rank::name).toList());
+        return "V=%s (R=%s)".formatted(getValuesWithDescription().stream().map(Description::rankValue).toList(),
+                iValues.getRanks().stream().map(Rank::name).toList());
     }
 
     public record Description(String rankName, double rankValue) {}
@@ -0,0 +1,101 @@
+package net.booru.slidingrobots.rank.multidim;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.IntStream;
+
+/**
+ * The rank values of a list of elements, stored in one {@code double[]} column per rank level. A value is calculated the
+ * first time it is asked for and then remembered, so each {@link Rank#valueFunction()} is applied to each element at
+ * most once, also when the values are read again after the ranking.
+ * <p>
+ * Elements are referred to by their index in the list. Different indices may be calculated concurrently, the same
+ * index must not.
+ */
+public final class RankValues<T> {
+    /**
+     * Marks a value that is not calculated yet. A value function that returns NaN is applied again each time.
+     */
+    private static final double NOT_CALCULATED = Double.NaN;
+
+    private final List<T> iElements;
+    private final List<Rank<T>> iRanks;
+    private final AtomicReferenceArray<double[]> iColumns;
+
+    public RankValues(final List<T> elements, final List<Rank<T>> ranks) {
+        iElements = elements;
+        iRanks = ranks;
+        iColumns = new AtomicReferenceArray<>(ranks.size());
+    }
+
+    public int size() {
+        return iElements.size();
+    }
+
+    public T getElement(final int index) {
+        return iElements.get(index);
+    }
+
+    public List<Rank<T>> getRanks() {
+        return iRanks;
+    }
+
+    /**
+     * @return the value of the rank at {@code level} for the element at {@code index}, calculated if it is not known
+     */
+    public double getValue(final int level, final int index) {
+        final double[] column = getColumn(level);
+        double value = column[index];
+        if (Double.isNaN(value)) {
+            value = iRanks.get(level).valueFunction().apply(iElements.get(index));
+            assert !Double.isInfinite(value) : "Infinite rank values is a problem!";
+            column[index] = value;
+        }
+        return value;
+    }
+
+    /**
+     * Calculates the values of a rank level for the elements at some indices.
+     *
+     * @param level   the rank level
+     * @param indices the element indices
+     * @param from    first position in {@code indices}, inclusive
+     * @param to      last position in {@code indices}, exclusive
+     * @return the column of the level, valid at the given indices
+     */
+    double[] calculate(final int level, final int[] indices, final int from, final int to) {
+        for (int i = from; i < to; i++) {
+            getValue(level, indices[i]);
+        }
+        return getColumn(level);
+    }
+
+    /**
+     * As {@link #calculate(int, int[], int, int)}, calculating the values in parallel. The value function must allow that.
+     */
+    double[] calculateParallel(final int level, final int[] indices, final int from, final int to) {
+        final double[] column = getColumn(level);
+        IntStream.range(from, to).parallel().forEach(i -> getValue(level, indices[i]));
+        return column;
+    }
+
+    /**
+     * @return a view of the values of the element at {@code index}
+     */
+    public RankResult<T> getResult(final int index) {
+        return new RankResult<>(this, index);
+    }
+
+    //-------------------------------------------------------------------------------------------------------------------------------------
+
+    private double[] getColumn(final int level) {
+        final double[] column = iColumns.get(level);
+        if (column != null) {
+            return column;
+        }
+        final double[] newColumn = new double[iElements.size()];
+        Arrays.fill(newColumn, NOT_CALCULATED);
+        return iColumns.compareAndSet(level, null, newColumn) ? newColumn : iColumns.get(level);
+    }
+}
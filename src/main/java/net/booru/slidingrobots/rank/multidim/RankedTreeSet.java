@@ -0,0 +1,218 @@
+package net.booru.slidingrobots.rank.multidim;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+
+/**
+ * A sorted set that also answers the position of an element and the element at a position, in O(log n) expected
+ * time. A treap where each node knows the size of its subtree.
+ */
+final class RankedTreeSet<E> implements Iterable<E> {
+    private final Comparator<? super E> iComparator;
+    private final SplittableRandom iRandom = new SplittableRandom(0x5EED);
+    private TreeNode<E> iRoot;
+
+    private static final class TreeNode<E> {
+        private final E iValue;
+        private final int iPriority;
+        private int iSize = 1;
+        private TreeNode<E> iLeft;
+        private TreeNode<E> iRight;
+
+        private TreeNode(final E value, final int priority) {
+            iValue = value;
+            iPriority = priority;
+        }
+    }
+
+    private record Split<E>(TreeNode<E> left, TreeNode<E> right) {}
+
+    RankedTreeSet(final Comparator<? super E> comparator) {
+        iComparator = comparator;
+    }
+
+    int size() {
+        return size(iRoot);
+    }
+
+    /**
+     * @return true if the element was added, false if an equal element is in the set
+     */
+    boolean add(final E value) {
+        final Split<E> lessAndRest = split(iRoot, value, false);
+        final Split<E> equalAndGreater = split(lessAndRest.right(), value, true);
+        if (equalAndGreater.left() != null) {
+            iRoot = merge(lessAndRest.left(), merge(equalAndGreater.left(), equalAndGreater.right()));
+            return false;
+        }
+        iRoot = merge(merge(lessAndRest.left(), new TreeNode<>(value, iRandom.nextInt())), equalAndGreater.right());
+        return true;
+    }
+
+    /**
+     * @return true if the element was removed, false if it was not in the set
+     */
+    boolean remove(final E value) {
+        final Split<E> lessAndRest = split(iRoot, value, false);
+        final Split<E> equalAndGreater = split(lessAndRest.right(), value, true);
+        iRoot = merge(lessAndRest.left(), equalAndGreater.right());
+        return equalAndGreater.left() != null;
+    }
+
+    /**
+     * @return the number of elements less than {@code value}, its position if it is in the set
+     */
+    int rank(final E value) {
+        int rank = 0;
+        TreeNode<E> node = iRoot;
+        while (node != null) {
+            if (iComparator.compare(value, node.iValue) <= 0) {
+                node = node.iLeft;
+            } else {
+                rank += size(node.iLeft) + 1;
+                node = node.iRight;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * @return the element at {@code position} in [0, size)
+     */
+    E get(final int position) {
+        if (position < 0 || position >= size()) {
+            throw new IndexOutOfBoundsException(position);
+        }
+        int remaining = position;
+        TreeNode<E> node = iRoot;
+        while (true) {
+            final int leftSize = size(node.iLeft);
+            if (remaining < leftSize) {
+                node = node.iLeft;
+            } else if (remaining == leftSize) {
+                return node.iValue;
+            } else {
+                remaining -= leftSize + 1;
+                node = node.iRight;
+            }
+        }
+    }
+
+    /**
+     * @return the least element greater than {@code value}, or null
+     */
+    E higher(final E value) {
+        E higher = null;
+        TreeNode<E> node = iRoot;
+        while (node != null) {
+            if (iComparator.compare(value, node.iValue) < 0) {
+                higher = node.iValue;
+                node = node.iLeft;
+            } else {
+                node = node.iRight;
+            }
+        }
+        return higher;
+    }
+
+    /**
+     * @return the least element, or null if the set is empty
+     */
+    E first() {
+        TreeNode<E> node = iRoot;
+        if (node == null) {
+            return null;
+        }
+        while (node.iLeft != null) {
+            node = node.iLeft;
+        }
+        return node.iValue;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<>() {
+            private final Deque<TreeNode<E>> iPath = new ArrayDeque<>();
+
+            {
+                pushLeft(iRoot);
+            }
+
+            @Override
+            public boolean hasNext() {
+                return !iPath.isEmpty();
+            }
+
+            @Override
+            public E next() {
+                if (iPath.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+                final TreeNode<E> node = iPath.pop();
+                pushLeft(node.iRight);
+                return node.iValue;
+            }
+
+            private void pushLeft(final TreeNode<E> from) {
+                for (TreeNode<E> node = from; node != null; node = node.iLeft) {
+                    iPath.push(node);
+                }
+            }
+        };
+    }
+
+    //-------------------------------------------------------------------------------------------------------------------------------------
+
+    private static int size(final TreeNode<?> node) {
+        return node == null ? 0 : node.iSize;
+    }
+
+    /**
+     * @param isInclusive put elements equal to {@code value} to the left
+     * @return the elements less than (or equal to) {@code value}, and the rest
+     */
+    private Split<E> split(final TreeNode<E> node, final E value, final boolean isInclusive) {
+        if (node == null) {
+            return new Split<>(null, null);
+        }
+        final int comparison = iComparator.compare(node.iValue, value);
+        if (comparison < 0 || (isInclusive && comparison == 0)) {
+            final Split<E> split = split(node.iRight, value, isInclusive);
+            node.iRight = split.left();
+            update(node);
+            return new Split<>(node, split.right());
+        } else {
+            final Split<E> split = split(node.iLeft, value, isInclusive);
+            node.iLeft = split.right();
+            update(node);
+            return new Split<>(split.left(), node);
+        }
+    }
+
+    /**
+     * @return the merged tree, all elements of {@code left} are less than those of {@code right}
+     */
+    private static <E> TreeNode<E> merge(final TreeNode<E> left, final TreeNode<E> right) {
+        if (left == null) {
+            return right;
+        } else if (right == null) {
+            return left;
+        } else if (left.iPriority > right.iPriority) {
+            left.iRight = merge(left.iRight, right);
+            update(left);
+            return left;
+        } else {
+            right.iLeft = merge(left, right.iLeft);
+            update(right);
+            return right;
+        }
+    }
+
+    private static void update(final TreeNode<?> node) {
+        node.iSize = 1 + size(node.iLeft) + size(node.iRight);
+    }
+}
@@ -0,0 +1,175 @@
+package net.booru.slidingrobots.server;
+
+import net.booru.slidingrobots.state.Game;
+import net.booru.slidingrobots.state.Piece;
+import net.booru.slidingrobots.state.RobotsState;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The length prefixed binary frames of the {@link UnixSocketSolveServer}. All integers are big endian.
+ * <pre>
+ * request:  length:int, requestId:int, timeoutMs:int, type:byte, payload
+ *   type 1, cells:  flags:byte (1 = oneway), width:byte, height:byte,
+ *                   (width * height + 1) / 2 bytes of cells in row major order, two cells per byte, high nibble first
+ *                   cell: 0 empty, 1 blocker, 2 goal, 3 helper robot, 4 main robot (the main robot cell is the start)
+ *   type 2, string: a utf-8 map string or seed string
+ * response: length:int, requestId:int, status:byte, moveCount:byte, moveCount * move:byte
+ *   move:   robotIndex &lt;&lt; 2 | direction, see {@link net.booru.slidingrobots.state.RobotsStateUtil#packMove}
+ *           robot 0 is the main robot, the helper robots follow in row major order of their cells
+ * </pre>
+ * The length is the number of bytes after the length field. A {@code timeoutMs} of 0 uses the server maximum. The
+ * request id is chosen by the client and returned in the response, responses may be sent in any order.
+ */
+public final class BinarySolveProtocol {
+    public static final byte TYPE_CELLS = 1;
+    public static final byte TYPE_STRING = 2;
+
+    public static final byte STATUS_SOLVED = 0;
+    public static final byte STATUS_NO_SOLUTION = 1;
+    public static final byte STATUS_ABORTED = 2;
+    public static final byte STATUS_INVALID = 3;
+    public static final byte STATUS_REJECTED = 4;
+
+    /**
+     * The largest accepted frame, a 255x255 board is about 32kB.
+     */
+    public static final int MAX_FRAME_LENGTH = 64 * 1024;
+
+    private static final byte FLAG_ONE_WAY = 1;
+    private static final Piece[] CELL_PIECES = {
+            Piece.empty, Piece.blocker, Piece.goal, Piece.helper_robot, Piece.main_robot
+    };
+
+    private BinarySolveProtocol() {
+    }
+
+    /**
+     * @param requestId the request id
+     * @param timeoutMs the search timeout, or 0 for the server maximum
+     * @param game      the game to solve
+     * @return a request frame with the game as packed cells, including the length prefix
+     */
+    public static ByteBuffer encodeCellsRequest(final int requestId, final int timeoutMs, final Game game) {
+        final int width = game.getBoard().getWidth();
+        final int height = game.getBoard().getHeight();
+        final byte[] codes = new byte[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                codes[y * width + x] = cellCode(game.getBoard().getPiece(x, y));
+            }
+        }
+
+        final RobotsState robots = game.getInitialRobotsState();
+        for (int i = 0; i < robots.getRobotCount(); i++) {
+            codes[robots.getPositionY(i) * width + robots.getPositionX(i)] = cellCode(i == 0 ? Piece.main_robot : Piece.helper_robot);
+        }
+
+        final byte[] cells = new byte[(codes.length + 1) / 2];
+        for (int i = 0; i < codes.length; i++) {
+            cells[i / 2] |= (byte) (i % 2 == 0 ? codes[i] << 4 : codes[i]);
+        }
+
+        final ByteBuffer frame = ByteBuffer.allocate(4 + 4 + 4 + 1 + 3 + cells.length);
+        frame.putInt(frame.capacity() - 4).putInt(requestId).putInt(timeoutMs).put(TYPE_CELLS)
+                .put(game.isOneWay() ? FLAG_ONE_WAY : 0).put((byte) width).put((byte) height).put(cells);
+        return frame.flip();
+    }
+
+    /**
+     * @return a request frame with a map string or seed string, including the length prefix
+     */
+    public static ByteBuffer encodeStringRequest(final int requestId, final int timeoutMs, final String mapOrSeed) {
+        final byte[] string = mapOrSeed.getBytes(StandardCharsets.UTF_8);
+        final ByteBuffer frame = ByteBuffer.allocate(4 + 4 + 4 + 1 + string.length);
+        frame.putInt(frame.capacity() - 4).putInt(requestId).putInt(timeoutMs).put(TYPE_STRING).put(string);
+        return frame.flip();
+    }
+
+    /**
+     * @param frame a request frame without the length prefix
+     * @return the request id, read before the rest of the frame so that invalid requests can be answered
+     */
+    public static int decodeRequestId(final ByteBuffer frame) {
+        return frame.getInt(frame.position());
+    }
+
+    /**
+     * @param frame a request frame without the length prefix
+     * @throws IllegalArgumentException if the request is not valid
+     */
+    public static Request decodeRequest(final ByteBuffer frame) {
+        final int requestId = frame.getInt();
+        final int timeoutMs = frame.getInt();
+        final byte type = frame.get();
+        return switch (type) {
+            case TYPE_CELLS -> new Request(requestId, timeoutMs, decodeCells(frame));
+            case TYPE_STRING -> {
+                final byte[] string = new byte[frame.remaining()];
+                frame.get(string);
+                yield new Request(requestId, timeoutMs, Game.valueOf(new String(string, StandardCharsets.UTF_8)));
+            }
+            default -> throw new IllegalArgumentException("Unknown request type: " + type);
+        };
+    }
+
+    /**
+     * @param packedMoves the packed solution moves, or an empty array if not solved
+     * @return a response frame, including the length prefix
+     */
+    public static ByteBuffer encodeResponse(final int requestId, final byte status, final byte[] packedMoves) {
+        final ByteBuffer frame = ByteBuffer.allocate(4 + 4 + 1 + 1 + packedMoves.length);
+        frame.putInt(frame.capacity() - 4).putInt(requestId).put(status).put((byte) packedMoves.length).put(packedMoves);
+        return frame.flip();
+    }
+
+    /**
+     * @param frame a response frame without the length prefix
+     */
+    public static Response decodeResponse(final ByteBuffer frame) {
+        final int requestId = frame.getInt();
+        final byte status = frame.get();
+        final byte[] packedMoves = new byte[Byte.toUnsignedInt(frame.get())];
+        frame.get(packedMoves);
+        return new Response(requestId, status, packedMoves);
+    }
+
+    public record Request(int requestId, int timeoutMs, Game game) {
+    }
+
+    public record Response(int requestId, byte status, byte[] packedMoves) {
+    }
+
+    //-------------------------------------------------------------------------------------------------------------------------------------
+
+    private static Game decodeCells(final ByteBuffer frame) {
+        final boolean isOneWay = (frame.get() & FLAG_ONE_WAY) != 0;
+        final int width = Byte.toUnsignedInt(frame.get());
+        final int height = Byte.toUnsignedInt(frame.get());
+        if (frame.remaining() != (width * height + 1) / 2) {
+            throw new IllegalArgumentException("Expected " + (width * height + 1) / 2 + " cell bytes, got " + frame.remaining());
+        }
+
+        final Piece[] cells = new Piece[width * height];
+        for (int i = 0; i < cells.length; i++) {
+            final int packed = frame.get(frame.position() + i / 2);
+            final int code = i % 2 == 0 ? (packed >> 4) & 0xF : packed & 0xF;
+            if (code >= CELL_PIECES.length) {
+                throw new IllegalArgumentException("Unknown cell code: " + code);
+            }
+            cells[i] = CELL_PIECES[code];
+        }
+        return Game.valueOfCells(width, height, isOneWay, cells);
+    }
+
+    private static byte cellCode(final Piece piece) {
+        return switch (piece) {
+            case blocker -> 1;
+            case goal -> 2;
+            case helper_robot -> 3;
+            case main_robot -> 4;
+            default -> 0; // start is given by the main robot
+        };
+    }
+}
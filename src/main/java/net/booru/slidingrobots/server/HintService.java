@@ -0,0 +1,84 @@
+package net.booru.slidingrobots.server;
+
+import net.booru.slidingrobots.algorithm.DistanceTable;
+import net.booru.slidingrobots.algorithm.NoSolutionException;
+import net.booru.slidingrobots.algorithm.SearchControl;
+import net.booru.slidingrobots.cache.WeighedLruCache;
+import net.booru.slidingrobots.state.Game;
+import net.booru.slidingrobots.state.RobotsState;
+import net.booru.slidingrobots.state.RobotsStateUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Next move hints from any state of a game. The first hint for a game computes its {@link DistanceTable}, later hints
+ * for the same game are table lookups of the states one move away. A table build covers every state of the board, so
+ * it is admitted on the heavy lane of the {@link SolveScheduler}, the lookups are not scheduled.
+ */
+public class HintService {
+    private final WeighedLruCache<String, DistanceTable> iTables;
+    private final SolveScheduler iScheduler;
+
+    /**
+     * The optimal next moves from a state.
+     *
+     * @param remainingMoves the number of moves left to solve the game, 0 if it is solved
+     * @param moves          the moves that are the first move of an optimal solution, empty if the game is solved
+     */
+    public record Hint(int remainingMoves, List<RobotsStateUtil.Move> moves) {
+    }
+
+    /**
+     * @param maxTableBytes the maximum total size of the cached distance tables
+     * @param scheduler     admits the table builds
+     */
+    public HintService(final long maxTableBytes, final SolveScheduler scheduler) {
+        iTables = new WeighedLruCache<>(maxTableBytes, DistanceTable::getSizeBytes);
+        iScheduler = scheduler;
+    }
+
+    /**
+     * @param game        the game, the table is shared by all games with the same board, start and number of robots
+     * @param robotsState the current state, with the waypoints reached so far
+     * @param control     the deadline to start building the table if it is not cached
+     * @return the hint
+     * @throws IllegalArgumentException if the state does not fit the game, or the board is too large for a table
+     * @throws NoSolutionException if the game cannot be solved from the state
+     * @throws SolveRejectedException if the table build is not admitted by the scheduler
+     */
+    public Hint hint(final Game game, final RobotsState robotsState, final SearchControl control) throws NoSolutionException {
+        final DistanceTable table = getTable(game, control);
+        final RobotsState state = RobotsStateUtil.updateWaypointsReached(robotsState, game.getEndCriteria());
+        final int distance = table.distance(state);
+        if (distance == DistanceTable.UNREACHABLE) {
+            throw new NoSolutionException();
+        }
+
+        final List<RobotsStateUtil.Move> moves = new ArrayList<>();
+        for (byte packedMove : table.optimalMoves(state)) {
+            final RobotsState next = game.getBoard().makeMove(
+                    RobotsStateUtil.unpackRobotIndex(packedMove), RobotsStateUtil.unpackDirection(packedMove), state);
+            moves.addAll(RobotsStateUtil.getMoveList(List.of(state, next)));
+        }
+        return new Hint(distance, moves);
+    }
+
+    public WeighedLruCache.Stats getCacheStats() {
+        return iTables.getStats();
+    }
+
+    //-------------------------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * The helper robot start positions are left out of the key, the table covers all their positions.
+     */
+    private DistanceTable getTable(final Game game, final SearchControl control) throws NoSolutionException {
+        final RobotsState initial = game.getInitialRobotsState();
+        final RobotsState mainRobot = new RobotsState(
+                new byte[]{(byte) initial.getPositionX(0), (byte) initial.getPositionY(0)}, (byte) 0);
+        final String key = game.getBoard().toNormalizedMapString(mainRobot, game.isOneWay()) + "#" + initial.getRobotCount();
+        return iTables.get(key, () -> iScheduler.schedule(SolveScheduler.Lane.HEAVY, control,
+                () -> new DistanceTable(game.getBoard(), initial.getRobotCount(), game.getEndCriteria())));
+    }
+}
@@ -0,0 +1,136 @@
+package net.booru.slidingrobots.server;
+
+import net.booru.slidingrobots.algorithm.NoSolutionException;
+import net.booru.slidingrobots.algorithm.ReplanningSession;
+import net.booru.slidingrobots.algorithm.SearchControl;
+import net.booru.slidingrobots.algorithm.model.Solution;
+import net.booru.slidingrobots.state.Game;
+import net.booru.slidingrobots.state.RobotsState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The {@link ReplanningSession}s of the players of a long-running server. A session is evicted when it has not been
+ * used for the idle timeout, idle sessions are evicted when a session is opened.
+ */
+public class SessionService {
+    private static final Logger cLogger = LoggerFactory.getLogger(SessionService.class);
+
+    private final int iMaxSessions;
+    private final long iIdleTimeoutNanos;
+    private final Map<String, Session> iSessions = new ConcurrentHashMap<>();
+
+    /**
+     * A lock rather than synchronized, so that a virtual thread waiting for a search does not pin its carrier thread.
+     */
+    private static final class Session {
+        private final Game iGame;
+        private final ReplanningSession iReplanningSession;
+        private final Lock iLock = new ReentrantLock();
+        private volatile long iLastUsedNanos = System.nanoTime();
+
+        private Session(final Game game) {
+            iGame = game;
+            iReplanningSession = new ReplanningSession(game);
+        }
+    }
+
+    /**
+     * @param maxSessions the maximum number of open sessions
+     * @param idleTimeout the time after which an unused session is evicted
+     */
+    public SessionService(final int maxSessions, final Duration idleTimeout) {
+        if (maxSessions < 1) {
+            throw new IllegalArgumentException("maxSessions must be > 0, got " + maxSessions);
+        }
+        iMaxSessions = maxSessions;
+        iIdleTimeoutNanos = idleTimeout.toNanos();
+    }
+
+    /**
+     * @return the id of a new session for {@code game}
+     * @throws SolveRejectedException if the maximum number of sessions are open
+     */
+    public String open(final Game game) {
+        evictIdle();
+        if (iSessions.size() >= iMaxSessions) {
+            throw new SolveRejectedException("Too many open sessions: " + iSessions.size());
+        }
+        final String sessionId = UUID.randomUUID().toString();
+        iSessions.put(sessionId, new Session(game));
+        return sessionId;
+    }
+
+    /**
+     * @return the game of the session
+     * @throws IllegalArgumentException if the session is unknown or evicted
+     */
+    public Game getGame(final String sessionId) {
+        return getSession(sessionId).iGame;
+    }
+
+    /**
+     * @param sessionId   the session id, see {@link #open(Game)}
+     * @param robotsState the current state, with the waypoints reached so far
+     * @param control     the search budget
+     * @return an optimal solution from {@code robotsState}
+     * @throws IllegalArgumentException if the session is unknown or evicted
+     * @throws net.booru.slidingrobots.algorithm.SearchAbortedException if the search is over budget
+     */
+    public Solution continuation(final String sessionId, final RobotsState robotsState, final SearchControl control)
+            throws NoSolutionException {
+        final Session session = getSession(sessionId);
+        session.iLock.lock();
+        try {
+            session.iLastUsedNanos = System.nanoTime();
+            return session.iReplanningSession.continuation(robotsState, control);
+        } finally {
+            session.iLock.unlock();
+        }
+    }
+
+    /**
+     * @return true if the session was open
+     */
+    public boolean close(final String sessionId) {
+        return iSessions.remove(sessionId) != null;
+    }
+
+    public int getSessionCount() {
+        return iSessions.size();
+    }
+
+    /**
+     * @return the number of evicted sessions
+     */
+    public int evictIdle() {
+        final long now = System.nanoTime();
+        int evicted = 0;
+        for (Map.Entry<String, Session> entry : iSessions.entrySet()) {
+            if (now - entry.getValue().iLastUsedNanos > iIdleTimeoutNanos && iSessions.remove(entry.getKey(), entry.getValue())) {
+                evicted++;
+            }
+        }
+        if (evicted > 0) {
+            cLogger.debug("Evicted {} idle sessions", evicted);
+        }
+        return evicted;
+    }
+
+    //-------------------------------------------------------------------------------------------------------------------------------------
+
+    private Session getSession(final String sessionId) {
+        final Session session = iSessions.get(sessionId);
+        if (session == null) {
+            throw new IllegalArgumentException("Unknown or expired session: " + sessionId);
+        }
+        return session;
+    }
+}
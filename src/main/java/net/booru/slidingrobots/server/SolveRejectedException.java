@@ -0,0 +1,11 @@
+package net.booru.slidingrobots.server;
+
+/**
+ * Thrown by the {@link SolveScheduler} and the {@link SessionService} when a request is not admitted, the client may
+ * retry later.
+ */
+public class SolveRejectedException extends RuntimeException {
+    public SolveRejectedException(final String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,214 @@
+package net.booru.slidingrobots.server;
+
+import net.booru.slidingrobots.algorithm.MainRobotDistance;
+import net.booru.slidingrobots.algorithm.NoSolutionException;
+import net.booru.slidingrobots.algorithm.SearchControl;
+import net.booru.slidingrobots.state.Game;
+import net.booru.slidingrobots.state.RobotsState;
+import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admission control in front of the solvers of a shared service, so that a few expensive solves cannot starve the many
+ * cheap interactive ones.
+ * <p>
+ * The cost of a solve is estimated from the board area, the robot count and the {@link MainRobotDistance} lower bound.
+ * Cheap solves run on the fast lane and expensive ones on a separate, smaller heavy lane. Each lane has a concurrency
+ * limit and a bounded queue, a request that finds the queue full, cannot start before its deadline, or is heavy while
+ * the heap is nearly full is rejected with a {@link SolveRejectedException}.
+ */
+public class SolveScheduler {
+    private static final int WAIT_TIME_WINDOW = 1024;
+
+    private final Config iConfig;
+    private final LaneState iFastLane;
+    private final LaneState iHeavyLane;
+
+    public enum Lane {
+        FAST,
+        HEAVY
+    }
+
+    /**
+     * @param fastConcurrency    the maximum number of concurrent solves on the fast lane
+     * @param heavyConcurrency   the maximum number of concurrent solves on the heavy lane
+     * @param maxQueued          the maximum number of waiting requests per lane
+     * @param heavyCost          solves with an estimated cost of at least this run on the heavy lane
+     * @param minFreeMemoryBytes heavy solves are rejected when less heap than this is free
+     */
+    public record Config(int fastConcurrency, int heavyConcurrency, int maxQueued, long heavyCost, long minFreeMemoryBytes) {
+        /**
+         * 8x8 boards with three robots are fast unless the lower bound is high, larger boards are heavy sooner.
+         */
+        public static final long DEFAULT_HEAVY_COST = 1500;
+
+        public Config {
+            if (fastConcurrency < 1 || heavyConcurrency < 1 || maxQueued < 0) {
+                throw new IllegalArgumentException("expected concurrency > 0 and maxQueued >= 0");
+            }
+        }
+    }
+
+    /**
+     * @param lowerBound the {@link MainRobotDistance} lower bound of the solution length
+     * @param cost       the estimated cost, area * robot count * (lower bound + 1)
+     */
+    public record Estimate(int lowerBound, long cost, Lane lane) {
+    }
+
+    public record LaneMetrics(int running, int queued, long admitted, long rejected, double waitMeanMs,
+                              double waitP99Ms) {
+    }
+
+    public record Metrics(LaneMetrics fast, LaneMetrics heavy) {
+    }
+
+    @FunctionalInterface
+    public interface Task<T> {
+        T run() throws NoSolutionException;
+    }
+
+    public SolveScheduler(final Config config) {
+        iConfig = config;
+        iFastLane = new LaneState(config.fastConcurrency());
+        iHeavyLane = new LaneState(config.heavyConcurrency());
+    }
+
+    public Estimate estimate(final Game game) {
+        return estimate(game, game.getInitialRobotsState());
+    }
+
+    /**
+     * @param robotsState the state the solve starts from, with the waypoints reached so far
+     */
+    public Estimate estimate(final Game game, final RobotsState robotsState) {
+        final int lowerBound = new MainRobotDistance(game.getBoard()).lowerBound(robotsState, game.isOneWay());
+        final long area = (long) game.getBoard().getWidth() * game.getBoard().getHeight();
+        final long cost = area * robotsState.getRobotCount() * (Math.min(lowerBound, 100) + 1L);
+        return new Estimate(lowerBound, cost, cost >= iConfig.heavyCost() ? Lane.HEAVY : Lane.FAST);
+    }
+
+    /**
+     * Run the solve task of {@code game} on its lane, waiting at most until the deadline of {@code control} to start.
+     *
+     * @throws NoSolutionException    if the lower bound shows that there is no solution, or from the task
+     * @throws SolveRejectedException if the request is not admitted
+     */
+    public <T> T schedule(final Game game, final SearchControl control, final Task<T> task) throws NoSolutionException {
+        return schedule(game, game.getInitialRobotsState(), control, task);
+    }
+
+    /**
+     * Run the solve task of {@code game} from {@code robotsState} on its lane, see
+     * {@link #schedule(Game, SearchControl, Task)}.
+     */
+    public <T> T schedule(final Game game, final RobotsState robotsState, final SearchControl control, final Task<T> task)
+            throws NoSolutionException {
+        final Estimate estimate = estimate(game, robotsState);
+        if (estimate.lowerBound() >= MainRobotDistance.UNREACHABLE) {
+            throw new NoSolutionException(); // the main robot cannot reach the goal even without helper robots
+        }
+        return schedule(estimate.lane(), control, task);
+    }
+
+    /**
+     * Run a task that is not estimated as a solve, like building a table of all states of a board, on {@code lane},
+     * waiting at most until the deadline of {@code control} to start.
+     *
+     * @throws NoSolutionException    from the task
+     * @throws SolveRejectedException if the request is not admitted
+     */
+    public <T> T schedule(final Lane laneType, final SearchControl control, final Task<T> task) throws NoSolutionException {
+        final LaneState lane = laneType == Lane.HEAVY ? iHeavyLane : iFastLane;
+        if (laneType == Lane.HEAVY && getFreeMemory() < iConfig.minFreeMemoryBytes()) {
+            lane.iRejected.incrementAndGet();
+            throw new SolveRejectedException("not enough free memory for a heavy solve");
+        }
+
+        lane.acquire(control.getRemainingTime(), iConfig.maxQueued());
+        try {
+            return task.run();
+        } finally {
+            lane.iPermits.release();
+        }
+    }
+
+    public Metrics getMetrics() {
+        return new Metrics(iFastLane.getMetrics(), iHeavyLane.getMetrics());
+    }
+
+    //-------------------------------------------------------------------------------------------------------------------------------------
+
+    private static long getFreeMemory() {
+        final Runtime runtime = Runtime.getRuntime();
+        return runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+    }
+
+    private static final class LaneState {
+        private final int iConcurrency;
+        private final Semaphore iPermits;
+        private final AtomicInteger iQueued = new AtomicInteger();
+        private final AtomicLong iAdmitted = new AtomicLong();
+        private final AtomicLong iRejected = new AtomicLong();
+        private final DescriptiveStatistics iWaitTimes = new DescriptiveStatistics(WAIT_TIME_WINDOW);
+
+        private LaneState(final int concurrency) {
+            iConcurrency = concurrency;
+            iPermits = new Semaphore(concurrency, true);
+        }
+
+        /**
+         * @param maxWait the maximum time to wait for a permit, or {@code null} to wait until one is free
+         */
+        private void acquire(final Duration maxWait, final int maxQueued) {
+            final long start = System.nanoTime();
+            boolean isAcquired = false;
+            try {
+                // a zero timeout, unlike tryAcquire(), does not overtake requests that are already waiting
+                isAcquired = iPermits.tryAcquire(0, TimeUnit.NANOSECONDS);
+                if (!isAcquired) {
+                    if (iQueued.incrementAndGet() > maxQueued) {
+                        iQueued.decrementAndGet();
+                        iRejected.incrementAndGet();
+                        throw new SolveRejectedException("solve queue is full");
+                    }
+                    try {
+                        isAcquired = iPermits.tryAcquire(maxWait == null ? Long.MAX_VALUE : maxWait.toNanos(),
+                                TimeUnit.NANOSECONDS);
+                    } finally {
+                        iQueued.decrementAndGet();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            synchronized (iWaitTimes) {
+                iWaitTimes.addValue((System.nanoTime() - start) / 1_000_000.0);
+            }
+            if (!isAcquired) {
+                iRejected.incrementAndGet();
+                throw new SolveRejectedException("solve did not start before its deadline");
+            }
+            iAdmitted.incrementAndGet();
+        }
+
+        private LaneMetrics getMetrics() {
+            synchronized (iWaitTimes) {
+                final boolean isEmpty = iWaitTimes.getN() == 0;
+                return new LaneMetrics(
+                        iConcurrency - iPermits.availablePermits(),
+                        iQueued.get(),
+                        iAdmitted.get(),
+                        iRejected.get(),
+                        isEmpty ? 0 : iWaitTimes.getMean(),
+                        isEmpty ? 0 : iWaitTimes.getPercentile(99));
+            }
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package net.booru.slidingrobots.server;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import net.booru.slidingrobots.algorithm.NoSolutionException;
+import net.booru.slidingrobots.algorithm.SearchAbortedException;
+import net.booru.slidingrobots.algorithm.SearchControl;
+import net.booru.slidingrobots.algorithm.model.Solution;
+import net.booru.slidingrobots.state.Board;
+import net.booru.slidingrobots.state.Game;
+import net.booru.slidingrobots.state.RobotsState;
+import net.booru.slidingrobots.state.RobotsStateUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A long-running HTTP server that keeps the solver warm, using the JDK {@link HttpServer} and one virtual thread per
+ * request.
+ * <pre>
+ * GET /solve?q=&lt;map-string | seed-string&gt;[&amp;maxStates=&lt;n&gt;][&amp;timeoutMs=&lt;ms&gt;]
+ *     200 the solution moves, same json as {@link RobotsStateUtil#toStringJsonResult(java.util.List)}
+ *     400 invalid request, 422 no solution, 503 search budget used up or not admitted by the scheduler
+ * GET /hint?q=&lt;map-string | seed-string&gt;&amp;robots=&lt;x,y,...&gt;[&amp;waypoints=&lt;n&gt;][&amp;timeoutMs=&lt;ms&gt;]
+ *     200 {"remainingMoves": n, "moves": [...]} the optimal next moves from the robot positions, main robot first, and
+ *         the number of waypoints reached so far, default 0
+ *     400 invalid request, robots that do not fit the game or board too large for a hint table, 422 no solution from
+ *     the robot positions, 503 the hint table build is not admitted by the scheduler before the timeout
+ * GET /session/open?q=&lt;map-string | seed-string&gt;
+ *     200 {"session": id} a replanning session for the game, evicted when idle, 503 too many sessions
+ * GET /session/continue?session=&lt;id&gt;&amp;robots=&lt;x,y,...&gt;[&amp;waypoints=&lt;n&gt;][&amp;maxStates=&lt;n&gt;][&amp;timeoutMs=&lt;ms&gt;]
+ *     the optimal solution from the robot positions, reusing the earlier searches of the session, same as /solve,
+ *     400 unknown session or robots that do not fit the game of the session
+ * GET /session/close?session=&lt;id&gt;
+ *     200 closed, 404 unknown session
+ * GET /metrics
+ *     200 the scheduler metrics as json
+ * GET /health
+ *     200 ok
+ * </pre>
+ */
+public class SolveServer {
+    private static final Logger cLogger = LoggerFactory.getLogger(SolveServer.class);
+
+    private static final String CONTENT_TYPE_JSON = "application/json";
+    private static final String CONTENT_TYPE_TEXT = "text/plain; charset=utf-8";
+
+    private final HttpServer iServer;
+    private final ExecutorService iExecutor;
+    private final SolveService iSolveService;
+    private final HintService iHintService;
+    private final SessionService iSessionService;
+    private final ObjectMapper iObjectMapper = new ObjectMapper();
+
+    /**
+     * @param port           the port to listen on, 0 for any free port
+     * @param solveService   the service that solves the requests
+     * @param hintService    the service that answers the hint requests
+     * @param sessionService the replanning sessions
+     */
+    public SolveServer(final int port, final SolveService solveService, final HintService hintService,
+                       final SessionService sessionService) throws IOException {
+        iSolveService = solveService;
+        iHintService = hintService;
+        iSessionService = sessionService;
+        iExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        iServer = HttpServer.create(new InetSocketAddress(port), 0);
+        iServer.setExecutor(iExecutor);
+        iServer.createContext("/solve", this::handleSolve);
+        iServer.createContext("/hint", this::handleHint);
+        iServer.createContext("/session/open", this::handleSessionOpen);
+        iServer.createContext("/session/continue", this::handleSessionContinue);
+        iServer.createContext("/session/close", this::handleSessionClose);
+        iServer.createContext("/metrics", this::handleMetrics);
+        iServer.createContext("/health", exchange -> respond(exchange, 200, CONTENT_TYPE_TEXT, "ok"));
+    }
+
+    public void start() {
+        iServer.start();
+        cLogger.info("Solve server listening on port {}", getPort());
+    }
+
+    public int getPort() {
+        return iServer.getAddress().getPort();
+    }
+
+    /**
+     * Stop accepting requests and wait for the requests in progress to finish, at most {@code gracePeriod}.
+     */
+    public void stop(final Duration gracePeriod) {
+        cLogger.info("Solve server stopping, waiting at most {} for requests in progress", gracePeriod);
+        iServer.stop((int) Math.max(1, gracePeriod.toSeconds()));
+        iExecutor.close();
+        cLogger.info("Solve server stopped");
+    }
+
+    //-------------------------------------------------------------------------------------------------------------------------------------
+
+    private void handleSolve(final HttpExchange exchange) throws IOException {
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            respond(exchange, 405, CONTENT_TYPE_TEXT, "GET expected");
+            return;
+        }
+
+        try {
+            final Map<String, String> parameters = parseQuery(exchange.getRequestURI().getRawQuery());
+            final String mapOrSeed = parameters.get("q");
+            if (mapOrSeed == null) {
+                respond(exchange, 400, CONTENT_TYPE_TEXT, "parameter q=<map-string | seed-string> expected");
+                return;
+            }
+
+            final SearchControl control = iSolveService.newControl(
+                    Long.parseLong(parameters.getOrDefault("maxStates", "0")),
+                    parameters.containsKey("timeoutMs") ? Duration.ofMillis(Long.parseLong(parameters.get("timeoutMs"))) : null);
+            final Solution solution = iSolveService.solve(mapOrSeed, control);
+
+            exchange.getResponseHeaders().add("X-Solution-Length", Integer.toString(solution.getStatistics().getSolutionLength()));
+            respond(exchange, 200, CONTENT_TYPE_JSON, RobotsStateUtil.toStringJsonResult(solution.getSolutionPath()));
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, CONTENT_TYPE_TEXT, String.valueOf(e.getMessage()));
+        } catch (NoSolutionException e) {
+            respond(exchange, 422, CONTENT_TYPE_TEXT, "no solution");
+        } catch (SearchAbortedException e) {
+            respond(exchange, 503, CONTENT_TYPE_TEXT, e.getMessage());
+        } catch (SolveRejectedException e) {
+            exchange.getResponseHeaders().add("Retry-After", "1");
+            respond(exchange, 503, CONTENT_TYPE_TEXT, e.getMessage());
+        } catch (RuntimeException e) {
+            cLogger.error("Failed to solve {}", exchange.getRequestURI(), e);
+            respond(exchange, 500, CONTENT_TYPE_TEXT, "internal error");
+        }
+    }
+
+    private void handleHint(final HttpExchange exchange) throws IOException {
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            respond(exchange, 405, CONTENT_TYPE_TEXT, "GET expected");
+            return;
+        }
+
+        try {
+            final Map<String, String> parameters = parseQuery(exchange.getRequestURI().getRawQuery());
+            final String mapOrSeed = parameters.get("q");
+            final String robots = parameters.get("robots");
+            if (mapOrSeed == null || robots == null) {
+                respond(exchange, 400, CONTENT_TYPE_TEXT, "parameters q=<map-string | seed-string> and robots=<x,y,...> expected");
+                return;
+            }
+
+            final SearchControl control = iSolveService.newControl(0,
+                    parameters.containsKey("timeoutMs") ? Duration.ofMillis(Long.parseLong(parameters.get("timeoutMs"))) : null);
+            final Game game = Game.valueOf(mapOrSeed);
+            final HintService.Hint hint = iHintService.hint(game, parseRobotsState(parameters, game), control);
+            respond(exchange, 200, CONTENT_TYPE_JSON, iObjectMapper.writeValueAsString(hint));
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, CONTENT_TYPE_TEXT, String.valueOf(e.getMessage()));
+        } catch (NoSolutionException e) {
+            respond(exchange, 422, CONTENT_TYPE_TEXT, "no solution");
+        } catch (SolveRejectedException e) {
+            exchange.getResponseHeaders().add("Retry-After", "1");
+            respond(exchange, 503, CONTENT_TYPE_TEXT, e.getMessage());
+        } catch (RuntimeException e) {
+            cLogger.error("Failed to hint {}", exchange.getRequestURI(), e);
+            respond(exchange, 500, CONTENT_TYPE_TEXT, "internal error");
+        }
+    }
+
+    private void handleSessionOpen(final HttpExchange exchange) throws IOException {
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            respond(exchange, 405, CONTENT_TYPE_TEXT, "GET expected");
+            return;
+        }
+
+        try {
+            final String mapOrSeed = parseQuery(exchange.getRequestURI().getRawQuery()).get("q");
+            if (mapOrSeed == null) {
+                respond(exchange, 400, CONTENT_TYPE_TEXT, "parameter q=<map-string | seed-string> expected");
+                return;
+            }
+            final String sessionId = iSessionService.open(Game.valueOf(mapOrSeed));
+            respond(exchange, 200, CONTENT_TYPE_JSON, iObjectMapper.writeValueAsString(Map.of("session", sessionId)));
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, CONTENT_TYPE_TEXT, String.valueOf(e.getMessage()));
+        } catch (SolveRejectedException e) {
+            exchange.getResponseHeaders().add("Retry-After", "1");
+            respond(exchange, 503, CONTENT_TYPE_TEXT, e.getMessage());
+        } catch (RuntimeException e) {
+            cLogger.error("Failed to open a session {}", exchange.getRequestURI(), e);
+            respond(exchange, 500, CONTENT_TYPE_TEXT, "internal error");
+        }
+    }
+
+    private void handleSessionContinue(final HttpExchange exchange) throws IOException {
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            respond(exchange, 405, CONTENT_TYPE_TEXT, "GET expected");
+            return;
+        }
+
+        try {
+            final Map<String, String> parameters = parseQuery(exchange.getRequestURI().getRawQuery());
+            final String sessionId = parameters.get("session");
+            if (sessionId == null || !parameters.containsKey("robots")) {
+                respond(exchange, 400, CONTENT_TYPE_TEXT, "parameters session=<id> and robots=<x,y,...> expected");
+                return;
+            }
+
+            final SearchControl control = iSolveService.newControl(
+                    Long.parseLong(parameters.getOrDefault("maxStates", "0")),
+                    parameters.containsKey("timeoutMs") ? Duration.ofMillis(Long.parseLong(parameters.get("timeoutMs"))) : null);
+            final Game game = iSessionService.getGame(sessionId);
+            final RobotsState robotsState = parseRobotsState(parameters, game);
+            final Solution solution = iSolveService.getScheduler().schedule(game, robotsState, control,
+                    () -> iSessionService.continuation(sessionId, robotsState, control));
+
+            exchange.getResponseHeaders().add("X-Solution-Length", Integer.toString(solution.getStatistics().getSolutionLength()));
+            respond(exchange, 200, CONTENT_TYPE_JSON, RobotsStateUtil.toStringJsonResult(solution.getSolutionPath()));
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, CONTENT_TYPE_TEXT, String.valueOf(e.getMessage()));
+        } catch (NoSolutionException e) {
+            respond(exchange, 422, CONTENT_TYPE_TEXT, "no solution");
+        } catch (SearchAbortedException e) {
+            respond(exchange, 503, CONTENT_TYPE_TEXT, e.getMessage());
+        } catch (SolveRejectedException e) {
+            exchange.getResponseHeaders().add("Retry-After", "1");
+            respond(exchange, 503, CONTENT_TYPE_TEXT, e.getMessage());
+        } catch (RuntimeException e) {
+            cLogger.error("Failed to continue {}", exchange.getRequestURI(), e);
+            respond(exchange, 500, CONTENT_TYPE_TEXT, "internal error");
+        }
+    }
+
+    private void handleSessionClose(final HttpExchange exchange) throws IOException {
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            respond(exchange, 405, CONTENT_TYPE_TEXT, "GET expected");
+            return;
+        }
+
+        try {
+            final String sessionId = parseQuery(exchange.getRequestURI().getRawQuery()).get("session");
+            if (sessionId != null && iSessionService.close(sessionId)) {
+                respond(exchange, 200, CONTENT_TYPE_TEXT, "closed");
+            } else {
+                respond(exchange, 404, CONTENT_TYPE_TEXT, "unknown session");
+            }
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, CONTENT_TYPE_TEXT, String.valueOf(e.getMessage()));
+        } catch (RuntimeException e) {
+            cLogger.error("Failed to close a session {}", exchange.getRequestURI(), e);
+            respond(exchange, 500, CONTENT_TYPE_TEXT, "internal error");
+        }
+    }
+
+    private void handleMetrics(final HttpExchange exchange) throws IOException {
+        respond(exchange, 200, CONTENT_TYPE_JSON, iObjectMapper.writeValueAsString(iSolveService.getScheduler().getMetrics()));
+    }
+
+    /**
+     * @param rawQuery the raw query of a request uri, may be {@code null}
+     * @return the decoded query parameters
+     */
+    static Map<String, String> parseQuery(final String rawQuery) {
+        final Map<String, String> parameters = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return parameters;
+        }
+        for (String parameter : rawQuery.split("&")) {
+            final int separator = parameter.indexOf('=');
+            final String name = separator < 0 ? parameter : parameter.substring(0, separator);
+            final String value = separator < 0 ? "" : parameter.substring(separator + 1);
+            parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    /**
+     * @return the state of parameters robots=&lt;x,y,...&gt;, main robot first, and waypoints=&lt;n&gt;, default 0
+     * @throws IllegalArgumentException if the state is not a state of {@code game}, the robot count differs, a robot is
+     *                                  off the board, on a blocker or on another robot, or the waypoints are out of range
+     */
+    static RobotsState parseRobotsState(final Map<String, String> parameters, final Game game) {
+        final String[] coordinates = parameters.get("robots").split(",");
+        final int robotCount = game.getInitialRobotsState().getRobotCount();
+        if (coordinates.length != robotCount * 2) {
+            throw new IllegalArgumentException("robots=<x,y,...> expects " + robotCount + " pairs of coordinates");
+        }
+
+        final Board board = game.getBoard();
+        final byte[] positions = new byte[coordinates.length];
+        final Set<Integer> occupied = new HashSet<>();
+        for (int i = 0; i < coordinates.length; i += 2) {
+            final int x = Integer.parseInt(coordinates[i].trim());
+            final int y = Integer.parseInt(coordinates[i + 1].trim());
+            if (x < 0 || x >= board.getWidth() || y < 0 || y >= board.getHeight()) {
+                throw new IllegalArgumentException("robot " + i / 2 + " is off the board: " + x + "," + y);
+            }
+            if (board.getPiece(x, y).isBlocking() || !occupied.add(y * board.getWidth() + x)) {
+                throw new IllegalArgumentException("robot " + i / 2 + " is on a blocked position: " + x + "," + y);
+            }
+            positions[i] = (byte) x;
+            positions[i + 1] = (byte) y;
+        }
+
+        final int waypoints = Integer.parseInt(parameters.getOrDefault("waypoints", "0"));
+        if (waypoints < 0 || waypoints > game.getEndCriteria().size()) {
+            throw new IllegalArgumentException("waypoints=<n> expects 0 to " + game.getEndCriteria().size());
+        }
+        return new RobotsState(positions, (byte) waypoints);
+    }
+
+    static void respond(final HttpExchange exchange, final int status, final String contentType, final String body)
+            throws IOException {
+        final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(bytes);
+        }
+    }
+}
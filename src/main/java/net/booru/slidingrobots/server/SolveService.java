@@ -0,0 +1,72 @@
+package net.booru.slidingrobots.server;
+
+import net.booru.slidingrobots.algorithm.NoSolutionException;
+import net.booru.slidingrobots.algorithm.SearchControl;
+import net.booru.slidingrobots.algorithm.SlidingRobotsSearchAlgorithm;
+import net.booru.slidingrobots.algorithm.model.Solution;
+import net.booru.slidingrobots.state.Board;
+import net.booru.slidingrobots.state.Game;
+
+import java.time.Duration;
+import java.util.function.BiFunction;
+
+/**
+ * Solves games for a long-running server, within a per request search budget that is capped by the service limits.
+ */
+public class SolveService {
+    private final BiFunction<Board, SearchControl, SlidingRobotsSearchAlgorithm> iAlgorithmFactory;
+    private final long iMaxStates;
+    private final Duration iMaxTimeout;
+    private final SolveScheduler iScheduler;
+
+    /**
+     * @param algorithmFactory creates the solver for a board and search budget
+     * @param maxStates        the default and maximum number of states a search may visit
+     * @param maxTimeout       the default and maximum time a search may take, including the time waiting to start
+     * @param scheduler        admits and schedules the solves
+     */
+    public SolveService(final BiFunction<Board, SearchControl, SlidingRobotsSearchAlgorithm> algorithmFactory,
+                        final long maxStates, final Duration maxTimeout, final SolveScheduler scheduler) {
+        iAlgorithmFactory = algorithmFactory;
+        iMaxStates = maxStates;
+        iMaxTimeout = maxTimeout;
+        iScheduler = scheduler;
+    }
+
+    public SolveScheduler getScheduler() {
+        return iScheduler;
+    }
+
+    /**
+     * @param maxStates the requested maximum number of states, or {@code <= 0} for the service maximum
+     * @param timeout   the requested timeout, or {@code null} for the service maximum
+     * @return a new search budget, capped by the service limits
+     */
+    public SearchControl newControl(final long maxStates, final Duration timeout) {
+        final long states = maxStates <= 0 ? iMaxStates : Math.min(maxStates, iMaxStates);
+        final Duration time = timeout == null || timeout.compareTo(iMaxTimeout) > 0 ? iMaxTimeout : timeout;
+        return new SearchControl(states, time);
+    }
+
+    /**
+     * @param mapOrSeed a map string or seed string
+     * @param control   the search budget, see {@link #newControl(long, Duration)}
+     * @throws IllegalArgumentException                                  if the map or seed string is not valid
+     * @throws net.booru.slidingrobots.algorithm.SearchAbortedException if the search is over budget
+     * @throws SolveRejectedException                                    if the scheduler does not admit the solve
+     */
+    public Solution solve(final String mapOrSeed, final SearchControl control) throws NoSolutionException {
+        return solve(Game.valueOf(mapOrSeed), control);
+    }
+
+    /**
+     * @param game    the game to solve
+     * @param control the search budget, see {@link #newControl(long, Duration)}
+     * @throws net.booru.slidingrobots.algorithm.SearchAbortedException if the search is over budget
+     * @throws SolveRejectedException                                    if the scheduler does not admit the solve
+     */
+    public Solution solve(final Game game, final SearchControl control) throws NoSolutionException {
+        return iScheduler.schedule(game, control, () ->
+                iAlgorithmFactory.apply(game.getBoard(), control).run(game.getInitialRobotsState(), game.getEndCriteria()));
+    }
+}
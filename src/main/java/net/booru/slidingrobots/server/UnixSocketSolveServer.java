@@ -0,0 +1,195 @@
+package net.booru.slidingrobots.server;
+
+import net.booru.slidingrobots.algorithm.NoSolutionException;
+import net.booru.slidingrobots.algorithm.SearchAbortedException;
+import net.booru.slidingrobots.algorithm.model.Solution;
+import net.booru.slidingrobots.state.RobotsStateUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A solve server for clients on the same host, on a unix domain socket with the {@link BinarySolveProtocol}.
+ * <p>
+ * Requests are pipelined: a connection may send many requests without waiting for the responses. Each request is
+ * solved on its own virtual thread and the response is written as soon as it is solved, so responses may come in any
+ * order and are matched to requests by the request id.
+ */
+public class UnixSocketSolveServer {
+    private static final Logger cLogger = LoggerFactory.getLogger(UnixSocketSolveServer.class);
+
+    /**
+     * The maximum number of requests in progress per connection, reading more requests waits until one is done.
+     */
+    private static final int MAX_IN_FLIGHT_PER_CONNECTION = 256;
+
+    private final Path iSocketPath;
+    private final SolveService iSolveService;
+    private final ServerSocketChannel iServerChannel;
+    private final ExecutorService iExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * @param socketPath   the socket file, an existing file is replaced
+     * @param solveService the service that solves the requests
+     */
+    public UnixSocketSolveServer(final Path socketPath, final SolveService solveService) throws IOException {
+        iSocketPath = socketPath;
+        iSolveService = solveService;
+        Files.deleteIfExists(socketPath);
+        iServerChannel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        iServerChannel.bind(UnixDomainSocketAddress.of(socketPath));
+    }
+
+    public void start() {
+        iExecutor.execute(this::acceptConnections);
+        cLogger.info("Solve server listening on unix socket {}", iSocketPath);
+    }
+
+    /**
+     * Stop accepting connections and wait for the requests in progress to finish, at most {@code gracePeriod}.
+     */
+    public void stop(final Duration gracePeriod) {
+        try {
+            iServerChannel.close();
+            iExecutor.shutdown();
+            if (!iExecutor.awaitTermination(gracePeriod.toMillis(), TimeUnit.MILLISECONDS)) {
+                iExecutor.shutdownNow();
+            }
+            Files.deleteIfExists(iSocketPath);
+        } catch (IOException e) {
+            cLogger.warn("Failed to remove socket file {}", iSocketPath, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    //-------------------------------------------------------------------------------------------------------------------------------------
+
+    private void acceptConnections() {
+        while (iServerChannel.isOpen()) {
+            try {
+                final SocketChannel channel = iServerChannel.accept();
+                iExecutor.execute(() -> readRequests(channel));
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                cLogger.warn("Failed to accept connection on {}", iSocketPath, e);
+            }
+        }
+    }
+
+    private void readRequests(final SocketChannel channel) {
+        final Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT_PER_CONNECTION);
+        final Lock writeLock = new ReentrantLock();
+        final ByteBuffer lengthBuffer = ByteBuffer.allocate(4);
+        try (channel) {
+            while (true) {
+                lengthBuffer.clear();
+                if (!readFully(channel, lengthBuffer)) {
+                    break; // connection closed by the client
+                }
+                final int length = lengthBuffer.flip().getInt();
+                if (length < 4 || length > BinarySolveProtocol.MAX_FRAME_LENGTH) {
+                    cLogger.warn("Closing connection, invalid frame length {}", length);
+                    break;
+                }
+
+                final ByteBuffer frame = ByteBuffer.allocate(length);
+                if (!readFully(channel, frame)) {
+                    throw new EOFException("connection closed within a frame");
+                }
+                frame.flip();
+
+                inFlight.acquireUninterruptibly();
+                iExecutor.execute(() -> {
+                    try {
+                        write(channel, writeLock, solve(frame));
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+
+            // let the requests in progress write their responses before closing
+            inFlight.acquireUninterruptibly(MAX_IN_FLIGHT_PER_CONNECTION);
+        } catch (IOException e) {
+            cLogger.debug("Connection closed: {}", e.getMessage());
+        }
+    }
+
+    private ByteBuffer solve(final ByteBuffer frame) {
+        final int requestId = BinarySolveProtocol.decodeRequestId(frame);
+        final BinarySolveProtocol.Request request;
+        try {
+            request = BinarySolveProtocol.decodeRequest(frame);
+        } catch (RuntimeException e) {
+            return BinarySolveProtocol.encodeResponse(requestId, BinarySolveProtocol.STATUS_INVALID, new byte[0]);
+        }
+
+        try {
+            final Duration timeout = request.timeoutMs() > 0 ? Duration.ofMillis(request.timeoutMs()) : null;
+            final Solution solution = iSolveService.solve(request.game(), iSolveService.newControl(0, timeout));
+            return BinarySolveProtocol.encodeResponse(requestId, BinarySolveProtocol.STATUS_SOLVED,
+                    RobotsStateUtil.toPackedMoves(solution.getSolutionPath()));
+        } catch (NoSolutionException e) {
+            return BinarySolveProtocol.encodeResponse(requestId, BinarySolveProtocol.STATUS_NO_SOLUTION, new byte[0]);
+        } catch (SearchAbortedException e) {
+            return BinarySolveProtocol.encodeResponse(requestId, BinarySolveProtocol.STATUS_ABORTED, new byte[0]);
+        } catch (SolveRejectedException e) {
+            return BinarySolveProtocol.encodeResponse(requestId, BinarySolveProtocol.STATUS_REJECTED, new byte[0]);
+        } catch (RuntimeException e) {
+            cLogger.error("Failed to solve request {}", requestId, e);
+            return BinarySolveProtocol.encodeResponse(requestId, BinarySolveProtocol.STATUS_INVALID, new byte[0]);
+        }
+    }
+
+    /**
+     * Responses of concurrent requests are written one at a time. A lock rather than synchronized, so that a virtual
+     * thread blocked in write does not pin its carrier thread.
+     */
+    private static void write(final SocketChannel channel, final Lock writeLock, final ByteBuffer response) {
+        writeLock.lock();
+        try {
+            while (response.hasRemaining()) {
+                channel.write(response);
+            }
+        } catch (IOException e) {
+            cLogger.debug("Failed to write response: {}", e.getMessage());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * @return false if the channel is closed before the first byte
+     */
+    private static boolean readFully(final SocketChannel channel, final ByteBuffer buffer) throws IOException {
+        final boolean isEmpty = buffer.position() == 0;
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                if (isEmpty && buffer.position() == 0) {
+                    return false;
+                }
+                throw new EOFException("connection closed within a frame");
+            }
+        }
+        return true;
+    }
+}
@@ -54,6 +54,63 @@ public final class Board {
         iStartPosition = startPosition;
     }
 
+    public int getWidth() {
+        return iWidth;
+    }
+
+    public int getHeight() {
+        return iHeight;
+    }
+
+    /**
+     * @return the immovable piece at (x,y), or {@link Piece#empty}
+     */
+    public Piece getPiece(final int x, final int y) {
+        return iImmutableBoard[x][y];
+    }
+
+    /**
+     * Create a map string that is the same for all equal games, regardless of the piece order in the string the game
+     * was created from. The immovable pieces are listed in column order followed by the robots in robot index order.
+     *
+     * @param robotsState the robot positions
+     * @param isOneWay    true if the game is one way
+     * @return a map string that can be parsed by {@link Game#valueOfMap(String)}
+     */
+    public String toNormalizedMapString(final RobotsState robotsState, final boolean isOneWay) {
+        final StringBuilder sb = new StringBuilder(200);
+        sb.append("map:").append(iWidth).append(':').append(iHeight);
+        if (isOneWay) {
+            sb.append(":oneway");
+        }
+
+        for (int x = 0; x < iWidth; x++) {
+            for (int y = 0; y < iHeight; y++) {
+                final Piece piece = iImmutableBoard[x][y];
+                if (piece == Piece.blocker || piece == Piece.goal) {
+                    sb.append(':').append(piece.name()).append(':').append(x).append(':').append(y);
+                }
+            }
+        }
+
+        for (int i = 0; i < robotsState.getRobotCount(); i++) {
+            final Piece piece = i == 0 ? Piece.main_robot : Piece.helper_robot;
+            sb.append(':').append(piece.name())
+                    .append(':').append(robotsState.getPositionX(i))
+                    .append(':').append(robotsState.getPositionY(i));
+        }
+
+        return sb.toString();
+    }
+
+    public Point getGoalPosition() {
+        return iGoalPosition;
+    }
+
+    public Point getStartPosition() {
+        return iStartPosition;
+    }
+
     public boolean isGoalReached(final RobotsState robotsState) {
         return robotsState.getPositionX(0) == iGoalPosition.x && robotsState.getPositionY(0) == iGoalPosition.y;
     }
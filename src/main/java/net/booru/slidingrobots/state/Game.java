@@ -143,6 +143,54 @@ public class Game {
         return new Game(isOneWay, board, initialRobotsState, mapString, seedString);
     }
 
+    /**
+     * Create a game from the piece of each cell, without going through a map string.
+     *
+     * @param width    the board width
+     * @param height   the board height
+     * @param isOneWay true if the game is one way
+     * @param cells    the piece of each cell in row major order, {@code cells[y * width + x]}. Only
+     *                 {@link Piece#blocker}, {@link Piece#goal}, {@link Piece#main_robot}, {@link Piece#helper_robot}
+     *                 and {@link Piece#empty} are allowed, the main robot cell is also the start. Helper robots are
+     *                 indexed in row major order.
+     * @return the new game, with its normalized map string as map string
+     */
+    public static Game valueOfCells(final int width, final int height, final boolean isOneWay, final Piece[] cells) {
+        if (cells.length != width * height) {
+            throw new IllegalArgumentException("expected " + width * height + " cells, got " + cells.length);
+        }
+
+        final List<Pair<Point, Piece>> pieces = new ArrayList<>(20);
+        final List<Pair<Point, Piece>> robotList = new ArrayList<>(4);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                final Piece piece = cells[y * width + x];
+                final Point position = new Point(x, y);
+                switch (piece) {
+                    case empty -> {
+                        // nothing to add
+                    }
+                    case blocker, goal -> pieces.add(Pair.of(position, piece));
+                    case main_robot -> {
+                        pieces.add(Pair.of(position, Piece.start));
+                        pieces.add(Pair.of(position, piece));
+                        robotList.add(Pair.of(position, piece));
+                    }
+                    case helper_robot -> {
+                        pieces.add(Pair.of(position, piece));
+                        robotList.add(Pair.of(position, piece));
+                    }
+                    default -> throw new IllegalArgumentException("Unexpected cell piece: " + piece);
+                }
+            }
+        }
+
+        final Board board = new Board(pieces, width, height);
+        final RobotsState initialRobotsState = RobotsState.valueOf(robotList);
+        return new Game(isOneWay, board, initialRobotsState, board.toNormalizedMapString(initialRobotsState, isOneWay),
+                "seed:0:0:0000-0000");
+    }
+
     /**
      * Accept 2d boards with or without space between pieces on a row.
      * E.g.
@@ -198,6 +246,13 @@ public class Game {
         return iSeedString;
     }
 
+    /**
+     * @return the map string of this game in a canonical form, see {@link Board#toNormalizedMapString(RobotsState, boolean)}
+     */
+    public String getNormalizedMapString() {
+        return iBoard.toNormalizedMapString(iInitialRobotsState, iIsOneWay);
+    }
+
     public RobotsState getInitialRobotsState() {
         return iInitialRobotsState;
     }
@@ -4,6 +4,7 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import net.booru.slidingrobots.algorithm.model.Node;
+import net.booru.slidingrobots.algorithm.model.Waypoint;
 import net.booru.slidingrobots.common.Direction;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -174,6 +175,71 @@ public final class RobotsStateUtil {
         return moves;
     }
 
+    /**
+     * Pack the moves of a solution path into one byte per move, {@code robotIndex << 2 | direction.ordinal()}.
+     *
+     * @param states a sequence of states where for each pair of consecutive states only one robot has moved.
+     * @return the packed moves, see {@link #replayPackedMoves(Board, RobotsState, List, byte[])}
+     */
+    public static byte[] toPackedMoves(final List<RobotsState> states) {
+        final byte[] moves = new byte[Math.max(0, states.size() - 1)];
+        for (int i = 1; i < states.size(); i++) {
+            final RobotsState previousState = states.get(i - 1);
+            final RobotsState currentState = states.get(i);
+            final int robotIndex = getRobotIndexOfFirstDifference(previousState, currentState);
+            final Direction direction = getRobotMovementDirection(previousState, currentState);
+            moves[i - 1] = packMove(robotIndex, direction);
+        }
+        return moves;
+    }
+
+    public static byte packMove(final int robotIndex, final Direction direction) {
+        return (byte) (robotIndex << 2 | direction.ordinal());
+    }
+
+    public static int unpackRobotIndex(final byte packedMove) {
+        return (packedMove & 0xFF) >> 2;
+    }
+
+    public static Direction unpackDirection(final byte packedMove) {
+        return Direction.values()[packedMove & 0b11];
+    }
+
+    /**
+     * Rebuild a solution path by making the packed moves on the board. Waypoints are updated as in a search, so the
+     * resulting states are the same as in the path the moves were packed from.
+     *
+     * @param board       the board to make the moves on
+     * @param startState  the state before the first move
+     * @param waypoints   the waypoints of the game
+     * @param packedMoves the moves, see {@link #toPackedMoves(List)}
+     * @return the path from (and including) the start state
+     */
+    public static List<RobotsState> replayPackedMoves(final Board board, final RobotsState startState,
+                                                      final List<Waypoint> waypoints, final byte[] packedMoves) {
+        final List<RobotsState> path = new ArrayList<>(packedMoves.length + 1);
+        RobotsState state = startState;
+        path.add(state);
+        for (byte packedMove : packedMoves) {
+            state = updateWaypointsReached(board.makeMove(unpackRobotIndex(packedMove), unpackDirection(packedMove), state),
+                    waypoints);
+            path.add(state);
+        }
+        return path;
+    }
+
+    /**
+     * @return {@code state} with all consecutively satisfied waypoints counted as reached
+     */
+    public static RobotsState updateWaypointsReached(final RobotsState state, final List<Waypoint> waypoints) {
+        RobotsState current = state;
+        while (current.getWaypointsReached() < waypoints.size()
+                && waypoints.get(current.getWaypointsReached()).isSatisfied(current)) {
+            current = current.withNextGoal();
+        }
+        return current;
+    }
+
     /**
      * Find the first robot index where the states differ.
      *
@@ -205,4 +271,35 @@ public final class RobotsStateUtil {
         throw new IllegalArgumentException("The two states do not differ");
     }
 
+    /**
+     * @param state          the state after the move
+     * @param robotThatMoved the robot that moved
+     * @param moveDirection  the direction it moved
+     * @return the number of other robots that the moved robot stopped against
+     */
+    public static int countBumps(final RobotsState state, final int robotThatMoved, final Direction moveDirection) {
+        final int positionX = state.getPositionX(robotThatMoved);
+        final int positionY = state.getPositionY(robotThatMoved);
+
+        int bumpCount = 0;
+        for (int otherRobot = 0; otherRobot < state.getRobotCount(); otherRobot++) {
+            if (otherRobot == robotThatMoved) {
+                continue;
+            }
+
+            final int xDist = Math.abs(positionX - state.getPositionX(otherRobot));
+            final int yDist = Math.abs(positionY - state.getPositionY(otherRobot));
+            if (moveDirection == Direction.down || moveDirection == Direction.up) {
+                if (xDist == 0 && yDist == 1) {
+                    bumpCount++;
+                }
+            } else { // left/right
+                if (xDist == 1 && yDist == 0) {
+                    bumpCount++;
+                }
+            }
+        }
+
+        return bumpCount;
+    }
 }
@@ -0,0 +1,94 @@
+package net.booru.slidingrobots.state.seed;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * A reproducible source of random seed strings.
+ * <p>
+ * All randomness comes from a single master seed. Workers that generate seeds in parallel should each get their own
+ * {@link #split()}, which is independent of the parent and does not contend with it. Given the same master seed and the
+ * same order of splits, a whole generator run can be repeated exactly.
+ */
+public final class SeedSource {
+    private final long iMasterSeed;
+    private final SplittableRandom iRandom;
+
+    /**
+     * @param masterSeed the seed that the whole sequence of generated seed strings is derived from
+     */
+    public SeedSource(final long masterSeed) {
+        this(masterSeed, new SplittableRandom(masterSeed));
+    }
+
+    private SeedSource(final long masterSeed, final SplittableRandom random) {
+        iMasterSeed = masterSeed;
+        iRandom = random;
+    }
+
+    /**
+     * @return a source with a random master seed, use {@link #getMasterSeed()} to be able to reproduce it.
+     */
+    public static SeedSource withRandomMasterSeed() {
+        return new SeedSource(new SplittableRandom().nextLong());
+    }
+
+    /**
+     * @return the master seed of this source, or of the source this was split from.
+     */
+    public long getMasterSeed() {
+        return iMasterSeed;
+    }
+
+    /**
+     * @return a new independent source, intended to be owned by a single worker thread.
+     */
+    public SeedSource split() {
+        return new SeedSource(iMasterSeed, iRandom.split());
+    }
+
+    /**
+     * @param workerCount the number of workers
+     * @return one independent source per worker, in a deterministic order
+     */
+    public List<SeedSource> split(final int workerCount) {
+        return iRandom.splits(workerCount)
+                .map(random -> new SeedSource(iMasterSeed, (SplittableRandom) random))
+                .toList();
+    }
+
+    /**
+     * @see SeedUtils#generateSeedString(int, int, boolean)
+     */
+    public String nextSeedString(final int dimX, final int dimY, final boolean isOneWay) {
+        return SeedUtils.generateSeedString(iRandom, dimX, dimY, isOneWay);
+    }
+
+    /**
+     * Fill {@code buffer} with {@code count} seeds (e.g. ABCD-EFGH), each {@link SeedUtils#SEED_LENGTH} chars long
+     * and stored back to back starting at {@code offset}. No strings are created.
+     *
+     * @param buffer the buffer to fill, must have room for {@code count * SEED_LENGTH} chars from {@code offset}
+     * @param offset the first index in {@code buffer} to write to
+     * @param count  the number of seeds to write
+     */
+    public void nextSeeds(final char[] buffer, final int offset, final int count) {
+        if (offset + count * SeedUtils.SEED_LENGTH > buffer.length) {
+            throw new IllegalArgumentException("buffer too small for " + count + " seeds");
+        }
+
+        for (int i = 0; i < count; i++) {
+            SeedUtils.fillSeed(iRandom, buffer, offset + i * SeedUtils.SEED_LENGTH);
+        }
+    }
+
+    /**
+     * @param count the number of seeds
+     * @return a new buffer with {@code count} seeds, see {@link #nextSeeds(char[], int, int)}
+     */
+    public char[] nextSeeds(final int count) {
+        final char[] buffer = new char[count * SeedUtils.SEED_LENGTH];
+        nextSeeds(buffer, 0, count);
+        return buffer;
+    }
+}
@@ -1,15 +1,16 @@
 package net.booru.slidingrobots.state.seed;
 
 import java.util.Arrays;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
 
 public class SeedUtils {
-    public static final Random RANDOM = new Random();
-
     // Compatible with preexisting implentations
     public static final String ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZ1234567890";
     // Compatible with preexisting implentations
     public static final int SEED_LENGTH = 9;
+    // The number of distinct seeds, 8 alphabet characters (the dash is fixed)
+    public static final long SEED_SPACE_SIZE = pow(ALPHABET.length(), SEED_LENGTH - 1);
 
     private SeedUtils() {
     }
@@ -23,17 +24,119 @@ public class SeedUtils {
      * @return the seed string that us used to generate a map
      */
     public static String generateSeedString(final int dimX, final int dimY, final boolean isOneWay) {
+        return generateSeedString(ThreadLocalRandom.current(), dimX, dimY, isOneWay);
+    }
+
+    /**
+     * Generate a map seed that is compatible with the erlang backed, see {@link SeedSource} for reproducible seeds.
+     *
+     * @param random   the random generator to draw the seed from
+     * @param dimX     size of the map to generate in x dim
+     * @param dimY     size of the map to generate in y dim
+     * @param isOneWay true if we want to generate a game map that is one way.
+     * @return the seed string that us used to generate a map
+     */
+    public static String generateSeedString(final RandomGenerator random, final int dimX, final int dimY,
+                                            final boolean isOneWay) {
         final char[] seedString = new char[SEED_LENGTH];
+        fillSeed(random, seedString, 0);
+
+        return new Seed(dimX, dimY, isOneWay, new String(seedString), 0).toString();
+    }
+
+    /**
+     * Write a random seed, e.g. ABCD-EFGH, of {@link #SEED_LENGTH} chars into {@code buffer} starting at {@code offset}.
+     */
+    static void fillSeed(final RandomGenerator random, final char[] buffer, final int offset) {
         for (int i = 0; i < SEED_LENGTH; i++) {
             if (i == 4) {
-                seedString[i] = '-';
+                buffer[offset + i] = '-';
             } else {
-                final int pos = RANDOM.nextInt(ALPHABET.length());
-                seedString[i] = ALPHABET.charAt(pos);
+                final int pos = random.nextInt(ALPHABET.length());
+                buffer[offset + i] = ALPHABET.charAt(pos);
             }
         }
+    }
 
-        return new Seed(dimX, dimY, isOneWay, new String(seedString), 0).toString();
+    /**
+     * Write the seed, e.g. ABCD-EFGH, with the given position in the enumeration of all seeds into {@code buffer}.
+     * Index 0 is AAAA-AAAA and the last character varies fastest.
+     *
+     * @param seedIndex the index in [0, {@link #SEED_SPACE_SIZE})
+     * @param buffer    the buffer to write {@link #SEED_LENGTH} chars to
+     * @param offset    the first index in {@code buffer} to write to
+     */
+    public static void seedFromIndex(final long seedIndex, final char[] buffer, final int offset) {
+        if (seedIndex < 0 || seedIndex >= SEED_SPACE_SIZE) {
+            throw new IllegalArgumentException("seed index out of range: " + seedIndex);
+        }
+
+        final int base = ALPHABET.length();
+        long remaining = seedIndex;
+        for (int i = SEED_LENGTH - 1; i >= 0; i--) {
+            if (i == 4) {
+                buffer[offset + i] = '-';
+            } else {
+                buffer[offset + i] = ALPHABET.charAt((int) (remaining % base));
+                remaining /= base;
+            }
+        }
+    }
+
+    /**
+     * @param seedIndex the index in [0, {@link #SEED_SPACE_SIZE})
+     * @return the seed, e.g. ABCD-EFGH, see {@link #seedFromIndex(long, char[], int)}
+     */
+    public static String seedFromIndex(final long seedIndex) {
+        final char[] seed = new char[SEED_LENGTH];
+        seedFromIndex(seedIndex, seed, 0);
+        return new String(seed);
+    }
+
+    /**
+     * @param seed a seed, e.g. ABCD-EFGH
+     * @return the position of {@code seed} in the enumeration of all seeds, see {@link #seedFromIndex(long, char[], int)}
+     */
+    public static long seedIndex(final String seed) {
+        if (seed.length() != SEED_LENGTH) {
+            throw new IllegalArgumentException("seed must have length " + SEED_LENGTH + ": " + seed);
+        }
+
+        long index = 0;
+        for (int i = 0; i < SEED_LENGTH; i++) {
+            if (i != 4) {
+                final int digit = ALPHABET.indexOf(seed.charAt(i));
+                if (digit < 0) {
+                    throw new IllegalArgumentException("seed contains characters outside the alphabet: " + seed);
+                }
+                index = index * ALPHABET.length() + digit;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Compute hash of a seed from the erlang backend without creating a string, see {@link #seedStringHash(String)}.
+     *
+     * @param buffer the buffer holding the seed, e.g. ABCD-EFGH
+     * @param offset the index of the first seed char in {@code buffer}
+     * @return an integer hash of the seed
+     */
+    public static int seedHash(final char[] buffer, final int offset) {
+        int hash = 0;
+        for (int i = 0; i < SEED_LENGTH; i++) {
+            hash = (hash << 5) - hash + (byte) buffer[offset + i];
+        }
+
+        return hash;
+    }
+
+    private static long pow(final int base, final int exponent) {
+        long result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result *= base;
+        }
+        return result;
     }
 
     /**
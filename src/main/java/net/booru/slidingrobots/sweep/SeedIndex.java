@@ -0,0 +1,266 @@
+package net.booru.slidingrobots.sweep;
+
+import net.booru.slidingrobots.state.seed.Seed;
+import net.booru.slidingrobots.state.seed.SeedUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * A compact, append-only binary file of solved seeds.
+ * <p>
+ * <pre>
+ * header (16 bytes): magic:int, version:short, dimX:byte, dimY:byte, oneWay:byte, padding
+ * record (16 bytes): seedIndex:long, solutionLength:byte, bumps:byte, solutions0:char, solutions1:char, solutions2:char
+ * </pre>
+ * All board dimensions of the seeds in one file are the same, they are stored once in the header.
+ */
+public final class SeedIndex implements Closeable {
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 16;
+    private static final int MAGIC = 0x53524958; // "SRIX"
+    private static final short VERSION = 1;
+
+    private final Path iPath;
+    private final Header iHeader;
+    private final FileChannel iChannel;
+
+    public record Header(int dimX, int dimY, boolean isOneWay) {
+        /**
+         * @param seedIndex the index of a seed
+         * @return the full seed string, e.g. seed:8:8:ABCD-EFGH
+         */
+        public String toSeedString(final long seedIndex) {
+            return new Seed(dimX, dimY, isOneWay, SeedUtils.seedFromIndex(seedIndex), 0).toString();
+        }
+    }
+
+    private SeedIndex(final Path path, final Header header, final FileChannel channel) {
+        iPath = path;
+        iHeader = header;
+        iChannel = channel;
+    }
+
+    /**
+     * Open an index for appending, the file is created if it does not exist.
+     *
+     * @throws IllegalArgumentException if an existing file was created for other board dimensions
+     */
+    public static SeedIndex openForAppend(final Path path, final Header header) throws IOException {
+        final boolean isNew = !Files.exists(path) || Files.size(path) == 0;
+        final FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        if (isNew) {
+            final ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+            buffer.putInt(MAGIC).putShort(VERSION)
+                    .put((byte) header.dimX()).put((byte) header.dimY()).put((byte) (header.isOneWay() ? 1 : 0));
+            buffer.position(HEADER_SIZE).flip();
+            writeFully(channel, buffer, 0);
+        } else {
+            final Header existing = readHeader(channel, path);
+            if (!existing.equals(header)) {
+                channel.close();
+                throw new IllegalArgumentException("Index " + path + " is for " + existing + ", not " + header);
+            }
+        }
+
+        return new SeedIndex(path, header, channel);
+    }
+
+    public Header getHeader() {
+        return iHeader;
+    }
+
+    public long getRecordCount() throws IOException {
+        return (iChannel.size() - HEADER_SIZE) / RECORD_SIZE;
+    }
+
+    /**
+     * Discard all records after the first {@code recordCount}, e.g. records written after the last checkpoint.
+     */
+    public void truncate(final long recordCount) throws IOException {
+        iChannel.truncate(HEADER_SIZE + recordCount * RECORD_SIZE);
+    }
+
+    public void append(final Collection<SeedIndexRecord> records) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(records.size() * RECORD_SIZE);
+        for (SeedIndexRecord record : records) {
+            buffer.putLong(record.seedIndex())
+                    .put((byte) Math.min(record.solutionLength(), Byte.MAX_VALUE))
+                    .put((byte) Math.min(record.bumps(), Byte.MAX_VALUE))
+                    .putChar(toUnsignedChar(record.solutions0()))
+                    .putChar(toUnsignedChar(record.solutions1()))
+                    .putChar(toUnsignedChar(record.solutions2()));
+        }
+        buffer.flip();
+        writeFully(iChannel, buffer, iChannel.size());
+    }
+
+    /**
+     * Make sure all appended records are on disk.
+     */
+    public void force() throws IOException {
+        iChannel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        iChannel.close();
+    }
+
+    @Override
+    public String toString() {
+        return iPath + " " + iHeader;
+    }
+
+    //-------------------------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Stream all records of an index file in the order they were written.
+     *
+     * @return the header of the file
+     */
+    public static Header forEach(final Path path, final Consumer<SeedIndexRecord> consumer) throws IOException {
+        try (final Reader reader = openReader(path)) {
+            for (SeedIndexRecord record = reader.next(); record != null; record = reader.next()) {
+                consumer.accept(record);
+            }
+            return reader.getHeader();
+        }
+    }
+
+    /**
+     * Open an index file for reading its records one at a time, in the order they were written.
+     */
+    public static Reader openReader(final Path path) throws IOException {
+        final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new Reader(channel, readHeader(channel, path));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the records of an index file, see {@link #openReader(Path)}.
+     */
+    public static final class Reader implements Closeable {
+        private final FileChannel iChannel;
+        private final Header iHeader;
+        private final ByteBuffer iBuffer = ByteBuffer.allocate(RECORD_SIZE * 4096);
+        private long iPosition = HEADER_SIZE;
+
+        private Reader(final FileChannel channel, final Header header) {
+            iChannel = channel;
+            iHeader = header;
+            iBuffer.flip(); // empty
+        }
+
+        public Header getHeader() {
+            return iHeader;
+        }
+
+        /**
+         * @return the next record, or null after the last record
+         */
+        public SeedIndexRecord next() throws IOException {
+            if (iBuffer.remaining() < RECORD_SIZE) {
+                iBuffer.compact();
+                while (iBuffer.position() < RECORD_SIZE) {
+                    final int read = iChannel.read(iBuffer, iPosition);
+                    if (read <= 0) {
+                        iBuffer.flip();
+                        return null; // a partial record at the end is ignored
+                    }
+                    iPosition += read;
+                }
+                iBuffer.flip();
+            }
+            return new SeedIndexRecord(
+                    iBuffer.getLong(),
+                    iBuffer.get(),
+                    iBuffer.get(),
+                    iBuffer.getChar(),
+                    iBuffer.getChar(),
+                    iBuffer.getChar());
+        }
+
+        @Override
+        public void close() throws IOException {
+            iChannel.close();
+        }
+    }
+
+    /**
+     * Find seeds with a given optimal solution length.
+     *
+     * @param indexFiles     the index files to search, in order
+     * @param solutionLength the wanted optimal number of moves
+     * @param limit          the maximum number of seeds to return
+     * @param excludedSeeds  seed strings that should not be returned, e.g. seeds that are already used in a world
+     * @return at most {@code limit} seed strings, e.g. seed:8:8:ABCD-EFGH
+     */
+    public static List<String> query(final List<Path> indexFiles, final int solutionLength, final int limit,
+                                     final Set<String> excludedSeeds) throws IOException {
+        final List<String> result = new ArrayList<>(limit);
+        for (Path indexFile : indexFiles) {
+            final List<Long> matches = new ArrayList<>();
+            final Header header = forEach(indexFile, record -> {
+                if (record.solutionLength() == solutionLength && matches.size() < limit + excludedSeeds.size()) {
+                    matches.add(record.seedIndex());
+                }
+            });
+
+            for (long seedIndex : matches) {
+                final String seedString = header.toSeedString(seedIndex);
+                if (result.size() < limit && !excludedSeeds.contains(seedString)) {
+                    result.add(seedString);
+                }
+            }
+            if (result.size() == limit) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    //-------------------------------------------------------------------------------------------------------------------------------------
+
+    private static Header readHeader(final FileChannel channel, final Path path) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+        channel.read(buffer, 0);
+        buffer.flip();
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a seed index file: " + path);
+        }
+        final short version = buffer.getShort();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported seed index version " + version + ": " + path);
+        }
+        return new Header(buffer.get(), buffer.get(), buffer.get() == 1);
+    }
+
+    private static void writeFully(final FileChannel channel, final ByteBuffer buffer, final long position)
+            throws IOException {
+        long writePosition = position;
+        while (buffer.hasRemaining()) {
+            writePosition += channel.write(buffer, writePosition);
+        }
+    }
+
+    private static char toUnsignedChar(final int value) {
+        return (char) Math.min(Math.max(value, 0), Character.MAX_VALUE);
+    }
+}
@@ -0,0 +1,31 @@
+package net.booru.slidingrobots.sweep;
+
+/**
+ * One solved seed in a {@link SeedIndex}.
+ *
+ * @param seedIndex      the position of the seed in the enumeration of all seeds, see
+ *                       {@link net.booru.slidingrobots.state.seed.SeedUtils#seedFromIndex(long)}
+ * @param solutionLength the optimal number of moves, or {@link #NO_SOLUTION}
+ * @param bumps          the number of bumps of the found optimal solution
+ * @param solutions0     the number of solutions of optimal length
+ * @param solutions1     the number of solutions of optimal length + 1
+ * @param solutions2     the number of solutions of optimal length + 2
+ */
+public record SeedIndexRecord(
+        long seedIndex,
+        int solutionLength,
+        int bumps,
+        int solutions0,
+        int solutions1,
+        int solutions2
+) {
+    public static final int NO_SOLUTION = -1;
+
+    public static SeedIndexRecord noSolution(final long seedIndex) {
+        return new SeedIndexRecord(seedIndex, NO_SOLUTION, 0, 0, 0, 0);
+    }
+
+    public boolean hasSolution() {
+        return solutionLength != NO_SOLUTION;
+    }
+}
@@ -0,0 +1,188 @@
+package net.booru.slidingrobots.sweep;
+
+import net.booru.slidingrobots.algorithm.NoSolutionException;
+import net.booru.slidingrobots.algorithm.SlidingRobotsSearchAlgorithm;
+import net.booru.slidingrobots.algorithm.model.Solution;
+import net.booru.slidingrobots.algorithm.model.Statistics;
+import net.booru.slidingrobots.common.Timer;
+import net.booru.slidingrobots.rank.BumpsCounter;
+import net.booru.slidingrobots.state.Board;
+import net.booru.slidingrobots.state.Game;
+import net.booru.slidingrobots.state.seed.SeedUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.function.Function;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Solves every seed in a contiguous range of the seed space and stores the results in a {@link SeedIndex}.
+ * <p>
+ * The seed space is split into {@code shardCount} equally sized contiguous shards, so that independent processes or
+ * machines can each sweep their own shard. Each shard has its own index file and a checkpoint file. A sweep that is
+ * stopped can be restarted with the same arguments and will continue after the last checkpoint.
+ */
+public class SeedSweeper {
+    private static final Logger cLogger = LoggerFactory.getLogger(SeedSweeper.class);
+
+    private static final int BLOCK_SIZE = 1024;
+    private static final String KEY_NEXT_SEED_INDEX = "nextSeedIndex";
+    private static final String KEY_RECORD_COUNT = "recordCount";
+
+    private final SeedIndex.Header iHeader;
+    private final Function<Board, SlidingRobotsSearchAlgorithm> iAlgorithmFactory;
+    private final BumpsCounter iBumpsCounter = new BumpsCounter();
+
+    /**
+     * @param header           the board dimensions of the seeds to sweep
+     * @param algorithmFactory creates the solver, it should keep solutions of at least best + 2 moves
+     */
+    public SeedSweeper(final SeedIndex.Header header, final Function<Board, SlidingRobotsSearchAlgorithm> algorithmFactory) {
+        iHeader = header;
+        iAlgorithmFactory = algorithmFactory;
+    }
+
+    /**
+     * @param indexFileBase the base name of the index files, e.g. sweeps/8x8
+     * @param shardIndex    the shard in [0, shardCount)
+     * @param shardCount    the number of shards
+     * @return the index file of the shard, e.g. sweeps/8x8-shard-3-of-16.idx
+     */
+    public static Path getShardIndexFile(final String indexFileBase, final int shardIndex, final int shardCount) {
+        return Path.of("%s-shard-%d-of-%d.idx".formatted(indexFileBase, shardIndex, shardCount));
+    }
+
+    /**
+     * @param indexFileBase the base name of the index files
+     * @return all shard index files, of any shard count, with the given base name
+     */
+    public static List<Path> findShardIndexFiles(final String indexFileBase) throws IOException {
+        final Path base = Path.of(indexFileBase).toAbsolutePath();
+        final String prefix = base.getFileName() + "-shard-";
+        try (Stream<Path> files = Files.list(base.getParent())) {
+            return files.filter(path -> path.getFileName().toString().startsWith(prefix))
+                    .filter(path -> path.getFileName().toString().endsWith(".idx"))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /**
+     * @return the first seed index of the shard, inclusive. The end of the shard is the start of the next shard.
+     */
+    static long getShardStart(final int shardIndex, final int shardCount) {
+        final long shardSize = SeedUtils.SEED_SPACE_SIZE / shardCount;
+        final long remainder = SeedUtils.SEED_SPACE_SIZE % shardCount;
+        return shardIndex * shardSize + Math.min(shardIndex, remainder);
+    }
+
+    /**
+     * Sweep the shard, starting from the last checkpoint if there is one.
+     *
+     * @param indexFileBase the base name of the index files, see {@link #getShardIndexFile(String, int, int)}
+     * @param shardIndex    the shard in [0, shardCount)
+     * @param shardCount    the number of shards
+     * @param maxSeeds      the maximum number of seeds to solve in this run, or {@code <= 0} to finish the shard
+     */
+    public void sweep(final String indexFileBase, final int shardIndex, final int shardCount, final long maxSeeds)
+            throws IOException {
+        if (shardIndex < 0 || shardIndex >= shardCount) {
+            throw new IllegalArgumentException("expected 0 <= shard < shardCount, got " + shardIndex + "/" + shardCount);
+        }
+
+        final Path indexFile = getShardIndexFile(indexFileBase, shardIndex, shardCount);
+        final Path checkpointFile = Path.of(indexFile + ".checkpoint");
+        final long shardEnd = getShardStart(shardIndex + 1, shardCount);
+
+        try (final SeedIndex index = SeedIndex.openForAppend(indexFile, iHeader)) {
+            long nextSeedIndex = getShardStart(shardIndex, shardCount);
+            if (Files.exists(checkpointFile)) {
+                final Properties checkpoint = readCheckpoint(checkpointFile);
+                nextSeedIndex = Long.parseLong(checkpoint.getProperty(KEY_NEXT_SEED_INDEX));
+                index.truncate(Long.parseLong(checkpoint.getProperty(KEY_RECORD_COUNT))); // drop uncommitted records
+            } else {
+                index.truncate(0);
+            }
+
+            final long runEnd = maxSeeds <= 0 ? shardEnd : Math.min(shardEnd, nextSeedIndex + maxSeeds);
+            cLogger.info("Sweeping shard {}/{} of {}, seeds [{}, {}) of shard end {}",
+                    shardIndex, shardCount, iHeader, nextSeedIndex, runEnd, shardEnd);
+
+            final Timer timer = new Timer();
+            long solvedCount = 0;
+            while (nextSeedIndex < runEnd) {
+                final long blockEnd = Math.min(runEnd, nextSeedIndex + BLOCK_SIZE);
+                final SeedIndexRecord[] records = LongStream.range(nextSeedIndex, blockEnd)
+                        .parallel()
+                        .mapToObj(this::solve)
+                        .toArray(SeedIndexRecord[]::new);
+
+                index.append(Arrays.asList(records));
+                index.force();
+                writeCheckpoint(checkpointFile, blockEnd, index.getRecordCount());
+
+                solvedCount += records.length;
+                nextSeedIndex = blockEnd;
+
+                timer.stop();
+                cLogger.info("Shard {}/{}: {} seeds solved, {} seeds/s, next seed index {}",
+                        shardIndex, shardCount, solvedCount, Math.round(solvedCount / (timer.getDurationMillis() / 1000.0)),
+                        nextSeedIndex);
+            }
+
+            if (nextSeedIndex == shardEnd) {
+                cLogger.info("Shard {}/{} is complete: {}", shardIndex, shardCount, indexFile);
+            }
+        }
+    }
+
+    SeedIndexRecord solve(final long seedIndex) {
+        final Game game = Game.valueOfSeed(iHeader.toSeedString(seedIndex));
+        try {
+            final SlidingRobotsSearchAlgorithm searchAlgorithm = iAlgorithmFactory.apply(game.getBoard());
+            final Solution solution = searchAlgorithm.run(game.getInitialRobotsState(), game.getEndCriteria());
+            final Statistics statistics = solution.getStatistics();
+
+            return new SeedIndexRecord(
+                    seedIndex,
+                    statistics.getSolutionLength(),
+                    iBumpsCounter.apply(solution),
+                    statistics.getSolutionLengthCount(0),
+                    statistics.getSolutionLengthCount(1),
+                    statistics.getSolutionLengthCount(2));
+        } catch (NoSolutionException e) {
+            return SeedIndexRecord.noSolution(seedIndex);
+        }
+    }
+
+    private static Properties readCheckpoint(final Path checkpointFile) throws IOException {
+        final Properties checkpoint = new Properties();
+        try (final Reader reader = Files.newBufferedReader(checkpointFile)) {
+            checkpoint.load(reader);
+        }
+        return checkpoint;
+    }
+
+    private static void writeCheckpoint(final Path checkpointFile, final long nextSeedIndex, final long recordCount)
+            throws IOException {
+        final Properties checkpoint = new Properties();
+        checkpoint.setProperty(KEY_NEXT_SEED_INDEX, Long.toString(nextSeedIndex));
+        checkpoint.setProperty(KEY_RECORD_COUNT, Long.toString(recordCount));
+
+        final Path temporaryFile = Path.of(checkpointFile + ".tmp");
+        try (final Writer writer = Files.newBufferedWriter(temporaryFile)) {
+            checkpoint.store(writer, "seed sweep checkpoint");
+        }
+        Files.move(temporaryFile, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
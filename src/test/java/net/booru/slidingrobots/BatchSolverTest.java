@@ -0,0 +1,91 @@
+package net.booru.slidingrobots;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.booru.slidingrobots.algorithm.BreadthFirstSearchIterative;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchSolverTest {
+    private static final String MAP = "m:4:4,b:1:0,b:1:1,b:2:1,b:0:3,r:0:0,g:2:0";
+    private static final String UNSOLVABLE_MAP = "m:4:4,r:0:0,b:2:0,b:2:1,b:0:2,b:1:2,h:2:2,g:3:3";
+    private static final String FAILING_MAP = "m:5:5,r:0:0,g:4:4";
+
+    @Test
+    void testSolveBatch() throws IOException {
+        final String input = String.join("\n",
+                "seed:8:8:EO8T-0MXD",
+                MAP,
+                "",
+                "{\"seedString\":\"seed:9:8:Z8GZ-4KCM\",\"other\":1}",
+                "{\"mapString\":\"" + MAP + "\"}",
+                "not a map",
+                "{\"neither\":1}",
+                UNSOLVABLE_MAP,
+                FAILING_MAP);
+        final List<String> expectedStatuses =
+                List.of("solved", "solved", "solved", "solved", "invalid", "invalid", "no_solution", "failed");
+
+        // the search fails with an unexpected exception on 5x5 boards
+        final BatchSolver solver = new BatchSolver(board -> {
+            if (board.getWidth() == 5) {
+                throw new IllegalStateException("broken search");
+            }
+            return new BreadthFirstSearchIterative(board);
+        }, 3);
+        final StringWriter output = new StringWriter();
+        assertEquals(expectedStatuses.size(), solver.solveBatch(new BufferedReader(new StringReader(input)), output));
+
+        final ObjectMapper mapper = new ObjectMapper();
+        final List<JsonNode> results = new ArrayList<>();
+        for (String line : output.toString().split("\n")) {
+            results.add(mapper.readTree(line));
+        }
+        results.sort(Comparator.comparingInt(result -> result.get("index").asInt()));
+
+        // one result per input, the blank line is not an input
+        assertEquals(expectedStatuses.size(), results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i, results.get(i).get("index").asInt());
+            assertEquals(expectedStatuses.get(i), results.get(i).get("status").asText(), results.get(i).toString());
+        }
+        assertEquals(7, results.get(0).get("solutionLength").asInt());
+        assertEquals(10, results.get(1).get("solutionLength").asInt());
+        assertEquals(10, results.get(3).get("solutionLength").asInt());
+        assertEquals("not a map", results.get(4).get("input").asText());
+        assertTrue(results.get(7).get("error").asText().contains("broken search"));
+    }
+
+    @Test
+    void testSolveBatchWriteFailure() {
+        final Writer failingWriter = new Writer() {
+            @Override
+            public void write(final char[] buffer, final int offset, final int length) throws IOException {
+                throw new IOException("disk full");
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        final BatchSolver solver = new BatchSolver(BreadthFirstSearchIterative::new, 2);
+        final IOException failure = assertThrows(IOException.class,
+                () -> solver.solveBatch(new BufferedReader(new StringReader(MAP + "\n" + MAP)), failingWriter));
+        assertEquals("disk full", failure.getMessage());
+    }
+}
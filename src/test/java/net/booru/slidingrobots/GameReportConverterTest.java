@@ -0,0 +1,135 @@
+package net.booru.slidingrobots;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameReportConverterTest {
+    private static final Map<String, GameReportConverter.Puzzle> PUZZLES = Map.of(
+            "p1", new GameReportConverter.Puzzle("seed:1", 5, List.of(), List.of()),
+            "p2", new GameReportConverter.Puzzle("seed:2", 8, List.of(), List.of()));
+
+    @Test
+    void testParseUtcMillis() {
+        assertEquals(0L, GameReportConverter.GameReport.parseUtcMillis("1970-01-01T00:00:00"));
+        assertEquals(1_500L, GameReportConverter.GameReport.parseUtcMillis("1970-01-01T00:00:01.5"));
+    }
+
+    @Test
+    void testStreamingAggregatesEqualAggregatesOfAllReports(@TempDir final Path directory) throws IOException {
+        // several chunks of reports
+        final List<GameReportConverter.GameReport> reports = new ArrayList<>();
+        final Path reportFile = writeReports(directory.resolve("game_reports.json"), 10_000, new Random(7), reports);
+
+        final Map<String, PuzzleAggregate> aggregates = new GameReportConverter().readPuzzleAggregates(reportFile, PUZZLES);
+        assertEquals(PUZZLES.keySet(), aggregates.keySet());
+        for (String puzzleId : PUZZLES.keySet()) {
+            final PuzzleAggregate expected = aggregate(puzzleId, reports);
+            assertEquals(expected.getReportCount(), aggregates.get(puzzleId).getReportCount());
+            assertEquals(expected.updateDifficulty(), aggregates.get(puzzleId).updateDifficulty(), 1e-4);
+        }
+    }
+
+    @Test
+    void testFoldedStoreEqualsAggregatesOfAllReports(@TempDir final Path directory) throws IOException {
+        final ObjectMapper mapper = new ObjectMapper();
+        final Path storeFile = directory.resolve("aggregates.json");
+        final Random random = new Random(11);
+        final List<GameReportConverter.GameReport> reports = new ArrayList<>();
+        final GameReportConverter converter = new GameReportConverter();
+
+        // each day is folded into the stored aggregates of the previous days
+        for (int day = 1; day <= 3; day++) {
+            final Path dayFile = writeReports(directory.resolve("reports-day-" + day + ".json"), 3000, random, reports);
+            final PuzzleAggregateStore store = PuzzleAggregateStore.load(storeFile, mapper);
+            assertFalse(store.isFolded(dayFile.getFileName().toString()));
+            assertEquals(PUZZLES.keySet(),
+                    store.fold(dayFile.getFileName().toString(), converter.readPuzzleAggregates(dayFile, PUZZLES)));
+            store.save(storeFile, mapper);
+        }
+
+        final PuzzleAggregateStore store = PuzzleAggregateStore.load(storeFile, mapper);
+        assertTrue(store.isFolded("reports-day-2.json"));
+        for (String puzzleId : PUZZLES.keySet()) {
+            final PuzzleAggregate expected = aggregate(puzzleId, reports);
+            final PuzzleAggregate stored = store.getPuzzles().get(puzzleId);
+            assertEquals(expected.getReportCount(), stored.getReportCount());
+            assertEquals(expected.updateDifficulty(), stored.getDifficulty(), 1e-4);
+            assertEquals(expected.getTimeStandardDeviation(), stored.getTimeStandardDeviation(), 1e-6);
+            assertEquals(expected.getMovesMean(), stored.getMovesMean(), 1e-9);
+            assertEquals(expected.getWinTimes().getCount(), stored.getWinTimes().getCount());
+            assertEquals(expected.getWinMoves().getQuantile(0.5), stored.getWinMoves().getQuantile(0.5));
+        }
+    }
+
+    @Test
+    void testFoldReportsOfFiles(@TempDir final Path directory) throws IOException {
+        final Path mapsFile = Files.write(directory.resolve("maps.json"), List.of(
+                "{\"seedString\":\"seed:1\",\"solutionLength\":5,\"solutionLengths\":[],\"rankValues\":[]}",
+                "{\"seedString\":\"seed:2\",\"solutionLength\":8,\"solutionLengths\":[],\"rankValues\":[]}"));
+        final Path hashesFile = Files.write(directory.resolve("hashes.json"), List.of(
+                "{\"seed_string\":\"seed:1\",\"puzzle_id\":\"p1\"}",
+                "{\"seed_string\":\"seed:2\",\"puzzle_id\":\"p2\"}"));
+        final List<GameReportConverter.GameReport> reports = new ArrayList<>();
+        final Path reportFile = writeReports(directory.resolve("reports-day-1.json"), 100, new Random(5), reports);
+        final Path storeFile = directory.resolve("aggregates.json");
+
+        final GameReportConverter converter = new GameReportConverter();
+        converter.foldReports(mapsFile.toString(), reportFile.toString(), storeFile.toString(), hashesFile.toString());
+        // a report file is folded in once
+        converter.foldReports(mapsFile.toString(), reportFile.toString(), storeFile.toString(), hashesFile.toString());
+
+        final PuzzleAggregateStore store = PuzzleAggregateStore.load(storeFile, new ObjectMapper());
+        assertTrue(store.isFolded("reports-day-1.json"));
+        assertEquals(PUZZLES.keySet(), store.getPuzzles().keySet());
+        for (String puzzleId : PUZZLES.keySet()) {
+            assertEquals(aggregate(puzzleId, reports).getReportCount(), store.getPuzzles().get(puzzleId).getReportCount());
+        }
+    }
+
+    //-------------------------------------------------------------------------------------------------------------------------------------
+
+    private static PuzzleAggregate aggregate(final String puzzleId, final List<GameReportConverter.GameReport> reports) {
+        final PuzzleAggregate aggregate = new PuzzleAggregate(PUZZLES.get(puzzleId).solutionLength());
+        reports.stream().filter(report -> report.puzzle_id().equals(puzzleId)).forEach(aggregate::add);
+        return aggregate;
+    }
+
+    /**
+     * Writes a json array of random reports, also of an unknown puzzle, and adds them to {@code reports}.
+     */
+    private static Path writeReports(final Path file, final int count, final Random random,
+                                     final List<GameReportConverter.GameReport> reports) throws IOException {
+        final GameReportConverter.ExitStatus[] statuses = GameReportConverter.ExitStatus.values();
+        final StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            final String puzzleId = List.of("p1", "p2", "p3").get(random.nextInt(3));
+            final GameReportConverter.ExitStatus status = statuses[random.nextInt(statuses.length)];
+            final int moveCount = 3 + random.nextInt(10);
+            final int seconds = random.nextInt(100);
+            final String start = "2024-03-01T12:00:00";
+            final String end = "2024-03-01T12:%02d:%02d".formatted(seconds / 60, seconds % 60);
+            json.append(i == 0 ? "" : ",")
+                    .append("{\"puzzle_id\":\"%s\",\"user_id\":\"u\",\"start_time\":\"%s\",\"end_time\":\"%s\",\"exit_status\":\"%s\",\"other\":[1,{\"a\":2}],\"moves\":["
+                            .formatted(puzzleId, start, end, status));
+            for (int move = 0; move < moveCount; move++) {
+                json.append(move == 0 ? "" : ",").append("{\"dir\":{\"dx\":1,\"dy\":0},\"pos\":{\"x\":0,\"y\":6}}");
+            }
+            json.append("]}");
+            reports.add(new GameReportConverter.GameReport(puzzleId, "u", 0, seconds * 1000L, status, new int[moveCount]));
+        }
+        json.append("]");
+        Files.writeString(file, json);
+        return file;
+    }
+}
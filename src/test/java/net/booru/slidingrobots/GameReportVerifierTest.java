@@ -0,0 +1,145 @@
+package net.booru.slidingrobots;
+
+import net.booru.slidingrobots.algorithm.BreadthFirstSearchIterative;
+import net.booru.slidingrobots.common.Direction;
+import net.booru.slidingrobots.state.Game;
+import net.booru.slidingrobots.state.RobotsState;
+import net.booru.slidingrobots.state.RobotsStateUtil;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameReportVerifierTest {
+    private static final String SEED = "seed:8:8:EO8T-0MXD";
+    private static final Map<String, String> SEEDS = Map.of("p1", SEED);
+
+    private static List<GameReportConverter.Move> cSolution;
+
+    @BeforeAll
+    static void solve() throws Exception {
+        final Game game = Game.valueOfSeed(SEED);
+        final List<RobotsStateUtil.Move> moves = RobotsStateUtil.getMoveList(new BreadthFirstSearchIterative(game.getBoard())
+                .run(game.getInitialRobotsState(), game.getEndCriteria()).getSolutionPath());
+        cSolution = moves.stream()
+                .map(move -> new GameReportConverter.Move(new GameReportConverter.Dir(move.dir.dx, move.dir.dy),
+                        new GameReportConverter.Pos(move.pos.x, move.pos.y)))
+                .toList();
+    }
+
+    @Test
+    void testPackMove() {
+        final int packed = GameReportConverter.GameReport.packMove(
+                new GameReportConverter.Move(new GameReportConverter.Dir(0, -3), new GameReportConverter.Pos(7, 2)));
+        assertEquals(7, GameReportConverter.GameReport.unpackX(packed));
+        assertEquals(2, GameReportConverter.GameReport.unpackY(packed));
+        assertEquals(Direction.up, GameReportConverter.GameReport.unpackDirection(packed));
+
+        final int diagonal = GameReportConverter.GameReport.packMove(
+                new GameReportConverter.Move(new GameReportConverter.Dir(1, 1), new GameReportConverter.Pos(-1, 300)));
+        assertNull(GameReportConverter.GameReport.unpackDirection(diagonal));
+        assertEquals(GameReportConverter.GameReport.INVALID_COORDINATE, GameReportConverter.GameReport.unpackX(diagonal));
+        assertEquals(GameReportConverter.GameReport.INVALID_COORDINATE, GameReportConverter.GameReport.unpackY(diagonal));
+    }
+
+    @Test
+    void testVerify() {
+        final GameReportVerifier verifier = new GameReportVerifier(SEEDS);
+        final int waypoints = Game.valueOfSeed(SEED).getEndCriteria().size();
+
+        final GameReportVerifier.Result win = verifier.verify(report("p1", GameReportConverter.ExitStatus.win, cSolution));
+        assertEquals(GameReportVerifier.Verdict.ok, win.verdict());
+        assertTrue(win.isWin());
+        assertEquals(waypoints, win.waypointsReached());
+        assertEquals(-1, win.illegalMoveIndex());
+
+        final List<GameReportConverter.Move> unfinished = cSolution.subList(0, cSolution.size() - 1);
+        final GameReportVerifier.Result claimedWin =
+                verifier.verify(report("p1", GameReportConverter.ExitStatus.win, unfinished));
+        assertEquals(GameReportVerifier.Verdict.claimed_win_not_reached, claimedWin.verdict());
+        assertFalse(claimedWin.isWin());
+        assertEquals(GameReportVerifier.Verdict.ok,
+                verifier.verify(report("p1", GameReportConverter.ExitStatus.reset, unfinished)).verdict());
+
+        final List<GameReportConverter.Move> afterWin = new ArrayList<>(cSolution);
+        afterWin.add(cSolution.get(0));
+        final GameReportVerifier.Result movesAfterWin =
+                verifier.verify(report("p1", GameReportConverter.ExitStatus.win, afterWin));
+        assertEquals(GameReportVerifier.Verdict.moves_after_win, movesAfterWin.verdict());
+        assertEquals(cSolution.size(), movesAfterWin.illegalMoveIndex());
+
+        final List<GameReportConverter.Move> noRobot = new ArrayList<>(cSolution);
+        noRobot.set(1, new GameReportConverter.Move(cSolution.get(1).dir(), new GameReportConverter.Pos(200, 200)));
+        final GameReportVerifier.Result illegal = verifier.verify(report("p1", GameReportConverter.ExitStatus.loss, noRobot));
+        assertEquals(GameReportVerifier.Verdict.illegal_move, illegal.verdict());
+        assertEquals(1, illegal.illegalMoveIndex());
+
+        // the same move twice in a row cannot move the robot again
+        final GameReportVerifier.Result noMovement = verifier.verify(report("p1", GameReportConverter.ExitStatus.exit,
+                List.of(cSolution.get(0), new GameReportConverter.Move(cSolution.get(0).dir(), positionAfterFirstMove()))));
+        assertEquals(GameReportVerifier.Verdict.illegal_move, noMovement.verdict());
+        assertEquals(1, noMovement.illegalMoveIndex());
+
+        assertEquals(GameReportVerifier.Verdict.unknown_puzzle,
+                verifier.verify(report("p2", GameReportConverter.ExitStatus.win, cSolution)).verdict());
+    }
+
+    @Test
+    void testVerifyReports(@TempDir final Path directory) throws Exception {
+        // several chunks of reports, every third of them flagged
+        final StringBuilder json = new StringBuilder("[");
+        final int count = 10_000;
+        for (int i = 0; i < count; i++) {
+            final List<GameReportConverter.Move> moves = i % 3 == 0 ? cSolution.subList(0, 1) : cSolution;
+            json.append(i == 0 ? "" : ",")
+                    .append("{\"puzzle_id\":\"p1\",\"user_id\":\"u%d\",\"start_time\":\"2024-03-01T12:00:00\",\"end_time\":\"2024-03-01T12:01:00\",\"exit_status\":\"win\",\"moves\":["
+                            .formatted(i));
+            for (int move = 0; move < moves.size(); move++) {
+                final GameReportConverter.Move m = moves.get(move);
+                json.append(move == 0 ? "" : ",").append("{\"dir\":{\"dx\":%d,\"dy\":%d},\"pos\":{\"x\":%d,\"y\":%d}}"
+                        .formatted(m.dir().dx(), m.dir().dy(), m.pos().x(), m.pos().y()));
+            }
+            json.append("]}");
+        }
+        json.append("]");
+        final Path reportFile = Files.writeString(directory.resolve("game_reports.json"), json);
+        final Path flaggedFile = directory.resolve("flagged.json");
+        final Path hashesFile = Files.writeString(directory.resolve("hashes.json"),
+                "{\"seed_string\":\"%s\",\"puzzle_id\":\"p1\"}\n".formatted(SEED));
+
+        final Map<GameReportVerifier.Verdict, Long> counts = new GameReportConverter()
+                .verifyReports(reportFile.toString(), flaggedFile.toString(), hashesFile.toString());
+        final long flagged = (count + 2) / 3;
+        assertEquals(Map.of(GameReportVerifier.Verdict.ok, count - flagged,
+                GameReportVerifier.Verdict.claimed_win_not_reached, flagged), counts);
+
+        final List<String> lines = Files.readAllLines(flaggedFile);
+        assertEquals(flagged, lines.size());
+        assertTrue(lines.get(0).contains("\"user_id\":\"u0\""));
+        assertTrue(lines.get(1).contains("\"user_id\":\"u3\""));
+    }
+
+    //-------------------------------------------------------------------------------------------------------------------------------------
+
+    private static GameReportConverter.Pos positionAfterFirstMove() {
+        final Game game = Game.valueOfSeed(SEED);
+        final GameReportConverter.Move first = cSolution.get(0);
+        final int robot = game.getInitialRobotsState().getRobotAtPosition(first.pos().x(), first.pos().y());
+        final RobotsState state = game.getBoard().makeMove(robot,
+                Direction.valueOf(first.dir().dx(), first.dir().dy()),
+                game.getInitialRobotsState());
+        return new GameReportConverter.Pos(state.getPositionX(robot), state.getPositionY(robot));
+    }
+
+    private static GameReportConverter.GameReport report(final String puzzleId, final GameReportConverter.ExitStatus status,
+                                                         final List<GameReportConverter.Move> moves) {
+        return GameReportConverter.GameReport.of(puzzleId, "u", "2024-03-01T12:00:00", "2024-03-01T12:01:00", status, moves);
+    }
+}
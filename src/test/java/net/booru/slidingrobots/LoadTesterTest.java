@@ -0,0 +1,55 @@
+package net.booru.slidingrobots;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoadTesterTest {
+
+    @Test
+    void testEachResponseIsInOneWindow() throws IOException, InterruptedException {
+        // a stub solve server that answers with the status of the query
+        final HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/solve", exchange -> {
+            final int status = switch (exchange.getRequestURI().getQuery()) {
+                case "q=ok" -> 200;
+                case "q=none" -> 422;
+                case "q=busy" -> 503;
+                default -> 500;
+            };
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+        });
+        server.start();
+
+        try {
+            final String url = "http://localhost:" + server.getAddress().getPort() + "/";
+            final LoadTester.Report report = new LoadTester(url, List.of("ok", "none", "busy", "bad"), Duration.ofMillis(50))
+                    .run(400, Duration.ofSeconds(1));
+
+            final LoadTester.Summary total = report.total();
+            assertEquals(400, total.count());
+            assertEquals(100, total.noSolutions());
+            assertEquals(100, total.rejected());
+            assertEquals(100, total.errors());
+
+            // the windows are many and together they hold every response once
+            assertTrue(report.windows().size() > 5, String.valueOf(report.windows().size()));
+            assertEquals(total.count(), report.windows().stream().mapToLong(LoadTester.Summary::count).sum());
+            assertEquals(total.noSolutions(), report.windows().stream().mapToLong(LoadTester.Summary::noSolutions).sum());
+            assertEquals(total.rejected(), report.windows().stream().mapToLong(LoadTester.Summary::rejected).sum());
+            assertEquals(total.errors(), report.windows().stream().mapToLong(LoadTester.Summary::errors).sum());
+        } finally {
+            server.stop(0);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package net.booru.slidingrobots;
+
+import net.booru.slidingrobots.algorithm.AlgorithmSelector;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProfileRunnerTest {
+    private static final String MAP = "m:4:4,b:1:0,b:1:1,b:2:1,b:0:3,r:0:0,g:2:0";
+    private static final String UNSOLVABLE_MAP = "m:4:4,r:0:0,b:2:0,b:2:1,b:0:2,b:1:2,h:2:2,g:3:3";
+
+    @TempDir
+    Path iTempDir;
+
+    @Test
+    void testTrainingRecordsMapsFewerThanTheWarmupRuns() throws IOException {
+        final Path mapsFile = Files.write(iTempDir.resolve("maps.txt"), List.of(MAP, "seed:8:8:EO8T-0MXD " + MAP + " 3"));
+        final Path selectorFile = iTempDir.resolve("selector.properties");
+
+        ProfileRunner.trainSelector(0, mapsFile.toString(), selectorFile.toString());
+
+        try (Reader reader = Files.newBufferedReader(selectorFile)) {
+            assertNotNull(AlgorithmSelector.read(reader));
+        }
+        assertTrue(Files.readString(selectorFile).contains("trained on 2 maps"));
+    }
+
+    @Test
+    void testTrainingWithoutSolvedMapsIsNotWritten() throws IOException {
+        final Path mapsFile = Files.write(iTempDir.resolve("maps.txt"), List.of(UNSOLVABLE_MAP));
+        final Path selectorFile = iTempDir.resolve("selector.properties");
+
+        assertThrows(IllegalArgumentException.class,
+                () -> ProfileRunner.trainSelector(0, mapsFile.toString(), selectorFile.toString()));
+        assertFalse(Files.exists(selectorFile));
+    }
+}
@@ -0,0 +1,70 @@
+package net.booru.slidingrobots.algorithm;
+
+import net.booru.slidingrobots.algorithm.model.Solution;
+import net.booru.slidingrobots.state.Game;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AlgorithmSelectorTest {
+    private static final BoardFeatures SHALLOW = new BoardFeatures(1, 0.1, 64, 2, false);
+    private static final BoardFeatures DEEP = new BoardFeatures(12, 0.2, 100, 2, true);
+
+    @Test
+    void testTrainer() {
+        final AlgorithmSelector.Trainer trainer = new AlgorithmSelector.Trainer();
+        for (int i = 0; i < 3; i++) {
+            trainer.add(SHALLOW, SearchAlgorithmType.bfs, 1);
+            trainer.add(SHALLOW, SearchAlgorithmType.astar, 2);
+            trainer.add(DEEP, SearchAlgorithmType.bfs, 100);
+            trainer.add(DEEP, SearchAlgorithmType.astar, 10);
+        }
+        final AlgorithmSelector selector = trainer.build(3);
+        assertEquals(SearchAlgorithmType.bfs, selector.select(SHALLOW));
+        assertEquals(SearchAlgorithmType.astar, selector.select(DEEP));
+        assertEquals(1, selector.getTableSize()); // the default astar is not in the table
+        assertEquals(SearchAlgorithmType.astar, selector.select(new BoardFeatures(30, 0.5, 400, 3, true)));
+
+        // too few samples for a bucket entry
+        assertEquals(SearchAlgorithmType.astar, trainer.build(4).select(SHALLOW));
+    }
+
+    @Test
+    void testWriteAndRead(@TempDir final Path directory) throws IOException {
+        final AlgorithmSelector selector = new AlgorithmSelector(Map.of(SHALLOW.bucketKey(), SearchAlgorithmType.bfs),
+                SearchAlgorithmType.astar);
+        final Path file = directory.resolve("selector.properties");
+        selector.write(file, "test");
+
+        final AlgorithmSelector read = AlgorithmSelector.read(Files.newBufferedReader(file));
+        assertEquals(SearchAlgorithmType.bfs, read.select(SHALLOW));
+        assertEquals(SearchAlgorithmType.astar, read.select(DEEP));
+
+        assertThrows(IllegalArgumentException.class, () -> AlgorithmSelector.read(new StringReader("default=selector")));
+    }
+
+    @Test
+    void testSelectorSolvesOptimally() throws NoSolutionException {
+        final Game game = Game.valueOfMap("map:10:8:blocker:5:0:goal:1:1:blocker:6:1:blocker:8:1:blocker:1:2:"
+                + "blocker:4:2:blocker:5:3:blocker:0:4:blocker:3:4:blocker:4:4:main_robot:7:4:helper_robot:9:4:helper_robot:4:6:blocker:4:7");
+        for (SearchAlgorithmType type : SearchAlgorithmType.engines()) {
+            final Solution solution = new SelectorSearchAlgorithm(game.getBoard(), new AlgorithmSelector(Map.of(), type), -1,
+                    SearchControl.unlimited()).run(game.getInitialRobotsState(), game.getEndCriteria());
+            assertEquals(24, solution.getStatistics().getSolutionLength());
+            assertEquals(type.create(game.getBoard(), -1, SearchControl.unlimited()).getClass().getSimpleName(),
+                    solution.getAlgorithmName());
+        }
+
+        final Solution solution = SearchAlgorithmType.selector.create(game.getBoard(), -1, SearchControl.unlimited())
+                .run(game.getInitialRobotsState(), game.getEndCriteria());
+        assertEquals(24, solution.getStatistics().getSolutionLength());
+    }
+}
@@ -0,0 +1,106 @@
+package net.booru.slidingrobots.algorithm;
+
+import net.booru.slidingrobots.algorithm.model.Solution;
+import net.booru.slidingrobots.state.Game;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AsyncSolverTest {
+    private static final Game HARD_GAME = Game.valueOfMap("map:10:8:blocker:5:0:goal:1:1:blocker:6:1:blocker:8:1:blocker:1:2:"
+            + "blocker:4:2:blocker:5:3:blocker:0:4:blocker:3:4:blocker:4:4:main_robot:7:4:helper_robot:9:4:helper_robot:4:6:blocker:4:7");
+    private static final Game EASY_GAME = Game.valueOf("m:8:8,b:0:0,b:0:4,b:2:4,b:2:5,b:3:1,h:3:4,h:4:1,b:4:6,r:5:5,b:5:7,b:7:0,g:6:7");
+    private static final Game UNSOLVABLE_GAME = Game.valueOf2DMap("""
+            r . b .
+            . . b .
+            b b b .
+            . . . g
+            """);
+
+    @Test
+    void testSolveWithProgress() throws Exception {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            final AsyncSolver solver = createSolver(executor);
+            final AtomicInteger maxDepth = new AtomicInteger();
+            final Solution solution = solver.solve(HARD_GAME, null, (depth, statesVisited) -> maxDepth.accumulateAndGet(depth, Math::max))
+                    .get();
+
+            assertEquals(24, solution.getStatistics().getSolutionLength());
+            assertTrue(maxDepth.get() > 0 && maxDepth.get() <= 24);
+
+            final ExecutionException noSolution = assertThrows(ExecutionException.class, () -> solver.solve(UNSOLVABLE_GAME).get());
+            assertInstanceOf(NoSolutionException.class, noSolution.getCause());
+        }
+    }
+
+    @Test
+    void testCancelStopsSearch() throws Exception {
+        final AtomicInteger progressCount = new AtomicInteger();
+        final AtomicReference<CompletableFuture<Solution>> future = new AtomicReference<>();
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final AsyncSolver solver = createSolver(executor);
+            // hold the executor until the future is known, then cancel at the first progress report
+            final CompletableFuture<Void> started = new CompletableFuture<>();
+            executor.execute(started::join);
+            future.set(solver.solve(HARD_GAME, null, (depth, statesVisited) -> {
+                progressCount.incrementAndGet();
+                future.get().cancel(true);
+            }));
+            started.complete(null);
+
+            assertThrows(CancellationException.class, () -> future.get().get());
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+        assertEquals(1, progressCount.get());
+    }
+
+    @Test
+    void testTimeout() {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            final ExecutionException timeout = assertThrows(ExecutionException.class,
+                    () -> createSolver(executor).solve(HARD_GAME, Duration.ZERO, null).get());
+            assertEquals(SearchAbortedException.Reason.TIMEOUT, ((SearchAbortedException) timeout.getCause()).getReason());
+        }
+    }
+
+    @Test
+    void testSolveAllAndAny() throws Exception {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            final AsyncSolver solver = createSolver(executor);
+
+            final List<Solution> solutions = solver.solveAll(List.of(HARD_GAME, EASY_GAME), null).get();
+            assertEquals(24, solutions.get(0).getStatistics().getSolutionLength());
+            assertEquals(new BreadthFirstSearchIterative(EASY_GAME.getBoard())
+                            .run(EASY_GAME.getInitialRobotsState(), EASY_GAME.getEndCriteria()).getSolutionPath(),
+                    solutions.get(1).getSolutionPath());
+
+            final ExecutionException failed = assertThrows(ExecutionException.class,
+                    () -> solver.solveAll(List.of(HARD_GAME, UNSOLVABLE_GAME), null).get());
+            assertInstanceOf(NoSolutionException.class, failed.getCause());
+
+            assertEquals(solutions.get(1).getSolutionPath(),
+                    solver.solveAny(List.of(UNSOLVABLE_GAME, EASY_GAME), null).get().getSolutionPath());
+        }
+    }
+
+    private static AsyncSolver createSolver(final ExecutorService executor) {
+        return new AsyncSolver((board, control) -> new BreadthFirstSearchIterative(board, -1, control), executor);
+    }
+}
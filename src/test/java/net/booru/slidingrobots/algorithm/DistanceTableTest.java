@@ -0,0 +1,89 @@
+package net.booru.slidingrobots.algorithm;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.booru.slidingrobots.state.Game;
+import net.booru.slidingrobots.state.RobotsState;
+import net.booru.slidingrobots.state.RobotsStateUtil;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DistanceTableTest {
+
+    record TestCase(String map, int optimal, String seed) {
+    }
+
+    @Test
+    void testDistanceIsOptimal() throws IOException {
+        final List<TestCase> testCases;
+        try (InputStream input = getClass().getClassLoader().getResourceAsStream("tests100.json")) {
+            testCases = new ObjectMapper().readValue(input, new TypeReference<>() {
+            });
+        }
+
+        for (TestCase testCase : testCases.subList(0, 20)) {
+            final Game game = Game.valueOfMap(testCase.map());
+            final DistanceTable table = createTable(game);
+            assertEquals(testCase.optimal(), table.distance(game.getInitialRobotsState()), testCase.seed());
+
+            // following any optimal move solves the game in the remaining number of moves
+            RobotsState state = game.getInitialRobotsState();
+            for (int remaining = testCase.optimal(); remaining > 0; remaining--) {
+                final byte[] moves = table.optimalMoves(state);
+                assertTrue(moves.length > 0, testCase.seed());
+                state = RobotsStateUtil.replayPackedMoves(game.getBoard(), state, game.getEndCriteria(),
+                        new byte[]{moves[moves.length - 1]}).get(1);
+                assertEquals(remaining - 1, table.distance(state), testCase.seed());
+            }
+            assertEquals(game.getEndCriteria().size(), state.getWaypointsReached(), testCase.seed());
+        }
+    }
+
+    @Test
+    void testMidGameDistanceMatchesSearch() throws NoSolutionException {
+        final Game game = Game.valueOf("m:8:8,b:0:0,b:0:4,b:2:4,b:2:5,b:3:1,h:3:4,h:4:1,b:4:6,r:5:5,b:5:7,b:7:0,g:6:7");
+        final DistanceTable table = createTable(game);
+        final Random random = new Random(42);
+
+        RobotsState state = game.getInitialRobotsState();
+        for (int step = 0; step < 30; step++) {
+            final List<RobotsState> neighbors = game.getBoard().getNeighbors(state);
+            state = RobotsStateUtil.updateWaypointsReached(neighbors.get(random.nextInt(neighbors.size())),
+                    game.getEndCriteria());
+            if (state.getWaypointsReached() == game.getEndCriteria().size()) {
+                break;
+            }
+
+            final int searched = new BreadthFirstSearchIterative(game.getBoard())
+                    .run(state, game.getEndCriteria()).getStatistics().getSolutionLength();
+            assertEquals(searched, table.distance(state), state.toString());
+        }
+    }
+
+    @Test
+    void testUnreachable() {
+        final Game game = Game.valueOf2DMap("""
+                r . b .
+                . . b .
+                b b b .
+                . . . g
+                """);
+        final DistanceTable table = createTable(game);
+        assertEquals(DistanceTable.UNREACHABLE, table.distance(game.getInitialRobotsState()));
+        assertEquals(0, table.optimalMoves(game.getInitialRobotsState()).length);
+        assertThrows(IllegalArgumentException.class,
+                () -> table.distance(new RobotsState(new byte[]{0, 0, 1, 1}, (byte) 0)));
+    }
+
+    private static DistanceTable createTable(final Game game) {
+        return new DistanceTable(game.getBoard(), game.getInitialRobotsState().getRobotCount(), game.getEndCriteria());
+    }
+}
@@ -0,0 +1,64 @@
+package net.booru.slidingrobots.algorithm;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.booru.slidingrobots.state.Game;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MainRobotDistanceTest {
+
+    record TestCase(String map, int optimal, String seed) {
+    }
+
+    @Test
+    void testLowerBoundIsAdmissible() throws IOException {
+        final List<TestCase> testCases;
+        try (InputStream input = getClass().getClassLoader().getResourceAsStream("tests100.json")) {
+            testCases = new ObjectMapper().readValue(input, new TypeReference<>() {
+            });
+        }
+
+        for (TestCase testCase : testCases) {
+            final Game game = Game.valueOfMap(testCase.map());
+            final int lowerBound = new MainRobotDistance(game.getBoard())
+                    .lowerBound(game.getInitialRobotsState(), game.isOneWay());
+            assertTrue(lowerBound <= testCase.optimal(), "lower bound " + lowerBound + " for " + testCase.seed());
+            assertTrue(lowerBound > 0);
+        }
+    }
+
+    @Test
+    void testPhases() {
+        final Game game = Game.valueOf2DMap("""
+                r . b .
+                . . . .
+                . . . .
+                . . . g
+                """);
+        final MainRobotDistance distance = new MainRobotDistance(game.getBoard());
+
+        // one move to the goal column or row, one move to the goal, and back
+        assertEquals(4, distance.lowerBound(game.getInitialRobotsState(), false));
+        assertEquals(2, distance.lowerBound(game.getInitialRobotsState(), true));
+        assertEquals(0, distance.lowerBound(game.getInitialRobotsState().withNextGoal().withNextGoal(), false));
+    }
+
+    @Test
+    void testUnreachableGoal() {
+        final Game game = Game.valueOf2DMap("""
+                r . b .
+                . . b .
+                b b b .
+                . . . g
+                """);
+        assertTrue(new MainRobotDistance(game.getBoard()).lowerBound(game.getInitialRobotsState(), true)
+                >= MainRobotDistance.UNREACHABLE);
+    }
+}
@@ -0,0 +1,79 @@
+package net.booru.slidingrobots.algorithm;
+
+import net.booru.slidingrobots.algorithm.model.Solution;
+import net.booru.slidingrobots.state.Game;
+import net.booru.slidingrobots.state.RobotsState;
+import net.booru.slidingrobots.state.RobotsStateUtil;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReplanningSessionTest {
+
+    @Test
+    void testContinuationsAreOptimal() throws NoSolutionException {
+        final Game game = Game.valueOf("m:8:8,b:0:0,b:0:4,b:2:4,b:2:5,b:3:1,h:3:4,h:4:1,b:4:6,r:5:5,b:5:7,b:7:0,g:6:7");
+        final ReplanningSession session = new ReplanningSession(game);
+
+        final Solution first = session.continuation(game.getInitialRobotsState(), SearchControl.unlimited());
+        final Solution cold = search(game, game.getInitialRobotsState());
+        assertEquals(cold.getStatistics().getSolutionLength(), first.getStatistics().getSolutionLength());
+        assertEquals(first.getSolutionPath().size() - 1, session.getLabeledStateCount());
+
+        // a state on the known line is answered without a search
+        final Solution known = session.continuation(first.getSolutionPath().get(2), SearchControl.unlimited());
+        assertEquals(first.getSolutionPath().subList(2, first.getSolutionPath().size()), known.getSolutionPath());
+        assertEquals(0, known.getStatistics().getStatesVisited());
+
+        // every deviation from the line is answered optimally, with less search than a cold solve
+        for (RobotsState onLine : first.getSolutionPath().subList(0, first.getSolutionPath().size() - 1)) {
+            for (RobotsState deviation : game.getBoard().getNeighbors(onLine)) {
+                final RobotsState state = RobotsStateUtil.updateWaypointsReached(deviation, game.getEndCriteria());
+                if (state.getWaypointsReached() == game.getEndCriteria().size()) {
+                    continue;
+                }
+                final Solution replanned = session.continuation(state, SearchControl.unlimited());
+                final Solution expected = search(game, state);
+                assertEquals(expected.getStatistics().getSolutionLength(), replanned.getStatistics().getSolutionLength(),
+                        state.toString());
+                assertTrue(replanned.getStatistics().getStatesVisited() <= expected.getStatistics().getStatesVisited());
+                assertReplays(game, replanned.getSolutionPath());
+            }
+        }
+    }
+
+    @Test
+    void testNoSolution() {
+        final Game game = Game.valueOf2DMap("""
+                r . b .
+                . . b .
+                b b b .
+                . . . g
+                """);
+        final ReplanningSession session = new ReplanningSession(game);
+        assertThrows(NoSolutionException.class,
+                () -> session.continuation(game.getInitialRobotsState(), SearchControl.unlimited()));
+    }
+
+    private static Solution search(final Game game, final RobotsState state) throws NoSolutionException {
+        return new BreadthFirstSearchIterative(game.getBoard()).run(state, game.getEndCriteria());
+    }
+
+    /**
+     * Each state of the path is one move from the previous state.
+     */
+    private static void assertReplays(final Game game, final List<RobotsState> path) {
+        for (int i = 1; i < path.size(); i++) {
+            final RobotsState previous = path.get(i - 1);
+            final RobotsState expected = path.get(i);
+            assertTrue(game.getBoard().getNeighbors(previous).stream()
+                    .map(state -> RobotsStateUtil.updateWaypointsReached(state, game.getEndCriteria()))
+                    .anyMatch(expected::equals), "no move from " + previous + " to " + expected);
+        }
+        assertEquals(game.getEndCriteria().size(), path.get(path.size() - 1).getWaypointsReached());
+    }
+}
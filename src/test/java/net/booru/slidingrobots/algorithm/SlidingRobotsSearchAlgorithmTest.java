@@ -4,8 +4,10 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import net.booru.slidingrobots.algorithm.model.Solution;
 import net.booru.slidingrobots.common.Timer;
+import net.booru.slidingrobots.rank.BumpsCounter;
 import net.booru.slidingrobots.state.Board;
 import net.booru.slidingrobots.state.Game;
+import net.booru.slidingrobots.state.RobotsState;
 import net.booru.slidingrobots.state.RobotsStateUtil;
 import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
@@ -15,13 +17,19 @@ import java.io.IOException;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class SlidingRobotsSearchAlgorithmTest {
     private static final Logger cLogger = LoggerFactory.getLogger(SlidingRobotsSearchAlgorithmTest.class);
@@ -49,7 +57,7 @@ class SlidingRobotsSearchAlgorithmTest {
     record TestCase(String map, int optimal, String seed) {
     }
 
-    private static void executeTestForMap(final int movesRequired, final String seed, final Game game, final Function<Board, SlidingRobotsSearchAlgorithm> algorithmFactory) throws NoSolutionException {
+    private static Solution executeTestForMap(final int movesRequired, final String seed, final Game game, final Function<Board, SlidingRobotsSearchAlgorithm> algorithmFactory) throws NoSolutionException {
         final Board board = game.getBoard();
         println("Map: ");
         println(game.getBoard().printBoard(game.getInitialRobotsState()));
@@ -59,6 +67,7 @@ class SlidingRobotsSearchAlgorithmTest {
 
         assertEquals(movesRequired, solution.getStatistics().getSolutionLength(),
                 "Wrong number of moves: " + solution.getAlgorithmName() + " for seed = " + seed);
+        return solution;
     }
 
     private static void printSolution(final int movesRequired, final String seed, final Solution solution) {
@@ -201,6 +210,171 @@ class SlidingRobotsSearchAlgorithmTest {
         println(timer);
     }
 
+    @Test
+    void test100FromFileAStar() throws IOException {
+        for (final TestCase testCase : getTestCasesJson()) {
+            final Game game = Game.valueOfMap(testCase.map);
+            assertDoesNotThrow(
+                    () -> executeTestForMap(testCase.optimal, testCase.seed, game, AStarSearch::new));
+        }
+    }
+
+    @Test
+    void test100FromFileMinBumps() throws IOException, NoSolutionException {
+        for (final TestCase testCase : getTestCasesJson()) {
+            final Game game = Game.valueOfMap(testCase.map);
+            final Solution minBumps = assertDoesNotThrow(
+                    () -> executeTestForMap(testCase.optimal, testCase.seed, game, MinBumpsSearch::new));
+            final Solution bfs = executeAlgorithm(game, board -> new BreadthFirstSearchIterative(board, 0), game.getBoard());
+            final int minBumpsOfPath = new BumpsCounter().apply(minBumps);
+            final int bumpsOfBfsPath = new BumpsCounter().apply(bfs);
+            assertEquals(minBumps.getStatistics().getMinBumps(), minBumpsOfPath, testCase.seed);
+            assertTrue(minBumpsOfPath <= bumpsOfBfsPath && bumpsOfBfsPath <= minBumps.getStatistics().getMaxBumps(),
+                    testCase.seed);
+            if (game.isOneWay()) {
+                assertEquals(bfs.getStatistics().getSolutionLengthCount(0),
+                        minBumps.getStatistics().getSolutionLengthCount(0), testCase.seed);
+            }
+        }
+
+        // the 8 optimal paths of this map have 2 or 4 bumps, the range must be exact and not only contain the bfs path
+        final Game mixedBumps = Game.valueOfMap("map:8:8:goal:0:0:blocker:6:0:blocker:7:0:blocker:1:3:main_robot:2:3:"
+                + "blocker:6:4:helper_robot:0:5:blocker:3:5:blocker:4:5:blocker:3:6:helper_robot:5:6:blocker:2:7");
+        final Solution mixedBumpsSolution = executeTestForMap(8, "No seed", mixedBumps, MinBumpsSearch::new);
+        final List<Integer> bumpsOfOptimalPaths = new ArrayList<>();
+        for (List<RobotsState> path : ShortestPathDag.search(mixedBumps.getBoard(), mixedBumps.getInitialRobotsState(),
+                mixedBumps.getEndCriteria(), SearchControl.unlimited())) {
+            bumpsOfOptimalPaths.add(new BumpsCounter().apply(path));
+        }
+        assertEquals(8, bumpsOfOptimalPaths.size());
+        assertEquals(2, Collections.min(bumpsOfOptimalPaths));
+        assertEquals(4, Collections.max(bumpsOfOptimalPaths));
+        assertEquals(2, mixedBumpsSolution.getStatistics().getMinBumps());
+        assertEquals(4, mixedBumpsSolution.getStatistics().getMaxBumps());
+
+        final Game noSolution = Game.valueOf2DMap("""
+                r . b .
+                . . b .
+                b b h .
+                . . . g
+                """);
+        assertThrows(NoSolutionException.class, () -> executeTestForMap(0, "No seed", noSolution, MinBumpsSearch::new));
+    }
+
+    @Test
+    void test100FromFileShortestPathDag() throws IOException, NoSolutionException {
+        for (final TestCase testCase : getTestCasesJson().subList(0, 30)) {
+            final Game game = Game.valueOfMap(testCase.map);
+            final ShortestPathDag dag = ShortestPathDag.search(game.getBoard(), game.getInitialRobotsState(),
+                    game.getEndCriteria(), SearchControl.unlimited());
+            assertEquals(testCase.optimal, dag.getSolutionLength(), testCase.seed);
+            if (dag.getSolutionCount() > 100_000) {
+                continue;
+            }
+
+            // each path is a distinct solution of legal moves, and the bumps agree with the min bumps search
+            final Set<List<RobotsState>> paths = new HashSet<>();
+            int minBumps = Integer.MAX_VALUE;
+            int maxBumps = 0;
+            for (List<RobotsState> path : dag) {
+                assertEquals(testCase.optimal + 1, path.size());
+                assertEquals(RobotsStateUtil.updateWaypointsReached(game.getInitialRobotsState(), game.getEndCriteria()),
+                        path.get(0));
+                for (int i = 1; i < path.size(); i++) {
+                    final RobotsState previous = path.get(i - 1);
+                    final RobotsState next = path.get(i);
+                    assertTrue(game.getBoard().getNeighbors(previous).stream()
+                            .anyMatch(neighbor -> RobotsStateUtil.updateWaypointsReached(neighbor, game.getEndCriteria())
+                                    .equals(next)), testCase.seed);
+                }
+                assertEquals(game.getEndCriteria().size(), path.get(path.size() - 1).getWaypointsReached());
+                assertTrue(paths.add(path), testCase.seed);
+                final int bumps = new BumpsCounter().apply(path);
+                minBumps = Math.min(minBumps, bumps);
+                maxBumps = Math.max(maxBumps, bumps);
+            }
+            assertEquals(dag.getSolutionCount(), paths.size(), testCase.seed);
+
+            final Solution solution = executeAlgorithm(game, MinBumpsSearch::new, game.getBoard());
+            assertEquals(solution.getStatistics().getMinBumps(), minBumps, testCase.seed);
+            assertEquals(solution.getStatistics().getMaxBumps(), maxBumps, testCase.seed);
+        }
+    }
+
+    @Test
+    void testPortfolio() throws IOException, NoSolutionException {
+        final List<SearchAlgorithmType> types = List.of(SearchAlgorithmType.bfs, SearchAlgorithmType.astar);
+        final Function<Board, SlidingRobotsSearchAlgorithm> portfolio =
+                board -> SearchAlgorithmType.create(types, board, -1, SearchControl.unlimited());
+
+        for (final TestCase testCase : getTestCasesJson().subList(0, 20)) {
+            final Game game = Game.valueOfMap(testCase.map);
+            assertDoesNotThrow(() -> executeTestForMap(testCase.optimal, testCase.seed, game, portfolio));
+        }
+
+        final Game noSolution = Game.valueOf2DMap("""
+                r . b .
+                . . b .
+                b b h .
+                . . . g
+                """);
+        assertThrows(NoSolutionException.class, () -> executeTestForMap(0, "No seed", noSolution, portfolio));
+
+        // a cancelled portfolio cancels all its searches
+        final SearchControl cancelled = SearchControl.unlimited();
+        cancelled.cancel();
+        final Game game = Game.valueOfMap("m:8:8,b:4:0,b:5:0,b:5:1,b:3:3,b:5:4,b:0:5,b:1:5,b:2:5,h:6:4,h:2:6,r:6:2,g:2:3");
+        final SearchAbortedException aborted = assertThrows(SearchAbortedException.class,
+                () -> new PortfolioSearchAlgorithm(game.getBoard(), types, -1, cancelled)
+                        .run(game.getInitialRobotsState(), game.getEndCriteria()));
+        assertEquals(SearchAbortedException.Reason.CANCELLED, aborted.getReason());
+
+        final Solution solution = new PortfolioSearchAlgorithm(game.getBoard(), types, -1, SearchControl.unlimited())
+                .run(game.getInitialRobotsState(), game.getEndCriteria());
+        assertTrue(List.of(BreadthFirstSearchIterative.class.getSimpleName(), AStarSearch.class.getSimpleName())
+                .contains(solution.getAlgorithmName()));
+    }
+
+    @Test
+    void testPortfolioKeepingDepthsRacesCountingAlgorithms() throws NoSolutionException {
+        final Game game = Game.valueOfMap("m:8:8,b:4:0,b:5:0,b:5:1,b:3:3,b:5:4,b:0:5,b:1:5,b:2:5,h:6:4,h:2:6,r:6:2,g:2:3");
+        final Solution bfs = new BreadthFirstSearchIterative(game.getBoard(), 2)
+                .run(game.getInitialRobotsState(), game.getEndCriteria());
+        assertEquals(2, bfs.getStatistics().getDepthsKept());
+
+        // astar only finds the first solution, it does not race when depths are kept
+        for (List<SearchAlgorithmType> types : List.of(List.of(SearchAlgorithmType.bfs, SearchAlgorithmType.astar),
+                List.of(SearchAlgorithmType.astar, SearchAlgorithmType.astar))) {
+            final Solution solution = new PortfolioSearchAlgorithm(game.getBoard(), types, 2, SearchControl.unlimited())
+                    .run(game.getInitialRobotsState(), game.getEndCriteria());
+            assertEquals(BreadthFirstSearchIterative.class.getSimpleName(), solution.getAlgorithmName());
+            assertEquals(bfs.getStatistics().getSolutionLengths(), solution.getStatistics().getSolutionLengths());
+            assertEquals(2, solution.getStatistics().getDepthsKept());
+        }
+
+        assertEquals(-1, new AStarSearch(game.getBoard()).run(game.getInitialRobotsState(), game.getEndCriteria())
+                .getStatistics().getDepthsKept());
+    }
+
+    @Test
+    void testSearchBudget() {
+        final Game game = Game.valueOfMap("m:8:8,b:4:0,b:5:0,b:5:1,b:3:3,b:5:4,b:0:5,b:1:5,b:2:5,h:6:4,h:2:6,r:6:2,g:2:3");
+
+        final SearchAbortedException stateLimit = assertThrows(SearchAbortedException.class,
+                () -> executeTestForMap(15, "No seed", game, board -> new BreadthFirstSearchIterative(board, -1,
+                        new SearchControl(2000, null))));
+        assertEquals(SearchAbortedException.Reason.STATE_LIMIT, stateLimit.getReason());
+
+        final SearchControl cancelled = SearchControl.unlimited();
+        cancelled.cancel();
+        final SearchAbortedException cancel = assertThrows(SearchAbortedException.class,
+                () -> executeTestForMap(15, "No seed", game, board -> new BreadthFirstSearchIterative(board, -1, cancelled)));
+        assertEquals(SearchAbortedException.Reason.CANCELLED, cancel.getReason());
+
+        assertDoesNotThrow(() -> executeTestForMap(15, "No seed", game, board -> new BreadthFirstSearchIterative(board, -1,
+                new SearchControl(10_000_000, Duration.ofMinutes(1)))));
+    }
+
     private static Function<Board, SlidingRobotsSearchAlgorithm> getAlgorithmFactory() {
         return board -> new BreadthFirstSearchIterative(board, -1);
     }
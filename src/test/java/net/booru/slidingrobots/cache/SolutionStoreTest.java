@@ -0,0 +1,287 @@
+package net.booru.slidingrobots.cache;
+
+import net.booru.slidingrobots.algorithm.AStarSearch;
+import net.booru.slidingrobots.algorithm.BreadthFirstSearchIterative;
+import net.booru.slidingrobots.algorithm.MinBumpsSearch;
+import net.booru.slidingrobots.algorithm.NoSolutionException;
+import net.booru.slidingrobots.algorithm.SlidingRobotsSearchAlgorithm;
+import net.booru.slidingrobots.algorithm.model.Solution;
+import net.booru.slidingrobots.algorithm.model.SolutionLengthCount;
+import net.booru.slidingrobots.algorithm.model.Waypoint;
+import net.booru.slidingrobots.common.Direction;
+import net.booru.slidingrobots.state.Game;
+import net.booru.slidingrobots.state.RobotsState;
+import net.booru.slidingrobots.state.RobotsStateUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SolutionStoreTest {
+
+    @TempDir
+    Path iTempDir;
+
+    private static final String MAP =
+            "m:8:8,b:0:0,b:0:4,b:2:4,b:2:5,b:3:1,h:3:4,h:4:1,b:4:6,r:5:5,b:5:7,b:7:0,g:6:7";
+
+    /**
+     * Fails the test if it is used, for checking that a solution comes from the store.
+     */
+    private static final SlidingRobotsSearchAlgorithm NOT_CALLED = new SlidingRobotsSearchAlgorithm() {
+        @Override
+        public Solution run(final RobotsState startState, final List<Waypoint> endCriteria) {
+            throw new AssertionError("expected a stored solution");
+        }
+    };
+
+    @Test
+    void testStoredSolutionSurvivesReopen() throws IOException, NoSolutionException {
+        final Path storeFile = iTempDir.resolve("solutions.store");
+        final Game game = Game.valueOf(MAP);
+
+        final Solution solved;
+        try (final SolutionStore store = SolutionStore.open(storeFile)) {
+            solved = new StoredSearchAlgorithm(store, game.getBoard(), 2, new BreadthFirstSearchIterative(game.getBoard(), 2))
+                    .run(game.getInitialRobotsState(), game.getEndCriteria());
+            assertEquals(1, store.size());
+        }
+
+        // append a partial entry, as after a crash while writing
+        try (final FileChannel channel = FileChannel.open(storeFile, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 100, 1, 2}));
+        }
+
+        try (final SolutionStore store = SolutionStore.open(storeFile)) {
+            assertEquals(1, store.size());
+            // the same game from its normalized map string uses the same entry
+            final Game sameGame = Game.valueOf(game.getNormalizedMapString());
+            final Solution stored = new StoredSearchAlgorithm(store, sameGame.getBoard(), 2, NOT_CALLED)
+                    .run(sameGame.getInitialRobotsState(), sameGame.getEndCriteria());
+
+            assertEquals(solved.getSolutionPath(), stored.getSolutionPath());
+            assertEquals(solved.getStatistics().getSolutionLengths(), stored.getStatistics().getSolutionLengths());
+            assertEquals(solved.toJsonOutputString(), stored.toJsonOutputString());
+        }
+    }
+
+    @Test
+    void testNoSolutionIsStored() throws IOException {
+        final Game game = Game.valueOf2DMap("""
+                r . b .
+                . . b .
+                b b h .
+                . . . g
+                """);
+
+        try (final SolutionStore store = SolutionStore.open(iTempDir.resolve("solutions.store"))) {
+            assertThrows(NoSolutionException.class, () ->
+                    new StoredSearchAlgorithm(store, game.getBoard(), -1, new BreadthFirstSearchIterative(game.getBoard()))
+                            .run(game.getInitialRobotsState(), game.getEndCriteria()));
+            assertThrows(NoSolutionException.class, () ->
+                    new StoredSearchAlgorithm(store, game.getBoard(), -1, NOT_CALLED)
+                            .run(game.getInitialRobotsState(), game.getEndCriteria()));
+        }
+    }
+
+    @Test
+    void testFewerKeptDepthsAreSolvedAgain() throws IOException, NoSolutionException {
+        final Game game = Game.valueOf(MAP);
+
+        try (final SolutionStore store = SolutionStore.open(iTempDir.resolve("solutions.store"))) {
+            new StoredSearchAlgorithm(store, game.getBoard(), -1, new BreadthFirstSearchIterative(game.getBoard(), -1))
+                    .run(game.getInitialRobotsState(), game.getEndCriteria());
+
+            final Solution solution =
+                    new StoredSearchAlgorithm(store, game.getBoard(), 2, new BreadthFirstSearchIterative(game.getBoard(), 2))
+                            .run(game.getInitialRobotsState(), game.getEndCriteria());
+            assertEquals(BreadthFirstSearchIterative.class.getSimpleName(), solution.getAlgorithmName());
+        }
+    }
+
+    @Test
+    void testDepthsNotCountedAreNotStored() throws IOException, NoSolutionException {
+        final Game game = Game.valueOf(MAP);
+
+        try (final SolutionStore store = SolutionStore.open(iTempDir.resolve("solutions.store"))) {
+            // astar asked to keep depths only counts the first solution
+            new StoredSearchAlgorithm(store, game.getBoard(), 2, new AStarSearch(game.getBoard()))
+                    .run(game.getInitialRobotsState(), game.getEndCriteria());
+            final long key = SolutionStore.hashKey(
+                    SearchKeys.of(game.getBoard(), game.getInitialRobotsState(), game.getEndCriteria()));
+            assertEquals(-1, store.get(key).depthsKept());
+
+            final Solution solution =
+                    new StoredSearchAlgorithm(store, game.getBoard(), 2, new BreadthFirstSearchIterative(game.getBoard(), 2))
+                            .run(game.getInitialRobotsState(), game.getEndCriteria());
+            assertEquals(BreadthFirstSearchIterative.class.getSimpleName(), solution.getAlgorithmName());
+            assertEquals(2, store.get(key).depthsKept());
+
+            final Solution stored = new StoredSearchAlgorithm(store, game.getBoard(), 2, NOT_CALLED)
+                    .run(game.getInitialRobotsState(), game.getEndCriteria());
+            assertEquals(solution.getStatistics().getSolutionLengths(), stored.getStatistics().getSolutionLengths());
+            assertEquals(2, stored.getStatistics().getDepthsKept());
+        }
+    }
+
+    @Test
+    void testBumpsRangeIsStored() throws IOException, NoSolutionException {
+        final Path storeFile = iTempDir.resolve("solutions.store");
+        final Game game = Game.valueOf(MAP);
+
+        final Solution solved;
+        try (final SolutionStore store = SolutionStore.open(storeFile)) {
+            new StoredSearchAlgorithm(store, game.getBoard(), -1, new BreadthFirstSearchIterative(game.getBoard()))
+                    .run(game.getInitialRobotsState(), game.getEndCriteria());
+
+            // the breadth first search solution has no bumps range, the minimum bumps search solves again
+            solved = new StoredSearchAlgorithm(store, game.getBoard(), -1, true, new MinBumpsSearch(game.getBoard()))
+                    .run(game.getInitialRobotsState(), game.getEndCriteria());
+            assertEquals(MinBumpsSearch.class.getSimpleName(), solved.getAlgorithmName());
+            assertTrue(solved.getStatistics().getMinBumps() >= 0);
+        }
+
+        try (final SolutionStore store = SolutionStore.open(storeFile)) {
+            final Solution stored = new StoredSearchAlgorithm(store, game.getBoard(), -1, true, NOT_CALLED)
+                    .run(game.getInitialRobotsState(), game.getEndCriteria());
+            assertEquals(solved.getSolutionPath(), stored.getSolutionPath());
+            assertEquals(solved.getStatistics().getMinBumps(), stored.getStatistics().getMinBumps());
+            assertEquals(solved.getStatistics().getMaxBumps(), stored.getStatistics().getMaxBumps());
+        }
+    }
+
+    @Test
+    void testMidGameStatesHaveTheirOwnEntries() throws IOException, NoSolutionException {
+        final Game game = Game.valueOf(MAP);
+        final RobotsState returning = getReturningState(game);
+        final RobotsState sameRobotsBeforeGoal = withWaypointsReached(returning, 0);
+
+        try (final SolutionStore store = SolutionStore.open(iTempDir.resolve("solutions.store"))) {
+            final Solution beforeGoal = new StoredSearchAlgorithm(store, game.getBoard(), -1,
+                    new BreadthFirstSearchIterative(game.getBoard())).run(sameRobotsBeforeGoal, game.getEndCriteria());
+            final Solution afterGoal = new StoredSearchAlgorithm(store, game.getBoard(), -1,
+                    new BreadthFirstSearchIterative(game.getBoard())).run(returning, game.getEndCriteria());
+
+            assertEquals(new BreadthFirstSearchIterative(game.getBoard()).run(returning, game.getEndCriteria()).getSolutionPath(),
+                    afterGoal.getSolutionPath());
+            assertNotEquals(beforeGoal.getSolutionPath().size(), afterGoal.getSolutionPath().size());
+            assertEquals(2, store.size());
+
+            final Solution storedAfterGoal = new StoredSearchAlgorithm(store, game.getBoard(), -1, NOT_CALLED)
+                    .run(returning, game.getEndCriteria());
+            assertEquals(afterGoal.getSolutionPath(), storedAfterGoal.getSolutionPath());
+        }
+    }
+
+    @Test
+    void testStoredMovesThatDoNotSolveAreSolvedAgain() throws IOException, NoSolutionException {
+        final Game game = Game.valueOf(MAP);
+        final RobotsState start = game.getInitialRobotsState();
+
+        try (final SolutionStore store = SolutionStore.open(iTempDir.resolve("solutions.store"))) {
+            // an entry of the key with moves that do not reach the goal, as after a hash collision
+            final long key = SolutionStore.hashKey(SearchKeys.of(game.getBoard(), start, game.getEndCriteria()));
+            store.put(key, new SolutionStore.Entry(-1, new byte[]{RobotsStateUtil.packMove(0, Direction.up)}, List.of()));
+
+            final Solution solution = new StoredSearchAlgorithm(store, game.getBoard(), -1,
+                    new BreadthFirstSearchIterative(game.getBoard())).run(start, game.getEndCriteria());
+            assertEquals(BreadthFirstSearchIterative.class.getSimpleName(), solution.getAlgorithmName());
+            assertEquals(game.getEndCriteria().size(),
+                    solution.getSolutionPath().get(solution.getSolutionPath().size() - 1).getWaypointsReached());
+        }
+    }
+
+    @Test
+    void testEntriesAcrossSegments() throws IOException {
+        final Path storeFile = iTempDir.resolve("solutions.store");
+
+        // segments much smaller than the entries, so entries are read past the end of their segment
+        try (final SolutionStore store = SolutionStore.open(storeFile, 16)) {
+            for (int i = 0; i < 200; i++) {
+                store.put(i, createEntry(i));
+            }
+            assertEntries(store, 200);
+        }
+        try (final SolutionStore store = SolutionStore.open(storeFile, 16)) {
+            assertEquals(200, store.size());
+            assertEntries(store, 200);
+            store.put(200, createEntry(200));
+            assertEntries(store, 201);
+        }
+        try (final SolutionStore store = SolutionStore.open(storeFile)) {
+            assertEntries(store, 201);
+        }
+    }
+
+    @Test
+    void testLookupsOfAppendedEntriesDoNotRemap() throws IOException {
+        final Path storeFile = iTempDir.resolve("solutions.store");
+        try (final SolutionStore store = SolutionStore.open(storeFile)) {
+            final int mappings = store.getMappingCount();
+            // the generator loop, a miss is solved and stored, stored entries are looked up again
+            for (int i = 0; i < 1000; i++) {
+                assertNull(store.get(i));
+                store.put(i, createEntry(i));
+                assertEquals(createEntry(i).depthsKept(), store.get(i).depthsKept());
+                assertArrayEquals(createEntry(i / 2).packedMoves(), store.get(i / 2).packedMoves());
+            }
+            assertEquals(mappings, store.getMappingCount());
+            assertEntries(store, 1000);
+        }
+        try (final SolutionStore store = SolutionStore.open(storeFile)) {
+            assertEntries(store, 1000);
+        }
+    }
+
+    //-------------------------------------------------------------------------------------------------------------------------------------
+
+    private static SolutionStore.Entry createEntry(final int i) {
+        final byte[] packedMoves = new byte[i % 40];
+        Arrays.fill(packedMoves, (byte) i);
+        return new SolutionStore.Entry(i % 3, packedMoves, List.of(new SolutionLengthCount(i % 50, i)));
+    }
+
+    private static void assertEntries(final SolutionStore store, final int count) {
+        for (int i = 0; i < count; i++) {
+            final SolutionStore.Entry expected = createEntry(i);
+            final SolutionStore.Entry entry = store.get(i);
+            assertEquals(expected.depthsKept(), entry.depthsKept());
+            assertArrayEquals(expected.packedMoves(), entry.packedMoves());
+            assertEquals(expected.solutionLengthCounts(), entry.solutionLengthCounts());
+        }
+    }
+
+    /**
+     * @return a state of the solution of the game after the goal is reached and the main robot has left it
+     */
+    static RobotsState getReturningState(final Game game) throws NoSolutionException {
+        final List<RobotsState> path = new BreadthFirstSearchIterative(game.getBoard())
+                .run(game.getInitialRobotsState(), game.getEndCriteria()).getSolutionPath();
+        return path.stream()
+                .filter(state -> state.getWaypointsReached() == 1 && !game.getBoard().isGoalReached(state))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    static RobotsState withWaypointsReached(final RobotsState state, final int waypointsReached) {
+        final byte[] positions = new byte[2 * state.getRobotCount()];
+        for (int i = 0; i < state.getRobotCount(); i++) {
+            positions[2 * i] = (byte) state.getPositionX(i);
+            positions[2 * i + 1] = (byte) state.getPositionY(i);
+        }
+        return new RobotsState(positions, (byte) waypointsReached);
+    }
+}
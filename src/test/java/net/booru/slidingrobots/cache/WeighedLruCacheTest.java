@@ -0,0 +1,209 @@
+package net.booru.slidingrobots.cache;
+
+import net.booru.slidingrobots.algorithm.BreadthFirstSearchIterative;
+import net.booru.slidingrobots.algorithm.MinBumpsSearch;
+import net.booru.slidingrobots.algorithm.NoSolutionException;
+import net.booru.slidingrobots.algorithm.SearchAbortedException;
+import net.booru.slidingrobots.algorithm.SearchControl;
+import net.booru.slidingrobots.algorithm.model.Solution;
+import net.booru.slidingrobots.state.Game;
+import net.booru.slidingrobots.state.RobotsState;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WeighedLruCacheTest {
+
+    @Test
+    void testEvictsLeastRecentlyUsedByWeight() {
+        final WeighedLruCache<String, String> cache = new WeighedLruCache<>(10, String::length);
+        cache.put("a", "aaaa");
+        cache.put("b", "bbbb");
+        cache.getIfPresent("a");
+        cache.put("c", "cc"); // weight 10, nothing evicted
+        cache.put("d", "d");  // b is the least recently used
+
+        assertNull(cache.getIfPresent("b"));
+        assertEquals("aaaa", cache.getIfPresent("a"));
+        assertEquals(new WeighedLruCache.Stats(0, 0, 1, 3, 7), cache.getStats());
+
+        cache.put("e", "eeeeeeeeeeeee"); // heavier than the cache
+        assertNull(cache.getIfPresent("e"));
+    }
+
+    @Test
+    void testAbortedLoadIsLoadedAgainByAWaitingThread() throws Exception {
+        final WeighedLruCache<String, String> cache = new WeighedLruCache<>(10, String::length);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            // the first loader runs out of its budget after the second thread started waiting for it
+            final Future<String> aborted = executor.submit(() -> cache.get("key", () -> {
+                while (cache.getStats().hits() == 0) {
+                    Thread.sleep(1);
+                }
+                throw new SearchAbortedException(SearchAbortedException.Reason.STATE_LIMIT, "over budget");
+            }, new SearchControl(10, null)));
+            while (cache.getStats().misses() == 0) {
+                Thread.sleep(1);
+            }
+
+            assertEquals("value", cache.get("key", () -> "value", SearchControl.unlimited()));
+            final ExecutionException failure = assertThrows(ExecutionException.class, aborted::get);
+            assertInstanceOf(SearchAbortedException.class, failure.getCause());
+        }
+        assertEquals(2, cache.getStats().misses());
+    }
+
+    @Test
+    void testWaitingThreadsKeepTheirOwnDeadline() throws Exception {
+        final WeighedLruCache<String, String> cache = new WeighedLruCache<>(10, String::length);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            final Future<String> loaded = executor.submit(() -> cache.get("key", () -> {
+                started.countDown();
+                release.await();
+                return "value";
+            }));
+            started.await();
+
+            final long start = System.nanoTime();
+            final SearchAbortedException timeout = assertThrows(SearchAbortedException.class,
+                    () -> cache.get("key", () -> "other", new SearchControl(0, Duration.ofMillis(20))));
+            assertEquals(SearchAbortedException.Reason.TIMEOUT, timeout.getReason());
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+
+            final SearchControl cancelled = SearchControl.unlimited();
+            final Future<String> waiting = executor.submit(() -> cache.get("key", () -> "other", cancelled));
+            while (cache.getStats().hits() < 2) {
+                Thread.sleep(1);
+            }
+            cancelled.cancel();
+            final ExecutionException failure = assertThrows(ExecutionException.class, waiting::get);
+            assertEquals(SearchAbortedException.Reason.CANCELLED, ((SearchAbortedException) failure.getCause()).getReason());
+
+            release.countDown();
+            assertEquals("value", loaded.get());
+        }
+        assertEquals("value", cache.getIfPresent("key"));
+    }
+
+    @Test
+    void testFailedLoadIsNotCached() throws IOException {
+        final WeighedLruCache<String, String> cache = new WeighedLruCache<>(10, String::length);
+        assertThrows(IOException.class, () -> cache.get("a", () -> {
+            throw new IOException("failed");
+        }));
+        assertEquals("a", cache.get("a", () -> "a"));
+        assertEquals("a", cache.get("a", () -> "not loaded"));
+        assertEquals(new WeighedLruCache.Stats(1, 2, 0, 1, 1), cache.getStats());
+    }
+
+    @Test
+    void testConcurrentLoadsRunOnce() throws Exception {
+        final WeighedLruCache<String, String> cache = new WeighedLruCache<>(10, String::length);
+        final AtomicInteger loadCount = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final int threadCount = 8;
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(threadCount)) {
+            final List<Future<String>> results = new ArrayList<>();
+            results.add(executor.submit(() -> cache.get("key", () -> {
+                started.countDown();
+                release.await();
+                loadCount.incrementAndGet();
+                return "value";
+            })));
+            started.await();
+
+            for (int i = 1; i < threadCount; i++) {
+                results.add(executor.submit(() -> cache.get("key", () -> {
+                    loadCount.incrementAndGet();
+                    return "other";
+                })));
+            }
+            Thread.sleep(50);
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertEquals("value", result.get());
+            }
+        }
+        assertEquals(1, loadCount.get());
+        assertEquals(1, cache.getStats().misses());
+        assertEquals(threadCount - 1, cache.getStats().hits());
+    }
+
+    @Test
+    void testCachedSearchAlgorithm() throws NoSolutionException {
+        final WeighedLruCache<String, Solution> cache = CachedSearchAlgorithm.createCache(1000);
+        final Game game = Game.valueOf("m:8:8,b:0:0,b:0:4,b:2:4,b:2:5,b:3:1,h:3:4,h:4:1,b:4:6,r:5:5,b:5:7,b:7:0,g:6:7");
+        final Game sameGame = Game.valueOf(game.getNormalizedMapString());
+
+        final Solution solved = new CachedSearchAlgorithm(cache, game.getBoard(), 2, new BreadthFirstSearchIterative(game.getBoard(), 2))
+                .run(game.getInitialRobotsState(), game.getEndCriteria());
+        final Solution cached = new CachedSearchAlgorithm(cache, sameGame.getBoard(), 2, (startState, endCriteria) -> {
+            throw new AssertionError("expected a cached solution");
+        }).run(sameGame.getInitialRobotsState(), sameGame.getEndCriteria());
+
+        assertEquals(solved.getSolutionPath(), cached.getSolutionPath());
+        assertEquals(solved.getStatistics().getSolutionLengths(), cached.getStatistics().getSolutionLengths());
+        assertEquals(CachedSearchAlgorithm.class.getSimpleName(), cached.getAlgorithmName());
+        assertEquals(solved.getSolutionPath().size(), cache.getStats().weight());
+    }
+
+    @Test
+    void testCachedSearchAlgorithmBumpsRange() throws NoSolutionException {
+        final WeighedLruCache<String, Solution> cache = CachedSearchAlgorithm.createCache(1000);
+        final Game game = Game.valueOf("m:8:8,b:0:0,b:0:4,b:2:4,b:2:5,b:3:1,h:3:4,h:4:1,b:4:6,r:5:5,b:5:7,b:7:0,g:6:7");
+
+        new CachedSearchAlgorithm(cache, game.getBoard(), -1, new BreadthFirstSearchIterative(game.getBoard()))
+                .run(game.getInitialRobotsState(), game.getEndCriteria());
+        final Solution solved = new CachedSearchAlgorithm(cache, game.getBoard(), -1, true,
+                new MinBumpsSearch(game.getBoard()), SearchControl.unlimited())
+                .run(game.getInitialRobotsState(), game.getEndCriteria());
+        final Solution cached = new CachedSearchAlgorithm(cache, game.getBoard(), -1, true, (startState, endCriteria) -> {
+            throw new AssertionError("expected a cached solution");
+        }, SearchControl.unlimited()).run(game.getInitialRobotsState(), game.getEndCriteria());
+
+        assertEquals(MinBumpsSearch.class.getSimpleName(), solved.getAlgorithmName());
+        assertEquals(solved.getStatistics().getMinBumps(), cached.getStatistics().getMinBumps());
+        assertEquals(solved.getStatistics().getMaxBumps(), cached.getStatistics().getMaxBumps());
+    }
+
+    @Test
+    void testCachedSearchAlgorithmMidGameStates() throws NoSolutionException {
+        final WeighedLruCache<String, Solution> cache = CachedSearchAlgorithm.createCache(1000);
+        final Game game = Game.valueOf("m:8:8,b:0:0,b:0:4,b:2:4,b:2:5,b:3:1,h:3:4,h:4:1,b:4:6,r:5:5,b:5:7,b:7:0,g:6:7");
+        final RobotsState returning = SolutionStoreTest.getReturningState(game);
+        final RobotsState sameRobotsBeforeGoal = SolutionStoreTest.withWaypointsReached(returning, 0);
+
+        final Solution beforeGoal = new CachedSearchAlgorithm(cache, game.getBoard(), -1,
+                new BreadthFirstSearchIterative(game.getBoard())).run(sameRobotsBeforeGoal, game.getEndCriteria());
+        final Solution afterGoal = new CachedSearchAlgorithm(cache, game.getBoard(), -1,
+                new BreadthFirstSearchIterative(game.getBoard())).run(returning, game.getEndCriteria());
+
+        assertEquals(BreadthFirstSearchIterative.class.getSimpleName(), afterGoal.getAlgorithmName());
+        assertNotEquals(beforeGoal.getSolutionPath().size(), afterGoal.getSolutionPath().size());
+        assertEquals(game.getEndCriteria().size(),
+                afterGoal.getSolutionPath().get(afterGoal.getSolutionPath().size() - 1).getWaypointsReached());
+    }
+}
@@ -0,0 +1,41 @@
+package net.booru.slidingrobots.common;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QuantileSketchTest {
+
+    @Test
+    void testQuantilesWithinRelativeAccuracy() throws IOException {
+        final Random random = new Random(3);
+        final double[] values = new double[20_000];
+        final QuantileSketch first = new QuantileSketch(0.01);
+        final QuantileSketch second = new QuantileSketch(0.01);
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i % 100 == 0 ? 0 : Math.exp(random.nextGaussian() * 2);
+            (i % 2 == 0 ? first : second).add(values[i]);
+        }
+
+        // merged and stored halves are the same as one sketch of all values
+        first.merge(second);
+        final ObjectMapper mapper = new ObjectMapper();
+        final QuantileSketch sketch = mapper.readValue(mapper.writeValueAsString(first), QuantileSketch.class);
+        assertEquals(values.length, sketch.getCount());
+
+        Arrays.sort(values);
+        for (double quantile : new double[]{0, 0.005, 0.1, 0.25, 0.5, 0.9, 0.99, 1}) {
+            final double expected = values[(int) (quantile * (values.length - 1))];
+            assertEquals(expected, sketch.getQuantile(quantile), expected * 0.01 + 1e-12, "quantile " + quantile);
+        }
+
+        assertTrue(Double.isNaN(new QuantileSketch(0.01).getQuantile(0.5)));
+        assertThrows(IllegalArgumentException.class, () -> sketch.merge(new QuantileSketch(0.02)));
+        assertThrows(IllegalArgumentException.class, () -> sketch.add(-1));
+    }
+}
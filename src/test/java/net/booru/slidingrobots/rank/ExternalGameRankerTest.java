@@ -0,0 +1,52 @@
+package net.booru.slidingrobots.rank;
+
+import net.booru.slidingrobots.rank.multidim.MultiDimRanking;
+import net.booru.slidingrobots.sweep.SeedIndex;
+import net.booru.slidingrobots.sweep.SeedIndexRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ExternalGameRankerTest {
+
+    @Test
+    void testSameOrderAsInMemoryRanking(@TempDir final Path directory) throws IOException {
+        final SeedIndex.Header header = new SeedIndex.Header(8, 8, false);
+        final Random random = new Random(5);
+        final List<GameFeatures> games = new ArrayList<>();
+        final List<Path> indexFiles = List.of(directory.resolve("a.idx"), directory.resolve("b.idx"));
+        long seedIndex = 0;
+        for (Path indexFile : indexFiles) {
+            final List<SeedIndexRecord> records = new ArrayList<>();
+            for (int i = 0; i < 1500; i++) {
+                final SeedIndexRecord record = new SeedIndexRecord(seedIndex++, 2 + random.nextInt(12), random.nextInt(6),
+                        1 + random.nextInt(3), random.nextInt(40), random.nextInt(200));
+                records.add(record);
+                games.add(GameFeatures.of(record));
+            }
+            records.add(SeedIndexRecord.noSolution(seedIndex++));
+            try (final SeedIndex index = SeedIndex.openForAppend(indexFile, header)) {
+                index.append(records);
+            }
+        }
+
+        final Path tempDirectory = Files.createDirectory(directory.resolve("tmp"));
+        final Path outputFile = directory.resolve("ranked.idx");
+        assertEquals(games.size(), new ExternalGameRanker(50, tempDirectory).rank(indexFiles, outputFile));
+
+        final List<GameFeatures> ranked = new ArrayList<>();
+        assertEquals(header, SeedIndex.forEach(outputFile, record -> ranked.add(GameFeatures.of(record))));
+        assertEquals(new MultiDimRanking<>(GameRanker.<GameFeatures>createRanks()).applyRank(games), ranked);
+        try (var files = Files.list(tempDirectory)) {
+            assertEquals(0, files.count());
+        }
+    }
+}
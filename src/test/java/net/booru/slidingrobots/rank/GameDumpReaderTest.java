@@ -0,0 +1,87 @@
+package net.booru.slidingrobots.rank;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import net.booru.slidingrobots.algorithm.BreadthFirstSearchIterative;
+import net.booru.slidingrobots.algorithm.NoSolutionException;
+import net.booru.slidingrobots.algorithm.model.Solution;
+import net.booru.slidingrobots.state.Game;
+import net.booru.slidingrobots.state.seed.SeedSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameDumpReaderTest {
+
+    @Test
+    void testRerankEqualsRankOfSolvedGames(@TempDir final Path directory) throws IOException {
+        final SeedSource seedSource = new SeedSource(1234L);
+        final List<GameWithSolution> games = new ArrayList<>();
+        while (games.size() < 40) {
+            final Game game = Game.valueOfSeed(seedSource.nextSeedString(6, 6, false));
+            try {
+                final Solution solution = new BreadthFirstSearchIterative(game.getBoard(), 2)
+                        .run(game.getInitialRobotsState(), game.getEndCriteria());
+                games.add(new GameWithSolution(game, solution, null));
+            } catch (NoSolutionException e) {
+                // only solved games are generated
+            }
+        }
+
+        final ObjectWriter writer = new ObjectMapper().writer();
+        final List<GameWithSolution> ranked = new GameRanker().apply(games);
+        final StringBuilder mapsFile = new StringBuilder();
+        for (GameWithSolution game : ranked) {
+            mapsFile.append(writer.writeValueAsString(GameDump.of(game))).append('\n');
+        }
+
+        final List<DumpedGame> dumpedGames;
+        try (final GameDumpReader reader = new GameDumpReader(new StringReader(mapsFile.toString()))) {
+            dumpedGames = reader.stream().toList();
+        }
+        assertEquals(games.size(), dumpedGames.size());
+        for (int i = 0; i < ranked.size(); i++) {
+            assertEquals(ranked.get(i).bumps(), dumpedGames.get(i).bumps());
+        }
+
+        // the same input order on both sides, equal values keep it
+        final List<String> expected = new GameRanker().apply(ranked).stream()
+                .map(game -> writeUnchecked(writer, GameDump.of(game)))
+                .toList();
+        final Path mapsFilePath = Files.writeString(directory.resolve("maps.json"), mapsFile);
+        final List<String> actual;
+        try (Stream<DumpedGame> stream = GameDumpReader.stream(mapsFilePath)) {
+            actual = new GameRanker().rerank(stream).stream()
+                    .map(dump -> writeUnchecked(writer, dump))
+                    .toList();
+        }
+        assertEquals(expected, actual);
+
+        // the games are read as the stream is consumed, a broken last line is only read by a full pass
+        final Path brokenFile = Files.writeString(directory.resolve("broken.json"), mapsFile + "{\"mapString\":");
+        try (Stream<DumpedGame> stream = GameDumpReader.stream(brokenFile)) {
+            assertEquals(games.size(), stream.limit(games.size()).count());
+        }
+        try (Stream<DumpedGame> stream = GameDumpReader.stream(brokenFile)) {
+            assertThrows(UncheckedIOException.class, stream::count);
+        }
+    }
+
+    private static String writeUnchecked(final ObjectWriter writer, final GameDump dump) {
+        try {
+            return writer.writeValueAsString(dump);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -40,5 +40,12 @@ class GameRankerTest {
         ).apply(List.of(game1, game2), List.of(solution1, solution2));
         assertEquals(game2, ranked.get(0).game());
         assertEquals(game1, ranked.get(1).game());
+
+        final List<GameWithSolution> games = List.of(new GameWithSolution(game1, solution1, null),
+                new GameWithSolution(game2, solution2, null));
+        assertEquals(List.of(game1), new GameRanker().select(games, 1, 2).stream().map(GameWithSolution::game).toList());
+        final var perLength = new GameRanker().selectPerSolutionLength(games, 1);
+        assertEquals(game1, perLength.get(solution1.getStatistics().getSolutionLength()).get(0).game());
+        assertEquals(game2, perLength.get(solution2.getStatistics().getSolutionLength()).get(0).game());
     }
 }
\ No newline at end of file
@@ -0,0 +1,66 @@
+package net.booru.slidingrobots.rank.multidim;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IncrementalRankingTest {
+    private static final List<Rank<Entity>> RANKS = List.of(
+            new Rank<>("R1", e -> e.value1, v -> v * 0.1),
+            new Rank<>("R2", e -> e.value2, v -> 1),
+            new Rank<>("R3", e -> e.value3, v -> 0));
+
+    @Test
+    void testSameOrderAsBatchRanking() {
+        final Random random = new Random(11);
+        final MultiDimRanking<Entity> batch = new MultiDimRanking<>(RANKS);
+        final IncrementalRanking<Entity> incremental = new IncrementalRanking<>(RANKS);
+        final List<Entity> inserted = new ArrayList<>();
+
+        for (int i = 0; i < 3000; i++) {
+            if (!inserted.isEmpty() && random.nextInt(3) == 0) {
+                final Entity removed = inserted.remove(random.nextInt(inserted.size()));
+                assertTrue(incremental.remove(removed));
+                assertFalse(incremental.remove(removed));
+            } else {
+                final Entity entity = new Entity(i, random.nextInt(100), random.nextInt(6), random.nextInt(3));
+                inserted.add(entity);
+                assertTrue(incremental.add(entity));
+            }
+
+            if (i % 100 == 0 || i > 2950) {
+                final List<Entity> expected = batch.applyRank(inserted);
+                assertEquals(expected, incremental.toList(), "after step " + i);
+                assertEquals(expected.size(), incremental.size());
+                for (int position = 0; position < expected.size(); position++) {
+                    assertEquals(position, incremental.positionOf(expected.get(position)));
+                    assertEquals(expected.get(position), incremental.get(position));
+                }
+            }
+        }
+        assertEquals(-1, incremental.positionOf(new Entity(-1, 0, 0, 0)));
+    }
+
+    @Test
+    void testRemoveFirstOfGroupRegroups() {
+        final IncrementalRanking<Entity> incremental = new IncrementalRanking<>(List.of(new Rank<>("R1", e -> e.value1, v -> 10)));
+        final Entity first = new Entity(0, 0, 0, 0);
+        final Entity second = new Entity(1, 8, 0, 0);
+        final Entity third = new Entity(2, 15, 0, 0);
+        List.of(third, second, first).forEach(incremental::add);
+        assertEquals(List.of(first, second, third), incremental.toList());
+
+        assertTrue(incremental.remove(first)); // 8 and 15 are now in the same group
+        assertEquals(List.of(second, third), incremental.toList());
+        assertEquals(1, incremental.positionOf(third));
+    }
+
+    record Entity(int id, double value1, double value2, double value3) {
+    }
+}
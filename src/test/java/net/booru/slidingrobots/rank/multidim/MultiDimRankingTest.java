@@ -4,7 +4,12 @@ import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
@@ -123,6 +128,126 @@ class MultiDimRankingTest {
         // same group
     }
 
+    @Test
+    void testEachRankValueCalculatedOnce() {
+        final AtomicInteger calls1 = new AtomicInteger();
+        final AtomicInteger calls2 = new AtomicInteger();
+        final MultiDimRanking<Entity> mdRanker = new MultiDimRanking<>(List.of(
+                new Rank<>("R1", d -> {
+                    calls1.incrementAndGet();
+                    return d.value;
+                }, d -> d * 0.1),
+                new Rank<>("R2", d -> {
+                    calls2.incrementAndGet();
+                    return d.value2;
+                }, d -> 1)
+        ));
+
+        final List<Entity> unordered = List.of(new Entity(100, 2), new Entity(120, 7), new Entity(110, 3),
+                new Entity(101, 5), new Entity(130, 6), new Entity(200, 1));
+        final List<RankResult<Entity>> results = mdRanker.applyRankWithResults(unordered);
+        assertEquals(mdRanker.applyRank(unordered), results.stream().map(RankResult::getElement).toList());
+        assertEquals(2 * unordered.size(), calls1.get());
+        assertEquals(2 * (unordered.size() - 1), calls2.get()); // 200 is alone in its group at R1
+
+        // reading the values after the ranking calculates only the missing value of 200
+        for (RankResult<Entity> result : results) {
+            assertEquals(result.getElement().value(), result.getValuesWithDescription().get(0).rankValue());
+            assertEquals(result.getElement().value2(), result.getValue(1));
+        }
+        assertEquals(2 * unordered.size(), calls1.get());
+        assertEquals(2 * (unordered.size() - 1) + 1, calls2.get());
+    }
+
+    @Test
+    void testIndexSortIsStable() {
+        final Random random = new Random(42);
+        for (int length : new int[]{0, 1, 5, 33, 1000, 5000}) {
+            final double[] keys = new double[length];
+            Arrays.setAll(keys, i -> random.nextInt(50) - 25 + (random.nextInt(10) == 0 ? -0.0 : 0.0));
+            final int[] indices = new int[length];
+            Arrays.setAll(indices, i -> i);
+            IndexSort.sort(indices, 0, length, keys);
+
+            final List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < length; i++) {
+                expected.add(i);
+            }
+            expected.sort(Comparator.comparingDouble(i -> keys[i]));
+            assertEquals(expected, Arrays.stream(indices).boxed().toList());
+        }
+    }
+
+    @Test
+    void testParallelRankingIsIdentical() {
+        final Random random = new Random(7);
+        final List<Entity> unordered = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            unordered.add(new Entity(random.nextInt(400) / 4.0, random.nextInt(30)));
+        }
+
+        final AtomicInteger sequentialCalls = new AtomicInteger();
+        final AtomicInteger parallelCalls = new AtomicInteger();
+        final MultiDimRanking<Entity> sequential = new MultiDimRanking<>(createRanks(sequentialCalls), false);
+        final MultiDimRanking<Entity> parallel = new MultiDimRanking<>(createRanks(parallelCalls), true);
+
+        assertEquals(sequential.getFinalGroups(unordered), parallel.getFinalGroups(unordered));
+        assertEquals(sequentialCalls.get(), parallelCalls.get());
+    }
+
+    @Test
+    void testSelectEqualsRankedRange() {
+        final Random random = new Random(3);
+        final List<Entity> unordered = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            unordered.add(new Entity(random.nextInt(300) / 3.0, random.nextInt(20)));
+        }
+        final MultiDimRanking<Entity> mdRanker = new MultiDimRanking<>(List.of(
+                new Rank<>("R1", d -> d.value, d -> d * 0.05),
+                new Rank<>("R2", d -> -d.value2, d -> 3),
+                new Rank<>("R3", d -> d.value2 % 7, d -> 0)));
+        final List<Entity> ranked = mdRanker.applyRank(unordered);
+
+        for (int[] range : new int[][]{{0, 0}, {0, 1}, {0, 10}, {0, 2000}, {5, 6}, {100, 250}, {1999, 2000}, {1000, 2000}}) {
+            assertEquals(ranked.subList(range[0], range[1]), mdRanker.select(unordered, range[0], range[1]),
+                    range[0] + ".." + range[1]);
+        }
+        for (int i = 0; i < 200; i++) {
+            final int from = random.nextInt(unordered.size());
+            final int to = from + random.nextInt(unordered.size() - from + 1);
+            assertEquals(ranked.subList(from, to), mdRanker.select(unordered, from, to), from + ".." + to);
+        }
+    }
+
+    @Test
+    void testSelectTopRanksFewElements() {
+        final AtomicInteger calls = new AtomicInteger();
+        final MultiDimRanking<Entity> mdRanker = new MultiDimRanking<>(List.of(
+                new Rank<>("R1", d -> d.value, d -> 1),
+                new Rank<>("R2", d -> {
+                    calls.incrementAndGet();
+                    return d.value2;
+                }, d -> 0)));
+        final List<Entity> unordered = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            unordered.add(new Entity(i % 100, i));
+        }
+
+        final List<Entity> top = mdRanker.select(unordered, 0, 5);
+        assertEquals(20, calls.get()); // only the group of values 0 and 1, 20 elements, is ranked by R2
+        assertEquals(mdRanker.applyRank(unordered).subList(0, 5), top);
+    }
+
+    private static List<Rank<Entity>> createRanks(final AtomicInteger calls) {
+        return List.of(
+                new Rank<>("R1", d -> {
+                    calls.incrementAndGet();
+                    return d.value;
+                }, d -> 10), // groups of about 5000 elements, ranked by forked tasks
+                new Rank<>("R2", d -> -d.value2, d -> 2),
+                new Rank<>("R3", d -> d.value * d.value2 % 17, d -> 0));
+    }
+
     record Entity(
             double value,
             int value2
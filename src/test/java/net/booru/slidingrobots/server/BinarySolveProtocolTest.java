@@ -0,0 +1,128 @@
+package net.booru.slidingrobots.server;
+
+import net.booru.slidingrobots.algorithm.BreadthFirstSearchIterative;
+import net.booru.slidingrobots.algorithm.NoSolutionException;
+import net.booru.slidingrobots.algorithm.model.Solution;
+import net.booru.slidingrobots.state.Game;
+import net.booru.slidingrobots.state.RobotsState;
+import net.booru.slidingrobots.state.RobotsStateUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BinarySolveProtocolTest {
+
+    @TempDir
+    Path iTempDir;
+
+    private static final List<String> MAPS = List.of(
+            "m:8:8,b:0:0,b:0:4,b:2:4,b:2:5,b:3:1,h:3:4,h:4:1,b:4:6,r:5:5,b:5:7,b:7:0,g:6:7",
+            "m:4:4:oneway,b:1:0,b:1:1,b:2:1,b:0:3,r:0:0,g:2:0",
+            "seed:9:8:Z8GZ-4KCM");
+
+    @Test
+    void testCellsRoundTrip() {
+        for (String map : MAPS) {
+            final Game game = Game.valueOf(map);
+            final ByteBuffer frame = BinarySolveProtocol.encodeCellsRequest(7, 100, game);
+            assertEquals(frame.remaining() - 4, frame.getInt());
+
+            final BinarySolveProtocol.Request request = BinarySolveProtocol.decodeRequest(frame);
+            assertEquals(7, request.requestId());
+            assertEquals(100, request.timeoutMs());
+            assertEquals(game.isOneWay(), request.game().isOneWay());
+            for (int x = 0; x < game.getBoard().getWidth(); x++) {
+                for (int y = 0; y < game.getBoard().getHeight(); y++) {
+                    assertEquals(game.getBoard().getPiece(x, y), request.game().getBoard().getPiece(x, y));
+                }
+            }
+            // helper robots are in row major order after decoding
+            assertEquals(robotPositions(game.getInitialRobotsState()), robotPositions(request.game().getInitialRobotsState()));
+        }
+    }
+
+    @Test
+    void testPipelinedRequests() throws IOException, NoSolutionException {
+        final Path socketPath = iTempDir.resolve("solve.sock");
+        final SolveService solveService = new SolveService(
+                (board, control) -> new BreadthFirstSearchIterative(board, -1, control), 0, Duration.ofSeconds(10),
+                new SolveScheduler(new SolveScheduler.Config(2, 1, 16, SolveScheduler.Config.DEFAULT_HEAVY_COST, 0)));
+        final UnixSocketSolveServer server = new UnixSocketSolveServer(socketPath, solveService);
+        server.start();
+
+        try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            channel.connect(UnixDomainSocketAddress.of(socketPath));
+            final List<Game> requestedGames = new ArrayList<>();
+            for (int i = 0; i < MAPS.size(); i++) {
+                final Game game = Game.valueOf(MAPS.get(i));
+                final ByteBuffer request = i % 2 == 0
+                        ? BinarySolveProtocol.encodeCellsRequest(i, 0, game)
+                        : BinarySolveProtocol.encodeStringRequest(i, 0, MAPS.get(i));
+                requestedGames.add(BinarySolveProtocol.decodeRequest(request.duplicate().position(4)).game());
+                write(channel, request);
+            }
+            write(channel, BinarySolveProtocol.encodeStringRequest(99, 0, "junk"));
+
+            final Map<Integer, BinarySolveProtocol.Response> responses = new HashMap<>();
+            for (int i = 0; i <= MAPS.size(); i++) {
+                final BinarySolveProtocol.Response response = BinarySolveProtocol.decodeResponse(readFrame(channel));
+                responses.put(response.requestId(), response);
+            }
+
+            assertEquals(BinarySolveProtocol.STATUS_INVALID, responses.get(99).status());
+            for (int i = 0; i < MAPS.size(); i++) {
+                final Game game = requestedGames.get(i);
+                final Solution solution = new BreadthFirstSearchIterative(game.getBoard())
+                        .run(game.getInitialRobotsState(), game.getEndCriteria());
+                assertEquals(BinarySolveProtocol.STATUS_SOLVED, responses.get(i).status());
+                assertArrayEquals(RobotsStateUtil.toPackedMoves(solution.getSolutionPath()), responses.get(i).packedMoves());
+            }
+        } finally {
+            server.stop(Duration.ofSeconds(1));
+        }
+    }
+
+    private static Set<List<Integer>> robotPositions(final RobotsState robotsState) {
+        final Set<List<Integer>> positions = new HashSet<>();
+        for (int i = 0; i < robotsState.getRobotCount(); i++) {
+            positions.add(List.of(i == 0 ? 0 : 1, robotsState.getPositionX(i), robotsState.getPositionY(i)));
+        }
+        return positions;
+    }
+
+    private static void write(final SocketChannel channel, final ByteBuffer frame) throws IOException {
+        while (frame.hasRemaining()) {
+            channel.write(frame);
+        }
+    }
+
+    private static ByteBuffer readFrame(final SocketChannel channel) throws IOException {
+        final ByteBuffer length = readFully(channel, ByteBuffer.allocate(4));
+        return readFully(channel, ByteBuffer.allocate(length.getInt()));
+    }
+
+    private static ByteBuffer readFully(final SocketChannel channel, final ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("closed");
+            }
+        }
+        return buffer.flip();
+    }
+}
@@ -0,0 +1,110 @@
+package net.booru.slidingrobots.server;
+
+import net.booru.slidingrobots.algorithm.BreadthFirstSearchIterative;
+import net.booru.slidingrobots.algorithm.NoSolutionException;
+import net.booru.slidingrobots.algorithm.SearchControl;
+import net.booru.slidingrobots.common.Direction;
+import net.booru.slidingrobots.state.Game;
+import net.booru.slidingrobots.state.RobotsState;
+import net.booru.slidingrobots.state.RobotsStateUtil;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HintServiceTest {
+    private static final Game GAME =
+            Game.valueOf("m:8:8,b:0:0,b:0:4,b:2:4,b:2:5,b:3:1,h:3:4,h:4:1,b:4:6,r:5:5,b:5:7,b:7:0,g:6:7");
+
+    @Test
+    void testHintsFollowAnOptimalSolution() throws NoSolutionException {
+        final SolveScheduler scheduler = newScheduler();
+        final HintService hintService = new HintService(64 * 1024 * 1024, scheduler);
+
+        RobotsState state = GAME.getInitialRobotsState();
+        for (int remaining = solutionLength(state); remaining > 0; remaining--) {
+            final HintService.Hint hint = hintService.hint(GAME, state, SearchControl.unlimited());
+            assertEquals(remaining, hint.remainingMoves());
+            assertFalse(hint.moves().isEmpty());
+
+            // every suggested move is the first move of an optimal solution found by breadth first search
+            RobotsState next = null;
+            for (RobotsStateUtil.Move move : hint.moves()) {
+                next = makeMove(state, move);
+                assertEquals(remaining - 1, solutionLength(next), move.toString());
+            }
+            state = next;
+        }
+
+        final HintService.Hint solved = hintService.hint(GAME, state, SearchControl.unlimited());
+        assertEquals(0, solved.remainingMoves());
+        assertTrue(solved.moves().isEmpty());
+
+        // the table is built once, on the heavy lane
+        assertEquals(1, scheduler.getMetrics().heavy().admitted());
+        assertEquals(0, scheduler.getMetrics().fast().admitted());
+    }
+
+    @Test
+    void testTableBuildIsAdmittedByTheScheduler() throws Exception {
+        final SolveScheduler scheduler = newScheduler();
+        final HintService hintService = new HintService(64 * 1024 * 1024, scheduler);
+        final CountDownLatch running = new CountDownLatch(1);
+        final Semaphore release = new Semaphore(0);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            final Future<String> heavy = executor.submit(() ->
+                    scheduler.schedule(SolveScheduler.Lane.HEAVY, SearchControl.unlimited(), () -> {
+                        running.countDown();
+                        release.acquireUninterruptibly();
+                        return "heavy";
+                    }));
+            running.await();
+
+            // the heavy lane is busy and its queue is empty, the build is rejected
+            assertThrows(SolveRejectedException.class, () -> hintService.hint(GAME, GAME.getInitialRobotsState(),
+                    new SearchControl(0, Duration.ofMillis(20))));
+            assertEquals(0, hintService.getCacheStats().size());
+
+            release.release();
+            assertEquals("heavy", heavy.get());
+        }
+
+        final HintService.Hint hint = hintService.hint(GAME, GAME.getInitialRobotsState(), SearchControl.unlimited());
+        assertEquals(solutionLength(GAME.getInitialRobotsState()), hint.remainingMoves());
+        assertEquals(2, scheduler.getMetrics().heavy().admitted());
+        assertEquals(1, scheduler.getMetrics().heavy().rejected());
+    }
+
+    //-------------------------------------------------------------------------------------------------------------------------------------
+
+    private static SolveScheduler newScheduler() {
+        return new SolveScheduler(new SolveScheduler.Config(1, 1, 0, SolveScheduler.Config.DEFAULT_HEAVY_COST, 0));
+    }
+
+    /**
+     * @return the length of a breadth first search solution from {@code state}, 0 if the game is solved
+     */
+    private static int solutionLength(final RobotsState state) throws NoSolutionException {
+        if (state.getWaypointsReached() == GAME.getEndCriteria().size()) {
+            return 0;
+        }
+        return new BreadthFirstSearchIterative(GAME.getBoard()).run(state, GAME.getEndCriteria())
+                .getStatistics().getSolutionLength();
+    }
+
+    private static RobotsState makeMove(final RobotsState state, final RobotsStateUtil.Move move) {
+        final int robot = state.getRobotAtPosition(move.pos.x, move.pos.y);
+        return RobotsStateUtil.updateWaypointsReached(
+                GAME.getBoard().makeMove(robot, Direction.valueOf(move.dir.dx, move.dir.dy), state), GAME.getEndCriteria());
+    }
+}
@@ -0,0 +1,80 @@
+package net.booru.slidingrobots.server;
+
+import net.booru.slidingrobots.algorithm.NoSolutionException;
+import net.booru.slidingrobots.algorithm.SearchControl;
+import net.booru.slidingrobots.state.Game;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SolveSchedulerTest {
+    private static final Game SMALL = Game.valueOfMap("m:4:4,b:1:0,b:1:1,b:2:1,b:0:3,r:0:0,g:2:0");
+    private static final Game LARGE = Game.valueOf("seed:16:16:ABCD-1234");
+
+    @Test
+    void testLanes() {
+        final SolveScheduler scheduler = new SolveScheduler(new SolveScheduler.Config(1, 1, 0, 1000, 0));
+        assertEquals(SolveScheduler.Lane.FAST, scheduler.estimate(SMALL).lane());
+        assertEquals(SolveScheduler.Lane.HEAVY, scheduler.estimate(LARGE).lane());
+    }
+
+    @Test
+    void testUnreachableGoalIsNotSolved() {
+        final Game game = Game.valueOf2DMap("""
+                r . b .
+                . . b .
+                b b b .
+                . . . g
+                """);
+        final SolveScheduler scheduler = new SolveScheduler(new SolveScheduler.Config(1, 1, 0, 1000, 0));
+        assertThrows(NoSolutionException.class, () -> scheduler.schedule(game, SearchControl.unlimited(), () -> {
+            throw new AssertionError("expected no solve");
+        }));
+    }
+
+    @Test
+    void testQueueLimitAndDeadline() throws Exception {
+        final SolveScheduler scheduler = new SolveScheduler(new SolveScheduler.Config(1, 1, 1, 1000, 0));
+        final CountDownLatch running = new CountDownLatch(1);
+        final Semaphore release = new Semaphore(0);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            final Future<String> first = executor.submit(() -> scheduler.schedule(SMALL, SearchControl.unlimited(), () -> {
+                running.countDown();
+                release.acquireUninterruptibly();
+                return "first";
+            }));
+            running.await();
+
+            // the lane is busy, a request that cannot wait is rejected
+            assertThrows(SolveRejectedException.class, () -> scheduler.schedule(SMALL,
+                    new SearchControl(0, Duration.ofMillis(20)), () -> "late"));
+
+            final Future<String> queued = executor.submit(() -> scheduler.schedule(SMALL, SearchControl.unlimited(), () -> "queued"));
+            while (scheduler.getMetrics().fast().queued() == 0) {
+                Thread.sleep(1);
+            }
+
+            // the queue holds one request
+            assertThrows(SolveRejectedException.class, () -> scheduler.schedule(SMALL, SearchControl.unlimited(), () -> "full"));
+
+            release.release();
+            assertEquals("first", first.get());
+            assertEquals("queued", queued.get());
+        }
+
+        final SolveScheduler.LaneMetrics metrics = scheduler.getMetrics().fast();
+        assertEquals(2, metrics.admitted());
+        assertEquals(2, metrics.rejected());
+        assertEquals(0, metrics.running());
+        assertEquals(0, metrics.queued());
+    }
+}
@@ -0,0 +1,122 @@
+package net.booru.slidingrobots.server;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.booru.slidingrobots.algorithm.BreadthFirstSearchIterative;
+import net.booru.slidingrobots.state.Game;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SolveServerTest {
+    private static final String MAP = "m:4:4:oneway,b:1:0,b:1:1,b:2:1,b:0:3,r:0:0,g:2:0";
+    private static final String TWO_ROBOTS_MAP = "m:4:4,b:1:0,b:1:1,b:2:1,b:0:3,h:3:3,r:0:0,g:2:0";
+
+    private final HttpClient iClient = HttpClient.newHttpClient();
+    private SolveService iSolveService;
+    private SolveServer iServer;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        iSolveService = new SolveService(
+                (board, control) -> new BreadthFirstSearchIterative(board, -1, control), 0, Duration.ofSeconds(10),
+                new SolveScheduler(new SolveScheduler.Config(1, 1, 4, SolveScheduler.Config.DEFAULT_HEAVY_COST, 0)));
+        iServer = new SolveServer(0, iSolveService, new HintService(1024 * 1024, iSolveService.getScheduler()),
+                new SessionService(4, Duration.ofMinutes(1)));
+        iServer.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        iServer.stop(Duration.ofSeconds(1));
+    }
+
+    @Test
+    void testSessionContinue() throws Exception {
+        final String sessionId = new ObjectMapper().readTree(get("/session/open?q=" + encode(TWO_ROBOTS_MAP)).body())
+                .get("session").asText();
+        final String continuation = "/session/continue?session=" + sessionId + "&robots=";
+
+        final HttpResponse<String> solved = get(continuation + encode("0,0,3,3"));
+        assertEquals(200, solved.statusCode(), solved.body());
+        final Game game = Game.valueOf(TWO_ROBOTS_MAP);
+        final int expectedLength = new BreadthFirstSearchIterative(game.getBoard())
+                .run(game.getInitialRobotsState(), game.getEndCriteria()).getStatistics().getSolutionLength();
+        assertEquals(Integer.toString(expectedLength), solved.headers().firstValue("X-Solution-Length").orElseThrow());
+        // the continuation is admitted by the scheduler like a solve
+        assertEquals(1, iSolveService.getScheduler().getMetrics().fast().admitted());
+
+        assertEquals(400, get(continuation + encode("0,0")).statusCode()); // robot count
+        assertEquals(400, get(continuation + encode("0,0,4,3")).statusCode()); // off the board
+        assertEquals(400, get(continuation + encode("0,0,3,-1")).statusCode()); // off the board
+        assertEquals(400, get(continuation + encode("0,0,1,0")).statusCode()); // on a blocker
+        assertEquals(400, get(continuation + encode("3,3,3,3")).statusCode()); // on another robot
+        assertEquals(400, get(continuation + encode("0,0,3,3") + "&waypoints=3").statusCode());
+        assertEquals(400, get("/session/continue?session=unknown&robots=0,0,3,3").statusCode());
+        assertEquals(1, iSolveService.getScheduler().getMetrics().fast().admitted());
+    }
+
+    @Test
+    void testHintRobotsMustFitTheGame() throws Exception {
+        final String hint = "/hint?q=" + encode(MAP) + "&robots=";
+        assertEquals(200, get(hint + encode("0,0")).statusCode());
+        assertEquals(400, get(hint + encode("0,0,3,3")).statusCode());
+        assertEquals(400, get(hint + encode("0,4")).statusCode());
+        assertEquals(400, get(hint + encode("1,1")).statusCode());
+    }
+
+    @Test
+    void testSessionRequests() throws Exception {
+        assertEquals(405, post("/session/open?q=" + encode(MAP)).statusCode());
+        assertEquals(405, post("/session/continue?session=unknown&robots=0,0").statusCode());
+        assertEquals(405, post("/session/close?session=unknown").statusCode());
+        assertEquals(400, get("/session/open?q=junk").statusCode());
+        assertEquals(404, get("/session/close?session=unknown").statusCode());
+
+        // an unexpected failure is an internal error, not a dropped connection
+        final SessionService failingSessions = new SessionService(4, Duration.ofMinutes(1)) {
+            @Override
+            public String open(final Game game) {
+                throw new IllegalStateException("broken");
+            }
+        };
+        final SolveServer server = new SolveServer(0, iSolveService,
+                new HintService(1024 * 1024, iSolveService.getScheduler()), failingSessions);
+        server.start();
+        try {
+            final URI uri = URI.create("http://localhost:" + server.getPort() + "/session/open?q=" + encode(MAP));
+            final HttpResponse<String> response =
+                    iClient.send(HttpRequest.newBuilder(uri).GET().build(), HttpResponse.BodyHandlers.ofString());
+            assertEquals(500, response.statusCode());
+        } finally {
+            server.stop(Duration.ofSeconds(1));
+        }
+    }
+
+    //-------------------------------------------------------------------------------------------------------------------------------------
+
+    private HttpResponse<String> post(final String pathAndQuery) throws IOException, InterruptedException {
+        final URI uri = URI.create("http://localhost:" + iServer.getPort() + pathAndQuery);
+        return iClient.send(HttpRequest.newBuilder(uri).POST(HttpRequest.BodyPublishers.noBody()).build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> get(final String pathAndQuery) throws IOException, InterruptedException {
+        final URI uri = URI.create("http://localhost:" + iServer.getPort() + pathAndQuery);
+        return iClient.send(HttpRequest.newBuilder(uri).GET().build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static String encode(final String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
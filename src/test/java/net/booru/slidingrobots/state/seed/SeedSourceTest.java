@@ -0,0 +1,50 @@
+package net.booru.slidingrobots.state.seed;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SeedSourceTest {
+
+    @Test
+    void testSameMasterSeedIsReproducible() {
+        final SeedSource source1 = new SeedSource(42L);
+        final SeedSource source2 = new SeedSource(42L);
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(source1.nextSeedString(8, 8, false), source2.nextSeedString(8, 8, false));
+        }
+        assertArrayEquals(source1.nextSeeds(50), source2.nextSeeds(50));
+    }
+
+    @Test
+    void testSplitsAreReproducibleAndIndependent() {
+        final List<SeedSource> workers1 = new SeedSource(7L).split(3);
+        final List<SeedSource> workers2 = new SeedSource(7L).split(3);
+
+        for (int i = 0; i < workers1.size(); i++) {
+            assertEquals(7L, workers1.get(i).getMasterSeed());
+            assertArrayEquals(workers1.get(i).nextSeeds(20), workers2.get(i).nextSeeds(20));
+        }
+
+        final SeedSource parent = new SeedSource(7L);
+        assertNotEquals(parent.split().nextSeedString(8, 8, false), parent.split().nextSeedString(8, 8, false));
+    }
+
+    @Test
+    void testBulkSeedsFormat() {
+        final char[] seeds = new SeedSource(1L).nextSeeds(10);
+        assertEquals(10 * SeedUtils.SEED_LENGTH, seeds.length);
+
+        for (int i = 0; i < 10; i++) {
+            final String seed = new String(seeds, i * SeedUtils.SEED_LENGTH, SeedUtils.SEED_LENGTH);
+            assertTrue(seed.matches("[A-Z0-9]{4}-[A-Z0-9]{4}"), seed);
+            assertEquals(SeedUtils.parseSeedString("seed:8:8:" + seed).seed(), seed);
+        }
+    }
+}
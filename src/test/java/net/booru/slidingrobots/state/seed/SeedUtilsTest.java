@@ -7,6 +7,7 @@ import org.slf4j.LoggerFactory;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 class SeedUtilsTest {
     private static final Logger cLogger = LoggerFactory.getLogger(SeedUtilsTest.class);
@@ -32,4 +33,17 @@ class SeedUtilsTest {
             assertEquals(expected.get(i), a);
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    void testSeedIndexRoundTrip() {
+        assertEquals("AAAA-AAAA", SeedUtils.seedFromIndex(0));
+        assertEquals("AAAA-AAAB", SeedUtils.seedFromIndex(1));
+        assertEquals("0000-0000", SeedUtils.seedFromIndex(SeedUtils.SEED_SPACE_SIZE - 1));
+        assertThrows(IllegalArgumentException.class, () -> SeedUtils.seedFromIndex(SeedUtils.SEED_SPACE_SIZE));
+
+        for (String seed : List.of("ABCD-EFGH", "1BC2-EF09", "Z8GZ-4KCM")) {
+            assertEquals(seed, SeedUtils.seedFromIndex(SeedUtils.seedIndex(seed)));
+            assertEquals(SeedUtils.seedStringHash(seed), SeedUtils.seedHash(seed.toCharArray(), 0));
+        }
+    }
+}
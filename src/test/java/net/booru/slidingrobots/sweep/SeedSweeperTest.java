@@ -0,0 +1,67 @@
+package net.booru.slidingrobots.sweep;
+
+import net.booru.slidingrobots.algorithm.BreadthFirstSearchIterative;
+import net.booru.slidingrobots.state.seed.SeedUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SeedSweeperTest {
+
+    @TempDir
+    Path iTempDir;
+
+    private final SeedSweeper iSweeper =
+            new SeedSweeper(new SeedIndex.Header(8, 8, false), board -> new BreadthFirstSearchIterative(board, 2));
+
+    @Test
+    void testShardsCoverSeedSpace() {
+        assertEquals(0, SeedSweeper.getShardStart(0, 7));
+        assertEquals(SeedUtils.SEED_SPACE_SIZE, SeedSweeper.getShardStart(7, 7));
+        for (int i = 0; i < 7; i++) {
+            assertTrue(SeedSweeper.getShardStart(i, 7) < SeedSweeper.getShardStart(i + 1, 7));
+        }
+    }
+
+    @Test
+    void testSweepContinuesFromCheckpoint() throws IOException {
+        final String indexBase = iTempDir.resolve("8x8").toString();
+        final int shardIndex = 5;
+        final int shardCount = 1_000_000;
+
+        iSweeper.sweep(indexBase, shardIndex, shardCount, 6);
+        iSweeper.sweep(indexBase, shardIndex, shardCount, 4);
+
+        final List<SeedIndexRecord> records = new ArrayList<>();
+        final Path indexFile = SeedSweeper.getShardIndexFile(indexBase, shardIndex, shardCount);
+        SeedIndex.forEach(indexFile, records::add);
+
+        assertEquals(List.of(indexFile), SeedSweeper.findShardIndexFiles(indexBase));
+        assertEquals(10, records.size());
+        final long shardStart = SeedSweeper.getShardStart(shardIndex, shardCount);
+        for (int i = 0; i < records.size(); i++) {
+            assertEquals(shardStart + i, records.get(i).seedIndex());
+        }
+        assertEquals(iSweeper.solve(shardStart + 7), records.get(7));
+
+        final SeedIndexRecord solved = records.stream().filter(SeedIndexRecord::hasSolution).findFirst().orElseThrow();
+        final String seedString = new SeedIndex.Header(8, 8, false).toSeedString(solved.seedIndex());
+
+        final List<String> found = SeedIndex.query(List.of(indexFile), solved.solutionLength(), 100, Set.of());
+        assertTrue(found.contains(seedString));
+        assertTrue(found.size() <= 100);
+
+        final List<String> unused = SeedIndex.query(List.of(indexFile), solved.solutionLength(), 100, Set.of(seedString));
+        assertFalse(unused.contains(seedString));
+        assertEquals(found.size() - 1, unused.size());
+    }
+}